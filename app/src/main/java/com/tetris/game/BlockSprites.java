@@ -0,0 +1,57 @@
+package com.tetris.game;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+
+/**
+ * Pre-rendered blocks, one bitmap per color at one size. Drawing a board is then one bitmap
+ * blit per cell instead of a gradient and several rects, and boards drawn at the same size
+ * share the sprites.
+ */
+final class BlockSprites {
+    interface Painter {
+        void paint(Canvas canvas, float x, float y, float size, int color);
+    }
+
+    // Piece colors plus garbage; more than this and the oldest is replaced
+    private static final int CAPACITY = 16;
+
+    private final Painter painter;
+    private final int[] colors = new int[CAPACITY];
+    private final Bitmap[] bitmaps = new Bitmap[CAPACITY];
+    private int count;
+    private int next;
+    private float size;
+
+    BlockSprites(Painter painter) {
+        this.painter = painter;
+    }
+
+    Bitmap get(int color, float size) {
+        if (size != this.size) {
+            clear();
+            this.size = size;
+        }
+        for (int i = 0; i < count; i++) {
+            if (colors[i] == color) return bitmaps[i];
+        }
+
+        int pixels = Math.max(1, (int) Math.ceil(size));
+        Bitmap bitmap = Bitmap.createBitmap(pixels, pixels, Bitmap.Config.ARGB_8888);
+        painter.paint(new Canvas(bitmap), 0, 0, size, color);
+        int slot = count < CAPACITY ? count++ : next++ % CAPACITY;
+        if (bitmaps[slot] != null) bitmaps[slot].recycle();
+        colors[slot] = color;
+        bitmaps[slot] = bitmap;
+        return bitmap;
+    }
+
+    void clear() {
+        for (int i = 0; i < count; i++) {
+            bitmaps[i].recycle();
+            bitmaps[i] = null;
+        }
+        count = 0;
+        next = 0;
+    }
+}
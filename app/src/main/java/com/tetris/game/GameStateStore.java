@@ -0,0 +1,138 @@
+package com.tetris.game;
+
+import android.content.Context;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Keeps the in-progress game on disk so it survives the activity being killed.
+ *
+ * The file holds the latest GameSnapshot followed by the InputJournal recorded since.
+ * Callers encode on the game thread (a few microseconds) and hand the bytes over; the write
+ * itself happens on a background thread, and back-to-back saves collapse into one write of
+ * the newest data.
+ */
+public class GameStateStore {
+    private static final String STATE_FILE = "saved_game.bin";
+
+    public interface RestoreCallback {
+        // Called on the I/O thread with the restored game, or null if there was none
+        void onRestored(TetrisGame game);
+    }
+
+    private final ExecutorService io = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "GameStateIO");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final File stateFile;
+    private final File tmpFile;
+
+    // Latest bytes waiting to be written, swapped with the writer's buffer under the lock
+    private final Object lock = new Object();
+    private ByteBuffer pending = ByteBuffer.allocate(4 + GameSnapshot.MAX_SIZE + InputJournal.MAX_SIZE);
+    private ByteBuffer writing = ByteBuffer.allocate(4 + GameSnapshot.MAX_SIZE + InputJournal.MAX_SIZE);
+    private boolean writeScheduled = false;
+    private boolean hasPending = false;
+
+    public GameStateStore(Context context) {
+        File dir = context.getApplicationContext().getFilesDir();
+        stateFile = new File(dir, STATE_FILE);
+        tmpFile = new File(dir, STATE_FILE + ".tmp");
+    }
+
+    /**
+     * Queue a save of the snapshot and, if given, the journal recorded since it.
+     * Both buffers are read from position to limit and left untouched.
+     */
+    public void saveAsync(ByteBuffer snapshot, ByteBuffer journal) {
+        synchronized (lock) {
+            pending.clear();
+            pending.order(ByteOrder.LITTLE_ENDIAN);
+            pending.putInt(snapshot.remaining());
+            pending.put(snapshot.duplicate());
+            if (journal != null) {
+                pending.put(journal.duplicate());
+            }
+            pending.flip();
+            hasPending = true;
+            if (writeScheduled) return;
+            writeScheduled = true;
+        }
+        io.execute(this::writePending);
+    }
+
+    /**
+     * Drop any saved game, e.g. once it ends or the player quits to the menu.
+     */
+    public void clearAsync() {
+        synchronized (lock) {
+            hasPending = false;
+        }
+        io.execute(stateFile::delete);
+    }
+
+    /**
+     * Load the saved game, if any, and bring it forward to the tick it was saved at.
+     */
+    public void restoreAsync(RestoreCallback callback) {
+        io.execute(() -> callback.onRestored(restore()));
+    }
+
+    private TetrisGame restore() {
+        if (!stateFile.exists()) return null;
+        try (RandomAccessFile in = new RandomAccessFile(stateFile, "r")) {
+            FileChannel channel = in.getChannel();
+            ByteBuffer buffer = ByteBuffer.allocate((int) channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+            while (buffer.hasRemaining() && channel.read(buffer) > 0) {
+                // Keep reading
+            }
+            buffer.flip();
+
+            int snapshotLength = buffer.getInt();
+            ByteBuffer snapshot = buffer.slice();
+            snapshot.limit(snapshotLength);
+            TetrisGame game = GameSnapshot.read(snapshot);
+
+            buffer.position(buffer.position() + snapshotLength);
+            if (buffer.hasRemaining()) {
+                InputJournal.replay(buffer.slice(), game);
+            }
+            return game.isGameOver() ? null : game;
+        } catch (IOException | RuntimeException e) {
+            // Unreadable or from an older format; start fresh rather than crash
+            stateFile.delete();
+            return null;
+        }
+    }
+
+    private void writePending() {
+        synchronized (lock) {
+            writeScheduled = false;
+            if (!hasPending) return;
+            hasPending = false;
+            ByteBuffer swap = writing;
+            writing = pending;
+            pending = swap;
+        }
+
+        try (RandomAccessFile out = new RandomAccessFile(tmpFile, "rw")) {
+            out.setLength(0);
+            FileChannel channel = out.getChannel();
+            while (writing.hasRemaining()) {
+                channel.write(writing);
+            }
+        } catch (IOException e) {
+            return;
+        }
+        tmpFile.renameTo(stateFile);
+    }
+}
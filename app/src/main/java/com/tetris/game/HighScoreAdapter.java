@@ -0,0 +1,150 @@
+package com.tetris.game;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.io.IOException;
+import java.text.NumberFormat;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Recycled rows for the high score screen. Rows are fetched from the score history a page at a
+ * time on the store's I/O thread, where their display strings are also built, so binding a row
+ * on the UI thread is only a few setText calls.
+ */
+public class HighScoreAdapter extends RecyclerView.Adapter<HighScoreAdapter.RowHolder> {
+    private static final int PAGE_SIZE = 50;
+    private static final int PREFETCH_DISTANCE = 15;
+
+    public interface Callback {
+        // Called on the UI thread once the first page is known, with the total number of games
+        void onFirstPageLoaded(int total);
+    }
+
+    // Pre-formatted row, built off the UI thread
+    private static class Row {
+        String rank;
+        String score;
+        String details;
+        boolean topThree;
+    }
+
+    static class RowHolder extends RecyclerView.ViewHolder {
+        final TextView rankView;
+        final TextView scoreView;
+        final TextView detailsView;
+
+        RowHolder(View itemView) {
+            super(itemView);
+            rankView = itemView.findViewById(R.id.scoreRank);
+            scoreView = itemView.findViewById(R.id.scoreValue);
+            detailsView = itemView.findViewById(R.id.scoreDetails);
+        }
+    }
+
+    private final ScoreHistoryStore store;
+    private final HighScoresActivity activity;
+    private final Callback callback;
+    private final List<Row> rows = new ArrayList<>();
+    private int total = -1;
+    private boolean loading = false;
+
+    // Only touched on the store's single I/O thread
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat("MMM dd, yyyy", Locale.getDefault());
+    private final NumberFormat scoreFormat = NumberFormat.getIntegerInstance(Locale.getDefault());
+    private final Date date = new Date();
+    private final StringBuilder builder = new StringBuilder();
+
+    public HighScoreAdapter(HighScoresActivity activity, ScoreHistoryStore store, Callback callback) {
+        this.activity = activity;
+        this.store = store;
+        this.callback = callback;
+    }
+
+    @Override
+    public RowHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_high_score, parent, false);
+        return new RowHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(RowHolder holder, int position) {
+        Row row = rows.get(position);
+        holder.itemView.setBackgroundResource(
+            row.topThree ? R.drawable.high_score_entry_top : R.drawable.high_score_entry
+        );
+        holder.rankView.setText(row.rank);
+        holder.rankView.setTextColor(row.topThree ? 0xFFFFD700 : 0xFF4CAF50);
+        holder.scoreView.setText(row.score);
+        holder.scoreView.setTextColor(row.topThree ? 0xFFFFD700 : 0xFFFFFFFF);
+        holder.detailsView.setText(row.details);
+
+        // Fetch the next page before the user reaches the end of what's loaded
+        if (position >= rows.size() - PREFETCH_DISTANCE) {
+            loadNextPage();
+        }
+    }
+
+    @Override
+    public int getItemCount() {
+        return rows.size();
+    }
+
+    /**
+     * Request the next page of rows if one exists and none is in flight.
+     */
+    public void loadNextPage() {
+        if (loading || (total >= 0 && rows.size() >= total)) return;
+        loading = true;
+        final int offset = rows.size();
+
+        ScoreHistoryStore.execute(() -> {
+            List<Row> page = new ArrayList<>(PAGE_SIZE);
+            int size;
+            try {
+                size = store.size();
+                for (ScoreHistoryStore.GameRecord record : store.getByScore(offset, PAGE_SIZE)) {
+                    page.add(formatRow(offset + page.size(), record));
+                }
+            } catch (IOException e) {
+                size = offset;
+            }
+
+            final int pageTotal = size;
+            activity.runOnUiThread(() -> {
+                if (activity.isFinishing()) return;
+                boolean first = total < 0;
+                total = pageTotal;
+                loading = false;
+                int start = rows.size();
+                rows.addAll(page);
+                notifyItemRangeInserted(start, page.size());
+                if (first && callback != null) {
+                    callback.onFirstPageLoaded(total);
+                }
+            });
+        });
+    }
+
+    private Row formatRow(int index, ScoreHistoryStore.GameRecord record) {
+        Row row = new Row();
+        row.topThree = index < 3;
+        row.rank = "#" + (index + 1);
+        row.score = scoreFormat.format(record.score);
+
+        date.setTime(record.timestamp);
+        builder.setLength(0);
+        builder.append("Level ").append(record.level)
+               .append("  •  ").append(dateFormat.format(date));
+        row.details = builder.toString();
+        return row;
+    }
+}
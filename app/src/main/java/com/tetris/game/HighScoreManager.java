@@ -4,13 +4,34 @@ import android.content.Context;
 import android.content.SharedPreferences;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class HighScoreManager {
     private static final String PREF_NAME = "TetrisHighScores";
     private static final String KEY_SCORES = "high_scores";
+    // Set once the table has been copied into the score history
+    private static final String KEY_HISTORY_IMPORTED = "history_imported";
     private static final int MAX_SCORES = 10;
+
+    // Parsed table shared by every manager instance, sorted by score descending.
+    // Parallel primitive arrays so lookups at game over never touch the preferences string.
+    private static final Object LOCK = new Object();
+    private static final int[] cachedScores = new int[MAX_SCORES];
+    private static final int[] cachedLevels = new int[MAX_SCORES];
+    private static final long[] cachedTimestamps = new long[MAX_SCORES];
+    private static int cachedCount = 0;
+    private static boolean loaded = false;
+
+    // Single background writer; a pending flag coalesces bursts of inserts into one write
+    private static final ExecutorService writer = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "HighScoreWriter");
+        t.setDaemon(true);
+        return t;
+    });
+    private static boolean writePending = false;
+
     private SharedPreferences prefs;
 
     public static class ScoreEntry implements Comparable<ScoreEntry> {
@@ -33,81 +54,153 @@ public class HighScoreManager {
 
     public HighScoreManager(Context context) {
         prefs = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
-    }
 
-    public void addScore(int score, int level) {
-        List<ScoreEntry> scores = getHighScores();
-        scores.add(new ScoreEntry(score, level, System.currentTimeMillis()));
-        Collections.sort(scores);
+        // Warm the cache off the UI thread so the first lookup doesn't parse
+        writer.execute(this::ensureLoaded);
+    }
 
-        // Keep only top MAX_SCORES
-        if (scores.size() > MAX_SCORES) {
-            scores = scores.subList(0, MAX_SCORES);
+    /**
+     * Insert a finished game into the table and schedule a background save. The timestamp
+     * should be the one the game is logged with in the score history, so the history import
+     * can tell the two copies apart from older games.
+     * Returns the 1-based rank of the new score (MAX_SCORES + 1 if it didn't make the table).
+     */
+    public int addScore(int score, int level, long timestamp) {
+        int position;
+        synchronized (LOCK) {
+            ensureLoaded();
+            position = insertSorted(score, level, timestamp);
+            if (position < MAX_SCORES) {
+                scheduleSave();
+            }
         }
+        return position + 1;
+    }
+
+    /**
+     * Whether the table has already been copied into the score history.
+     */
+    public boolean isHistoryImported() {
+        return prefs.getBoolean(KEY_HISTORY_IMPORTED, false);
+    }
 
-        saveScores(scores);
+    public void setHistoryImported() {
+        prefs.edit().putBoolean(KEY_HISTORY_IMPORTED, true).apply();
     }
 
     public List<ScoreEntry> getHighScores() {
-        List<ScoreEntry> scores = new ArrayList<>();
-        String scoresStr = prefs.getString(KEY_SCORES, "");
-
-        if (!scoresStr.isEmpty()) {
-            String[] entries = scoresStr.split(";");
-            for (String entry : entries) {
-                String[] parts = entry.split(",");
-                if (parts.length == 3) {
-                    try {
-                        int score = Integer.parseInt(parts[0]);
-                        int level = Integer.parseInt(parts[1]);
-                        long timestamp = Long.parseLong(parts[2]);
-                        scores.add(new ScoreEntry(score, level, timestamp));
-                    } catch (NumberFormatException e) {
-                        // Skip invalid entries
-                    }
-                }
+        synchronized (LOCK) {
+            ensureLoaded();
+            List<ScoreEntry> scores = new ArrayList<>(cachedCount);
+            for (int i = 0; i < cachedCount; i++) {
+                scores.add(new ScoreEntry(cachedScores[i], cachedLevels[i], cachedTimestamps[i]));
             }
+            return scores;
         }
+    }
 
-        // Always sort scores in descending order
-        Collections.sort(scores);
+    public boolean isHighScore(int score) {
+        synchronized (LOCK) {
+            ensureLoaded();
+            return cachedCount < MAX_SCORES || score > cachedScores[cachedCount - 1];
+        }
+    }
 
-        // Ensure we only return top 10
-        if (scores.size() > MAX_SCORES) {
-            scores = scores.subList(0, MAX_SCORES);
+    public int getRank(int score) {
+        synchronized (LOCK) {
+            ensureLoaded();
+            return insertionPoint(score) + 1;
         }
+    }
 
-        return scores;
+    /**
+     * Binary search for the first slot holding a lower score than the given one.
+     * Caller must hold LOCK.
+     */
+    private static int insertionPoint(int score) {
+        int low = 0;
+        int high = cachedCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (cachedScores[mid] >= score) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
     }
 
-    private void saveScores(List<ScoreEntry> scores) {
-        StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < scores.size(); i++) {
-            ScoreEntry entry = scores.get(i);
-            sb.append(entry.score).append(",")
-              .append(entry.level).append(",")
-              .append(entry.timestamp);
-            if (i < scores.size() - 1) {
-                sb.append(";");
+    private void ensureLoaded() {
+        synchronized (LOCK) {
+            if (loaded) return;
+
+            String scoresStr = prefs.getString(KEY_SCORES, "");
+            if (!scoresStr.isEmpty()) {
+                String[] entries = scoresStr.split(";");
+                for (String entry : entries) {
+                    String[] parts = entry.split(",");
+                    if (parts.length == 3) {
+                        try {
+                            int score = Integer.parseInt(parts[0]);
+                            int level = Integer.parseInt(parts[1]);
+                            long timestamp = Long.parseLong(parts[2]);
+                            insertSorted(score, level, timestamp);
+                        } catch (NumberFormatException e) {
+                            // Skip invalid entries
+                        }
+                    }
+                }
             }
+            loaded = true;
         }
-        prefs.edit().putString(KEY_SCORES, sb.toString()).apply();
     }
 
-    public boolean isHighScore(int score) {
-        List<ScoreEntry> scores = getHighScores();
-        return scores.size() < MAX_SCORES || score > scores.get(scores.size() - 1).score;
+    /**
+     * Shift lower entries down and place the score at its sorted slot, dropping whatever
+     * falls off the end. Equal scores keep their existing order, the new one goes after them.
+     * Returns the slot used, or MAX_SCORES if the score didn't make the table. Caller must hold LOCK.
+     */
+    private static int insertSorted(int score, int level, long timestamp) {
+        int position = insertionPoint(score);
+        if (position >= MAX_SCORES) return MAX_SCORES;
+
+        int moved = Math.min(cachedCount, MAX_SCORES - 1) - position;
+        if (moved > 0) {
+            System.arraycopy(cachedScores, position, cachedScores, position + 1, moved);
+            System.arraycopy(cachedLevels, position, cachedLevels, position + 1, moved);
+            System.arraycopy(cachedTimestamps, position, cachedTimestamps, position + 1, moved);
+        }
+        cachedScores[position] = score;
+        cachedLevels[position] = level;
+        cachedTimestamps[position] = timestamp;
+        if (cachedCount < MAX_SCORES) {
+            cachedCount++;
+        }
+        return position;
     }
 
-    public int getRank(int score) {
-        List<ScoreEntry> scores = getHighScores();
-        int rank = 1;
-        for (ScoreEntry entry : scores) {
-            if (score > entry.score) {
-                return rank;
+    // Caller must hold LOCK
+    private void scheduleSave() {
+        if (writePending) return;
+        writePending = true;
+        writer.execute(this::saveScores);
+    }
+
+    private void saveScores() {
+        StringBuilder sb = new StringBuilder();
+        synchronized (LOCK) {
+            writePending = false;
+            for (int i = 0; i < cachedCount; i++) {
+                sb.append(cachedScores[i]).append(",")
+                  .append(cachedLevels[i]).append(",")
+                  .append(cachedTimestamps[i]);
+                if (i < cachedCount - 1) {
+                    sb.append(";");
+                }
             }
-            rank++;
         }
-        return rank;
+        // Already on the writer thread, so a synchronous commit is fine here
+        prefs.edit().putString(KEY_SCORES, sb.toString()).commit();
     }
 }
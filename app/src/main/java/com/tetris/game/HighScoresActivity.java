@@ -1,19 +1,21 @@
 package com.tetris.game;
 
 import android.os.Bundle;
-import android.widget.LinearLayout;
+import android.view.View;
 import android.widget.TextView;
 
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.io.IOException;
 import java.util.List;
-import java.util.Locale;
 
 public class HighScoresActivity extends AppCompatActivity {
-    private LinearLayout scoresContainer;
+    private RecyclerView scoresList;
+    private TextView emptyView;
     private HighScoreManager scoreManager;
+    private ScoreHistoryStore historyStore;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -26,8 +28,10 @@ public class HighScoresActivity extends AppCompatActivity {
 
         setContentView(R.layout.activity_high_scores);
 
-        scoresContainer = findViewById(R.id.scoresContainer);
+        scoresList = findViewById(R.id.scoresList);
+        emptyView = findViewById(R.id.emptyScores);
         scoreManager = new HighScoreManager(this);
+        historyStore = ScoreHistoryStore.getInstance(this);
 
         // Setup back button
         findViewById(R.id.btnBackToMenu).setOnClickListener(v -> finish());
@@ -36,82 +40,46 @@ public class HighScoresActivity extends AppCompatActivity {
     }
 
     private void displayHighScores() {
-        List<HighScoreManager.ScoreEntry> scores = scoreManager.getHighScores();
-
-        if (scores.isEmpty()) {
-            TextView emptyView = new TextView(this);
-            emptyView.setText(R.string.no_scores);
-            emptyView.setTextColor(getResources().getColor(android.R.color.white));
-            emptyView.setTextSize(18);
-            emptyView.setPadding(16, 16, 16, 16);
-            scoresContainer.addView(emptyView);
-            return;
-        }
-
-        SimpleDateFormat dateFormat = new SimpleDateFormat("MMM dd, yyyy", Locale.getDefault());
-
-        for (int i = 0; i < scores.size() && i < 10; i++) {
-            HighScoreManager.ScoreEntry entry = scores.get(i);
-            boolean isTopThree = i < 3;
-
-            // Create a container for each score entry
-            LinearLayout entryLayout = new LinearLayout(this);
-            entryLayout.setOrientation(LinearLayout.HORIZONTAL);
-            LinearLayout.LayoutParams params = new LinearLayout.LayoutParams(
-                LinearLayout.LayoutParams.MATCH_PARENT,
-                LinearLayout.LayoutParams.WRAP_CONTENT
-            );
-            params.setMargins(0, 8, 0, 8);
-            entryLayout.setLayoutParams(params);
-            entryLayout.setBackgroundResource(
-                isTopThree ? R.drawable.high_score_entry_top : R.drawable.high_score_entry
-            );
-
-            // Rank
-            TextView rankView = new TextView(this);
-            rankView.setText(String.format(Locale.getDefault(), "#%d", i + 1));
-            rankView.setTextColor(isTopThree ? 0xFFFFD700 : 0xFF4CAF50);
-            rankView.setTextSize(28);
-            rankView.setTypeface(null, android.graphics.Typeface.BOLD);
-            rankView.setShadowLayer(3, 2, 2, 0xFF000000);
-            LinearLayout.LayoutParams rankParams = new LinearLayout.LayoutParams(120, LinearLayout.LayoutParams.WRAP_CONTENT);
-            rankParams.gravity = android.view.Gravity.CENTER_VERTICAL;
-            rankView.setLayoutParams(rankParams);
-            rankView.setGravity(android.view.Gravity.CENTER);
-            entryLayout.addView(rankView);
-
-            // Score and details
-            LinearLayout detailsLayout = new LinearLayout(this);
-            detailsLayout.setOrientation(LinearLayout.VERTICAL);
-            detailsLayout.setLayoutParams(new LinearLayout.LayoutParams(
-                0, LinearLayout.LayoutParams.WRAP_CONTENT, 1
-            ));
-            detailsLayout.setPadding(16, 0, 0, 0); // Add left padding for spacing
-
-            TextView scoreView = new TextView(this);
-            scoreView.setText(String.format(Locale.getDefault(), "%,d", entry.score));
-            scoreView.setTextColor(isTopThree ? 0xFFFFD700 : 0xFFFFFFFF);
-            scoreView.setTextSize(22);
-            scoreView.setTypeface(null, android.graphics.Typeface.BOLD);
-            scoreView.setShadowLayer(2, 1, 1, 0xFF000000);
-            detailsLayout.addView(scoreView);
-
-            TextView levelView = new TextView(this);
-            levelView.setText(String.format(Locale.getDefault(), "Level %d  •  %s",
-                entry.level, dateFormat.format(new Date(entry.timestamp))));
-            levelView.setTextColor(0xFF999999);
-            levelView.setTextSize(14);
-            LinearLayout.LayoutParams levelParams = new LinearLayout.LayoutParams(
-                LinearLayout.LayoutParams.WRAP_CONTENT,
-                LinearLayout.LayoutParams.WRAP_CONTENT
-            );
-            levelParams.setMargins(0, 4, 0, 0); // Add small top margin
-            levelView.setLayoutParams(levelParams);
-            detailsLayout.addView(levelView);
-
-            entryLayout.addView(detailsLayout);
-            scoresContainer.addView(entryLayout);
-        }
+        importLegacyScores();
+
+        HighScoreAdapter adapter = new HighScoreAdapter(this, historyStore, total -> {
+            if (total == 0) {
+                scoresList.setVisibility(View.GONE);
+                emptyView.setVisibility(View.VISIBLE);
+            }
+        });
+        scoresList.setLayoutManager(new LinearLayoutManager(this));
+        scoresList.setHasFixedSize(true);
+        scoresList.setAdapter(adapter);
+        adapter.loadNextPage();
     }
 
+    /**
+     * Scores saved before the history log existed only live in the top 10 table. Copy them
+     * into the log once, marked in the preferences, so they still show up here. Games played
+     * since the upgrade are in both, so only entries older than the log's oldest game are
+     * copied.
+     */
+    private void importLegacyScores() {
+        ScoreHistoryStore.execute(() -> {
+            if (scoreManager.isHistoryImported()) return;
+            try {
+                long firstLogged = Long.MAX_VALUE;
+                int count = historyStore.size();
+                if (count > 0) {
+                    firstLogged = historyStore.getByDate(count - 1, 1).get(0).timestamp;
+                }
+                List<HighScoreManager.ScoreEntry> legacy = scoreManager.getHighScores();
+                for (int i = legacy.size() - 1; i >= 0; i--) {
+                    HighScoreManager.ScoreEntry entry = legacy.get(i);
+                    if (entry.timestamp < firstLogged) {
+                        historyStore.append(entry.score, entry.level, 0, 0, 0, entry.timestamp);
+                    }
+                }
+                scoreManager.setHistoryImported();
+            } catch (IOException e) {
+                // Not marked, so the import is tried again next time
+            }
+        });
+    }
 }
@@ -5,11 +5,13 @@ import android.content.Intent;
 import android.content.SharedPreferences;
 import android.os.Bundle;
 import android.os.Handler;
+import android.os.SystemClock;
 import android.view.Menu;
 import android.view.MenuItem;
 import android.view.View;
 import android.view.Window;
 import android.widget.Button;
+import android.widget.CheckBox;
 import android.widget.ImageButton;
 import android.widget.LinearLayout;
 import android.widget.SeekBar;
@@ -18,14 +20,24 @@ import android.widget.Toast;
 
 import androidx.appcompat.app.AppCompatActivity;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
 public class MainActivity extends AppCompatActivity implements TetrisGame.GameListener {
     private static final String PREFS_NAME = "TetrisPrefs";
     private static final String PREF_SPEED = "speed";
     private static final String PREF_LINES = "starting_lines";
+    private static final String PREF_HINTS = "hints";
+    private static final String PREF_PREVIEW = "preview_count";
+    // Ticks run in one loop callback before the rest of a backlog is dropped, e.g. after a stall
+    private static final int MAX_CATCH_UP = 4;
 
     private TetrisView tetrisView;
     private TetrisGame game;
+    // Set while a versus match is on; game is then its left-hand player
+    private VersusMatch match;
     private Handler gameHandler;
+    private long nextTickNanos;
     private Runnable gameRunnable;
     private boolean isGameRunning = false;
 
@@ -35,7 +47,17 @@ public class MainActivity extends AppCompatActivity implements TetrisGame.GameLi
     private ImageButton btnPauseGame;
     private ImageButton btnSettings;
     private HighScoreManager scoreManager;
+    private ScoreHistoryStore historyStore;
+    private long gameStartTime;
+    private GameStateStore stateStore;
+    // Latest snapshot (taken at each piece lock) and the inputs recorded since
+    private final ByteBuffer snapshotBuffer = ByteBuffer.allocate(GameSnapshot.MAX_SIZE);
+    private final ByteBuffer journalBuffer = ByteBuffer.allocate(InputJournal.MAX_SIZE);
+    private final InputJournal journal = new InputJournal();
+    // Replay of the current game; only games started fresh are recorded
+    private ReplayRecorder replayRecorder;
     private SoundManager soundManager;
+    private HintEngine hintEngine;
     private SharedPreferences preferences;
 
     // For down button long press
@@ -45,6 +67,8 @@ public class MainActivity extends AppCompatActivity implements TetrisGame.GameLi
 
     private int selectedSpeed = 5; // Default speed
     private int selectedStartingLines = 0; // Default starting lines
+    private boolean hintsEnabled = false;
+    private int selectedPreviewCount = 1; // Upcoming pieces shown
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -62,20 +86,30 @@ public class MainActivity extends AppCompatActivity implements TetrisGame.GameLi
         setupGameControls();
         setupGameControlButtons();
 
-        // Show main menu on startup
-        showMainMenu();
+        // Resume a game that was interrupted, otherwise show main menu on startup
+        stateStore.restoreAsync(restored -> runOnUiThread(() -> {
+            if (restored != null) {
+                resumeSavedGame(restored);
+            } else {
+                showMainMenu();
+            }
+        }));
     }
 
     private void loadSettings() {
         preferences = getSharedPreferences(PREFS_NAME, MODE_PRIVATE);
         selectedSpeed = preferences.getInt(PREF_SPEED, 5);
         selectedStartingLines = preferences.getInt(PREF_LINES, 0);
+        hintsEnabled = preferences.getBoolean(PREF_HINTS, false);
+        selectedPreviewCount = preferences.getInt(PREF_PREVIEW, 1);
     }
 
     private void saveSettings() {
         SharedPreferences.Editor editor = preferences.edit();
         editor.putInt(PREF_SPEED, selectedSpeed);
         editor.putInt(PREF_LINES, selectedStartingLines);
+        editor.putBoolean(PREF_HINTS, hintsEnabled);
+        editor.putInt(PREF_PREVIEW, selectedPreviewCount);
         editor.apply();
     }
 
@@ -87,7 +121,12 @@ public class MainActivity extends AppCompatActivity implements TetrisGame.GameLi
         btnPauseGame = findViewById(R.id.btnPauseGame);
         btnSettings = findViewById(R.id.btnSettings);
         scoreManager = new HighScoreManager(this);
+        historyStore = ScoreHistoryStore.getInstance(this);
+        stateStore = new GameStateStore(this);
         soundManager = new SoundManager(this);
+        hintEngine = new HintEngine(() -> tetrisView.postInvalidate());
+        tetrisView.setHintEngine(hintsEnabled ? hintEngine : null);
+        tetrisView.setPreviewCount(selectedPreviewCount);
     }
 
     private void setupGameControls() {
@@ -167,7 +206,7 @@ public class MainActivity extends AppCompatActivity implements TetrisGame.GameLi
         // Pause game if playing
         boolean wasPaused = game != null && game.isPaused();
         if (game != null && !game.isGameOver()) {
-            game.setPaused(true);
+            setGamePaused(true);
             if (soundManager != null) {
                 soundManager.pauseMusic();
             }
@@ -184,7 +223,10 @@ public class MainActivity extends AppCompatActivity implements TetrisGame.GameLi
         TextView speedValue = settingsDialog.findViewById(R.id.settingsTvSpeedValue);
         SeekBar linesSeekBar = settingsDialog.findViewById(R.id.settingsSeekBarLines);
         TextView linesValue = settingsDialog.findViewById(R.id.settingsTvLinesValue);
+        SeekBar previewSeekBar = settingsDialog.findViewById(R.id.settingsSeekBarPreview);
+        TextView previewValue = settingsDialog.findViewById(R.id.settingsTvPreviewValue);
         ImageButton muteBtn = settingsDialog.findViewById(R.id.settingsBtnMute);
+        CheckBox hintsCheck = settingsDialog.findViewById(R.id.settingsCheckHints);
         Button closeBtn = settingsDialog.findViewById(R.id.settingsBtnClose);
 
         // Set current values
@@ -192,7 +234,10 @@ public class MainActivity extends AppCompatActivity implements TetrisGame.GameLi
         speedValue.setText(String.valueOf(selectedSpeed));
         linesSeekBar.setProgress(selectedStartingLines);
         linesValue.setText(String.valueOf(selectedStartingLines));
+        previewSeekBar.setProgress(selectedPreviewCount - 1);
+        previewValue.setText(String.valueOf(selectedPreviewCount));
         updateMuteButtonIcon(muteBtn);
+        hintsCheck.setChecked(hintsEnabled);
 
         // Speed seekbar listener
         speedSeekBar.setOnSeekBarChangeListener(new SeekBar.OnSeekBarChangeListener() {
@@ -230,6 +275,25 @@ public class MainActivity extends AppCompatActivity implements TetrisGame.GameLi
             public void onStopTrackingTouch(SeekBar seekBar) {}
         });
 
+        // Preview seekbar listener
+        previewSeekBar.setOnSeekBarChangeListener(new SeekBar.OnSeekBarChangeListener() {
+            @Override
+            public void onProgressChanged(SeekBar seekBar, int progress, boolean fromUser) {
+                selectedPreviewCount = progress + 1;
+                previewValue.setText(String.valueOf(selectedPreviewCount));
+                tetrisView.setPreviewCount(selectedPreviewCount);
+                if (fromUser) {
+                    saveSettings();
+                }
+            }
+
+            @Override
+            public void onStartTrackingTouch(SeekBar seekBar) {}
+
+            @Override
+            public void onStopTrackingTouch(SeekBar seekBar) {}
+        });
+
         // Mute button listener
         muteBtn.setOnClickListener(v -> {
             if (soundManager != null) {
@@ -238,12 +302,20 @@ public class MainActivity extends AppCompatActivity implements TetrisGame.GameLi
             }
         });
 
+        // Hints checkbox listener
+        hintsCheck.setOnCheckedChangeListener((buttonView, isChecked) -> {
+            hintsEnabled = isChecked;
+            saveSettings();
+            tetrisView.setHintEngine(hintsEnabled ? hintEngine : null);
+            requestHint();
+        });
+
         // Close button listener
         closeBtn.setOnClickListener(v -> {
             settingsDialog.dismiss();
             // Resume game if it wasn't paused before
             if (game != null && !game.isGameOver() && !wasPaused) {
-                game.setPaused(false);
+                setGamePaused(false);
                 if (soundManager != null) {
                     soundManager.resumeMusic();
                 }
@@ -276,6 +348,7 @@ public class MainActivity extends AppCompatActivity implements TetrisGame.GameLi
         mainMenuDialog.setCancelable(false);
 
         Button btnNewGame = mainMenuDialog.findViewById(R.id.menuBtnNewGame);
+        Button btnVersus = mainMenuDialog.findViewById(R.id.menuBtnVersus);
         Button btnSettings = mainMenuDialog.findViewById(R.id.menuBtnSettings);
         Button btnQuit = mainMenuDialog.findViewById(R.id.menuBtnQuit);
 
@@ -285,6 +358,12 @@ public class MainActivity extends AppCompatActivity implements TetrisGame.GameLi
             startNewGame();
         });
 
+        btnVersus.setOnClickListener(v -> {
+            mainMenuDialog.dismiss();
+            gameLayout.setVisibility(View.VISIBLE);
+            startVersus();
+        });
+
         btnSettings.setOnClickListener(v -> {
             showSettingsDialog();
         });
@@ -310,7 +389,7 @@ public class MainActivity extends AppCompatActivity implements TetrisGame.GameLi
 
         btnContinue.setOnClickListener(v -> {
             pauseDialog.dismiss();
-            game.setPaused(false);
+            setGamePaused(false);
             updatePauseButton();
             if (soundManager != null) {
                 soundManager.resumeMusic();
@@ -319,12 +398,17 @@ public class MainActivity extends AppCompatActivity implements TetrisGame.GameLi
 
         btnNewGame.setOnClickListener(v -> {
             pauseDialog.dismiss();
-            startNewGame();
+            if (match != null) {
+                startVersus();
+            } else {
+                startNewGame();
+            }
         });
 
         btnQuit.setOnClickListener(v -> {
             pauseDialog.dismiss();
             stopGame();
+            stateStore.clearAsync();
             showMainMenu(); // Return to main menu instead of exiting
         });
 
@@ -354,9 +438,106 @@ public class MainActivity extends AppCompatActivity implements TetrisGame.GameLi
             stopGame();
         }
 
-        game = new TetrisGame(selectedSpeed, soundManager, selectedStartingLines);
+        beginGame(new TetrisGame(selectedSpeed, soundManager, selectedStartingLines, System.nanoTime(),
+                TetrisBoard.DEFAULT_ROWS, TetrisBoard.DEFAULT_COLS, PieceSet.STANDARD, Gravity.LEVEL_CURVE,
+                Scoring.GUIDELINE));
+        replayRecorder = new ReplayRecorder(game);
+    }
+
+    /**
+     * Two players on one screen. The left board takes the buttons and touches on the left
+     * half of the board view, the right board touches on the right half. Versus games aren't
+     * saved, recorded or entered as high scores.
+     */
+    private void startVersus() {
+        if (isGameRunning) {
+            stopGame();
+        }
+
+        replayRecorder = null;
+        match = new VersusMatch(selectedSpeed, soundManager, System.nanoTime(), Gravity.LEVEL_CURVE,
+                Scoring.GUIDELINE);
+        match.setListener(versusListener);
+        game = match.getGame(0);
+        hintEngine.clear();
+        tetrisView.setVersusMatch(match);
+        updateVersusScores();
+        startGameLoop();
+
+        if (soundManager != null) {
+            soundManager.startBackgroundMusic();
+        }
+    }
+
+    private final VersusMatch.Listener versusListener = new VersusMatch.Listener() {
+        @Override
+        public void onBoardChanged(int player) {
+            runOnUiThread(() -> tetrisView.refresh());
+        }
+
+        @Override
+        public void onScoreChanged(int player, int score) {
+            runOnUiThread(() -> updateVersusScores());
+        }
+
+        @Override
+        public void onLinesClearing(int player, int[] lines) {
+            runOnUiThread(() -> tetrisView.startLineClearAnimation(player, lines));
+        }
+
+        @Override
+        public void onGarbagePending(int player, int rows) {
+            runOnUiThread(() -> tetrisView.refresh());
+        }
+
+        @Override
+        public void onMatchOver(int winner) {
+            runOnUiThread(() -> {
+                stopGame();
+                tetrisView.refresh();
+                new RetroDialog(MainActivity.this)
+                        .setTitle(getString(R.string.versus_winner, winner + 1))
+                        .setMessage(getString(R.string.versus_result,
+                                match.getGame(0).getLines(), match.getGame(1).getLines()))
+                        .setCancelable(false)
+                        .setButton("Rematch", v -> startVersus())
+                        .setSecondButton("Menu", v -> showMainMenu())
+                        .show();
+            });
+        }
+    };
+
+    private void updateVersusScores() {
+        tvScore.setText(getString(R.string.versus_score, 1, match.getGame(0).getScore()));
+        tvLevel.setText(getString(R.string.versus_score, 2, match.getGame(1).getScore()));
+    }
+
+    /**
+     * Pick up a game restored from disk, paused behind the pause dialog.
+     */
+    private void resumeSavedGame(TetrisGame restored) {
+        gameLayout.setVisibility(View.VISIBLE);
+        restored.setSoundManager(soundManager);
+        beginGame(restored);
+
+        setGamePaused(true);
+        updatePauseButton();
+        if (soundManager != null) {
+            soundManager.pauseMusic();
+        }
+        showPauseDialog();
+    }
+
+    private void beginGame(TetrisGame newGame) {
+        replayRecorder = null;
+        match = null;
+        game = newGame;
         game.setGameListener(this);
+        game.addInputRecorder(journal);
         tetrisView.setGame(game);
+        requestHint();
+        gameStartTime = SystemClock.elapsedRealtime();
+        saveSnapshot();
 
         updateScore(game.getScore());
         updateLevel(game.getLevel());
@@ -369,19 +550,57 @@ public class MainActivity extends AppCompatActivity implements TetrisGame.GameLi
         }
     }
 
+    // Encode the game as it stands and start a fresh journal from here
+    private void saveSnapshot() {
+        snapshotBuffer.clear();
+        GameSnapshot.write(game, snapshotBuffer);
+        snapshotBuffer.flip();
+        journal.reset(game.getTickCount());
+        stateStore.saveAsync(snapshotBuffer, null);
+    }
+
+    // Persist the last snapshot plus everything played since, so a restore lands on this tick
+    private void saveSnapshotAndJournal() {
+        journalBuffer.clear();
+        journal.write(journalBuffer, game.getTickCount());
+        journalBuffer.flip();
+        stateStore.saveAsync(snapshotBuffer, journalBuffer);
+    }
+
+    // Runs the game's ticks on its own clock. Each callback runs every tick that has come due,
+    // so a fast gravity falls many rows in one tick instead of asking for more callbacks, and a
+    // late callback catches up rather than slowing the game down.
     private void startGameLoop() {
         isGameRunning = true;
         gameHandler = new Handler();
+        final long intervalNanos = game.getTickIntervalNanos();
+        nextTickNanos = System.nanoTime() + intervalNanos;
         gameRunnable = new Runnable() {
             @Override
             public void run() {
-                if (game != null && !game.isGameOver() && !game.isPaused()) {
-                    game.moveDown();
+                long now = System.nanoTime();
+                int due = 0;
+                while (now >= nextTickNanos && due < MAX_CATCH_UP) {
+                    nextTickNanos += intervalNanos;
+                    due++;
+                }
+                if (now >= nextTickNanos) {
+                    nextTickNanos = now + intervalNanos;
+                }
+                for (int i = 0; i < due; i++) {
+                    if (match != null) {
+                        // Both boards tick together on this thread
+                        if (match.isOver() || match.isPaused()) break;
+                        match.tick();
+                    } else if (game != null && !game.isGameOver() && !game.isPaused()) {
+                        game.tick();
+                    } else {
+                        break;
+                    }
                 }
                 if (isGameRunning) {
-                    // Speed determines delay: speed 1 = slowest (1000ms), speed 9 = fastest (~200ms)
-                    int delay = Math.max(200, 1100 - (selectedSpeed * 100));
-                    gameHandler.postDelayed(this, delay);
+                    long wait = nextTickNanos - System.nanoTime();
+                    gameHandler.postDelayed(this, Math.max(1, (wait + 999_999) / 1_000_000));
                 }
             }
         };
@@ -402,7 +621,7 @@ public class MainActivity extends AppCompatActivity implements TetrisGame.GameLi
     private void togglePauseFromButton() {
         // Only allow pause if game is running and game layout is visible
         if (game != null && isGameRunning && gameLayout.getVisibility() == View.VISIBLE) {
-            game.togglePause();
+            setGamePaused(!game.isPaused());
             updatePauseButton();
             if (game.isPaused()) {
                 if (soundManager != null) {
@@ -418,6 +637,15 @@ public class MainActivity extends AppCompatActivity implements TetrisGame.GameLi
         }
     }
 
+    // In versus both boards pause together
+    private void setGamePaused(boolean paused) {
+        if (match != null) {
+            match.setPaused(paused);
+        } else {
+            game.setPaused(paused);
+        }
+    }
+
     @Override
     public void onScoreChanged(int score) {
         runOnUiThread(() -> updateScore(score));
@@ -433,17 +661,27 @@ public class MainActivity extends AppCompatActivity implements TetrisGame.GameLi
         runOnUiThread(() -> {
             stopGame();
             tetrisView.refresh();
+            stateStore.clearAsync();
 
             int finalScore = game.getScore();
             int finalLevel = game.getLevel();
 
-            // Save score to high scores
-            scoreManager.addScore(finalScore, finalLevel);
-            int rank = scoreManager.getRank(finalScore);
+            // One timestamp for the game in every store, so they agree on when it was played
+            long timestamp = System.currentTimeMillis();
+
+            // Check against the cached table before inserting, then save score to high scores
+            boolean isHighScore = scoreManager.isHighScore(finalScore);
+            int rank = scoreManager.addScore(finalScore, finalLevel, timestamp);
+
+            // Keep every finished game in the full history log, with its replay alongside
+            int durationMs = (int) (SystemClock.elapsedRealtime() - gameStartTime);
+            historyStore.appendAsync(finalScore, finalLevel, game.getLines(), durationMs,
+                    game.getSeed(), timestamp);
+            saveReplay(timestamp);
 
             String message = getString(R.string.game_over_message, finalScore, rank);
             String title = "GAME OVER";
-            if (scoreManager.isHighScore(finalScore)) {
+            if (isHighScore) {
                 title = "★ NEW HIGH SCORE ★";
             }
 
@@ -465,11 +703,43 @@ public class MainActivity extends AppCompatActivity implements TetrisGame.GameLi
         });
     }
 
+    private void saveReplay(long timestamp) {
+        if (replayRecorder == null) return;
+        ReplayRecorder recorder = replayRecorder;
+        replayRecorder = null;
+        recorder.finish(game);
+
+        ReplayArchive archive = ReplayArchive.getInstance(this);
+        ScoreHistoryStore.execute(() -> {
+            try {
+                archive.append(recorder.getData(), timestamp);
+            } catch (IOException | RuntimeException e) {
+                // Replays are a bonus; losing one is not worth interrupting the player
+            }
+        });
+    }
+
     @Override
     public void onBoardChanged() {
+        // Every move, rotation and lock lands here, so the hint always follows the piece
+        requestHint();
         runOnUiThread(() -> tetrisView.refresh());
     }
 
+    private void requestHint() {
+        if (hintsEnabled && game != null && match == null) {
+            hintEngine.request(game);
+        } else {
+            hintEngine.clear();
+        }
+    }
+
+    @Override
+    public void onPieceLocked() {
+        // Game calls all come from the UI thread, so the state is consistent right here
+        saveSnapshot();
+    }
+
     @Override
     public void onLinesClearing(int[] lines) {
         runOnUiThread(() -> tetrisView.startLineClearAnimation(lines));
@@ -487,8 +757,11 @@ public class MainActivity extends AppCompatActivity implements TetrisGame.GameLi
     protected void onPause() {
         super.onPause();
         if (game != null && !game.isGameOver()) {
-            game.setPaused(true);
+            setGamePaused(true);
             invalidateOptionsMenu();
+            if (isGameRunning && match == null) {
+                saveSnapshotAndJournal();
+            }
         }
         // Pause music when app goes to background
         if (soundManager != null) {
@@ -519,5 +792,6 @@ public class MainActivity extends AppCompatActivity implements TetrisGame.GameLi
         if (soundManager != null) {
             soundManager.release();
         }
+        hintEngine.shutdown();
     }
 }
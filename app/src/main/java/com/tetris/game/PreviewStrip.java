@@ -0,0 +1,98 @@
+package com.tetris.game;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+
+/**
+ * The upcoming pieces composited into one bitmap from the block sprites, stacked top to
+ * bottom, so a frame draws the whole queue with one blit. The bitmap is repainted only when
+ * the pieces shown change, which is once per lock or hold rather than every frame.
+ */
+final class PreviewStrip {
+    private final BlockSprites sprites;
+    // What the bitmap currently shows
+    private final int[] types = new int[TetrisGame.MAX_PREVIEW];
+    private int count;
+    private PieceSet pieces;
+    private Palette palette;
+    private float size;
+    private Bitmap bitmap;
+    private Canvas canvas;
+    // One piece's slot, in blocks: the set's widest and tallest spawn orientations
+    private int slotWidth;
+    private int slotHeight;
+
+    PreviewStrip(BlockSprites sprites) {
+        this.sprites = sprites;
+    }
+
+    /**
+     * Height in pixels of each piece's slot in the strip.
+     */
+    float getSlotHeight() {
+        return (slotHeight + 0.5f) * size;
+    }
+
+    /**
+     * The first count pieces of the game's queue, drawn with blocks of the given size.
+     */
+    Bitmap get(TetrisGame game, int count, float size, Palette palette) {
+        PieceSet pieces = game.getPieceSet();
+        if (bitmap == null || count != this.count || size != this.size || pieces != this.pieces) {
+            resize(pieces, count, size);
+        } else if (palette == this.palette && showsQueue(game)) {
+            return bitmap;
+        }
+        this.palette = palette;
+        repaint(game);
+        return bitmap;
+    }
+
+    void clear() {
+        if (bitmap != null) {
+            bitmap.recycle();
+            bitmap = null;
+            canvas = null;
+        }
+    }
+
+    private boolean showsQueue(TetrisGame game) {
+        for (int i = 0; i < count; i++) {
+            if (types[i] != game.getPreviewPiece(i).getType()) return false;
+        }
+        return true;
+    }
+
+    private void resize(PieceSet pieces, int count, float size) {
+        clear();
+        this.pieces = pieces;
+        this.count = count;
+        this.size = size;
+        slotWidth = 0;
+        slotHeight = 0;
+        for (int type = 0; type < pieces.size(); type++) {
+            slotWidth = Math.max(slotWidth, pieces.getWidth(type, 0));
+            slotHeight = Math.max(slotHeight, pieces.getHeight(type, 0));
+        }
+        int width = Math.max(1, (int) Math.ceil(slotWidth * size));
+        int height = Math.max(1, (int) Math.ceil(count * getSlotHeight()));
+        bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        canvas = new Canvas(bitmap);
+    }
+
+    private void repaint(TetrisGame game) {
+        bitmap.eraseColor(Color.TRANSPARENT);
+        for (int i = 0; i < count; i++) {
+            TetrisPiece piece = game.getPreviewPiece(i);
+            types[i] = piece.getType();
+            Bitmap block = sprites.get(palette.getColor(piece.getCell()), size);
+            int[] columns = piece.getCellColumns();
+            int[] rows = piece.getCellRows();
+            float top = i * getSlotHeight();
+            for (int k = 0; k < columns.length; k++) {
+                canvas.drawBitmap(block, columns[k] * size, top + rows[k] * size, null);
+            }
+        }
+    }
+}
@@ -0,0 +1,363 @@
+package com.tetris.game;
+
+import android.content.Context;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Archive of many replays in one memory-mapped file, with keyframes for fast seeking.
+ *
+ * Layout (little endian):
+ *   header (32 bytes): int magic, int version, int entry count, int index capacity,
+ *                      int keyframe interval, 12 bytes reserved
+ *   index: capacity x 48 byte entries
+ *          long seed, long timestamp, long data offset,
+ *          int score, int lines, int level, int end tick, int replay length, int keyframe count
+ *   data blocks, one per entry:
+ *          replay bytes as written by ReplayRecorder,
+ *          keyframe table: per keyframe int tick, int event position, int previous event tick,
+ *                          int snapshot offset (from block start), int snapshot length
+ *          GameSnapshot bytes for each keyframe
+ *
+ * Keyframes are taken every keyframe-interval ticks when a replay is added, so seeking to a
+ * tick restores the nearest earlier snapshot and re-simulates at most one interval.
+ * Listing and filtering only read the fixed-size index, never the replays themselves.
+ *
+ * Appending writes the data block and its index slot first and bumps the entry count in the
+ * header last, so a crash mid-append leaves the archive as it was before.
+ */
+public class ReplayArchive {
+    private static final String ARCHIVE_FILE = "replays.tra";
+
+    private static final int MAGIC = 0x54524152; // "TRAR"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+    private static final int ENTRY_SIZE = 48;
+    private static final int KEYFRAME_SIZE = 20;
+    private static final int INITIAL_CAPACITY = 256;
+    public static final int DEFAULT_KEYFRAME_INTERVAL = 100;
+
+    // Index entry field offsets
+    private static final int E_SEED = 0;
+    private static final int E_TIMESTAMP = 8;
+    private static final int E_OFFSET = 16;
+    private static final int E_SCORE = 24;
+    private static final int E_LINES = 28;
+    private static final int E_LEVEL = 32;
+    private static final int E_END_TICK = 36;
+    private static final int E_LENGTH = 40;
+    private static final int E_KEYFRAMES = 44;
+
+    private static ReplayArchive instance;
+
+    private final File file;
+    private final int keyframeInterval;
+    private RandomAccessFile raf;
+    private FileChannel channel;
+    private MappedByteBuffer mapped;
+    private int count;
+    private int capacity;
+
+    public static class Entry {
+        public int index;
+        public long seed;
+        public long timestamp;
+        public int score;
+        public int lines;
+        public int level;
+        public int endTick;
+    }
+
+    public static synchronized ReplayArchive getInstance(Context context) {
+        if (instance == null) {
+            instance = new ReplayArchive(new File(context.getApplicationContext().getFilesDir(), ARCHIVE_FILE),
+                    DEFAULT_KEYFRAME_INTERVAL);
+        }
+        return instance;
+    }
+
+    public ReplayArchive(File file, int keyframeInterval) {
+        this.file = file;
+        this.keyframeInterval = keyframeInterval;
+    }
+
+    public synchronized int size() throws IOException {
+        open();
+        return count;
+    }
+
+    /**
+     * Add a finished replay. It is simulated once here to build its keyframes.
+     *
+     * @return the index of the new entry
+     * @throws IllegalArgumentException if the data isn't a valid replay
+     */
+    public synchronized int append(ByteBuffer replay, long timestamp) throws IOException {
+        open();
+        if (count == capacity) {
+            grow(capacity * 2);
+        }
+
+        ByteBuffer replayBytes = replay.slice();
+        int replayLength = replayBytes.remaining();
+
+        // Simulate, dropping a snapshot at every keyframe boundary
+        ReplayPlayer player = new ReplayPlayer(replayBytes);
+        ByteBuffer snapshots = ByteBuffer.allocate(GameSnapshot.MAX_SIZE * 4).order(ByteOrder.LITTLE_ENDIAN);
+        List<int[]> keyframes = new ArrayList<>();
+        for (long tick = keyframeInterval; !player.isFinished(); tick += keyframeInterval) {
+            player.advanceTo(tick);
+            if (player.isFinished()) break;
+            if (snapshots.remaining() < GameSnapshot.MAX_SIZE) {
+                ByteBuffer grown = ByteBuffer.allocate(snapshots.capacity() * 2).order(ByteOrder.LITTLE_ENDIAN);
+                snapshots.flip();
+                grown.put(snapshots);
+                snapshots = grown;
+            }
+            int start = snapshots.position();
+            GameSnapshot.write(player.getGame(), snapshots);
+            keyframes.add(new int[]{
+                (int) tick, player.getNextEventPosition(), (int) player.getPreviousEventTick(),
+                start, snapshots.position() - start
+            });
+        }
+        TetrisGame result = player.getGame();
+
+        // Block: replay, keyframe table, snapshots
+        int tableSize = keyframes.size() * KEYFRAME_SIZE;
+        int snapshotsStart = replayLength + tableSize;
+        ByteBuffer block = ByteBuffer.allocate(snapshotsStart + snapshots.position()).order(ByteOrder.LITTLE_ENDIAN);
+        block.put(replayBytes.duplicate());
+        for (int[] keyframe : keyframes) {
+            block.putInt(keyframe[0]).putInt(keyframe[1]).putInt(keyframe[2])
+                 .putInt(snapshotsStart + keyframe[3]).putInt(keyframe[4]);
+        }
+        snapshots.flip();
+        block.put(snapshots);
+        block.flip();
+
+        long dataOffset = channel.size();
+        writeFully(block, dataOffset);
+
+        ByteBuffer entry = ByteBuffer.allocate(ENTRY_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        entry.putLong(player.getSeed()).putLong(timestamp).putLong(dataOffset)
+             .putInt(result.getScore()).putInt(result.getLines()).putInt(result.getLevel())
+             .putInt((int) result.getTickCount()).putInt(replayLength).putInt(keyframes.size());
+        entry.flip();
+        writeFully(entry, entryOffset(count));
+
+        // Commit point
+        channel.force(false);
+        ByteBuffer countBytes = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+        countBytes.putInt(0, count + 1);
+        writeFully(countBytes, 8);
+        count++;
+        mapped = null;
+        return count - 1;
+    }
+
+    public synchronized Entry getEntry(int index) throws IOException {
+        open();
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("No replay " + index);
+        }
+        return readEntry(map(), index);
+    }
+
+    /**
+     * All entries scoring at least minScore, newest first. Only the index is read.
+     */
+    public synchronized List<Entry> list(int minScore) throws IOException {
+        open();
+        ByteBuffer buffer = map();
+        List<Entry> result = new ArrayList<>();
+        for (int i = count - 1; i >= 0; i--) {
+            if (buffer.getInt(entryOffset(i) + E_SCORE) >= minScore) {
+                result.add(readEntry(buffer, i));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The raw replay bytes of an entry, as a view into the mapping.
+     */
+    public synchronized ByteBuffer getReplay(int index) throws IOException {
+        open();
+        ByteBuffer buffer = map();
+        int base = entryOffset(index);
+        ByteBuffer replay = buffer.duplicate();
+        int offset = (int) buffer.getLong(base + E_OFFSET);
+        replay.position(offset);
+        replay.limit(offset + buffer.getInt(base + E_LENGTH));
+        return replay.slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * A player for the given replay positioned at the requested tick. The nearest keyframe at
+     * or before the tick is restored and at most one keyframe interval is re-simulated.
+     */
+    public synchronized ReplayPlayer seek(int index, long tick) throws IOException {
+        ByteBuffer replay = getReplay(index);
+        ByteBuffer buffer = map();
+        int base = entryOffset(index);
+        int blockOffset = (int) buffer.getLong(base + E_OFFSET);
+        int tableOffset = blockOffset + buffer.getInt(base + E_LENGTH);
+        int keyframeCount = buffer.getInt(base + E_KEYFRAMES);
+
+        // Last keyframe with tick <= requested tick
+        int low = 0;
+        int high = keyframeCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (buffer.getInt(tableOffset + mid * KEYFRAME_SIZE) <= tick) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        ReplayPlayer player;
+        if (low == 0) {
+            player = new ReplayPlayer(replay);
+        } else {
+            int keyframe = tableOffset + (low - 1) * KEYFRAME_SIZE;
+            ByteBuffer snapshot = buffer.duplicate();
+            int snapshotStart = blockOffset + buffer.getInt(keyframe + 12);
+            snapshot.position(snapshotStart);
+            snapshot.limit(snapshotStart + buffer.getInt(keyframe + 16));
+            TetrisGame game = GameSnapshot.read(snapshot.slice());
+            player = new ReplayPlayer(replay, game, buffer.getInt(keyframe + 4), buffer.getInt(keyframe + 8));
+        }
+        player.advanceTo(tick);
+        return player;
+    }
+
+    public synchronized void close() {
+        if (raf != null) {
+            try {
+                raf.close();
+            } catch (IOException e) {
+                // Nothing useful to do
+            }
+        }
+        raf = null;
+        channel = null;
+        mapped = null;
+    }
+
+    private void open() throws IOException {
+        if (channel != null) return;
+
+        raf = new RandomAccessFile(file, "rw");
+        channel = raf.getChannel();
+        if (channel.size() < HEADER_SIZE) {
+            capacity = INITIAL_CAPACITY;
+            count = 0;
+            channel.truncate(0);
+            writeFully(header(0, capacity), 0);
+            writeFully(ByteBuffer.allocate(capacity * ENTRY_SIZE), HEADER_SIZE);
+        } else {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(header, 0);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                close();
+                throw new IOException("Not a replay archive: " + file);
+            }
+            count = header.getInt(8);
+            capacity = header.getInt(12);
+        }
+    }
+
+    private ByteBuffer header(int entries, int indexCapacity) {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION).putInt(entries).putInt(indexCapacity).putInt(keyframeInterval);
+        header.clear();
+        return header;
+    }
+
+    private ByteBuffer map() throws IOException {
+        long size = channel.size();
+        if (mapped == null || mapped.capacity() < size) {
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            mapped.order(ByteOrder.LITTLE_ENDIAN);
+        }
+        return mapped;
+    }
+
+    private static int entryOffset(int index) {
+        return HEADER_SIZE + index * ENTRY_SIZE;
+    }
+
+    private static Entry readEntry(ByteBuffer buffer, int index) {
+        int base = entryOffset(index);
+        Entry entry = new Entry();
+        entry.index = index;
+        entry.seed = buffer.getLong(base + E_SEED);
+        entry.timestamp = buffer.getLong(base + E_TIMESTAMP);
+        entry.score = buffer.getInt(base + E_SCORE);
+        entry.lines = buffer.getInt(base + E_LINES);
+        entry.level = buffer.getInt(base + E_LEVEL);
+        entry.endTick = buffer.getInt(base + E_END_TICK);
+        return entry;
+    }
+
+    /**
+     * Rewrite the archive with a larger index. Data blocks move down by the extra index space.
+     */
+    private void grow(int newCapacity) throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+        long shift = (long) (newCapacity - capacity) * ENTRY_SIZE;
+        long dataStart = HEADER_SIZE + (long) capacity * ENTRY_SIZE;
+
+        try (RandomAccessFile out = new RandomAccessFile(tmp, "rw")) {
+            out.setLength(0);
+            FileChannel target = out.getChannel();
+            writeFully(target, header(count, newCapacity), 0);
+
+            ByteBuffer index = ByteBuffer.allocate(newCapacity * ENTRY_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            index.limit(capacity * ENTRY_SIZE);
+            while (index.hasRemaining() && channel.read(index, HEADER_SIZE + index.position()) > 0) {
+                // Keep reading
+            }
+            for (int i = 0; i < count; i++) {
+                int slot = i * ENTRY_SIZE + E_OFFSET;
+                index.putLong(slot, index.getLong(slot) + shift);
+            }
+            index.clear();
+            writeFully(target, index, HEADER_SIZE);
+
+            long remaining = channel.size() - dataStart;
+            long copied = 0;
+            while (copied < remaining) {
+                copied += channel.transferTo(dataStart + copied, remaining - copied,
+                        target.position(HEADER_SIZE + (long) newCapacity * ENTRY_SIZE + copied));
+            }
+            target.force(false);
+        }
+
+        close();
+        if (!tmp.renameTo(file)) {
+            throw new IOException("Could not replace " + file);
+        }
+        open();
+    }
+
+    private void writeFully(ByteBuffer buffer, long position) throws IOException {
+        writeFully(channel, buffer, position);
+    }
+
+    private static void writeFully(FileChannel target, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += target.write(buffer, position);
+        }
+    }
+}
@@ -0,0 +1,411 @@
+package com.tetris.game;
+
+import android.content.Context;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Append-only binary log of every finished game.
+ *
+ * The log is a 16 byte header followed by fixed 32 byte records and is only ever appended to.
+ * Reads go through a read-only memory mapping of the file. Two sorted indexes of record
+ * numbers (by score and by date) are kept in memory and cached in small side files so that
+ * opening the store only has to index records appended since the last run.
+ */
+public class ScoreHistoryStore {
+    private static final String LOG_FILE = "score_history.bin";
+    private static final String SCORE_INDEX_FILE = "score_history.score.idx";
+    private static final String DATE_INDEX_FILE = "score_history.date.idx";
+
+    private static final int MAGIC = 0x54485354; // "THST"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int RECORD_SIZE = 32;
+
+    // Field offsets within a record
+    private static final int OFF_SCORE = 0;
+    private static final int OFF_LEVEL = 4;
+    private static final int OFF_LINES = 8;
+    private static final int OFF_DURATION = 12;
+    private static final int OFF_SEED = 16;
+    private static final int OFF_TIMESTAMP = 24;
+
+    private static ScoreHistoryStore instance;
+
+    // All disk work for the store runs on this thread; callers hop onto it with execute()
+    private static final ExecutorService io = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "ScoreHistoryIO");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final File logFile;
+    private final File scoreIndexFile;
+    private final File dateIndexFile;
+    private RandomAccessFile raf;
+    private FileChannel channel;
+    private MappedByteBuffer mapped;
+    private int count;
+
+    // Record numbers sorted by score (descending) and by timestamp (newest first).
+    // sortedScores mirrors byScore so the binary searches never touch the mapping.
+    private int[] byScore = new int[64];
+    private int[] sortedScores = new int[64];
+    private int[] byDate = new int[64];
+    private int indexedCount;
+    private final ByteBuffer recordBuffer = ByteBuffer.allocate(RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+    public static class GameRecord {
+        public int id;
+        public int score;
+        public int level;
+        public int lines;
+        public int durationMs;
+        public long seed;
+        public long timestamp;
+    }
+
+    public static synchronized ScoreHistoryStore getInstance(Context context) {
+        if (instance == null) {
+            instance = new ScoreHistoryStore(context.getApplicationContext().getFilesDir());
+        }
+        return instance;
+    }
+
+    public ScoreHistoryStore(File dir) {
+        logFile = new File(dir, LOG_FILE);
+        scoreIndexFile = new File(dir, SCORE_INDEX_FILE);
+        dateIndexFile = new File(dir, DATE_INDEX_FILE);
+    }
+
+    /**
+     * Run a task on the store's I/O thread.
+     */
+    public static void execute(Runnable task) {
+        io.execute(task);
+    }
+
+    /**
+     * Append a finished game to the log on the I/O thread.
+     */
+    public void appendAsync(int score, int level, int lines, int durationMs, long seed, long timestamp) {
+        io.execute(() -> {
+            try {
+                append(score, level, lines, durationMs, seed, timestamp);
+            } catch (IOException e) {
+                // History is best effort; a failed write must never take the game down
+            }
+        });
+    }
+
+    public synchronized void append(int score, int level, int lines, int durationMs, long seed, long timestamp)
+            throws IOException {
+        open();
+
+        recordBuffer.clear();
+        recordBuffer.putInt(score).putInt(level).putInt(lines).putInt(durationMs)
+                .putLong(seed).putLong(timestamp);
+        recordBuffer.flip();
+        long position = HEADER_SIZE + (long) count * RECORD_SIZE;
+        while (recordBuffer.hasRemaining()) {
+            channel.write(recordBuffer, position + recordBuffer.position());
+        }
+        count++;
+        mapped = null; // Remapped lazily to cover the new record
+
+        indexNewRecords();
+        saveIndexes();
+    }
+
+    public synchronized int size() throws IOException {
+        open();
+        return count;
+    }
+
+    /**
+     * Best N games by score.
+     */
+    public synchronized List<GameRecord> getTopScores(int limit) throws IOException {
+        return getByScore(0, limit);
+    }
+
+    /**
+     * A page of games ordered by score, best first.
+     */
+    public synchronized List<GameRecord> getByScore(int offset, int limit) throws IOException {
+        open();
+        int end = Math.min(count, offset + limit);
+        List<GameRecord> result = new ArrayList<>(Math.max(0, end - offset));
+        for (int i = offset; i < end; i++) {
+            result.add(readRecord(byScore[i]));
+        }
+        return result;
+    }
+
+    /**
+     * A page of games ordered newest first.
+     */
+    public synchronized List<GameRecord> getByDate(int offset, int limit) throws IOException {
+        open();
+        int end = Math.min(count, offset + limit);
+        List<GameRecord> result = new ArrayList<>(Math.max(0, end - offset));
+        for (int i = offset; i < end; i++) {
+            result.add(readRecord(byDate[i]));
+        }
+        return result;
+    }
+
+    /**
+     * Best games played to the given level, best first.
+     */
+    public synchronized List<GameRecord> getTopScoresForLevel(int level, int limit) throws IOException {
+        open();
+        ByteBuffer buffer = map();
+        List<GameRecord> result = new ArrayList<>();
+        for (int i = 0; i < count && result.size() < limit; i++) {
+            int id = byScore[i];
+            if (buffer.getInt(recordOffset(id) + OFF_LEVEL) == level) {
+                result.add(readRecord(id));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Fraction of recorded games (0.0 to 1.0) that scored strictly less than the given score.
+     */
+    public synchronized float getPercentileRank(int score) throws IOException {
+        open();
+        if (count == 0) return 1.0f;
+        int higherOrEqual = countAtLeast(score);
+        return (float) (count - higherOrEqual) / count;
+    }
+
+    /**
+     * 1-based position the given score would take among all recorded games.
+     */
+    public synchronized int getRank(int score) throws IOException {
+        open();
+        return countAtLeast(score) + 1;
+    }
+
+    public synchronized void close() {
+        if (raf != null) {
+            try {
+                raf.close();
+            } catch (IOException e) {
+                // Nothing useful to do
+            }
+        }
+        raf = null;
+        channel = null;
+        mapped = null;
+    }
+
+    // Binary search over the descending score mirror
+    private int countAtLeast(int score) {
+        int low = 0;
+        int high = indexedCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sortedScores[mid] >= score) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private void open() throws IOException {
+        if (channel != null) return;
+
+        raf = new RandomAccessFile(logFile, "rw");
+        channel = raf.getChannel();
+        if (raf.length() < HEADER_SIZE) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(RECORD_SIZE).putInt(0);
+            header.flip();
+            channel.truncate(0);
+            channel.write(header, 0);
+        } else {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(header, 0);
+            if (header.getInt(0) != MAGIC || header.getInt(8) != RECORD_SIZE) {
+                throw new IOException("Not a score history file: " + logFile);
+            }
+        }
+        // A torn final record from a crash mid-append is ignored
+        count = (int) ((raf.length() - HEADER_SIZE) / RECORD_SIZE);
+
+        loadIndexes();
+        if (indexedCount < count) {
+            indexNewRecords();
+            saveIndexes();
+        }
+    }
+
+    private ByteBuffer map() throws IOException {
+        long size = HEADER_SIZE + (long) count * RECORD_SIZE;
+        if (mapped == null || mapped.capacity() < size) {
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            mapped.order(ByteOrder.LITTLE_ENDIAN);
+        }
+        return mapped;
+    }
+
+    private static int recordOffset(int id) {
+        return HEADER_SIZE + id * RECORD_SIZE;
+    }
+
+    private GameRecord readRecord(int id) throws IOException {
+        ByteBuffer buffer = map();
+        int base = recordOffset(id);
+        GameRecord record = new GameRecord();
+        record.id = id;
+        record.score = buffer.getInt(base + OFF_SCORE);
+        record.level = buffer.getInt(base + OFF_LEVEL);
+        record.lines = buffer.getInt(base + OFF_LINES);
+        record.durationMs = buffer.getInt(base + OFF_DURATION);
+        record.seed = buffer.getLong(base + OFF_SEED);
+        record.timestamp = buffer.getLong(base + OFF_TIMESTAMP);
+        return record;
+    }
+
+    // Insert every record past indexedCount into both sorted indexes
+    private void indexNewRecords() throws IOException {
+        if (indexedCount >= count) return;
+        ByteBuffer buffer = map();
+        ensureIndexCapacity(count);
+
+        for (int id = indexedCount; id < count; id++) {
+            int base = recordOffset(id);
+            int score = buffer.getInt(base + OFF_SCORE);
+            long timestamp = buffer.getLong(base + OFF_TIMESTAMP);
+
+            // Score: equal scores keep the older game first
+            int pos = countAtLeast(score);
+            System.arraycopy(byScore, pos, byScore, pos + 1, indexedCount - pos);
+            System.arraycopy(sortedScores, pos, sortedScores, pos + 1, indexedCount - pos);
+            byScore[pos] = id;
+            sortedScores[pos] = score;
+
+            // Date: newest first; games normally arrive in order so this lands at 0
+            int low = 0;
+            int high = indexedCount;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (buffer.getLong(recordOffset(byDate[mid]) + OFF_TIMESTAMP) > timestamp) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            System.arraycopy(byDate, low, byDate, low + 1, indexedCount - low);
+            byDate[low] = id;
+
+            indexedCount++;
+        }
+    }
+
+    private void ensureIndexCapacity(int needed) {
+        if (byScore.length >= needed) return;
+        int capacity = Math.max(needed, byScore.length * 2);
+        int[] newByScore = new int[capacity];
+        int[] newSortedScores = new int[capacity];
+        int[] newByDate = new int[capacity];
+        System.arraycopy(byScore, 0, newByScore, 0, indexedCount);
+        System.arraycopy(sortedScores, 0, newSortedScores, 0, indexedCount);
+        System.arraycopy(byDate, 0, newByDate, 0, indexedCount);
+        byScore = newByScore;
+        sortedScores = newSortedScores;
+        byDate = newByDate;
+    }
+
+    /**
+     * Load the cached indexes. A cache that is missing, corrupt or claims more records
+     * than the log holds is discarded and rebuilt from the log.
+     */
+    private void loadIndexes() throws IOException {
+        indexedCount = 0;
+        int[] scoreIds = readIndexFile(scoreIndexFile);
+        int[] dateIds = readIndexFile(dateIndexFile);
+        if (scoreIds == null || dateIds == null || scoreIds.length != dateIds.length
+                || scoreIds.length > count) {
+            return;
+        }
+
+        ByteBuffer buffer = map();
+        ensureIndexCapacity(count);
+        for (int i = 0; i < scoreIds.length; i++) {
+            if (scoreIds[i] < 0 || scoreIds[i] >= scoreIds.length
+                    || dateIds[i] < 0 || dateIds[i] >= dateIds.length) {
+                return;
+            }
+            byScore[i] = scoreIds[i];
+            sortedScores[i] = buffer.getInt(recordOffset(scoreIds[i]) + OFF_SCORE);
+            byDate[i] = dateIds[i];
+        }
+        indexedCount = scoreIds.length;
+    }
+
+    private void saveIndexes() {
+        try {
+            writeIndexFile(scoreIndexFile, byScore, indexedCount);
+            writeIndexFile(dateIndexFile, byDate, indexedCount);
+        } catch (IOException e) {
+            // The indexes are only a cache of the log; they get rebuilt next time
+            scoreIndexFile.delete();
+            dateIndexFile.delete();
+        }
+    }
+
+    private static int[] readIndexFile(File file) {
+        if (!file.exists()) return null;
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            FileChannel ch = in.getChannel();
+            ByteBuffer buffer = ByteBuffer.allocate((int) ch.size()).order(ByteOrder.LITTLE_ENDIAN);
+            while (buffer.hasRemaining() && ch.read(buffer) > 0) {
+                // Keep reading
+            }
+            buffer.flip();
+            if (buffer.remaining() < 4) return null;
+            int n = buffer.getInt();
+            if (n < 0 || buffer.remaining() != n * 4) return null;
+            int[] ids = new int[n];
+            buffer.asIntBuffer().get(ids);
+            return ids;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static void writeIndexFile(File file, int[] ids, int n) throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+        ByteBuffer buffer = ByteBuffer.allocate(4 + n * 4).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(n);
+        buffer.asIntBuffer().put(ids, 0, n);
+        buffer.position(buffer.capacity());
+        buffer.flip();
+        try (RandomAccessFile out = new RandomAccessFile(tmp, "rw")) {
+            out.setLength(0);
+            FileChannel ch = out.getChannel();
+            while (buffer.hasRemaining()) {
+                ch.write(buffer);
+            }
+        }
+        if (!tmp.renameTo(file)) {
+            throw new IOException("Could not replace " + file);
+        }
+    }
+}
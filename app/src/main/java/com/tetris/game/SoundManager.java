@@ -8,7 +8,7 @@ import android.media.AudioTrack;
 import android.os.Handler;
 import android.os.Looper;
 
-public class SoundManager {
+public class SoundManager implements GameSounds {
     private static final String PREFS_NAME = "TetrisSettings";
     private static final String KEY_MUTED = "sound_muted";
     private static final int SAMPLE_RATE = 22050;
@@ -91,32 +91,38 @@ public class SoundManager {
         }, durationMs + 50);
     }
 
+    @Override
     public void playMove() {
         // Very short, simple blip - classic Tetris move sound
         playSound(new double[]{1200}, new int[]{30});
     }
 
+    @Override
     public void playRotate() {
         // Slightly higher pitched blip - classic Tetris rotate
         playSound(new double[]{1400}, new int[]{35});
     }
 
+    @Override
     public void playDrop() {
         // Bright, satisfying drop sound - descending chirp
         playSound(new double[]{880, 660}, new int[]{60, 80});
     }
 
+    @Override
     public void playLineClear() {
         // Bright, triumphant ascending arpeggio - rewarding and celebratory
         // C - E - G - C(high) - E(high) with crescendo ending
         playSound(new double[]{523, 659, 784, 1047, 1319}, new int[]{80, 80, 80, 100, 140});
     }
 
+    @Override
     public void playGameOver() {
         // Simple descending tones - classic game over
         playSound(new double[]{523, 440, 349, 262}, new int[]{150, 150, 150, 400});
     }
 
+    @Override
     public void playLevelUp() {
         // Bright ascending fanfare
         playSound(new double[]{523, 659, 784, 1047, 1319}, new int[]{80, 80, 80, 80, 300});
@@ -198,6 +204,7 @@ public class SoundManager {
         isMusicPaused = false;
     }
 
+    @Override
     public void setMusicSpeed(float speed) {
         // speed: 1.0 = normal (slow), 1.3-1.5 = faster when board fills up
         this.musicSpeed = Math.max(0.5f, Math.min(2.0f, speed));
@@ -1,8 +1,10 @@
 package com.tetris.game;
 
 import android.content.Context;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
+import android.graphics.DashPathEffect;
 import android.graphics.LinearGradient;
 import android.graphics.Paint;
 import android.graphics.RectF;
@@ -22,6 +24,27 @@ public class TetrisView extends View {
     private Paint borderPaint;
     private Paint flashPaint;
     private Paint ghostPaint;
+    private Paint hintPaint;
+    private HintEngine hintEngine;
+    // Versus: the opponent's board is drawn in the right half, the same size as this one
+    private VersusMatch match;
+    private TetrisGame opponent;
+    private float opponentOffsetX;
+    private int[] opponentClearingLines;
+    private Paint garbagePaint;
+    // Board cells are codes; colors are looked up only here, when drawing, from the game's piece set
+    private Palette palette = Palette.GAME_BOY_COLOR;
+    private final BlockSprites boardSprites = new BlockSprites(this::paint3DBlock);
+    private final BlockSprites previewSprites = new BlockSprites(this::paint3DBlock);
+    private final PreviewStrip previewStrip = new PreviewStrip(previewSprites);
+    private final PreviewStrip opponentPreviewStrip = new PreviewStrip(previewSprites);
+    private int previewCount = 1;
+    private Paint dimPaint;
+    // The board the current touch started on, and the part of the view it owns
+    private TetrisGame touchGame;
+    private float touchOffsetX;
+    private float touchAreaLeft;
+    private float touchAreaWidth;
     private float blockSize;
     private float offsetX;
     private float offsetY;
@@ -97,6 +120,19 @@ public class TetrisView extends View {
         ghostPaint.setAntiAlias(true);
         ghostPaint.setAlpha(100); // 半透明虚线效果
 
+        hintPaint = new Paint();
+        hintPaint.setStyle(Paint.Style.STROKE);
+        hintPaint.setStrokeWidth(3);
+        hintPaint.setAntiAlias(true);
+        hintPaint.setPathEffect(new DashPathEffect(new float[] {10, 6}, 0));
+
+        dimPaint = new Paint();
+        dimPaint.setAlpha(90);
+
+        garbagePaint = new Paint();
+        garbagePaint.setStyle(Paint.Style.FILL);
+        garbagePaint.setColor(Color.parseColor("#FB4934"));
+
         // Initialize gesture detector for touch controls
         gestureDetector = new GestureDetector(getContext(), new GestureDetector.SimpleOnGestureListener() {
             @Override
@@ -106,29 +142,29 @@ public class TetrisView extends View {
 
             @Override
             public boolean onSingleTapConfirmed(MotionEvent e) {
-                // Zone-based tap controls for rotation
-                if (game != null && !game.isGameOver() && !game.isPaused()) {
-                    float x = e.getX();
+                // Zone-based tap controls for rotation, within the tapped board's half in versus
+                if (touchGame != null && !touchGame.isGameOver() && !touchGame.isPaused()) {
+                    float x = e.getX() - touchAreaLeft;
                     float y = e.getY();
-                    float screenWidth = getWidth();
+                    float screenWidth = touchAreaWidth;
 
                     // Check if tap is within game board vertically
                     if (y >= offsetY && y <= offsetY + boardHeight) {
-                        // Left zone - rotate counterclockwise (or just rotate for simplicity)
+                        // Left zone - rotate counterclockwise
                         if (x < screenWidth * ROTATION_ZONE_WIDTH) {
-                            game.rotate();
+                            touchGame.rotateCounterClockwise();
                             postInvalidate();
                             return true;
                         }
-                        // Right zone - rotate clockwise (or same as left for single rotate)
+                        // Right zone - rotate clockwise
                         else if (x > screenWidth * (1 - ROTATION_ZONE_WIDTH)) {
-                            game.rotate();
+                            touchGame.rotate();
                             postInvalidate();
                             return true;
                         }
                         // Middle zone - also rotate on tap (entire screen rotates)
-                        else if (x >= offsetX && x <= offsetX + boardWidth) {
-                            game.rotate();
+                        else if (e.getX() >= touchOffsetX && e.getX() <= touchOffsetX + boardWidth) {
+                            touchGame.rotate();
                             postInvalidate();
                             return true;
                         }
@@ -139,7 +175,7 @@ public class TetrisView extends View {
 
             @Override
             public boolean onFling(MotionEvent e1, MotionEvent e2, float velocityX, float velocityY) {
-                if (game == null || game.isGameOver() || game.isPaused()) {
+                if (touchGame == null || touchGame.isGameOver() || touchGame.isPaused()) {
                     return false;
                 }
 
@@ -150,7 +186,14 @@ public class TetrisView extends View {
 
                 // Fast downward swipe - instant drop
                 if (absVelocityY > absVelocityX && absVelocityY > SWIPE_VELOCITY_THRESHOLD && diffY > SWIPE_THRESHOLD) {
-                    game.drop();
+                    touchGame.drop();
+                    postInvalidate();
+                    return true;
+                }
+
+                // Fast upward swipe - hold
+                if (absVelocityY > absVelocityX && absVelocityY > SWIPE_VELOCITY_THRESHOLD && diffY < -SWIPE_THRESHOLD) {
+                    touchGame.hold();
                     postInvalidate();
                     return true;
                 }
@@ -158,11 +201,11 @@ public class TetrisView extends View {
                 // Fast horizontal swipe - move piece one block
                 if (absVelocityX > absVelocityY && absVelocityX > SWIPE_VELOCITY_THRESHOLD) {
                     if (diffX > SWIPE_THRESHOLD) {
-                        game.moveRight();
+                        touchGame.moveRight();
                         postInvalidate();
                         return true;
                     } else if (diffX < -SWIPE_THRESHOLD) {
-                        game.moveLeft();
+                        touchGame.moveLeft();
                         postInvalidate();
                         return true;
                     }
@@ -174,7 +217,18 @@ public class TetrisView extends View {
     }
 
     public void startLineClearAnimation(int[] lines) {
-        this.clearingLines = lines;
+        startLineClearAnimation(0, lines);
+    }
+
+    /**
+     * Flash clearing lines on one player's board; player 1 is the versus opponent.
+     */
+    public void startLineClearAnimation(int player, int[] lines) {
+        if (player == 0) {
+            this.clearingLines = lines;
+        } else {
+            this.opponentClearingLines = lines;
+        }
         this.isFlashing = true;
         this.flashAlpha = 0;
         animateFlash();
@@ -188,6 +242,7 @@ public class TetrisView extends View {
             flashAlpha = 255;
             isFlashing = false;
             clearingLines = null;
+            opponentClearingLines = null;
         }
 
         invalidate();
@@ -199,23 +254,59 @@ public class TetrisView extends View {
 
     public void setGame(TetrisGame game) {
         this.game = game;
+        this.match = null;
+        this.opponent = null;
+        this.palette = Palette.forPieces(game.getPieceSet());
+        layoutBoards(getWidth(), getHeight());
+        invalidate();
+    }
+
+    /**
+     * Show both boards of a versus match side by side; player 0 on the left.
+     */
+    public void setVersusMatch(VersusMatch match) {
+        this.game = match.getGame(0);
+        this.match = match;
+        this.opponent = match.getGame(1);
+        this.palette = Palette.forPieces(game.getPieceSet());
+        layoutBoards(getWidth(), getHeight());
+        invalidate();
+    }
+
+    /**
+     * Number of upcoming pieces to show, 1 to TetrisGame.MAX_PREVIEW.
+     */
+    public void setPreviewCount(int previewCount) {
+        this.previewCount = Math.max(1, Math.min(TetrisGame.MAX_PREVIEW, previewCount));
+        invalidate();
+    }
+
+    /**
+     * Draw suggested placements from the given engine, or none if null.
+     */
+    public void setHintEngine(HintEngine hintEngine) {
+        this.hintEngine = hintEngine;
         invalidate();
     }
 
     @Override
     public boolean onTouchEvent(MotionEvent event) {
+        if (event.getAction() == MotionEvent.ACTION_DOWN) {
+            selectTouchBoard(event.getX());
+        }
+
         // First try gesture detector for tap and fling
         boolean gestureHandled = gestureDetector.onTouchEvent(event);
 
         // Then handle drag for smooth horizontal movement
-        if (game != null && !game.isGameOver() && !game.isPaused()) {
+        if (touchGame != null && !touchGame.isGameOver() && !touchGame.isPaused()) {
             float x = event.getX();
             float y = event.getY();
 
             switch (event.getAction()) {
                 case MotionEvent.ACTION_DOWN:
                     // Check if touch is in draggable area (middle zone, on the board)
-                    if (x >= offsetX && x <= offsetX + boardWidth &&
+                    if (x >= touchOffsetX && x <= touchOffsetX + boardWidth &&
                         y >= offsetY && y <= offsetY + boardHeight) {
                         isDragging = true;
                         dragStartX = x;
@@ -223,15 +314,15 @@ public class TetrisView extends View {
                         lastDragX = x;
                         isVerticalSwipe = false;
                         touchStartTime = System.currentTimeMillis();
-                        if (game.getCurrentPiece() != null) {
-                            pieceStartX = game.getCurrentPiece().getX();
+                        if (touchGame.getCurrentPiece() != null) {
+                            pieceStartX = touchGame.getCurrentPiece().getX();
                         }
                         return true;
                     }
                     break;
 
                 case MotionEvent.ACTION_MOVE:
-                    if (isDragging && game.getCurrentPiece() != null) {
+                    if (isDragging && touchGame.getCurrentPiece() != null) {
                         float deltaX = x - dragStartX;
                         float deltaY = y - dragStartY;
                         float moveDeltaX = x - lastDragX;
@@ -245,11 +336,11 @@ public class TetrisView extends View {
                         if (!isVerticalSwipe && Math.abs(moveDeltaX) >= blockSize * 0.8f) {
                             // Move one block at a time based on accumulated movement
                             if (moveDeltaX > 0) {
-                                game.moveRight();
+                                touchGame.moveRight();
                                 lastDragX = x;
                                 postInvalidate();
                             } else {
-                                game.moveLeft();
+                                touchGame.moveLeft();
                                 lastDragX = x;
                                 postInvalidate();
                             }
@@ -268,8 +359,8 @@ public class TetrisView extends View {
 
                     // If touch was short and didn't move much, treat as tap for rotation
                     if (isDragging && touchDuration < TAP_TIMEOUT && totalDistance < 20 && !gestureHandled) {
-                        if (game != null && !game.isGameOver() && !game.isPaused()) {
-                            game.rotate();
+                        if (touchGame != null && !touchGame.isGameOver() && !touchGame.isPaused()) {
+                            touchGame.rotate();
                             postInvalidate();
                         }
                     }
@@ -283,15 +374,36 @@ public class TetrisView extends View {
         return gestureHandled || super.onTouchEvent(event);
     }
 
+    // Touches drive the board under them: in versus, the left half is this game, the right the opponent
+    private void selectTouchBoard(float x) {
+        if (opponent != null && x >= getWidth() / 2f) {
+            touchGame = opponent;
+            touchOffsetX = opponentOffsetX;
+            touchAreaLeft = getWidth() / 2f;
+            touchAreaWidth = getWidth() / 2f;
+        } else {
+            touchGame = game;
+            touchOffsetX = offsetX;
+            touchAreaLeft = 0;
+            touchAreaWidth = opponent != null ? getWidth() / 2f : getWidth();
+        }
+    }
+
     @Override
     protected void onSizeChanged(int w, int h, int oldw, int oldh) {
         super.onSizeChanged(w, h, oldw, oldh);
-        if (game != null) {
+        layoutBoards(w, h);
+    }
+
+    private void layoutBoards(int w, int h) {
+        if (game != null && w > 0 && h > 0) {
             TetrisBoard board = game.getBoard();
+            // In versus each board gets half the width and is laid out within it the same way
+            float areaWidth = opponent != null ? w / 2f : w;
 
             // Reserve space for next preview on the right (about 22% of width)
-            float previewSpace = w * 0.22f;
-            float availableWidth = w - previewSpace;
+            float previewSpace = areaWidth * 0.22f;
+            float availableWidth = areaWidth - previewSpace;
 
             // Calculate max board dimensions - increased from 0.85 to 0.95 for larger grid
             boardWidth = availableWidth * 0.95f;  // Use 95% of available space
@@ -308,6 +420,7 @@ public class TetrisView extends View {
             // Center the board horizontally in the available space
             offsetX = (availableWidth - this.boardWidth) / 2;
             offsetY = (h - this.boardHeight) / 2;
+            opponentOffsetX = areaWidth + offsetX;
         }
     }
 
@@ -320,9 +433,17 @@ public class TetrisView extends View {
         // Draw background - Terminal dark theme
         canvas.drawColor(Color.parseColor("#1D2021"));
 
+        drawBoard(canvas, game, offsetX, clearingLines, hintEngine, previewStrip);
+        if (opponent != null) {
+            drawBoard(canvas, opponent, opponentOffsetX, opponentClearingLines, null, opponentPreviewStrip);
+            drawGarbageMeter(canvas, match.getPendingGarbage(0), offsetX);
+            drawGarbageMeter(canvas, match.getPendingGarbage(1), opponentOffsetX);
+        }
+    }
+
+    private void drawBoard(Canvas canvas, TetrisGame game, float offsetX, int[] clearingLines,
+                           HintEngine hintEngine, PreviewStrip strip) {
         TetrisBoard board = game.getBoard();
-        int[][] boardState = board.getBoard();
-        int[][] colors = board.getColors();
 
         // Draw board border
         float borderLeft = offsetX - 4;
@@ -341,8 +462,9 @@ public class TetrisView extends View {
                 canvas.drawRect(x, y, x + blockSize, y + blockSize, gridPaint);
 
                 // Draw placed blocks with 3D effect
-                if (boardState[i][j] != 0) {
-                    draw3DBlock(canvas, x, y, blockSize, colors[i][j]);
+                int cell = board.getCell(i, j);
+                if (cell != TetrisBoard.EMPTY) {
+                    draw3DBlock(canvas, x, y, blockSize, palette.getColor(cell));
                 }
             }
         }
@@ -352,7 +474,7 @@ public class TetrisView extends View {
             TetrisPiece ghostPiece = game.getGhostPiece();
             if (ghostPiece != null) {
                 int[][] ghostShape = ghostPiece.getShape();
-                ghostPaint.setColor(game.getCurrentPiece().getColor());
+                ghostPaint.setColor(palette.getColor(game.getCurrentPiece().getCell()));
 
                 for (int i = 0; i < ghostShape.length; i++) {
                     for (int j = 0; j < ghostShape[i].length; j++) {
@@ -374,6 +496,21 @@ public class TetrisView extends View {
             }
         }
 
+        // Draw suggested placements, if a hint for this exact position is ready
+        if (hintEngine != null && !game.isGameOver() && !game.isPaused()) {
+            HintEngine.Hint hint = hintEngine.getHint();
+            if (hint != null) {
+                hintPaint.setColor(Color.parseColor("#FE8019"));
+                drawHintCells(canvas, hint.type, hint.rotation, hint.x, hint.y);
+                // The next piece's spot is on the board after this one's lines clear,
+                // so it only lines up with what's on screen when nothing clears
+                if (hint.nextType >= 0 && hint.linesCleared == 0) {
+                    hintPaint.setColor(Color.parseColor("#66FE8019"));
+                    drawHintCells(canvas, hint.nextType, hint.nextRotation, hint.nextX, hint.nextY);
+                }
+            }
+        }
+
         // Draw current piece with 3D effect
         if (!game.isGameOver()) {
             TetrisPiece currentPiece = game.getCurrentPiece();
@@ -388,15 +525,15 @@ public class TetrisView extends View {
                         if (boardY >= 0) {
                             float x = offsetX + boardX * blockSize;
                             float y = offsetY + boardY * blockSize;
-                            draw3DBlock(canvas, x, y, blockSize, currentPiece.getColor());
+                            draw3DBlock(canvas, x, y, blockSize, palette.getColor(currentPiece.getCell()));
                         }
                     }
                 }
             }
         }
 
-        // Draw next piece preview
-        drawNextPiece(canvas);
+        // Draw next pieces and the hold slot
+        drawPreview(canvas, game, offsetX, strip);
 
         // Draw line clear flash animation
         if (isFlashing && clearingLines != null) {
@@ -409,14 +546,47 @@ public class TetrisView extends View {
 
         // Draw game over text
         if (game.isGameOver()) {
-            textPaint.setTextSize(80);
+            textPaint.setTextSize(opponent != null ? 44 : 80);
             textPaint.setTextAlign(Paint.Align.CENTER);
             textPaint.setColor(Color.parseColor("#FF5252"));
-            canvas.drawText("GAME OVER", getWidth() / 2f, getHeight() / 2f, textPaint);
+            float textX = opponent != null ? offsetX + boardWidth / 2 : getWidth() / 2f;
+            canvas.drawText("GAME OVER", textX, getHeight() / 2f, textPaint);
+        }
+    }
+
+    // Garbage waiting to rise, as a bar up the right edge of the board
+    private void drawGarbageMeter(Canvas canvas, int rows, float offsetX) {
+        if (rows <= 0) return;
+        float left = offsetX + boardWidth + 8;
+        float bottom = offsetY + boardHeight;
+        float top = Math.max(offsetY, bottom - rows * blockSize);
+        canvas.drawRect(left, top, left + 12, bottom, garbagePaint);
+    }
+
+    private void drawHintCells(Canvas canvas, int type, int rotation, int pieceX, int pieceY) {
+        int[] rows = PieceMasks.rows(type, rotation);
+        float inset = 6;
+        for (int i = 0; i < rows.length; i++) {
+            int boardY = pieceY + i;
+            if (boardY < 0) continue;
+            for (int mask = rows[i]; mask != 0; mask &= mask - 1) {
+                int boardX = pieceX + Integer.numberOfTrailingZeros(mask);
+                float x = offsetX + boardX * blockSize;
+                float y = offsetY + boardY * blockSize;
+                canvas.drawRect(x + inset, y + inset,
+                              x + blockSize - inset, y + blockSize - inset,
+                              hintPaint);
+            }
         }
     }
 
     private void draw3DBlock(Canvas canvas, float x, float y, float size, int color) {
+        BlockSprites sprites = size == blockSize ? boardSprites : previewSprites;
+        canvas.drawBitmap(sprites.get(color, size), x, y, null);
+    }
+
+    // Renders one block; the sprite caches call this once per color and size
+    private void paint3DBlock(Canvas canvas, float x, float y, float size, int color) {
         float inset = 3;
         float highlightInset = 5;
 
@@ -497,11 +667,7 @@ public class TetrisView extends View {
         return Color.rgb(r, g, b);
     }
 
-    private void drawNextPiece(Canvas canvas) {
-        TetrisPiece nextPiece = game.getNextPiece();
-        if (nextPiece == null) return;
-
-        int[][] shape = nextPiece.getShape();
+    private void drawPreview(Canvas canvas, TetrisGame game, float offsetX, PreviewStrip strip) {
         float previewBlockSize = blockSize * 0.7f;
         float previewX = offsetX + (game.getBoard().getCols() * blockSize) + 30;
         float previewY = offsetY + 10;
@@ -512,14 +678,21 @@ public class TetrisView extends View {
         textPaint.setColor(Color.parseColor("#FE8019")); // Amber color for terminal theme
         canvas.drawText("NEXT", previewX, previewY + 25, textPaint);
 
-        // Draw next piece with 3D effect
-        for (int i = 0; i < shape.length; i++) {
-            for (int j = 0; j < shape[i].length; j++) {
-                if (shape[i][j] != 0) {
-                    float x = previewX + j * previewBlockSize;
-                    float y = previewY + 40 + i * previewBlockSize;
-                    draw3DBlock(canvas, x, y, previewBlockSize, nextPiece.getColor());
-                }
+        // The queue is one pre-composited bitmap, repainted only when it moves on
+        canvas.drawBitmap(strip.get(game, previewCount, previewBlockSize, palette), previewX, previewY + 40, null);
+
+        // Hold slot below the queue, dimmed while the falling piece has already been swapped
+        float holdY = previewY + 40 + previewCount * strip.getSlotHeight() + 20;
+        canvas.drawText("HOLD", previewX, holdY + 25, textPaint);
+        TetrisPiece held = game.getHeldPiece();
+        if (held != null) {
+            Bitmap block = previewSprites.get(palette.getColor(held.getCell()), previewBlockSize);
+            int[] columns = held.getCellColumns();
+            int[] rows = held.getCellRows();
+            Paint blockPaint = game.canHold() ? null : dimPaint;
+            for (int k = 0; k < columns.length; k++) {
+                canvas.drawBitmap(block, previewX + columns[k] * previewBlockSize,
+                        holdY + 40 + rows[k] * previewBlockSize, blockPaint);
             }
         }
     }
@@ -527,4 +700,13 @@ public class TetrisView extends View {
     public void refresh() {
         invalidate();
     }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        boardSprites.clear();
+        previewSprites.clear();
+        previewStrip.clear();
+        opponentPreviewStrip.clear();
+    }
 }
@@ -0,0 +1,291 @@
+package com.tetris.game;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Encodes a sequence of board states as deltas against the previous frame.
+ *
+ * Frame layout (little endian):
+ *   byte flags (bit 0: keyframe)
+ *   row tokens until every row is covered, top to bottom; a token's top two bits are its kind:
+ *     00nnnnnn  SKIP:    the next n+1 rows are unchanged
+ *     01nnnnnn  COPY:    the next n+1 rows equal the previous frame's rows at a signed byte offset
+ *     10------  DELTA:   row mask XOR the previous mask, then the codes of newly filled cells
+ *     11------  LITERAL: row mask, then the codes of all filled cells
+ *   Masks take (cols + 7) / 8 bytes. Cell codes are packed two to a byte, low nibble first.
+ *
+ * Locking a piece touches a few rows, which encode as SKIP runs around two or three DELTA
+ * rows; a line clear shifts everything above it, which a COPY run carries in two bytes. A
+ * keyframe is a delta against an empty board.
+ *
+ * A codec keeps the state of one end of a stream, so use one instance to encode and another
+ * to decode.
+ */
+public final class BoardCodec {
+    private static final int FLAG_KEYFRAME = 1;
+    private static final int SKIP = 0x00;
+    private static final int COPY = 0x40;
+    private static final int DELTA = 0x80;
+    private static final int LITERAL = 0xC0;
+    private static final int KIND = 0xC0;
+    private static final int MAX_RUN = 64;
+
+    private final int rows;
+    private final int cols;
+    private final int maskBytes;
+    // The previous frame, and the frame being decoded
+    private int[] masks;
+    private byte[] cells;
+    private int[] nextMasks;
+    private byte[] nextCells;
+    private boolean started;
+
+    public BoardCodec(int rows, int cols) {
+        if (rows > 127 || cols > 32) {
+            throw new IllegalArgumentException("Board too large to encode: " + rows + "x" + cols);
+        }
+        this.rows = rows;
+        this.cols = cols;
+        this.maskBytes = (cols + 7) >> 3;
+        masks = new int[rows];
+        cells = new byte[rows * cols];
+        nextMasks = new int[rows];
+        nextCells = new byte[rows * cols];
+    }
+
+    /**
+     * Upper bound on an encoded frame, for sizing buffers.
+     */
+    public int getMaxFrameSize() {
+        return 1 + rows * (1 + maskBytes + (cols + 1) / 2);
+    }
+
+    /**
+     * Forget the previous frame, so the next one is encoded or expected as a keyframe.
+     */
+    public void reset() {
+        started = false;
+    }
+
+    /**
+     * Encode the board as a delta against the previous frame, or as a keyframe if this is
+     * the first frame.
+     */
+    public void encode(TetrisBoard board, ByteBuffer out) {
+        encode(board, out, false);
+    }
+
+    public void encodeKeyframe(TetrisBoard board, ByteBuffer out) {
+        encode(board, out, true);
+    }
+
+    private void encode(TetrisBoard board, ByteBuffer out, boolean keyframe) {
+        out.order(ByteOrder.LITTLE_ENDIAN);
+        if (!started || keyframe) {
+            clearState();
+            keyframe = true;
+        }
+        out.put((byte) (keyframe ? FLAG_KEYFRAME : 0));
+
+        int i = 0;
+        while (i < rows) {
+            int mask = board.getRowMask(i);
+            if (rowEquals(board, i, i)) {
+                int run = 1;
+                while (i + run < rows && run < MAX_RUN && rowEquals(board, i + run, i + run)) {
+                    run++;
+                }
+                out.put((byte) (SKIP | (run - 1)));
+                i += run;
+                continue;
+            }
+            int source = findCopySource(board, i);
+            if (source >= 0) {
+                int run = 1;
+                while (i + run < rows && run < MAX_RUN && source + run < rows
+                        && rowEquals(board, i + run, source + run)) {
+                    run++;
+                }
+                out.put((byte) (COPY | (run - 1)));
+                out.put((byte) (source - i));
+                i += run;
+                continue;
+            }
+            if (sameCells(board, i, mask & masks[i], i)) {
+                out.put((byte) DELTA);
+                putMask(out, mask ^ masks[i]);
+                putCells(out, board, i, mask & ~masks[i]);
+            } else {
+                out.put((byte) LITERAL);
+                putMask(out, mask);
+                putCells(out, board, i, mask);
+            }
+            i++;
+        }
+
+        for (int r = 0; r < rows; r++) {
+            masks[r] = board.getRowMask(r);
+            for (int j = 0; j < cols; j++) {
+                cells[r * cols + j] = (byte) board.getCell(r, j);
+            }
+        }
+        started = true;
+    }
+
+    /**
+     * Decode one frame against the previous frame this codec decoded, and make the board
+     * match it. Only cells that differ are written, so a board that is kept up to date costs
+     * little beyond the decode itself.
+     *
+     * @throws IllegalArgumentException if the frame is malformed or is a delta with no previous frame
+     */
+    public void decode(ByteBuffer in, TetrisBoard board) {
+        in.order(ByteOrder.LITTLE_ENDIAN);
+        int flags = in.get();
+        if ((flags & FLAG_KEYFRAME) != 0) {
+            clearState();
+        } else if (!started) {
+            throw new IllegalArgumentException("Delta frame without a keyframe");
+        }
+
+        int i = 0;
+        while (i < rows) {
+            int token = in.get() & 0xFF;
+            switch (token & KIND) {
+                case SKIP:
+                case COPY: {
+                    int run = (token & ~KIND) + 1;
+                    int source = (token & KIND) == COPY ? i + in.get() : i;
+                    if (i + run > rows || source < 0 || source + run > rows) {
+                        throw new IllegalArgumentException("Row run out of range");
+                    }
+                    System.arraycopy(masks, source, nextMasks, i, run);
+                    System.arraycopy(cells, source * cols, nextCells, i * cols, run * cols);
+                    i += run;
+                    break;
+                }
+                case DELTA: {
+                    int mask = masks[i] ^ getMask(in);
+                    System.arraycopy(cells, i * cols, nextCells, i * cols, cols);
+                    getCells(in, i, mask & ~masks[i], mask);
+                    nextMasks[i++] = mask;
+                    break;
+                }
+                default: {
+                    int mask = getMask(in);
+                    getCells(in, i, mask, mask);
+                    nextMasks[i++] = mask;
+                    break;
+                }
+            }
+        }
+
+        int[] swapMasks = masks;
+        masks = nextMasks;
+        nextMasks = swapMasks;
+        byte[] swapCells = cells;
+        cells = nextCells;
+        nextCells = swapCells;
+        started = true;
+
+        for (int r = 0; r < rows; r++) {
+            for (int j = 0; j < cols; j++) {
+                int cell = cells[r * cols + j];
+                if (board.getCell(r, j) != cell) {
+                    board.setCell(r, j, cell);
+                }
+            }
+        }
+    }
+
+    private void clearState() {
+        for (int i = 0; i < rows; i++) {
+            masks[i] = 0;
+        }
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = TetrisBoard.EMPTY;
+        }
+    }
+
+    // Whether a row of the board matches the previous frame's row at index previous
+    private boolean rowEquals(TetrisBoard board, int row, int previous) {
+        int mask = board.getRowMask(row);
+        return mask == masks[previous] && sameCells(board, row, mask, previous);
+    }
+
+    private boolean sameCells(TetrisBoard board, int row, int mask, int previous) {
+        for (int bits = mask; bits != 0; bits &= bits - 1) {
+            int j = Integer.numberOfTrailingZeros(bits);
+            if (board.getCell(row, j) != cells[previous * cols + j]) return false;
+        }
+        return true;
+    }
+
+    private int findCopySource(TetrisBoard board, int row) {
+        int mask = board.getRowMask(row);
+        for (int j = 0; j < rows; j++) {
+            if (masks[j] == mask && sameCells(board, row, mask, j)) {
+                return j;
+            }
+        }
+        return -1;
+    }
+
+    private void putMask(ByteBuffer out, int mask) {
+        for (int k = 0; k < maskBytes; k++) {
+            out.put((byte) (mask >>> (8 * k)));
+        }
+    }
+
+    private int getMask(ByteBuffer in) {
+        int mask = 0;
+        for (int k = 0; k < maskBytes; k++) {
+            mask |= (in.get() & 0xFF) << (8 * k);
+        }
+        if (cols < 32 && (mask >>> cols) != 0) {
+            throw new IllegalArgumentException("Row mask wider than the board");
+        }
+        return mask;
+    }
+
+    private static void putCells(ByteBuffer out, TetrisBoard board, int row, int mask) {
+        int pending = -1;
+        for (int bits = mask; bits != 0; bits &= bits - 1) {
+            int cell = board.getCell(row, Integer.numberOfTrailingZeros(bits));
+            if (pending < 0) {
+                pending = cell;
+            } else {
+                out.put((byte) (pending | (cell << 4)));
+                pending = -1;
+            }
+        }
+        if (pending >= 0) out.put((byte) pending);
+    }
+
+    // Read codes for the given cells of nextCells' row and empty every cell outside the mask
+    private void getCells(ByteBuffer in, int row, int filled, int mask) {
+        int base = row * cols;
+        int packed = 0;
+        boolean high = false;
+        for (int bits = filled; bits != 0; bits &= bits - 1) {
+            int cell;
+            if (high) {
+                cell = packed >>> 4;
+            } else {
+                packed = in.get() & 0xFF;
+                cell = packed & 0x0F;
+            }
+            high = !high;
+            if (cell == TetrisBoard.EMPTY || cell >= TetrisBoard.CELL_TYPES) {
+                throw new IllegalArgumentException("Bad cell code " + cell);
+            }
+            nextCells[base + Integer.numberOfTrailingZeros(bits)] = (byte) cell;
+        }
+        for (int j = 0; j < cols; j++) {
+            if ((mask & (1 << j)) == 0) {
+                nextCells[base + j] = TetrisBoard.EMPTY;
+            }
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.tetris.game;
+
+/**
+ * Scores a board for the hint search: higher is better.
+ *
+ * The score is a weighted sum of features read straight off the row bitmasks:
+ * aggregate column height, holes (empty cells with a filled cell somewhere above),
+ * bumpiness (height differences between neighbouring columns), lines cleared and wells
+ * (how far each column sits below both neighbours, with the walls counting as full height).
+ */
+public class BoardEvaluator {
+    // Feature indexes into the weight array
+    public static final int AGGREGATE_HEIGHT = 0;
+    public static final int HOLES = 1;
+    public static final int BUMPINESS = 2;
+    public static final int LINES_CLEARED = 3;
+    public static final int WELLS = 4;
+    public static final int FEATURE_COUNT = 5;
+
+    public static final double[] DEFAULT_WEIGHTS = {-0.510066, -0.35663, -0.184483, 0.760666, 0.0};
+
+    private final int cols;
+    private final double[] weights;
+    private final int[] heights;
+
+    public BoardEvaluator(int cols) {
+        this(cols, DEFAULT_WEIGHTS);
+    }
+
+    public BoardEvaluator(int cols, double[] weights) {
+        if (weights.length != FEATURE_COUNT) {
+            throw new IllegalArgumentException("Expected " + FEATURE_COUNT + " weights");
+        }
+        this.cols = cols;
+        this.weights = weights.clone();
+        this.heights = new int[cols];
+    }
+
+    public double[] getWeights() {
+        return weights.clone();
+    }
+
+    public double getWeight(int feature) {
+        return weights[feature];
+    }
+
+    /**
+     * @param board one bitmask per row, top to bottom
+     * @param linesCleared lines cleared on the way to this board
+     */
+    public double evaluate(int[] board, int linesCleared) {
+        int rows = board.length;
+        int covered = 0;
+        int holes = 0;
+        for (int i = 0; i < rows; i++) {
+            int row = board[i];
+            // Columns whose top block is in this row
+            int tops = row & ~covered;
+            while (tops != 0) {
+                heights[Integer.numberOfTrailingZeros(tops)] = rows - i;
+                tops &= tops - 1;
+            }
+            covered |= row;
+            holes += Integer.bitCount(covered & ~row);
+        }
+
+        int aggregateHeight = 0;
+        int bumpiness = 0;
+        for (int c = 0; c < cols; c++) {
+            if ((covered & (1 << c)) == 0) {
+                heights[c] = 0;
+            }
+            aggregateHeight += heights[c];
+            if (c > 0) {
+                bumpiness += Math.abs(heights[c] - heights[c - 1]);
+            }
+        }
+
+        int wells = 0;
+        for (int c = 0; c < cols; c++) {
+            int left = c > 0 ? heights[c - 1] : rows;
+            int right = c < cols - 1 ? heights[c + 1] : rows;
+            int depth = Math.min(left, right) - heights[c];
+            if (depth > 0) {
+                wells += depth;
+            }
+        }
+
+        return weights[AGGREGATE_HEIGHT] * aggregateHeight
+                + weights[HOLES] * holes
+                + weights[BUMPINESS] * bumpiness
+                + weights[LINES_CLEARED] * linesCleared
+                + weights[WELLS] * wells;
+    }
+}
@@ -0,0 +1,46 @@
+package com.tetris.game;
+
+/**
+ * Small seeded generator for piece selection (SplitMix64).
+ *
+ * Unlike java.util.Random the whole state is a single long that can be read and written,
+ * so a game can be snapshotted and resumed, or replayed from its seed, and draw exactly
+ * the same pieces.
+ */
+public class GameRandom {
+    private long state;
+
+    public GameRandom(long seed) {
+        this.state = seed;
+    }
+
+    public long getState() {
+        return state;
+    }
+
+    public void setState(long state) {
+        this.state = state;
+    }
+
+    public long nextLong() {
+        long z = (state += 0x9E3779B97F4A7C15L);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Uniform value in [0, bound).
+     */
+    public int nextInt(int bound) {
+        // Multiply-shift on the top 32 bits; the bias is negligible for the small bounds used here
+        return (int) (((nextLong() >>> 32) * bound) >>> 32);
+    }
+
+    /**
+     * Uniform value in [0, 1) with 53 random bits.
+     */
+    public double nextDouble() {
+        return (nextLong() >>> 11) * 0x1.0p-53;
+    }
+}
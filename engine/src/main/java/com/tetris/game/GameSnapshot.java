@@ -0,0 +1,231 @@
+package com.tetris.game;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Compact binary snapshot of a running game.
+ *
+ * Layout (little endian):
+ *   int magic, byte version
+ *   long seed, long rng state, long tick
+ *   int score, int level, int lines, int speed
+ *   byte current type, byte current rotation, short x, byte y
+ *   byte queue length, then the queued types from the next one on
+ *   byte held type or -1, byte 1 if the falling piece has been swapped with it
+ *   byte gravity, int fraction of a row fallen (16.16), short ticks rested,
+ *           byte lock delay resets used, byte lowest y reached
+ *   byte scoring, byte 1 if the last move was a turn, int combo, byte 1 if back-to-back
+ *   short piece set definition length, then its ASCII text; 0 for PieceSet.STANDARD
+ *   byte rows, short cols
+ *   per row: (cols + 7) / 8 bytes of occupancy mask, then one cell code byte per set bit
+ *
+ * Version 7 is the first version any build has written; other versions are rejected.
+ *
+ * A typical mid-game board encodes to under two hundred bytes.
+ */
+public final class GameSnapshot {
+    private static final int MAGIC = 0x54534E50; // "TSNP"
+    private static final byte VERSION = 7;
+    private static final int HEADER_SIZE = 4 + 1 + 8 * 3 + 4 * 4 + 5 + 1 + TetrisGame.MAX_PREVIEW + 2
+            + 9 + 7 + 2 + 3;
+
+    // Upper bound on an encoded snapshot of a board of the default size, for sizing buffers
+    public static final int MAX_SIZE = 2048;
+
+    private GameSnapshot() {
+    }
+
+    /**
+     * Upper bound on an encoded snapshot of a board of the given size, with any piece set.
+     */
+    public static int maxSize(int rows, int cols) {
+        return HEADER_SIZE + PieceSet.MAX_DEFINITION_LENGTH + rows * ((cols + 7) / 8 + cols);
+    }
+
+    /**
+     * Encode the game into the buffer at its current position.
+     */
+    public static void write(TetrisGame game, ByteBuffer out) {
+        out.order(ByteOrder.LITTLE_ENDIAN);
+        TetrisBoard board = game.getBoard();
+        TetrisPiece current = game.getCurrentPiece();
+        int rows = board.getRows();
+        int cols = board.getCols();
+
+        out.putInt(MAGIC);
+        out.put(VERSION);
+        out.putLong(game.getSeed());
+        out.putLong(game.getRandom().getState());
+        out.putLong(game.getTickCount());
+        out.putInt(game.getScore());
+        out.putInt(game.getLevel());
+        out.putInt(game.getLines());
+        out.putInt(game.getSpeed());
+        out.put((byte) current.getType());
+        out.put((byte) current.getRotation());
+        out.putShort((short) current.getX());
+        out.put((byte) current.getY());
+        out.put((byte) TetrisGame.MAX_PREVIEW);
+        for (int i = 0; i < TetrisGame.MAX_PREVIEW; i++) {
+            out.put((byte) game.getPreviewPiece(i).getType());
+        }
+        TetrisPiece held = game.getHeldPiece();
+        out.put((byte) (held != null ? held.getType() : -1));
+        out.put((byte) (game.canHold() ? 0 : 1));
+        out.put((byte) game.getGravity().getId());
+        out.putInt(game.getFall());
+        out.putShort((short) game.getLockTimer());
+        out.put((byte) game.getLockResets());
+        out.put((byte) game.getLowestY());
+        out.put((byte) game.getScoring().getId());
+        out.put((byte) (game.wasLastMoveRotation() ? 1 : 0));
+        out.putInt(game.getCombo());
+        out.put((byte) (game.isBackToBack() ? 1 : 0));
+        PieceSet pieces = game.getPieceSet();
+        if (pieces == PieceSet.STANDARD) {
+            out.putShort((short) 0);
+        } else {
+            String definition = pieces.getDefinition();
+            out.putShort((short) definition.length());
+            for (int i = 0; i < definition.length(); i++) {
+                out.put((byte) definition.charAt(i));
+            }
+        }
+
+        out.put((byte) rows);
+        out.putShort((short) cols);
+        int maskBytes = (cols + 7) / 8;
+        for (int i = 0; i < rows; i++) {
+            for (int k = 0; k < maskBytes; k++) {
+                out.put((byte) (board.getRowWord(i, k >> 3) >>> (8 * (k & 7))));
+            }
+            for (int j = 0; j < cols; j++) {
+                if (board.getCell(i, j) != TetrisBoard.EMPTY) {
+                    out.put((byte) board.getCell(i, j));
+                }
+            }
+        }
+    }
+
+    /**
+     * Rebuild a game from a snapshot at the buffer's current position. The game comes back
+     * unpaused with no listener or sound attached.
+     *
+     * @throws IllegalArgumentException if the data isn't a snapshot this version understands
+     */
+    public static TetrisGame read(ByteBuffer in) {
+        in.order(ByteOrder.LITTLE_ENDIAN);
+        int magic = in.getInt();
+        byte version = in.get();
+        if (magic != MAGIC || version != VERSION) {
+            throw new IllegalArgumentException("Not a game snapshot");
+        }
+        long seed = in.getLong();
+        long rngState = in.getLong();
+        long tick = in.getLong();
+        int score = in.getInt();
+        int level = in.getInt();
+        int lines = in.getInt();
+        int speed = in.getInt();
+        int currentType = in.get();
+        int rotation = in.get();
+        int x = in.getShort();
+        int y = in.get();
+        int[] queued = new int[TetrisGame.MAX_PREVIEW];
+        int queuedCount = in.get();
+        if (queuedCount < 1 || queuedCount > TetrisGame.MAX_PREVIEW) {
+            throw new IllegalArgumentException("Bad queue length " + queuedCount);
+        }
+        for (int i = 0; i < queuedCount; i++) {
+            queued[i] = in.get();
+        }
+        int heldType = in.get();
+        boolean holdUsed = in.get() != 0;
+
+        int gravityId = in.get();
+        Gravity gravity = Gravity.forId(gravityId);
+        if (gravity == null) {
+            throw new IllegalArgumentException("No gravity " + gravityId);
+        }
+        int fall = in.getInt();
+        int lockTimer = in.getShort();
+        int lockResets = in.get();
+        int lowestY = in.get();
+        if (fall < 0 || fall >= Gravity.ONE_ROW || lockTimer < 0 || lockResets < 0) {
+            throw new IllegalArgumentException("Bad gravity state");
+        }
+
+        int scoringId = in.get();
+        Scoring scoring = Scoring.forId(scoringId);
+        if (scoring == null) {
+            throw new IllegalArgumentException("No scoring " + scoringId);
+        }
+        boolean lastMoveRotated = in.get() != 0;
+        int combo = in.getInt();
+        boolean backToBack = in.get() != 0;
+        if (combo < -1) {
+            throw new IllegalArgumentException("Bad combo " + combo);
+        }
+
+        PieceSet pieces = PieceSet.STANDARD;
+        int length = in.getShort();
+        if (length < 0 || length > PieceSet.MAX_DEFINITION_LENGTH) {
+            throw new IllegalArgumentException("Bad piece set length " + length);
+        }
+        if (length > 0) {
+            char[] definition = new char[length];
+            for (int i = 0; i < length; i++) {
+                definition[i] = (char) (in.get() & 0xFF);
+            }
+            pieces = PieceSet.forDefinition(new String(definition));
+        }
+        TetrisPiece current = new TetrisPiece(pieces, currentType);
+        for (int i = 0; i < rotation; i++) {
+            current.rotate();
+        }
+        current.setX(x);
+        current.setY(y);
+        for (int i = 0; i < queuedCount; i++) {
+            if (queued[i] < 0 || queued[i] >= pieces.size()) {
+                throw new IllegalArgumentException("No piece type " + queued[i]);
+            }
+        }
+        if (heldType < -1 || heldType >= pieces.size()) {
+            throw new IllegalArgumentException("No piece type " + heldType);
+        }
+
+        int rows = in.get();
+        int cols = in.getShort();
+        if (rows < TetrisBoard.MIN_SIZE || rows > TetrisBoard.MAX_ROWS
+                || cols < TetrisBoard.MIN_SIZE || cols > TetrisBoard.MAX_COLS) {
+            throw new IllegalArgumentException("Snapshot board is " + rows + "x" + cols);
+        }
+        TetrisGame game = new TetrisGame(speed, null, 0, seed, rows, cols, pieces, gravity, scoring);
+        TetrisBoard board = game.getBoard();
+        int maskBytes = (cols + 7) / 8;
+        long[] mask = new long[board.getWordsPerRow()];
+        for (int i = 0; i < rows; i++) {
+            Arrays.fill(mask, 0);
+            for (int k = 0; k < maskBytes; k++) {
+                mask[k >> 3] |= (in.get() & 0xFFL) << (8 * (k & 7));
+            }
+            for (int j = 0; j < cols; j++) {
+                int cell = TetrisBoard.EMPTY;
+                if ((mask[j >>> 6] & (1L << j)) != 0) {
+                    cell = in.get() & 0xFF;
+                    if (cell == TetrisBoard.EMPTY || cell >= TetrisBoard.CELL_TYPES) {
+                        throw new IllegalArgumentException("Bad cell code " + cell);
+                    }
+                }
+                board.setCell(i, j, cell);
+            }
+        }
+
+        game.getRandom().setState(rngState);
+        game.restoreState(tick, score, level, lines, current, queued, queuedCount, heldType, holdUsed,
+                fall, lockTimer, lockResets, lowestY, lastMoveRotated, combo, backToBack);
+        return game;
+    }
+}
@@ -0,0 +1,16 @@
+package com.tetris.game;
+
+/**
+ * Sound effects the game triggers. The app plays them through SoundManager; headless
+ * callers (replays, tools) pass null and the game runs silently.
+ */
+public interface GameSounds {
+    void playMove();
+    void playRotate();
+    void playDrop();
+    void playLineClear();
+    void playGameOver();
+    void playLevelUp();
+    // 1.0 = normal tempo, higher = faster
+    void setMusicSpeed(float speed);
+}
@@ -0,0 +1,118 @@
+package com.tetris.game;
+
+/**
+ * How fast pieces fall and how long they rest on the stack before locking, all counted in
+ * game ticks so replays and rollback see exactly what the player saw.
+ *
+ * Fall speed is in rows per tick as 16.16 fixed point, so a piece can fall a fraction of a
+ * row per tick or many rows at once; the remainder carries over to the next tick. A piece
+ * that can't fall waits out the lock delay, and each successful move or turn while it waits
+ * starts the delay again, up to a limit per piece. The limit starts over whenever the piece
+ * reaches a lower row than it has been before. A soft drop against the stack leaves the piece
+ * resting, so only a hard drop skips the delay.
+ */
+public final class Gravity {
+    public static final int FRACTION_BITS = 16;
+    public static final int ONE_ROW = 1 << FRACTION_BITS;
+    // Fastest fall: the whole height of a standard board in one tick
+    public static final int MAX_ROWS_PER_TICK = 20 * ONE_ROW;
+
+    /**
+     * One row per tick and a lock on the first tick the piece can't fall, with the tick
+     * interval set by the speed. A soft drop against the stack locks at once, as it did in
+     * every game played before the curve existed; their replays depend on it.
+     */
+    public static final Gravity CLASSIC = new Gravity(0, new int[]{ONE_ROW}, 1, 0, 0, true);
+
+    /**
+     * Ticks at 60 per second and falls faster with each level, from one row a second at
+     * level 1 to the full 20 rows per tick from level 19 on. The speed setting starts the
+     * curve further along: the level used is the game's level plus speed - 1. A landed piece
+     * locks after half a second, reset by up to 15 moves or turns.
+     */
+    public static final Gravity LEVEL_CURVE = new Gravity(1, curve(), 30, 15, 1_000_000_000L / 60, false);
+
+    private static final int CURVE_LEVELS = 20;
+
+    private final int id;
+    // Rows per tick for each level from 1, the last entry holding for all higher levels
+    private final int[] rowsPerTick;
+    private final int lockDelay;
+    private final int maxLockResets;
+    // 0 to take the interval from the speed setting
+    private final long tickIntervalNanos;
+    private final boolean softDropLocks;
+
+    private Gravity(int id, int[] rowsPerTick, int lockDelay, int maxLockResets, long tickIntervalNanos,
+                    boolean softDropLocks) {
+        this.id = id;
+        this.rowsPerTick = rowsPerTick;
+        this.lockDelay = lockDelay;
+        this.maxLockResets = maxLockResets;
+        this.tickIntervalNanos = tickIntervalNanos;
+        this.softDropLocks = softDropLocks;
+    }
+
+    // Seconds per row (0.8 - (level - 1) * 0.007) ^ (level - 1), as the guideline has it,
+    // at 60 ticks a second. StrictMath so every device builds the same table.
+    private static int[] curve() {
+        int[] table = new int[CURVE_LEVELS];
+        for (int level = 1; level <= CURVE_LEVELS; level++) {
+            double secondsPerRow = StrictMath.pow(0.8 - (level - 1) * 0.007, level - 1);
+            double rows = ONE_ROW / (secondsPerRow * 60);
+            table[level - 1] = (int) Math.min(MAX_ROWS_PER_TICK, Math.max(1, StrictMath.floor(rows)));
+        }
+        return table;
+    }
+
+    /**
+     * The gravity with the given id as stored in replays and snapshots, or null if there is none.
+     */
+    static Gravity forId(int id) {
+        if (id == CLASSIC.id) return CLASSIC;
+        if (id == LEVEL_CURVE.id) return LEVEL_CURVE;
+        return null;
+    }
+
+    int getId() {
+        return id;
+    }
+
+    /**
+     * Fall speed in 16.16 fixed-point rows per tick for a game's level and speed setting.
+     */
+    public int getRowsPerTick(int level, int speed) {
+        if (rowsPerTick.length == 1) return rowsPerTick[0];
+        int index = level + speed - 2;
+        return rowsPerTick[Math.max(0, Math.min(rowsPerTick.length - 1, index))];
+    }
+
+    /**
+     * Ticks a piece rests on the stack before it locks; 1 locks on the first tick it can't fall.
+     */
+    public int getLockDelay() {
+        return lockDelay;
+    }
+
+    /**
+     * Times a piece's lock delay can be started again by moving or turning it.
+     */
+    public int getMaxLockResets() {
+        return maxLockResets;
+    }
+
+    /**
+     * Whether a soft drop against the stack locks the piece at once instead of leaving it to
+     * the lock delay.
+     */
+    public boolean softDropLocks() {
+        return softDropLocks;
+    }
+
+    /**
+     * Wall-clock time between ticks for a speed setting.
+     */
+    public long getTickIntervalNanos(int speed) {
+        return tickIntervalNanos > 0 ? tickIntervalNanos : TetrisGame.getTickIntervalMs(speed) * 1_000_000L;
+    }
+}
@@ -0,0 +1,187 @@
+package com.tetris.game;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Works out a suggested placement in the background while the player is deciding.
+ *
+ * request() is called on the game thread whenever the piece moves, rotates or locks. It
+ * copies the board's row masks and returns straight away; the search runs on a
+ * low-priority worker within a time budget. Every request bumps a generation number. A
+ * search that has been overtaken gives up at its next check, and getHint() only returns a
+ * result computed for the latest request, so a hint for a position that no longer exists
+ * is never drawn. Requests that arrive while a search is queued collapse into one.
+ */
+public class HintEngine {
+    // Half a frame at 60 Hz
+    public static final long DEFAULT_BUDGET_NANOS = 8_000_000L;
+
+    public interface Listener {
+        // Called on the search thread when getHint() has something new
+        void onHintReady();
+    }
+
+    /**
+     * A suggested placement for the current piece and, when the lookahead got that far,
+     * for the next piece after it. Positions are top-left of the piece's bounding box.
+     */
+    public static final class Hint {
+        public final int type;
+        public final int rotation;
+        public final int x;
+        public final int y;
+        public final int linesCleared;
+        // -1 if there is no suggestion for the next piece
+        public final int nextType;
+        public final int nextRotation;
+        public final int nextX;
+        public final int nextY;
+        final int generation;
+
+        Hint(int generation, int type, int rotation, int x, int y, int linesCleared,
+             int nextType, int nextRotation, int nextX, int nextY) {
+            this.generation = generation;
+            this.type = type;
+            this.rotation = rotation;
+            this.x = x;
+            this.y = y;
+            this.linesCleared = linesCleared;
+            this.nextType = nextType;
+            this.nextRotation = nextRotation;
+            this.nextX = nextX;
+            this.nextY = nextY;
+        }
+    }
+
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "HintSearch");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+    });
+
+    private final Listener listener;
+    private final long budgetNanos;
+
+    // Latest position to search, written under the lock by request()
+    private final Object lock = new Object();
+    private int[] pendingBoard = new int[0];
+    private int pendingCols;
+    private int pendingType;
+    private int pendingRotation;
+    private int pendingX;
+    private int pendingY;
+    private int pendingNextType;
+    private boolean searchScheduled = false;
+    private volatile int generation;
+
+    // Owned by the worker thread
+    private PlacementSearch search;
+    private int[] workBoard = new int[0];
+    private int workCols;
+    private int searching;
+    private final BooleanSupplier overtaken = () -> generation != searching;
+
+    private volatile Hint latest;
+
+    public HintEngine(Listener listener) {
+        this(listener, DEFAULT_BUDGET_NANOS);
+    }
+
+    public HintEngine(Listener listener, long budgetNanos) {
+        this.listener = listener;
+        this.budgetNanos = budgetNanos;
+    }
+
+    /**
+     * Start searching the game's current position, abandoning any search in progress. The
+     * search knows the standard pieces on boards up to 31 columns; other games get no hint.
+     */
+    public void request(TetrisGame game) {
+        if (game.isGameOver() || game.getPieceSet() != PieceSet.STANDARD || game.getBoard().getCols() > 31) {
+            clear();
+            return;
+        }
+        TetrisBoard board = game.getBoard();
+        TetrisPiece piece = game.getCurrentPiece();
+        TetrisPiece nextPiece = game.getNextPiece();
+        synchronized (lock) {
+            if (pendingBoard.length != board.getRows()) {
+                pendingBoard = new int[board.getRows()];
+            }
+            for (int i = 0; i < pendingBoard.length; i++) {
+                pendingBoard[i] = board.getRowMask(i);
+            }
+            pendingCols = board.getCols();
+            pendingType = piece.getType();
+            pendingRotation = piece.getRotation();
+            pendingX = piece.getX();
+            pendingY = piece.getY();
+            pendingNextType = nextPiece != null ? nextPiece.getType() : -1;
+            generation++;
+            if (searchScheduled) return;
+            searchScheduled = true;
+        }
+        worker.execute(this::runSearch);
+    }
+
+    /**
+     * Hide the current hint and stop any search, e.g. while paused.
+     */
+    public void clear() {
+        synchronized (lock) {
+            generation++;
+        }
+    }
+
+    /**
+     * The hint for the latest requested position, or null if it isn't ready yet.
+     * Never blocks.
+     */
+    public Hint getHint() {
+        Hint hint = latest;
+        return hint != null && hint.generation == generation ? hint : null;
+    }
+
+    public void shutdown() {
+        clear();
+        worker.shutdownNow();
+    }
+
+    private void runSearch() {
+        int type;
+        int rotation;
+        int x;
+        int y;
+        int nextType;
+        synchronized (lock) {
+            searchScheduled = false;
+            if (workBoard.length != pendingBoard.length || workCols != pendingCols) {
+                workBoard = new int[pendingBoard.length];
+                workCols = pendingCols;
+                search = new PlacementSearch(workBoard.length, workCols);
+            }
+            System.arraycopy(pendingBoard, 0, workBoard, 0, workBoard.length);
+            type = pendingType;
+            rotation = pendingRotation;
+            x = pendingX;
+            y = pendingY;
+            nextType = pendingNextType;
+            searching = generation;
+        }
+
+        long deadline = System.nanoTime() + budgetNanos;
+        if (!search.search(workBoard, type, rotation, x, y, nextType, deadline, overtaken)) {
+            return;
+        }
+        latest = new Hint(searching, type, search.getRotation(), search.getX(), search.getY(),
+                search.getLinesCleared(),
+                search.hasNextPlacement() ? nextType : -1,
+                search.getNextRotation(), search.getNextX(), search.getNextY());
+        if (listener != null && generation == searching) {
+            listener.onHintReady();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.tetris.game;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Player commands received since the last snapshot. Replaying them on top of the snapshot
+ * brings a restored game forward to the exact tick it was saved at.
+ *
+ * Entries live in fixed primitive arrays, so recording an input allocates nothing.
+ */
+public class InputJournal implements TetrisGame.InputRecorder {
+    public static final int CAPACITY = 1024;
+    // Upper bound on an encoded journal, for sizing buffers
+    public static final int MAX_SIZE = 8 + 8 + 4 + 1 + CAPACITY * 5;
+
+    private final int[] tickOffsets = new int[CAPACITY];
+    private final byte[] commands = new byte[CAPACITY];
+    private long baseTick;
+    private int count;
+    private boolean overflowed;
+
+    /**
+     * Start a new journal for a snapshot taken at the given tick.
+     */
+    public void reset(long baseTick) {
+        this.baseTick = baseTick;
+        this.count = 0;
+        this.overflowed = false;
+    }
+
+    @Override
+    public void onInput(long tick, int command) {
+        if (count == CAPACITY) {
+            // Can't replay a partial journal; restoring falls back to the snapshot alone
+            overflowed = true;
+            return;
+        }
+        tickOffsets[count] = (int) (tick - baseTick);
+        commands[count] = (byte) command;
+        count++;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Encode the journal, ending at the game's current tick.
+     *
+     * Layout (little endian): long base tick, long end tick, byte overflowed, int count,
+     * then per entry an int tick offset and a byte command.
+     */
+    public void write(ByteBuffer out, long endTick) {
+        out.order(ByteOrder.LITTLE_ENDIAN);
+        out.putLong(baseTick);
+        out.putLong(endTick);
+        out.put((byte) (overflowed ? 1 : 0));
+        out.putInt(count);
+        for (int i = 0; i < count; i++) {
+            out.putInt(tickOffsets[i]);
+            out.put(commands[i]);
+        }
+    }
+
+    /**
+     * Replay an encoded journal onto a game restored from the matching snapshot. Gravity is
+     * ticked up to each command's tick before applying it, and then on to the end tick.
+     * A journal that doesn't start at the game's tick, or that overflowed, is ignored.
+     */
+    public static void replay(ByteBuffer in, TetrisGame game) {
+        in.order(ByteOrder.LITTLE_ENDIAN);
+        long base = in.getLong();
+        long endTick = in.getLong();
+        boolean overflowed = in.get() != 0;
+        int n = in.getInt();
+        if (overflowed || base != game.getTickCount()) return;
+
+        for (int i = 0; i < n && !game.isGameOver(); i++) {
+            long tick = base + in.getInt();
+            int command = in.get();
+            while (game.getTickCount() < tick && !game.isGameOver()) {
+                game.tick();
+            }
+            game.applyCommand(command);
+        }
+        while (game.getTickCount() < endTick && !game.isGameOver()) {
+            game.tick();
+        }
+    }
+}
@@ -0,0 +1,288 @@
+package com.tetris.game;
+
+import java.util.Arrays;
+
+/**
+ * Lists every distinct placement a piece can reach from a starting position, with the
+ * inputs that get it there.
+ *
+ * This is a breadth-first search over (rotation, x, y) states using the game's own moves:
+ * left, right, soft drop, and clockwise, counter-clockwise and half turns. Turns try the
+ * piece set's kicks under the same rule as TetrisGame: the first kick that fits without
+ * lifting the piece above the kick limit wins. Tucks under overhangs and kicked spins are
+ * therefore found, and every path is the shortest one in number of inputs. A state that cannot move down is a
+ * placement; placements covering the same cells (e.g. the O piece in any rotation) are
+ * reported once.
+ *
+ * The board is given as one bitmask per row. All working storage is allocated up front, so
+ * a generator can be reused for any number of searches without allocating.
+ */
+public class MoveGenerator {
+    private static final int MOVE_NONE = -1;
+    // Quarter turns the search tries, and the command for each
+    private static final int[] TURNS = {1, 3, 2};
+    private static final int[] TURN_COMMANDS = {
+        TetrisGame.CMD_ROTATE, TetrisGame.CMD_ROTATE_CCW, TetrisGame.CMD_ROTATE_180
+    };
+    // Lowest y a state can have: moves never lift a piece, and kicks stop at the game's limit
+    private static final int MIN_Y = TetrisGame.MIN_KICK_Y;
+
+    private final int rows;
+    private final int cols;
+    private final PieceSet pieces;
+    // Tallest rotation of any piece in the set
+    private final int maxHeight;
+    private final int yRange;
+    private final int stateCount;
+
+    // Search storage, indexed by state id
+    private final long[] visited;
+    private final long[] placed;
+    private final int[] queue;
+    private final int[] parent;
+    private final byte[] parentMove;
+    private final int[] boardScratch;
+
+    // Results of the last search
+    private final int[] resultState;
+    private int resultCount;
+    private int type;
+
+    public MoveGenerator(int rows, int cols) {
+        this(rows, cols, PieceSet.STANDARD);
+    }
+
+    /**
+     * @param pieces the game's piece set, for its shapes, spawn points and kicks
+     */
+    public MoveGenerator(int rows, int cols, PieceSet pieces) {
+        this.rows = rows;
+        this.cols = cols;
+        this.pieces = pieces;
+        int tallest = 0;
+        for (int type = 0; type < pieces.size(); type++) {
+            for (int r = 0; r < PieceSet.ROTATIONS; r++) {
+                tallest = Math.max(tallest, pieces.getHeight(type, r));
+            }
+        }
+        this.maxHeight = tallest;
+        this.yRange = rows - MIN_Y;
+        this.stateCount = PieceSet.ROTATIONS * yRange * cols;
+        this.visited = new long[(stateCount + 63) >>> 6];
+        this.placed = new long[(stateCount + 63) >>> 6];
+        this.queue = new int[stateCount];
+        this.parent = new int[stateCount];
+        this.parentMove = new byte[stateCount];
+        this.resultState = new int[stateCount];
+        this.boardScratch = new int[rows];
+    }
+
+    /**
+     * Search from the given piece's current position on the given board.
+     *
+     * @return the number of placements found
+     */
+    public int generate(TetrisBoard board, TetrisPiece piece) {
+        for (int i = 0; i < rows; i++) {
+            boardScratch[i] = board.getRowMask(i);
+        }
+        return generate(boardScratch, piece.getType(), piece.getRotation(), piece.getX(), piece.getY());
+    }
+
+    /**
+     * Search from a freshly spawned piece of the given type.
+     *
+     * @return the number of placements found
+     */
+    public int generate(int[] board, int type) {
+        return generate(board, type, 0, TetrisPiece.spawnX(cols) + pieces.getSpawnX(type),
+                TetrisPiece.SPAWN_Y + pieces.getSpawnY(type));
+    }
+
+    /**
+     * Search from an arbitrary position. If that position is itself blocked nothing is found.
+     *
+     * @param board one bitmask per row, top to bottom, bit j = column j
+     * @return the number of placements found
+     */
+    public int generate(int[] board, int type, int rotation, int x, int y) {
+        this.type = type;
+        resultCount = 0;
+        Arrays.fill(visited, 0L);
+        Arrays.fill(placed, 0L);
+        if (y < MIN_Y || !fits(board, rotation, x, y)) {
+            return 0;
+        }
+        queue[0] = seed(rotation, x, y);
+        return search(board, 1);
+    }
+
+    /**
+     * Search from spawn on a board whose top emptyRows rows are known to be empty. Every
+     * rotation and column is reachable in open space, so the search starts from all of them
+     * just above the filled part instead of walking down from spawn. The placements found
+     * are the same as generate(board, type), but getPath() is not available afterwards.
+     */
+    public int generateBelow(int[] board, int type, int emptyRows) {
+        int y = emptyRows - maxHeight;
+        if (y <= TetrisPiece.SPAWN_Y + pieces.getSpawnY(type)) {
+            return generate(board, type);
+        }
+        this.type = type;
+        resultCount = 0;
+        Arrays.fill(visited, 0L);
+        Arrays.fill(placed, 0L);
+        int tail = 0;
+        for (int r = 0; r < PieceSet.ROTATIONS; r++) {
+            for (int x = 0; x + pieces.getWidth(type, r) <= cols; x++) {
+                queue[tail++] = seed(r, x, y);
+            }
+        }
+        return search(board, tail);
+    }
+
+    private int seed(int rotation, int x, int y) {
+        int state = encode(rotation, x, y);
+        mark(visited, state);
+        parent[state] = -1;
+        parentMove[state] = MOVE_NONE;
+        return state;
+    }
+
+    // Breadth-first search from the first `tail` states in the queue
+    private int search(int[] board, int tail) {
+        int head = 0;
+        while (head < tail) {
+            int state = queue[head++];
+            int r = state / (yRange * cols);
+            int rest = state - r * yRange * cols;
+            int sy = rest / cols + MIN_Y;
+            int sx = rest - (sy - MIN_Y) * cols;
+
+            // Left, right
+            if (fits(board, r, sx - 1, sy)) {
+                tail = visit(state, encode(r, sx - 1, sy), TetrisGame.CMD_LEFT, tail);
+            }
+            if (fits(board, r, sx + 1, sy)) {
+                tail = visit(state, encode(r, sx + 1, sy), TetrisGame.CMD_RIGHT, tail);
+            }
+
+            // Soft drop, or lock here if blocked
+            if (fits(board, r, sx, sy + 1)) {
+                tail = visit(state, encode(r, sx, sy + 1), TetrisGame.CMD_SOFT_DROP, tail);
+            } else {
+                int key = encode(pieces.getCanonicalRotation(type, r), sx, sy);
+                if (!isMarked(placed, key)) {
+                    mark(placed, key);
+                    resultState[resultCount++] = state;
+                }
+            }
+
+            // Every turn the game has, clockwise first so ties keep the simplest inputs
+            for (int t = 0; t < TURNS.length; t++) {
+                tail = turn(board, state, r, sx, sy, TURNS[t], TURN_COMMANDS[t], tail);
+            }
+        }
+        return resultCount;
+    }
+
+    // Turn with the set's kicks for that turn; as in TetrisGame.rotate(), kicks above the
+    // limit are skipped and the first of the rest that fits wins
+    private int turn(int[] board, int state, int r, int sx, int sy, int turns, int command, int tail) {
+        int nr = (r + turns) & 3;
+        int[] kickX = pieces.getKickX(type, r, turns);
+        int[] kickY = pieces.getKickY(type, r, turns);
+        for (int k = 0; k < kickX.length; k++) {
+            int nx = sx + kickX[k];
+            int ny = sy + kickY[k];
+            if (ny >= MIN_Y && fits(board, nr, nx, ny)) {
+                return visit(state, encode(nr, nx, ny), command, tail);
+            }
+        }
+        return tail;
+    }
+
+    private boolean fits(int[] board, int rotation, int x, int y) {
+        return PieceMasks.fits(pieces, board, cols, type, rotation, x, y);
+    }
+
+    /**
+     * Upper bound on the number of placements one search can report.
+     */
+    public int getMaxCount() {
+        return stateCount;
+    }
+
+    public int getCount() {
+        return resultCount;
+    }
+
+    public int getType() {
+        return type;
+    }
+
+    public int getRotation(int index) {
+        return resultState[index] / (yRange * cols);
+    }
+
+    public int getX(int index) {
+        return (resultState[index] % (yRange * cols)) % cols;
+    }
+
+    /**
+     * Row of the top of the piece's bounding box when it lands.
+     */
+    public int getY(int index) {
+        return (resultState[index] % (yRange * cols)) / cols + MIN_Y;
+    }
+
+    /**
+     * Write the inputs that reach a placement, ending in a hard drop, into out.
+     * Soft drops just before the hard drop are left out since they change nothing.
+     *
+     * @return the number of commands written
+     */
+    public int getPath(int index, int[] out) {
+        int length = 0;
+        for (int s = resultState[index]; parent[s] >= 0; s = parent[s]) {
+            length++;
+        }
+        int i = length;
+        for (int s = resultState[index]; parent[s] >= 0; s = parent[s]) {
+            out[--i] = parentMove[s];
+        }
+        while (length > 0 && out[length - 1] == TetrisGame.CMD_SOFT_DROP) {
+            length--;
+        }
+        out[length++] = TetrisGame.CMD_HARD_DROP;
+        return length;
+    }
+
+    /**
+     * Upper bound on a path length, for sizing the array passed to getPath().
+     */
+    public int getMaxPathLength() {
+        return stateCount + 1;
+    }
+
+    private int visit(int from, int to, int move, int tail) {
+        if (isMarked(visited, to)) return tail;
+        mark(visited, to);
+        parent[to] = from;
+        parentMove[to] = (byte) move;
+        queue[tail] = to;
+        return tail + 1;
+    }
+
+    private int encode(int rotation, int x, int y) {
+        return (rotation * yRange + (y - MIN_Y)) * cols + x;
+    }
+
+    private static void mark(long[] bits, int index) {
+        bits[index >>> 6] |= 1L << index;
+    }
+
+    private static boolean isMarked(long[] bits, int index) {
+        return (bits[index >>> 6] & (1L << index)) != 0;
+    }
+}
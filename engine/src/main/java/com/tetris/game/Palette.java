@@ -0,0 +1,57 @@
+package com.tetris.game;
+
+/**
+ * ARGB colors for board cells. The board stores each cell as a small code (TetrisBoard.EMPTY,
+ * a piece's TetrisPiece.getCell(), or TetrisBoard.GARBAGE) and colors are looked up here
+ * only when drawing, so a theme is one table. Sets other than the standard pieces bring their
+ * own colors; see forPieces().
+ */
+public final class Palette {
+    // Game Boy Color themed colors - vibrant but retro
+    public static final Palette GAME_BOY_COLOR = new Palette(new int[]{
+        0x00000000, // Empty (fully transparent)
+        0xFF00E5E5, // I: GBC Cyan
+        0xFFFFD700, // O: GBC Yellow
+        0xFFD946EF, // T: GBC Purple
+        0xFF00D500, // S: GBC Green
+        0xFFFF3030, // Z: GBC Red
+        0xFF4169FF, // J: GBC Blue
+        0xFFFF8C00, // L: GBC Orange
+        0xFF7C6F64  // Garbage from a versus opponent
+    });
+
+    private final int[] colors;
+
+    /**
+     * @param colors one ARGB color per cell code from EMPTY through at least GARBAGE; codes
+     * past the end are drawn in the garbage color
+     */
+    public Palette(int[] colors) {
+        if (colors.length <= TetrisBoard.GARBAGE || colors.length > TetrisBoard.CELL_TYPES) {
+            throw new IllegalArgumentException("A palette needs " + (TetrisBoard.GARBAGE + 1) + " to "
+                    + TetrisBoard.CELL_TYPES + " colors");
+        }
+        this.colors = new int[TetrisBoard.CELL_TYPES];
+        System.arraycopy(colors, 0, this.colors, 0, colors.length);
+        for (int cell = colors.length; cell < TetrisBoard.CELL_TYPES; cell++) {
+            this.colors[cell] = colors[TetrisBoard.GARBAGE];
+        }
+    }
+
+    /**
+     * The Game Boy Color palette for the standard pieces, or one with each piece in the
+     * set's own color and empty and garbage cells as usual.
+     */
+    public static Palette forPieces(PieceSet pieces) {
+        if (pieces == PieceSet.STANDARD) return GAME_BOY_COLOR;
+        int[] colors = GAME_BOY_COLOR.colors.clone();
+        for (int type = 0; type < pieces.size(); type++) {
+            colors[pieces.getCell(type)] = pieces.getColor(type);
+        }
+        return new Palette(colors);
+    }
+
+    public int getColor(int cell) {
+        return colors[cell];
+    }
+}
@@ -0,0 +1,353 @@
+package com.tetris.game;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Finds a sequence of placements for a known piece queue that leaves the board empty, or
+ * proves there is none within a number of pieces.
+ *
+ * A perfect clear over the bottom H rows needs exactly (H * cols - filled cells) / 4 pieces,
+ * so each workable H is tried in turn, lowest first. Within one H the search is a
+ * depth-first walk over MoveGenerator placements with these cuts, all of them exact:
+ * - no piece may reach above the rows still to be cleared, since every row a cell lands in
+ *   must be filled and cleared too, and there are only enough cells for H rows
+ * - a column filled in every remaining row splits the field, and pieces can't cross it, so
+ *   the empty cells on each side must come in multiples of four
+ * - positions already shown to fail are remembered in a transposition table
+ *
+ * The first piece's placements are searched in parallel on a fork-join pool. The table is
+ * shared by all workers. Each word is read and written atomically, since plain longs may
+ * tear on 32-bit VMs, and each entry is checked against its full key, so two workers
+ * writing one slot at once only cost a lookup and never a wrong answer. Everything else a
+ * worker needs is allocated once per thread.
+ */
+public class PerfectClearSolver {
+    private static final int DEFAULT_TABLE_BITS = 18;
+
+    /**
+     * Placements in queue order. Each position is on the board as it stands just before that
+     * piece, i.e. after the lines cleared by the pieces before it.
+     */
+    public static final class Solution {
+        private final int[] types;
+        private final int[] rotations;
+        private final int[] xs;
+        private final int[] ys;
+
+        Solution(int[] types, int[] rotations, int[] xs, int[] ys) {
+            this.types = types;
+            this.rotations = rotations;
+            this.xs = xs;
+            this.ys = ys;
+        }
+
+        public int getLength() {
+            return types.length;
+        }
+
+        public int getType(int step) {
+            return types[step];
+        }
+
+        public int getRotation(int step) {
+            return rotations[step];
+        }
+
+        public int getX(int step) {
+            return xs[step];
+        }
+
+        public int getY(int step) {
+            return ys[step];
+        }
+    }
+
+    private final int rows;
+    private final int cols;
+    private final int fullRow;
+
+    // Positions known to fail: keyA holds key1 ^ key2 and keyB holds key2, so an entry whose
+    // two words come from different writes never verifies
+    private final int tableMask;
+    private final AtomicLongArray keyA;
+    private final AtomicLongArray keyB;
+    private long solveId;
+
+    private final ThreadLocal<Worker> workers;
+
+    public PerfectClearSolver(int rows, int cols) {
+        this(rows, cols, DEFAULT_TABLE_BITS);
+    }
+
+    /**
+     * @param tableBits log2 of the transposition table's entry count (16 bytes each)
+     */
+    public PerfectClearSolver(int rows, int cols, int tableBits) {
+        this.rows = rows;
+        this.cols = cols;
+        this.fullRow = PieceMasks.lowColumns(cols);
+        this.tableMask = (1 << tableBits) - 1;
+        this.keyA = new AtomicLongArray(1 << tableBits);
+        this.keyB = new AtomicLongArray(1 << tableBits);
+        this.workers = new ThreadLocal<Worker>() {
+            @Override
+            protected Worker initialValue() {
+                return new Worker();
+            }
+        };
+    }
+
+    public Solution solve(TetrisBoard board, int[] queue, int maxPieces, ForkJoinPool pool,
+                          BooleanSupplier cancelled) {
+        int[] masks = new int[rows];
+        for (int i = 0; i < rows; i++) {
+            masks[i] = board.getRowMask(i);
+        }
+        return solve(masks, queue, maxPieces, pool, cancelled);
+    }
+
+    /**
+     * @param board one bitmask per row, top to bottom
+     * @param queue piece types in the order they arrive, each starting from spawn
+     * @param maxPieces most pieces the solution may use
+     * @return a solution, or null if none exists within maxPieces (or the search was cancelled)
+     */
+    public Solution solve(int[] board, int[] queue, int maxPieces, ForkJoinPool pool,
+                          BooleanSupplier cancelled) {
+        int filled = 0;
+        int height = 0;
+        for (int i = 0; i < rows; i++) {
+            filled += Integer.bitCount(board[i]);
+            if (board[i] != 0 && height == 0) {
+                height = rows - i;
+            }
+        }
+        if (filled == 0) {
+            return new Solution(new int[0], new int[0], new int[0], new int[0]);
+        }
+
+        int limit = Math.min(maxPieces, queue.length);
+        for (int h = height; h <= rows; h++) {
+            int empty = h * cols - filled;
+            if (empty % 4 != 0) continue;
+            int pieces = empty / 4;
+            if (pieces > limit) break;
+            if (!splitsEvenly(board, h)) continue;
+
+            Solution solution = solveHeight(board, h, queue, pieces, pool, cancelled);
+            if (solution != null) return solution;
+            if (cancelled.getAsBoolean()) return null;
+        }
+        return null;
+    }
+
+    private Solution solveHeight(int[] board, int height, int[] queue, int pieces, ForkJoinPool pool,
+                                 BooleanSupplier cancelled) {
+        long id;
+        synchronized (this) {
+            id = ++solveId;
+        }
+        Search search = new Search(queue, pieces, id, cancelled);
+
+        Worker root = workers.get();
+        root.prepare(pieces);
+        MoveGenerator generator = root.generators[0];
+        int count = generator.generateBelow(board, queue[0], rows - height);
+
+        List<FirstMove> tasks = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            int rotation = generator.getRotation(i);
+            int x = generator.getX(i);
+            int y = generator.getY(i);
+            if (y < rows - height) continue;
+            tasks.add(new FirstMove(search, board, height, rotation, x, y));
+        }
+        pool.invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                ForkJoinTask.invokeAll(tasks);
+            }
+        });
+        return search.result.get();
+    }
+
+    // Shared state of one search over a fixed height
+    private static final class Search {
+        final int[] queue;
+        final int pieces;
+        final long id;
+        final BooleanSupplier cancelled;
+        final AtomicReference<Solution> result = new AtomicReference<>();
+
+        Search(int[] queue, int pieces, long id, BooleanSupplier cancelled) {
+            this.queue = queue;
+            this.pieces = pieces;
+            this.id = id;
+            this.cancelled = cancelled;
+        }
+
+        boolean stopped() {
+            return result.get() != null || cancelled.getAsBoolean();
+        }
+    }
+
+    private final class FirstMove extends RecursiveAction {
+        private final Search search;
+        private final int[] board;
+        private final int height;
+        private final int rotation;
+        private final int x;
+        private final int y;
+
+        FirstMove(Search search, int[] board, int height, int rotation, int x, int y) {
+            this.search = search;
+            this.board = board;
+            this.height = height;
+            this.rotation = rotation;
+            this.x = x;
+            this.y = y;
+        }
+
+        @Override
+        protected void compute() {
+            if (search.stopped()) return;
+            Worker w = workers.get();
+            w.prepare(search.pieces);
+            int lines = PieceMasks.place(board, cols, search.queue[0], rotation, x, y, w.boards[1]);
+            int remaining = height - lines;
+            if (!splitsEvenly(w.boards[1], remaining)) return;
+            w.rotations[0] = rotation;
+            w.xs[0] = x;
+            w.ys[0] = y;
+            if (extend(w, search, 1, remaining)) {
+                int n = search.pieces;
+                int[] types = new int[n];
+                System.arraycopy(search.queue, 0, types, 0, n);
+                search.result.compareAndSet(null, new Solution(types,
+                        copyOf(w.rotations, n), copyOf(w.xs, n), copyOf(w.ys, n)));
+            }
+        }
+    }
+
+    /**
+     * Place pieces depth.. on w.boards[depth], which has `height` rows left to clear.
+     */
+    private boolean extend(Worker w, Search search, int depth, int height) {
+        if (height == 0) return true;
+        if (depth == search.pieces || search.stopped()) return false;
+
+        int[] board = w.boards[depth];
+        boolean cacheable = height * cols <= 64;
+        long key1 = 0;
+        long key2 = 0;
+        int slot = 0;
+        if (cacheable) {
+            for (int i = 0; i < height; i++) {
+                key1 |= (long) board[rows - 1 - i] << (i * cols);
+            }
+            key2 = depth | (long) height << 8 | (long) search.pieces << 16 | search.id << 24;
+            slot = (int) mix(key1 ^ key2 * 0x9E3779B97F4A7C15L) & tableMask;
+            if (keyB.get(slot) == key2 && (keyA.get(slot) ^ key2) == key1) {
+                return false;
+            }
+        }
+
+        int type = search.queue[depth];
+        MoveGenerator generator = w.generators[depth];
+        int count = generator.generateBelow(board, type, rows - height);
+        int[] next = w.boards[depth + 1];
+        for (int i = 0; i < count; i++) {
+            int y = generator.getY(i);
+            if (y < rows - height) continue;
+            int rotation = generator.getRotation(i);
+            int x = generator.getX(i);
+            int lines = PieceMasks.place(board, cols, type, rotation, x, y, next);
+            if (!splitsEvenly(next, height - lines)) continue;
+            w.rotations[depth] = rotation;
+            w.xs[depth] = x;
+            w.ys[depth] = y;
+            if (extend(w, search, depth + 1, height - lines)) return true;
+        }
+
+        // Only record a genuine failure, not one cut short by another worker or a cancel
+        if (cacheable && !search.stopped()) {
+            keyA.lazySet(slot, key1 ^ key2);
+            keyB.lazySet(slot, key2);
+        }
+        return false;
+    }
+
+    /**
+     * A column filled in every remaining row walls off both sides: no piece can cross it,
+     * and clearing full rows keeps it a wall. Each side must then need whole pieces.
+     */
+    private boolean splitsEvenly(int[] board, int height) {
+        if (height == 0) return true;
+        int walls = fullRow;
+        for (int i = rows - height; i < rows; i++) {
+            walls &= board[i];
+        }
+        if (walls == 0) return true;
+
+        int c = 0;
+        while (c < cols) {
+            if ((walls & (1 << c)) != 0) {
+                c++;
+                continue;
+            }
+            int start = c;
+            while (c < cols && (walls & (1 << c)) == 0) {
+                c++;
+            }
+            int segment = PieceMasks.lowColumns(c) & ~PieceMasks.lowColumns(start);
+            int empty = 0;
+            for (int i = rows - height; i < rows; i++) {
+                empty += Integer.bitCount(~board[i] & segment);
+            }
+            if ((empty & 3) != 0) return false;
+        }
+        return true;
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static int[] copyOf(int[] values, int length) {
+        int[] copy = new int[length];
+        System.arraycopy(values, 0, copy, 0, length);
+        return copy;
+    }
+
+    // Per-thread scratch: one generator and one board per depth, and the current line
+    private final class Worker {
+        MoveGenerator[] generators = new MoveGenerator[0];
+        int[][] boards = new int[1][rows];
+        int[] rotations = new int[0];
+        int[] xs = new int[0];
+        int[] ys = new int[0];
+
+        void prepare(int pieces) {
+            if (generators.length >= pieces) return;
+            MoveGenerator[] grown = new MoveGenerator[pieces];
+            System.arraycopy(generators, 0, grown, 0, generators.length);
+            for (int i = generators.length; i < pieces; i++) {
+                grown[i] = new MoveGenerator(rows, cols);
+            }
+            generators = grown;
+            boards = new int[pieces + 1][rows];
+            rotations = new int[pieces];
+            xs = new int[pieces];
+            ys = new int[pieces];
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.tetris.game;
+
+/**
+ * Every rotation of every standard piece as row bitmasks, for search code.
+ *
+ * The tables are PieceSet.STANDARD's own, so they always match the game's rotation. Row
+ * masks run top to bottom with bit j = column j of the piece's bounding box; shifting a mask
+ * left by x places it at board column x. The overloads taking a PieceSet do the same for
+ * any other set.
+ */
+public final class PieceMasks {
+    public static final int ROTATIONS = PieceSet.ROTATIONS;
+    private static final PieceSet PIECES = PieceSet.STANDARD;
+
+    private PieceMasks() {
+    }
+
+    public static int[] rows(int type, int rotation) {
+        return PIECES.getRowMasks(type, rotation);
+    }
+
+    public static int width(int type, int rotation) {
+        return PIECES.getWidth(type, rotation);
+    }
+
+    public static int height(int type, int rotation) {
+        return PIECES.getHeight(type, rotation);
+    }
+
+    public static int canonicalRotation(int type, int rotation) {
+        return PIECES.getCanonicalRotation(type, rotation);
+    }
+
+    /**
+     * Same rule as TetrisBoard.isValidPosition: inside the walls and floor, not overlapping
+     * filled cells. Cells above the top of the board are allowed.
+     */
+    public static boolean fits(int[] board, int cols, int type, int rotation, int x, int y) {
+        return fits(PIECES, board, cols, type, rotation, x, y);
+    }
+
+    public static boolean fits(PieceSet pieces, int[] board, int cols, int type, int rotation, int x, int y) {
+        if (x < 0 || x + pieces.getWidth(type, rotation) > cols
+                || y + pieces.getHeight(type, rotation) > board.length) {
+            return false;
+        }
+        int[] rows = pieces.getRowMasks(type, rotation);
+        for (int i = 0; i < rows.length; i++) {
+            int boardY = y + i;
+            if (boardY >= 0 && (board[boardY] & (rows[i] << x)) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Mask of columns 0 to n - 1, for n from 0 to 32. A plain (1 << n) - 1 is 0 at n = 32,
+     * since int shifts only use the low five bits of the distance.
+     */
+    public static int lowColumns(int n) {
+        return n >= 32 ? -1 : (1 << n) - 1;
+    }
+
+    /**
+     * Lock a piece into a copy of the board and remove any rows it completes, like
+     * TetrisBoard.placePiece() followed by clearLines(). Cells above the board are dropped.
+     *
+     * @param out receives the resulting board; must not be the input array
+     * @return the number of lines cleared
+     */
+    public static int place(int[] board, int cols, int type, int rotation, int x, int y, int[] out) {
+        return place(PIECES, board, cols, type, rotation, x, y, out);
+    }
+
+    public static int place(PieceSet pieces, int[] board, int cols, int type, int rotation, int x, int y,
+                            int[] out) {
+        int full = lowColumns(cols);
+        int[] rows = pieces.getRowMasks(type, rotation);
+        int write = board.length - 1;
+        int cleared = 0;
+        for (int i = board.length - 1; i >= 0; i--) {
+            int row = board[i];
+            int pieceRow = i - y;
+            if (pieceRow >= 0 && pieceRow < rows.length) {
+                row |= rows[pieceRow] << x;
+            }
+            if (row == full) {
+                cleared++;
+            } else {
+                out[write--] = row;
+            }
+        }
+        while (write >= 0) {
+            out[write--] = 0;
+        }
+        return cleared;
+    }
+}
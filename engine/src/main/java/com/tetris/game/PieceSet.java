@@ -0,0 +1,546 @@
+package com.tetris.game;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A set of pieces loaded from a compact text definition, with every rotation of every piece
+ * precompiled into tables when the set is built.
+ *
+ * Definition, one directive per line; blank lines and lines starting with # are ignored:
+ *   rotation trim|box                  how the pieces that follow turn (default: trim)
+ *   kicks [a>b] dx,dy dx,dy ...        offsets tried in order when a piece turns from
+ *                                      rotation a to b, or on every turn if no a>b is given,
+ *                                      for the pieces that follow (default: 0,0 only)
+ *   name RRGGBB rows [spawn dx,dy]     a piece: its color, its cells as rows of # and .
+ *                                      separated by /, and an offset from the usual spawn
+ *
+ * With rotation trim a piece's rows are trimmed to its cells and that box turns about its top
+ * left corner, the game's classic rotation. With rotation box the rows must be square and the
+ * piece turns within that square, as the Super Rotation System does. Either way a piece's
+ * position is the top left of its trimmed cells, and each turn's kicks are stored with the
+ * shift between the two trimmed boxes already added, so trying a kick is one board test.
+ * Offsets are in board coordinates, y down.
+ *
+ * Pieces take cell codes from 1 upwards in order, skipping TetrisBoard.GARBAGE, so a set
+ * holds at most MAX_PIECES. Tables are indexed by state = type * ROTATIONS + rotation.
+ */
+public final class PieceSet {
+    public static final int ROTATIONS = 4;
+    public static final int MAX_PIECES = TetrisBoard.CELL_TYPES - 2;
+    // Widest or tallest bounding box a piece may have
+    public static final int MAX_EXTENT = 8;
+    public static final int MAX_DEFINITION_LENGTH = 1024;
+
+    public static final PieceSet STANDARD = parse(
+            "# The seven tetrominoes, with the Game Boy Color palette\n"
+            + "kicks 0,0 -1,0 1,0 -2,0 2,0\n"
+            + "I 00E5E5 ####\n"
+            + "O FFD700 ##/##\n"
+            + "T D946EF .#./###\n"
+            + "S 00D500 .##/##.\n"
+            + "Z FF3030 ##./.##\n"
+            + "J 4169FF #../###\n"
+            + "L FF8C00 ..#/###\n");
+
+    // Kicks in the usual published SRS tables, with y negated
+    public static final PieceSet STANDARD_SRS = parse(
+            "# The seven tetrominoes with the Super Rotation System\n"
+            + "rotation box\n"
+            + "kicks 0>1 0,0 -2,0 1,0 -2,1 1,-2\n"
+            + "kicks 1>0 0,0 2,0 -1,0 2,-1 -1,2\n"
+            + "kicks 1>2 0,0 -1,0 2,0 -1,-2 2,1\n"
+            + "kicks 2>1 0,0 1,0 -2,0 1,2 -2,-1\n"
+            + "kicks 2>3 0,0 2,0 -1,0 2,-1 -1,2\n"
+            + "kicks 3>2 0,0 -2,0 1,0 -2,1 1,-2\n"
+            + "kicks 3>0 0,0 1,0 -2,0 1,2 -2,-1\n"
+            + "kicks 0>3 0,0 -1,0 2,0 -1,-2 2,1\n"
+            + "I 00E5E5 ..../####/..../....\n"
+            + "kicks 0>1 0,0 -1,0 -1,-1 0,2 -1,2\n"
+            + "kicks 1>0 0,0 1,0 1,1 0,-2 1,-2\n"
+            + "kicks 1>2 0,0 1,0 1,1 0,-2 1,-2\n"
+            + "kicks 2>1 0,0 -1,0 -1,-1 0,2 -1,2\n"
+            + "kicks 2>3 0,0 1,0 1,-1 0,2 1,2\n"
+            + "kicks 3>2 0,0 -1,0 -1,1 0,-2 -1,-2\n"
+            + "kicks 3>0 0,0 -1,0 -1,1 0,-2 -1,-2\n"
+            + "kicks 0>3 0,0 1,0 1,-1 0,2 1,2\n"
+            + "O FFD700 ##/##\n"
+            + "T D946EF .#./###/...\n"
+            + "S 00D500 .##/##./...\n"
+            + "Z FF3030 ##./.##/...\n"
+            + "J 4169FF #../###/...\n"
+            + "L FF8C00 ..#/###/...\n");
+
+    public static final PieceSet PENTOMINOES = parse(
+            "# The twelve free pentominoes. Pieces three rows tall spawn a row higher, so every\n"
+            + "# piece shows one row when it appears.\n"
+            + "kicks 0,0 -1,0 1,0 -2,0 2,0\n"
+            + "F 8EC07C .##/##./.#. spawn 0,-1\n"
+            + "I 00E5E5 #####\n"
+            + "L FF8C00 ...#/####\n"
+            + "N 83A598 ##../.###\n"
+            + "P FFD700 ##/##/#. spawn 0,-1\n"
+            + "T D946EF ###/.#./.#. spawn 0,-1\n"
+            + "U FE8019 #.#/###\n"
+            + "V 4169FF #../#../### spawn 0,-1\n"
+            + "W D3869B #../##./.## spawn 0,-1\n"
+            + "X FF3030 .#./###/.#. spawn 0,-1\n"
+            + "Y 00D500 .#../####\n"
+            + "Z B8BB26 ##./.#./.## spawn 0,-1\n");
+
+    private final String definition;
+    private final String[] names;
+    private final int[] colors;
+    private final byte[] cells;
+    private final int[] spawnX;
+    private final int[] spawnY;
+
+    // Per state
+    private final int[][][] shapes;
+    private final int[][] rowMasks;
+    private final int[] widths;
+    private final int[] heights;
+    private final int[][] cellColumns;
+    private final int[][] cellRows;
+    // First rotation with exactly the same cells, so symmetric states collapse together
+    private final int[] canonical;
+    // Spin corners relative to the position, front two first, or null for pieces that don't spin
+    private final int[][] spinCorners;
+    // Per state and turn (1 = clockwise, 2 = half, 3 = counter-clockwise): kicks with the
+    // shift between trimmed boxes added
+    private final int[][] kickX;
+    private final int[][] kickY;
+
+    private PieceSet(String definition, List<Piece> pieces) {
+        this.definition = definition;
+        int count = pieces.size();
+        names = new String[count];
+        colors = new int[count];
+        cells = new byte[count];
+        spawnX = new int[count];
+        spawnY = new int[count];
+        shapes = new int[count * ROTATIONS][][];
+        rowMasks = new int[count * ROTATIONS][];
+        widths = new int[count * ROTATIONS];
+        heights = new int[count * ROTATIONS];
+        cellColumns = new int[count * ROTATIONS][];
+        cellRows = new int[count * ROTATIONS][];
+        canonical = new int[count * ROTATIONS];
+        spinCorners = new int[count * ROTATIONS][];
+        kickX = new int[count * ROTATIONS * ROTATIONS][];
+        kickY = new int[count * ROTATIONS * ROTATIONS][];
+
+        for (int t = 0; t < count; t++) {
+            Piece piece = pieces.get(t);
+            names[t] = piece.name;
+            colors[t] = piece.color;
+            cells[t] = (byte) (t + 1 < TetrisBoard.GARBAGE ? t + 1 : t + 2);
+            spawnX[t] = piece.spawnX;
+            spawnY[t] = piece.spawnY;
+
+            // Where each rotation's trimmed cells sit in the turning box
+            int[] left = new int[ROTATIONS];
+            int[] top = new int[ROTATIONS];
+            int[][] box = piece.box;
+            for (int r = 0; r < ROTATIONS; r++) {
+                int[] origin = new int[2];
+                compile(t * ROTATIONS + r, trim(box, origin));
+                left[r] = origin[0];
+                top[r] = origin[1];
+                box = rotateClockwise(box);
+            }
+            for (int from = 0; from < ROTATIONS; from++) {
+                for (int turns = 1; turns < ROTATIONS; turns++) {
+                    int to = (from + turns) & 3;
+                    int[] x = piece.kickX[from * ROTATIONS + turns].clone();
+                    int[] y = piece.kickY[from * ROTATIONS + turns].clone();
+                    for (int k = 0; k < x.length; k++) {
+                        x[k] += left[to] - left[from];
+                        y[k] += top[to] - top[from];
+                    }
+                    kickX[(t * ROTATIONS + from) * ROTATIONS + turns] = x;
+                    kickY[(t * ROTATIONS + from) * ROTATIONS + turns] = y;
+                }
+            }
+        }
+    }
+
+    // The grid cut down to its filled cells; origin receives the cut's left column and top row
+    private static int[][] trim(int[][] grid, int[] origin) {
+        int top = grid.length;
+        int bottom = -1;
+        int left = grid[0].length;
+        int right = -1;
+        for (int i = 0; i < grid.length; i++) {
+            for (int j = 0; j < grid[i].length; j++) {
+                if (grid[i][j] != 0) {
+                    top = Math.min(top, i);
+                    bottom = i;
+                    left = Math.min(left, j);
+                    right = Math.max(right, j);
+                }
+            }
+        }
+        int[][] trimmed = new int[bottom - top + 1][right - left + 1];
+        for (int i = top; i <= bottom; i++) {
+            System.arraycopy(grid[i], left, trimmed[i - top], 0, right - left + 1);
+        }
+        origin[0] = left;
+        origin[1] = top;
+        return trimmed;
+    }
+
+    private void compile(int state, int[][] shape) {
+        int height = shape.length;
+        int width = shape[0].length;
+        int[] masks = new int[height];
+        int filled = 0;
+        for (int i = 0; i < height; i++) {
+            for (int j = 0; j < width; j++) {
+                if (shape[i][j] != 0) {
+                    masks[i] |= 1 << j;
+                    filled++;
+                }
+            }
+        }
+        int[] columns = new int[filled];
+        int[] rows = new int[filled];
+        int k = 0;
+        for (int i = 0; i < height; i++) {
+            for (int j = 0; j < width; j++) {
+                if (shape[i][j] != 0) {
+                    columns[k] = j;
+                    rows[k++] = i;
+                }
+            }
+        }
+        shapes[state] = shape;
+        rowMasks[state] = masks;
+        widths[state] = width;
+        heights[state] = height;
+        cellColumns[state] = columns;
+        cellRows[state] = rows;
+        spinCorners[state] = findSpinCorners(shape, filled);
+
+        int first = state - state % ROTATIONS;
+        canonical[state] = state - first;
+        for (int s = first; s < state; s++) {
+            if (Arrays.equals(rowMasks[s], masks)) {
+                canonical[state] = s - first;
+                break;
+            }
+        }
+    }
+
+    // A four-cell piece with a cell touching the other three is a T: its corners are the
+    // diagonals of that cell, the front two on the side away from the missing neighbour
+    private static int[] findSpinCorners(int[][] shape, int filled) {
+        if (filled != 4) return null;
+        for (int i = 0; i < shape.length; i++) {
+            for (int j = 0; j < shape[i].length; j++) {
+                if (shape[i][j] == 0) continue;
+                int up = i > 0 ? shape[i - 1][j] : 0;
+                int down = i + 1 < shape.length ? shape[i + 1][j] : 0;
+                int left = j > 0 ? shape[i][j - 1] : 0;
+                int right = j + 1 < shape[i].length ? shape[i][j + 1] : 0;
+                if (up + down + left + right != 3) continue;
+                // Points away from the missing neighbour
+                int frontX = right - left;
+                int frontY = down - up;
+                int[] corners = new int[8];
+                int front = 0;
+                int back = 2;
+                for (int dy = -1; dy <= 1; dy += 2) {
+                    for (int dx = -1; dx <= 1; dx += 2) {
+                        int k = dx * frontX + dy * frontY > 0 ? front++ : back++;
+                        corners[2 * k] = j + dx;
+                        corners[2 * k + 1] = i + dy;
+                    }
+                }
+                return corners;
+            }
+        }
+        return null;
+    }
+
+    private static int[][] rotateClockwise(int[][] shape) {
+        int rows = shape.length;
+        int cols = shape[0].length;
+        int[][] rotated = new int[cols][rows];
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                rotated[j][rows - 1 - i] = shape[i][j];
+            }
+        }
+        return rotated;
+    }
+
+    /**
+     * Build a set from its definition.
+     *
+     * @throws IllegalArgumentException if the definition is malformed, not ASCII, longer than
+     * MAX_DEFINITION_LENGTH, or has no pieces or more than MAX_PIECES
+     */
+    public static PieceSet parse(String definition) {
+        if (definition.length() > MAX_DEFINITION_LENGTH) {
+            throw new IllegalArgumentException("Piece set definition longer than " + MAX_DEFINITION_LENGTH);
+        }
+        // Stored as one byte per character in snapshots and replays
+        for (int i = 0; i < definition.length(); i++) {
+            if (definition.charAt(i) > 0x7E) {
+                throw new IllegalArgumentException("Piece set definition is not ASCII");
+            }
+        }
+        List<Piece> pieces = new ArrayList<>();
+        boolean box = false;
+        // Per from * ROTATIONS + turns
+        int[][] kickX = new int[ROTATIONS * ROTATIONS][];
+        int[][] kickY = new int[ROTATIONS * ROTATIONS][];
+        Arrays.fill(kickX, new int[]{0});
+        Arrays.fill(kickY, new int[]{0});
+        String[] lines = definition.split("\n");
+        for (int n = 0; n < lines.length; n++) {
+            String line = lines[n].trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+            String[] tokens = line.split("\\s+");
+            if (tokens[0].equals("rotation")) {
+                if (tokens.length != 2 || !(tokens[1].equals("trim") || tokens[1].equals("box"))) {
+                    throw error(n, "expected: rotation trim|box");
+                }
+                box = tokens[1].equals("box");
+                continue;
+            }
+            if (tokens[0].equals("kicks")) {
+                int first = 1;
+                int transition = -1;
+                if (tokens.length > 1 && tokens[1].indexOf('>') >= 0) {
+                    transition = parseTransition(tokens[1], n);
+                    first = 2;
+                }
+                if (tokens.length <= first) throw error(n, "no kick offsets");
+                int[] x = new int[tokens.length - first];
+                int[] y = new int[tokens.length - first];
+                for (int k = first; k < tokens.length; k++) {
+                    int[] offset = parseOffset(tokens[k], n);
+                    x[k - first] = offset[0];
+                    y[k - first] = offset[1];
+                }
+                if (transition >= 0) {
+                    kickX[transition] = x;
+                    kickY[transition] = y;
+                } else {
+                    Arrays.fill(kickX, x);
+                    Arrays.fill(kickY, y);
+                }
+                continue;
+            }
+            if (tokens.length != 3 && !(tokens.length == 5 && tokens[3].equals("spawn"))) {
+                throw error(n, "expected: name RRGGBB rows [spawn dx,dy]");
+            }
+            Piece piece = new Piece();
+            piece.name = tokens[0];
+            piece.color = parseColor(tokens[1], n);
+            piece.box = parseShape(tokens[2], n, box);
+            if (tokens.length == 5) {
+                int[] offset = parseOffset(tokens[4], n);
+                piece.spawnX = offset[0];
+                piece.spawnY = offset[1];
+            }
+            piece.kickX = kickX.clone();
+            piece.kickY = kickY.clone();
+            pieces.add(piece);
+        }
+        if (pieces.isEmpty() || pieces.size() > MAX_PIECES) {
+            throw new IllegalArgumentException("A piece set needs 1 to " + MAX_PIECES + " pieces");
+        }
+        return new PieceSet(definition, pieces);
+    }
+
+    /**
+     * The built-in set with this definition if there is one, so identity checks against
+     * STANDARD keep working for sets read back from snapshots and replays, or else a new set.
+     */
+    public static PieceSet forDefinition(String definition) {
+        if (definition.equals(STANDARD.definition)) return STANDARD;
+        if (definition.equals(STANDARD_SRS.definition)) return STANDARD_SRS;
+        if (definition.equals(PENTOMINOES.definition)) return PENTOMINOES;
+        return parse(definition);
+    }
+
+    private static int parseColor(String token, int line) {
+        if (token.length() != 6) throw error(line, "color must be RRGGBB");
+        try {
+            return 0xFF000000 | Integer.parseInt(token, 16);
+        } catch (NumberFormatException e) {
+            throw error(line, "color must be RRGGBB");
+        }
+    }
+
+    // "a>b" as from * ROTATIONS + turns
+    private static int parseTransition(String token, int line) {
+        if (token.length() != 3 || token.charAt(1) != '>') throw error(line, "turn must be a>b: " + token);
+        int from = token.charAt(0) - '0';
+        int to = token.charAt(2) - '0';
+        if (from < 0 || from >= ROTATIONS || to < 0 || to >= ROTATIONS || from == to) {
+            throw error(line, "turn must be a>b with rotations 0 to 3: " + token);
+        }
+        return from * ROTATIONS + ((to - from) & 3);
+    }
+
+    private static int[] parseOffset(String token, int line) {
+        int comma = token.indexOf(',');
+        try {
+            int dx = Integer.parseInt(token.substring(0, Math.max(comma, 0)));
+            int dy = Integer.parseInt(token.substring(comma + 1));
+            if (Math.abs(dx) > MAX_EXTENT || Math.abs(dy) > MAX_EXTENT / 2) {
+                throw error(line, "offset out of range: " + token);
+            }
+            return new int[]{dx, dy};
+        } catch (NumberFormatException e) {
+            throw error(line, "offset must be dx,dy: " + token);
+        }
+    }
+
+    // Rows of # and ., trimmed to the bounding box of the # cells, or kept whole as the square
+    // the piece turns in
+    private static int[][] parseShape(String token, int line, boolean box) {
+        String[] rows = token.split("/");
+        int width = rows[0].length();
+        int[][] grid = new int[rows.length][width];
+        boolean filled = false;
+        for (int i = 0; i < rows.length; i++) {
+            if (rows[i].length() != width) throw error(line, "shape rows differ in length");
+            for (int j = 0; j < width; j++) {
+                char c = rows[i].charAt(j);
+                if (c == '#') {
+                    grid[i][j] = 1;
+                    filled = true;
+                } else if (c != '.') {
+                    throw error(line, "shape cells must be # or .");
+                }
+            }
+        }
+        if (!filled) throw error(line, "empty shape");
+        if (box) {
+            if (rows.length != width) throw error(line, "rotation box needs square rows");
+            if (width > MAX_EXTENT) throw error(line, "box wider than " + MAX_EXTENT);
+            return grid;
+        }
+        int[][] shape = trim(grid, new int[2]);
+        if (shape.length > MAX_EXTENT || shape[0].length > MAX_EXTENT) {
+            throw error(line, "shape wider or taller than " + MAX_EXTENT);
+        }
+        return shape;
+    }
+
+    private static IllegalArgumentException error(int line, String message) {
+        return new IllegalArgumentException("Piece set line " + (line + 1) + ": " + message);
+    }
+
+    public String getDefinition() {
+        return definition;
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    public String getName(int type) {
+        return names[type];
+    }
+
+    public int getColor(int type) {
+        return colors[type];
+    }
+
+    /**
+     * The code a piece of this type leaves in the board's cells.
+     */
+    public byte getCell(int type) {
+        return cells[type];
+    }
+
+    /**
+     * Offset from TetrisPiece.spawnX() and SPAWN_Y where pieces of this type appear.
+     */
+    public int getSpawnX(int type) {
+        return spawnX[type];
+    }
+
+    public int getSpawnY(int type) {
+        return spawnY[type];
+    }
+
+    /**
+     * Position offsets tried in order when a piece of this type turns from a rotation by 1
+     * (clockwise), 2 or 3 (counter-clockwise) quarter turns; the first that fits is taken.
+     * Do not modify.
+     */
+    public int[] getKickX(int type, int rotation, int turns) {
+        return kickX[(type * ROTATIONS + rotation) * ROTATIONS + turns];
+    }
+
+    public int[] getKickY(int type, int rotation, int turns) {
+        return kickY[(type * ROTATIONS + rotation) * ROTATIONS + turns];
+    }
+
+    /**
+     * Cells of a rotation as rows of 0 and 1 over its bounding box; shared, do not modify.
+     */
+    public int[][] getShape(int type, int rotation) {
+        return shapes[type * ROTATIONS + rotation];
+    }
+
+    /**
+     * Rows of a rotation top to bottom, bit j = column j of the bounding box; do not modify.
+     */
+    public int[] getRowMasks(int type, int rotation) {
+        return rowMasks[type * ROTATIONS + rotation];
+    }
+
+    public int getWidth(int type, int rotation) {
+        return widths[type * ROTATIONS + rotation];
+    }
+
+    public int getHeight(int type, int rotation) {
+        return heights[type * ROTATIONS + rotation];
+    }
+
+    /**
+     * Column and row of each cell of a rotation within its bounding box, in matching order;
+     * do not modify.
+     */
+    public int[] getCellColumns(int type, int rotation) {
+        return cellColumns[type * ROTATIONS + rotation];
+    }
+
+    public int[] getCellRows(int type, int rotation) {
+        return cellRows[type * ROTATIONS + rotation];
+    }
+
+    public int getCanonicalRotation(int type, int rotation) {
+        return canonical[type * ROTATIONS + rotation];
+    }
+
+    /**
+     * The four cells diagonal to a T piece's middle cell, as column, row pairs relative to
+     * the piece's position, the two on the side the piece points to first; null for pieces
+     * with no middle cell to spin about. Do not modify.
+     */
+    public int[] getSpinCorners(int type, int rotation) {
+        return spinCorners[type * ROTATIONS + rotation];
+    }
+
+    private static final class Piece {
+        String name;
+        int color;
+        // The grid rotations turn: the trimmed shape, or the square given with rotation box
+        int[][] box;
+        int spawnX;
+        int spawnY;
+        // Per from * ROTATIONS + turns, before the shift between trimmed boxes
+        int[][] kickX;
+        int[][] kickY;
+    }
+}
@@ -0,0 +1,259 @@
+package com.tetris.game;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * Picks the best placement for the current piece, looking one piece ahead when the next
+ * piece is known.
+ *
+ * The search is anytime. Every placement of the current piece is first scored on its own,
+ * then the placements are revisited best-first with every reply of the next piece. If the
+ * deadline passes or the caller cancels part-way through the second pass, the best fully
+ * searched placement is kept, falling back to the one-piece ranking. All storage is
+ * allocated up front.
+ *
+ * The next piece's best reply depends only on the board it lands on, so it is cached in a
+ * transposition table under that board's Zobrist hash. Different placements that leave
+ * the same board share one reply search. The table also outlives a single search, so when
+ * the hint engine re-searches a position because the piece fell one row, the replies are
+ * already known.
+ */
+public class PlacementSearch {
+    // Pass as the deadline to search exhaustively
+    public static final long NO_DEADLINE = Long.MAX_VALUE;
+    private static final int DEFAULT_TABLE_BITS = 12;
+
+    private final int cols;
+    private final PieceSet pieces;
+    private final MoveGenerator current;
+    private final MoveGenerator next;
+    private final BoardEvaluator evaluator;
+    private final TranspositionTable replies;
+
+    // Scratch boards after the current piece and after the next piece
+    private final int[] afterCurrent;
+    private final int[] afterNext;
+    // rowHashes[i] is the Zobrist hash of the searched board's rows above row i
+    private final long[] rowHashes;
+    // One-piece score of each placement, and placement indexes sorted by it
+    private final double[] firstScore;
+    private final int[] order;
+
+    // Result of the last search
+    private int bestIndex = -1;
+    private int bestLines;
+    private boolean hasNextPlacement;
+    private int nextRotation;
+    private int nextX;
+    private int nextY;
+
+    public PlacementSearch(int rows, int cols) {
+        this(rows, cols, new BoardEvaluator(cols));
+    }
+
+    public PlacementSearch(int rows, int cols, BoardEvaluator evaluator) {
+        this(rows, cols, evaluator, new TranspositionTable(DEFAULT_TABLE_BITS));
+    }
+
+    public PlacementSearch(int rows, int cols, BoardEvaluator evaluator, TranspositionTable replies) {
+        this(rows, cols, PieceSet.STANDARD, evaluator, replies);
+    }
+
+    /**
+     * @param pieces the game's piece set, for its shapes and kicks
+     */
+    public PlacementSearch(int rows, int cols, PieceSet pieces, BoardEvaluator evaluator) {
+        this(rows, cols, pieces, evaluator, new TranspositionTable(DEFAULT_TABLE_BITS));
+    }
+
+    public PlacementSearch(int rows, int cols, PieceSet pieces, BoardEvaluator evaluator,
+                           TranspositionTable replies) {
+        this.replies = replies;
+        this.cols = cols;
+        this.pieces = pieces;
+        this.current = new MoveGenerator(rows, cols, pieces);
+        this.next = new MoveGenerator(rows, cols, pieces);
+        this.evaluator = evaluator;
+        this.afterCurrent = new int[rows];
+        this.afterNext = new int[rows];
+        this.rowHashes = new long[rows + 1];
+        this.firstScore = new double[current.getMaxCount()];
+        this.order = new int[current.getMaxCount()];
+    }
+
+    /**
+     * Search from the current piece's position.
+     *
+     * @param board one bitmask per row, top to bottom
+     * @param nextType the next piece's type, or -1 to look at the current piece only
+     * @param deadlineNanos System.nanoTime() after which the search wraps up, or NO_DEADLINE
+     * @param cancelled polled during the search; once true the search gives up
+     * @return true if a placement was found and the search was not cancelled
+     */
+    public boolean search(int[] board, int type, int rotation, int x, int y, int nextType,
+                          long deadlineNanos, BooleanSupplier cancelled) {
+        bestIndex = -1;
+        hasNextPlacement = false;
+
+        int count = current.generate(board, type, rotation, x, y);
+        if (count == 0) return false;
+
+        // First pass: each placement on its own
+        for (int i = 0; i < count; i++) {
+            int lines = PieceMasks.place(pieces, board, cols, type, current.getRotation(i),
+                    current.getX(i), current.getY(i), afterCurrent);
+            firstScore[i] = evaluator.evaluate(afterCurrent, lines);
+            insertByScore(i);
+        }
+        if (cancelled.getAsBoolean()) return false;
+        bestIndex = order[0];
+        if (nextType < 0) {
+            bestLines = linesFor(board, type, bestIndex);
+            return true;
+        }
+
+        // Second pass: best-first, each placement followed by the next piece's best reply.
+        // Lines enter the score linearly, so the reply is cached without the first piece's lines.
+        replies.newSearch();
+        for (int i = 0; i < board.length; i++) {
+            rowHashes[i + 1] = rowHashes[i] ^ (board[i] != 0 ? Zobrist.row(i, board[i]) : 0);
+        }
+        double linesWeight = evaluator.getWeight(BoardEvaluator.LINES_CLEARED);
+        double best = Double.NEGATIVE_INFINITY;
+        for (int k = 0; k < count; k++) {
+            if (deadlineNanos != NO_DEADLINE && System.nanoTime() - deadlineNanos > 0) break;
+            if (cancelled.getAsBoolean()) return false;
+
+            int i = order[k];
+            int lines = PieceMasks.place(pieces, board, cols, type, current.getRotation(i),
+                    current.getX(i), current.getY(i), afterCurrent);
+            long key = placedHash(type, i, lines) ^ Zobrist.queue(0, nextType);
+            int slot = replies.find(key);
+            double reply;
+            int move;
+            if (slot >= 0) {
+                reply = replies.getValue(slot);
+                move = replies.getMove(slot);
+            } else {
+                reply = Double.NEGATIVE_INFINITY;
+                move = 0;
+                int replyCount = next.generate(afterCurrent, nextType);
+                for (int j = 0; j < replyCount; j++) {
+                    int nextLines = PieceMasks.place(pieces, afterCurrent, cols, nextType,
+                            next.getRotation(j), next.getX(j), next.getY(j), afterNext);
+                    double score = evaluator.evaluate(afterNext, nextLines);
+                    if (score > reply) {
+                        reply = score;
+                        move = packMove(next.getRotation(j), next.getX(j), next.getY(j));
+                    }
+                }
+                replies.store(key, reply, move, 1);
+            }
+
+            double score = reply + linesWeight * lines;
+            if (reply != Double.NEGATIVE_INFINITY && score > best) {
+                best = score;
+                bestIndex = i;
+                hasNextPlacement = true;
+                nextRotation = move >>> 16;
+                nextX = ((move >>> 8) & 0xFF) - 128;
+                nextY = (move & 0xFF) - 128;
+            }
+        }
+        bestLines = linesFor(board, type, bestIndex);
+        return true;
+    }
+
+    public int getRotation() {
+        return current.getRotation(bestIndex);
+    }
+
+    public int getX() {
+        return current.getX(bestIndex);
+    }
+
+    public int getY() {
+        return current.getY(bestIndex);
+    }
+
+    /**
+     * Lines the chosen placement clears by itself.
+     */
+    public int getLinesCleared() {
+        return bestLines;
+    }
+
+    /**
+     * Inputs that take the current piece to the chosen placement, ending in a hard drop.
+     *
+     * @return the number of commands written
+     */
+    public int getPath(int[] out) {
+        return current.getPath(bestIndex, out);
+    }
+
+    public int getMaxPathLength() {
+        return current.getMaxPathLength();
+    }
+
+    /**
+     * True if the lookahead finished at least one placement, so the next piece's reply is known.
+     * That reply is positioned on the board after the chosen placement's lines are cleared.
+     */
+    public boolean hasNextPlacement() {
+        return hasNextPlacement;
+    }
+
+    public int getNextRotation() {
+        return nextRotation;
+    }
+
+    public int getNextX() {
+        return nextX;
+    }
+
+    public int getNextY() {
+        return nextY;
+    }
+
+    public TranspositionTable getReplyTable() {
+        return replies;
+    }
+
+    private static int packMove(int rotation, int x, int y) {
+        return rotation << 16 | (x + 128) << 8 | (y + 128);
+    }
+
+    // Hash of the board place() just left in afterCurrent, from the searched board's row
+    // hashes: rows below the piece are unchanged, rows above it moved down by the lines
+    // cleared, and only the piece's own rows are hashed again
+    private long placedHash(int type, int index, int lines) {
+        int rows = afterCurrent.length;
+        int y = current.getY(index);
+        int top = Math.max(0, y);
+        int height = pieces.getRowMasks(type, current.getRotation(index)).length;
+        int bottom = Math.max(top, Math.min(rows, y + height));
+        long hash = rowHashes[rows] ^ rowHashes[bottom] ^ Long.rotateLeft(rowHashes[top], lines);
+        for (int i = top + lines; i < bottom; i++) {
+            if (afterCurrent[i] != 0) {
+                hash ^= Zobrist.row(i, afterCurrent[i]);
+            }
+        }
+        return hash;
+    }
+
+    private int linesFor(int[] board, int type, int index) {
+        return PieceMasks.place(pieces, board, cols, type, current.getRotation(index),
+                current.getX(index), current.getY(index), afterCurrent);
+    }
+
+    // Insertion into order[0..i], highest score first; placements number a few dozen
+    private void insertByScore(int i) {
+        int k = i;
+        while (k > 0 && firstScore[order[k - 1]] < firstScore[i]) {
+            order[k] = order[k - 1];
+            k--;
+        }
+        order[k] = i;
+    }
+}
@@ -0,0 +1,246 @@
+package com.tetris.game;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * Re-simulates a game recorded by ReplayRecorder.
+ *
+ * The game is rebuilt from the seed with no listener or sound attached, so nothing is rendered.
+ * Call runToEnd() to simulate as fast as possible, or call advanceTo() from a timer every
+ * getTickIntervalMs() to play back at the original pace.
+ */
+public class ReplayPlayer {
+    private final ByteBuffer data;
+    private final TetrisGame game;
+    private final long seed;
+    private final int speed;
+    private final int startingLines;
+    // Event layout of this replay's version
+    private final int commandBits;
+    private final int endCommand;
+
+    // Next event not yet applied, and where it starts in the stream
+    private int nextEventPosition;
+    private long previousEventTick;
+    private long nextTick;
+    private int nextCommand = -1;
+    private boolean ended;
+
+    // Result stored in the replay's footer
+    private long recordedEndTick = -1;
+    private int recordedScore = -1;
+    private int recordedLines = -1;
+    private int recordedLevel = -1;
+
+    /**
+     * @throws IllegalArgumentException if the data isn't a replay this version understands
+     */
+    public ReplayPlayer(ByteBuffer replay) {
+        this(replay, null, 0, 0);
+    }
+
+    /**
+     * Resume a replay from a restored mid-game state, e.g. a keyframe. The event stream
+     * continues at the given byte offset, whose tick delta is relative to previousEventTick.
+     * With a null game this starts from the beginning instead.
+     */
+    public ReplayPlayer(ByteBuffer replay, TetrisGame restored, int eventPosition, long previousEventTick) {
+        data = replay.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        if (data.remaining() < ReplayRecorder.HEADER_SIZE || data.getInt() != ReplayRecorder.MAGIC) {
+            throw new IllegalArgumentException("Not a replay");
+        }
+        byte version = data.get();
+        if (version < ReplayRecorder.VERSION_DEFAULT_BOARD || version > ReplayRecorder.VERSION) {
+            throw new IllegalArgumentException("Not a replay");
+        }
+        commandBits = ReplayRecorder.commandBits(version);
+        endCommand = (1 << commandBits) - 1;
+        seed = data.getLong();
+        speed = data.get();
+        startingLines = data.get();
+        int rows = TetrisBoard.DEFAULT_ROWS;
+        int cols = TetrisBoard.DEFAULT_COLS;
+        PieceSet pieces = PieceSet.STANDARD;
+        if (version >= ReplayRecorder.VERSION_BOARD_SIZE) {
+            if (data.remaining() < ReplayRecorder.BOARD_SIZE_SIZE) {
+                throw new IllegalArgumentException("Not a replay");
+            }
+            rows = data.get();
+            cols = data.getShort();
+        }
+        if (version >= ReplayRecorder.VERSION_PIECE_SET) {
+            pieces = ReplayRecorder.readPieceSet(data);
+            if (pieces == null) {
+                throw new IllegalArgumentException("Not a replay");
+            }
+        }
+        Gravity gravity = Gravity.CLASSIC;
+        if (version >= ReplayRecorder.VERSION_GRAVITY) {
+            gravity = ReplayRecorder.readGravity(data);
+            if (gravity == null) {
+                throw new IllegalArgumentException("Not a replay");
+            }
+        }
+        Scoring scoring = Scoring.CLASSIC;
+        if (version >= ReplayRecorder.VERSION) {
+            scoring = ReplayRecorder.readScoring(data);
+            if (scoring == null) {
+                throw new IllegalArgumentException("Not a replay");
+            }
+        }
+        if (restored != null) {
+            game = restored;
+            data.position(eventPosition);
+            nextTick = previousEventTick;
+        } else {
+            game = new TetrisGame(speed, null, startingLines, seed, rows, cols, pieces, gravity, scoring);
+        }
+        readNextEvent();
+    }
+
+    public static ReplayPlayer fromFile(File file) throws IOException {
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            FileChannel channel = in.getChannel();
+            ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+            while (buffer.hasRemaining() && channel.read(buffer) > 0) {
+                // Keep reading
+            }
+            buffer.flip();
+            return new ReplayPlayer(buffer);
+        }
+    }
+
+    public TetrisGame getGame() {
+        return game;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getTickIntervalMs() {
+        return (int) ((game.getTickIntervalNanos() + 500_000) / 1_000_000);
+    }
+
+    /**
+     * True once the recording has been played out or the game has ended.
+     */
+    public boolean isFinished() {
+        return ended || game.isGameOver();
+    }
+
+    /**
+     * Apply gravity and recorded commands up to and including the given tick.
+     */
+    public void advanceTo(long tick) {
+        while (nextCommand >= 0 && nextTick <= tick && !game.isGameOver()) {
+            catchUpTo(nextTick);
+            if (game.isGameOver()) return;
+            if (nextCommand == endCommand) {
+                nextCommand = -1;
+                ended = true;
+                return;
+            }
+            game.applyCommand(nextCommand);
+            readNextEvent();
+        }
+        if (!ended) {
+            catchUpTo(tick);
+        }
+    }
+
+    /**
+     * Simulate the whole replay as fast as possible and return the finished game.
+     */
+    public TetrisGame runToEnd() {
+        advanceTo(Long.MAX_VALUE);
+        return game;
+    }
+
+    /**
+     * True if the re-simulated game ended with the result stored in the replay.
+     * Only meaningful after runToEnd().
+     */
+    public boolean matchesRecordedResult() {
+        return isFinished()
+                && game.getTickCount() == recordedEndTick
+                && game.getScore() == recordedScore
+                && game.getLines() == recordedLines
+                && game.getLevel() == recordedLevel;
+    }
+
+    public int getRecordedScore() {
+        return recordedScore;
+    }
+
+    public int getRecordedLines() {
+        return recordedLines;
+    }
+
+    public int getRecordedLevel() {
+        return recordedLevel;
+    }
+
+    /**
+     * Final tick of the recording, once the end record has been read.
+     */
+    public long getRecordedEndTick() {
+        return recordedEndTick;
+    }
+
+    /**
+     * Byte offset of the next unapplied event; pass back with getPreviousEventTick()
+     * to resume from the current state.
+     */
+    public int getNextEventPosition() {
+        return nextEventPosition;
+    }
+
+    public long getPreviousEventTick() {
+        return previousEventTick;
+    }
+
+    private void catchUpTo(long tick) {
+        while (game.getTickCount() < tick && !game.isGameOver()) {
+            game.tick();
+        }
+    }
+
+    private void readNextEvent() {
+        if (!data.hasRemaining()) {
+            nextEventPosition = data.position();
+            previousEventTick = nextTick;
+            // Truncated recording: play what there is
+            nextCommand = -1;
+            ended = true;
+            return;
+        }
+        nextEventPosition = data.position();
+        previousEventTick = nextTick;
+        long value = readVarint();
+        nextTick += value >>> commandBits;
+        nextCommand = (int) (value & endCommand);
+        if (nextCommand == endCommand && data.hasRemaining()) {
+            recordedEndTick = nextTick;
+            recordedScore = (int) readVarint();
+            recordedLines = (int) readVarint();
+            recordedLevel = (int) readVarint();
+        }
+    }
+
+    private long readVarint() {
+        long value = 0;
+        int shift = 0;
+        while (true) {
+            byte b = data.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+            shift += 7;
+        }
+    }
+}
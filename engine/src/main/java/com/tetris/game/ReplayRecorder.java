@@ -0,0 +1,178 @@
+package com.tetris.game;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * Records a game as its seed plus the stream of player commands.
+ *
+ * Layout:
+ *   int magic, byte version, long seed, byte speed, byte starting lines
+ *   versions 2 and later: byte rows, short cols
+ *   versions 3 and later: short piece set definition length, then its ASCII text;
+ *           0 for PieceSet.STANDARD
+ *   versions 5 and later: byte gravity
+ *   versions 6 and later: byte scoring
+ *   events: varint((tick delta << 4) | command), tick delta measured from the previous event
+ *   end:    varint((tick delta << 4) | END) to the final tick,
+ *           then varint final score, varint lines, varint level
+ *
+ * Gravity ticks are not stored; the player re-derives them from the tick numbers. Most
+ * events fit in one or two bytes, so a full game is typically a few KB. Versions 1 to 3
+ * had only three bits for the command, with END = 7, which left no room for holds; version
+ * 1 also had neither board size nor piece set, and was written for default games. Versions
+ * before 5 are all classic gravity, and before 6 all classic scoring.
+ */
+public class ReplayRecorder implements TetrisGame.InputRecorder {
+    static final int MAGIC = 0x5452504C; // "TRPL"
+    static final byte VERSION = 6;
+    static final byte VERSION_GRAVITY = 5;
+    static final byte VERSION_HOLD = 4;
+    static final byte VERSION_PIECE_SET = 3;
+    static final byte VERSION_BOARD_SIZE = 2;
+    static final byte VERSION_DEFAULT_BOARD = 1;
+    static final int COMMAND_BITS = 4;
+    static final int END = 15;
+    static final int LEGACY_COMMAND_BITS = 3;
+    static final int HEADER_SIZE = 4 + 1 + 8 + 1 + 1;
+    static final int BOARD_SIZE_SIZE = 1 + 2;
+
+    private ByteBuffer buffer = ByteBuffer.allocate(4096).order(ByteOrder.LITTLE_ENDIAN);
+    private long lastTick;
+    private boolean finished;
+
+    /**
+     * Start recording the given game, which must not have received any input yet.
+     */
+    public ReplayRecorder(TetrisGame game) {
+        TetrisBoard board = game.getBoard();
+        buffer.putInt(MAGIC);
+        buffer.put(VERSION);
+        buffer.putLong(game.getSeed());
+        buffer.put((byte) game.getSpeed());
+        buffer.put((byte) game.getStartingLines());
+        buffer.put((byte) board.getRows());
+        buffer.putShort((short) board.getCols());
+        if (game.getPieceSet() == PieceSet.STANDARD) {
+            buffer.putShort((short) 0);
+        } else {
+            String definition = game.getPieceSet().getDefinition();
+            buffer.putShort((short) definition.length());
+            for (int i = 0; i < definition.length(); i++) {
+                buffer.put((byte) definition.charAt(i));
+            }
+        }
+        buffer.put((byte) game.getGravity().getId());
+        buffer.put((byte) game.getScoring().getId());
+        lastTick = game.getTickCount();
+        game.addInputRecorder(this);
+    }
+
+    @Override
+    public void onInput(long tick, int command) {
+        if (finished) return;
+        writeEvent(tick, command);
+    }
+
+    /**
+     * Close the stream with the game's final tick and result. Further input is ignored.
+     */
+    public void finish(TetrisGame game) {
+        if (finished) return;
+        game.removeInputRecorder(this);
+        writeEvent(game.getTickCount(), END);
+        writeVarint(game.getScore());
+        writeVarint(game.getLines());
+        writeVarint(game.getLevel());
+        finished = true;
+    }
+
+    /**
+     * The recorded bytes so far, as a read-only view from the start.
+     */
+    public ByteBuffer getData() {
+        ByteBuffer data = buffer.duplicate();
+        data.flip();
+        return data.asReadOnlyBuffer();
+    }
+
+    /**
+     * Write the recording to a file in one buffered channel write.
+     */
+    public void writeTo(File file) throws IOException {
+        ByteBuffer data = getData();
+        try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+            out.setLength(0);
+            FileChannel channel = out.getChannel();
+            while (data.hasRemaining()) {
+                channel.write(data);
+            }
+        }
+    }
+
+    /**
+     * Bits below the tick delta that hold an event's command in a replay of this version.
+     */
+    static int commandBits(int version) {
+        return version >= VERSION_HOLD ? COMMAND_BITS : LEGACY_COMMAND_BITS;
+    }
+
+    /**
+     * Read a header's gravity, or null if it is cut short or unknown.
+     */
+    static Gravity readGravity(ByteBuffer data) {
+        return data.hasRemaining() ? Gravity.forId(data.get()) : null;
+    }
+
+    /**
+     * Read a header's scoring, or null if it is cut short or unknown.
+     */
+    static Scoring readScoring(ByteBuffer data) {
+        return data.hasRemaining() ? Scoring.forId(data.get()) : null;
+    }
+
+    /**
+     * Read a header's piece set, or null if it is cut short or invalid.
+     */
+    static PieceSet readPieceSet(ByteBuffer data) {
+        if (data.remaining() < 2) return null;
+        int length = data.getShort();
+        if (length < 0 || length > PieceSet.MAX_DEFINITION_LENGTH || data.remaining() < length) {
+            return null;
+        }
+        if (length == 0) return PieceSet.STANDARD;
+        char[] definition = new char[length];
+        for (int i = 0; i < length; i++) {
+            definition[i] = (char) (data.get() & 0xFF);
+        }
+        try {
+            return PieceSet.forDefinition(new String(definition));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private void writeEvent(long tick, int command) {
+        long delta = tick - lastTick;
+        lastTick = tick;
+        writeVarint((delta << COMMAND_BITS) | command);
+    }
+
+    private void writeVarint(long value) {
+        if (buffer.remaining() < 10) {
+            ByteBuffer grown = ByteBuffer.allocate(buffer.capacity() * 2).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.flip();
+            grown.put(buffer);
+            buffer = grown;
+        }
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+}
@@ -0,0 +1,221 @@
+package com.tetris.game;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Checks a submitted replay by re-simulating it under the engine's rules.
+ *
+ * The stream is first scanned without simulating: header fields in range, the rules the
+ * verifier expects, only known commands, a complete end record with nothing after it, and a
+ * game no longer than the configured limit. Board size, pieces, gravity and scoring all
+ * come from the header, so a replay played under easier rules of its own choosing is
+ * rejected rather than re-simulated. Only then is the game replayed, and it must finish on the recorded
+ * final tick with the recorded score, lines and level. The scan bounds the work a hostile
+ * replay can cause (e.g. one huge tick gap) before any simulation starts.
+ *
+ * An instance keeps no state between calls and can be shared by threads.
+ */
+public class ReplayVerifier {
+    public enum Verdict {
+        VALID,
+        // Not a replay, a field out of range, or a truncated stream
+        MALFORMED,
+        // Longer than the tick limit; not simulated
+        TOO_LONG,
+        // Well formed, but the re-simulated game doesn't end with the recorded result
+        MISMATCH,
+        // Well formed, but played on another board size or piece set, or with other gravity
+        // or scoring than the verifier expects; not simulated
+        RULES
+    }
+
+    /**
+     * Outcome of one verification. The recorded fields come from the replay's end record;
+     * the simulated ones from re-running it (left at -1 if it was never simulated).
+     */
+    public static final class Result {
+        public Verdict verdict;
+        public int recordedScore;
+        public int recordedLines;
+        public int recordedLevel;
+        public long recordedTicks;
+        public int simulatedScore;
+        public int simulatedLines;
+        public int simulatedLevel;
+        public long simulatedTicks;
+
+        void reset() {
+            verdict = Verdict.MALFORMED;
+            recordedScore = -1;
+            recordedLines = -1;
+            recordedLevel = -1;
+            recordedTicks = -1;
+            simulatedScore = -1;
+            simulatedLines = -1;
+            simulatedLevel = -1;
+            simulatedTicks = -1;
+        }
+    }
+
+    private static final int MAX_SPEED = 9;
+    private static final int MAX_STARTING_LINES = 9;
+
+    private final long maxTicks;
+    private final int rows;
+    private final int cols;
+    private final PieceSet pieces;
+    private final Gravity gravity;
+    private final Scoring scoring;
+
+    /**
+     * Accept only games played under the rules the app records: a 20x10 board, the standard
+     * pieces, the level curve and guideline scoring.
+     *
+     * @param maxTicks longest game accepted, in gravity ticks
+     */
+    public ReplayVerifier(long maxTicks) {
+        this(maxTicks, TetrisBoard.DEFAULT_ROWS, TetrisBoard.DEFAULT_COLS, PieceSet.STANDARD,
+                Gravity.LEVEL_CURVE, Scoring.GUIDELINE);
+    }
+
+    /**
+     * @param maxTicks longest game accepted, in gravity ticks
+     * @param rows the only board height accepted, and likewise for the other rules
+     */
+    public ReplayVerifier(long maxTicks, int rows, int cols, PieceSet pieces, Gravity gravity,
+                          Scoring scoring) {
+        this.maxTicks = maxTicks;
+        this.rows = rows;
+        this.cols = cols;
+        this.pieces = pieces;
+        this.gravity = gravity;
+        this.scoring = scoring;
+    }
+
+    public Result verify(ByteBuffer replay) {
+        Result result = new Result();
+        verify(replay, result);
+        return result;
+    }
+
+    /**
+     * Verify the bytes from the buffer's position to its limit, which are left untouched.
+     *
+     * @return the verdict, also stored in result
+     */
+    public Verdict verify(ByteBuffer replay, Result result) {
+        result.reset();
+        ByteBuffer data = replay.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        int start = data.position();
+        if (!scan(data, result)) {
+            return result.verdict;
+        }
+
+        ByteBuffer stream = replay.duplicate();
+        stream.position(start);
+        ReplayPlayer player = new ReplayPlayer(stream.slice());
+        TetrisGame game = player.runToEnd();
+        result.simulatedScore = game.getScore();
+        result.simulatedLines = game.getLines();
+        result.simulatedLevel = game.getLevel();
+        result.simulatedTicks = game.getTickCount();
+        result.verdict = player.matchesRecordedResult() ? Verdict.VALID : Verdict.MISMATCH;
+        return result.verdict;
+    }
+
+    private boolean scan(ByteBuffer data, Result result) {
+        result.verdict = Verdict.MALFORMED;
+        if (data.remaining() < ReplayRecorder.HEADER_SIZE || data.getInt() != ReplayRecorder.MAGIC) {
+            return false;
+        }
+        byte version = data.get();
+        if (version < ReplayRecorder.VERSION_DEFAULT_BOARD || version > ReplayRecorder.VERSION) {
+            return false;
+        }
+        int commandBits = ReplayRecorder.commandBits(version);
+        int endCommand = (1 << commandBits) - 1;
+        data.getLong(); // seed
+        int speed = data.get();
+        int startingLines = data.get();
+        if (speed < 1 || speed > MAX_SPEED || startingLines < 0 || startingLines > MAX_STARTING_LINES) {
+            return false;
+        }
+        // Fields older versions don't store take the values those versions always played with
+        int replayRows = TetrisBoard.DEFAULT_ROWS;
+        int replayCols = TetrisBoard.DEFAULT_COLS;
+        PieceSet replayPieces = PieceSet.STANDARD;
+        Gravity replayGravity = Gravity.CLASSIC;
+        Scoring replayScoring = Scoring.CLASSIC;
+        if (version >= ReplayRecorder.VERSION_BOARD_SIZE) {
+            if (data.remaining() < ReplayRecorder.BOARD_SIZE_SIZE) return false;
+            replayRows = data.get();
+            replayCols = data.getShort();
+            if (replayRows < TetrisBoard.MIN_SIZE || replayRows > TetrisBoard.MAX_ROWS
+                    || replayCols < TetrisBoard.MIN_SIZE || replayCols > TetrisBoard.MAX_COLS) {
+                return false;
+            }
+        }
+        if (version >= ReplayRecorder.VERSION_PIECE_SET) {
+            replayPieces = ReplayRecorder.readPieceSet(data);
+            if (replayPieces == null) return false;
+        }
+        if (version >= ReplayRecorder.VERSION_GRAVITY) {
+            replayGravity = ReplayRecorder.readGravity(data);
+            if (replayGravity == null) return false;
+        }
+        if (version >= ReplayRecorder.VERSION) {
+            replayScoring = ReplayRecorder.readScoring(data);
+            if (replayScoring == null) return false;
+        }
+        // Gravities and scorings are shared instances; piece sets compare by definition
+        if (replayRows != rows || replayCols != cols
+                || !replayPieces.getDefinition().equals(pieces.getDefinition())
+                || replayGravity != gravity || replayScoring != scoring) {
+            result.verdict = Verdict.RULES;
+            return false;
+        }
+
+        long tick = 0;
+        while (true) {
+            long value = readVarint(data);
+            if (value < 0) return false;
+            long delta = value >>> commandBits;
+            int command = (int) (value & endCommand);
+            if (delta > maxTicks - tick) {
+                result.verdict = Verdict.TOO_LONG;
+                return false;
+            }
+            tick += delta;
+            if (command == endCommand) break;
+            if (command > TetrisGame.CMD_HOLD) return false;
+        }
+
+        long score = readVarint(data);
+        long lines = readVarint(data);
+        long level = readVarint(data);
+        if (score < 0 || lines < 0 || level < 0 || data.hasRemaining()
+                || score > Integer.MAX_VALUE || lines > Integer.MAX_VALUE || level > Integer.MAX_VALUE) {
+            return false;
+        }
+        result.recordedTicks = tick;
+        result.recordedScore = (int) score;
+        result.recordedLines = (int) lines;
+        result.recordedLevel = (int) level;
+        return true;
+    }
+
+    // -1 if the stream ends mid-value or the value runs past 64 bits
+    private static long readVarint(ByteBuffer data) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (!data.hasRemaining()) return -1;
+            byte b = data.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value < 0 ? -1 : value;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,236 @@
+package com.tetris.game;
+
+import java.util.Arrays;
+
+/**
+ * Two-player versus simulation for rollback netcode. Both peers run both games in lockstep
+ * frames. A peer applies its own input at once and predicts that the opponent pressed
+ * nothing; when the opponent's real input for an earlier frame arrives and differs, the
+ * games are restored to that frame and re-simulated to the present.
+ *
+ * Saved states are preallocated games copied in place, so saving every frame and rolling
+ * back allocate nothing. Prediction runs at most maxRollback frames ahead of the last
+ * confirmed remote input; past that, advanceFrame() stalls until input arrives.
+ *
+ * This class does no networking; the caller carries inputs between the peers.
+ */
+public final class RollbackSession {
+    public static final int NO_INPUT = -1;
+    // Simulation frames per second; gravity ticks every so many frames
+    public static final int FRAME_RATE = 60;
+
+    private final int localPlayer;
+    private final int maxRollback;
+    private final int gravityFrames;
+    private final long frameBudgetNanos;
+    private final int mask;
+
+    private final TetrisGame[] games = new TetrisGame[2];
+    // State at the start of frame f for each player, in slot f & mask
+    private final TetrisGame[][] saved;
+    // Input for frame f for each player, in slot f & mask
+    private final int[][] inputs;
+
+    private long frame;
+    private long confirmedRemoteFrame = -1;
+    private long rollbackFrom = Long.MAX_VALUE;
+
+    private long rollbacks;
+    private long resimulatedFrames;
+    private long stalls;
+    private long framesOverBudget;
+    private int lastRollbackDepth;
+    private int maxRollbackDepth;
+    private long lastFrameNanos;
+    private long maxFrameNanos;
+
+    /**
+     * @param localPlayer 0 or 1
+     * @param maxRollback how many frames to predict before waiting for the opponent
+     * @param frameBudgetNanos time one advanceFrame() may take, rollback included, before
+     *                         it counts as over budget
+     */
+    public RollbackSession(int speed, long seed, int localPlayer, int maxRollback, long frameBudgetNanos) {
+        if (localPlayer != 0 && localPlayer != 1) {
+            throw new IllegalArgumentException("localPlayer must be 0 or 1");
+        }
+        if (maxRollback < 1) {
+            throw new IllegalArgumentException("maxRollback must be positive");
+        }
+        this.localPlayer = localPlayer;
+        this.maxRollback = maxRollback;
+        this.gravityFrames = Math.max(1, TetrisGame.getTickIntervalMs(speed) * FRAME_RATE / 1000);
+        this.frameBudgetNanos = frameBudgetNanos;
+
+        // Room for the rollback window behind the current frame and the remote's lead ahead of it
+        int size = Integer.highestOneBit(2 * maxRollback + 2) << 1;
+        this.mask = size - 1;
+        this.saved = new TetrisGame[size][2];
+        this.inputs = new int[2][size];
+        for (int p = 0; p < 2; p++) {
+            // Both players get the same pieces
+            games[p] = new TetrisGame(speed, null, 0, seed);
+            for (int i = 0; i < size; i++) {
+                saved[i][p] = new TetrisGame(speed, null, 0, seed);
+            }
+            Arrays.fill(inputs[p], NO_INPUT);
+        }
+    }
+
+    /**
+     * The frame the next advanceFrame() simulates.
+     */
+    public long getFrame() {
+        return frame;
+    }
+
+    public TetrisGame getGame(int player) {
+        return games[player];
+    }
+
+    public int getLocalPlayer() {
+        return localPlayer;
+    }
+
+    /**
+     * Set the local player's command for the coming frame, or NO_INPUT.
+     */
+    public void setLocalInput(int command) {
+        inputs[localPlayer][(int) frame & mask] = command;
+    }
+
+    /**
+     * The local command sent for a frame still inside the window, for retransmitting.
+     */
+    public int getLocalInput(long f) {
+        if (f >= frame || f < frame - mask) {
+            throw new IllegalArgumentException("Frame " + f + " is outside the input window");
+        }
+        return inputs[localPlayer][(int) f & mask];
+    }
+
+    /**
+     * The last frame for which every remote input has arrived.
+     */
+    public long getConfirmedRemoteFrame() {
+        return confirmedRemoteFrame;
+    }
+
+    /**
+     * Record the opponent's command for a frame. Inputs must be confirmed in order, so
+     * duplicates and anything past a gap are ignored; the transport resends until acked.
+     * Returns true if the input was new.
+     */
+    public boolean addRemoteInput(long f, int command) {
+        if (f != confirmedRemoteFrame + 1 || f > frame + maxRollback) return false;
+        if (f < frame && command != NO_INPUT) {
+            // Already simulated with a prediction of no input
+            rollbackFrom = Math.min(rollbackFrom, f);
+        }
+        inputs[1 - localPlayer][(int) f & mask] = command;
+        confirmedRemoteFrame = f;
+        return true;
+    }
+
+    /**
+     * Roll back and re-simulate any frames whose prediction turned out wrong, then simulate
+     * one new frame. Returns false, without simulating, if the opponent is too far behind.
+     */
+    public boolean advanceFrame() {
+        if (frame - confirmedRemoteFrame > maxRollback) {
+            stalls++;
+            return false;
+        }
+        long start = System.nanoTime();
+        applyCorrections();
+        save(frame);
+        simulate(frame);
+        frame++;
+        // The local slot that comes round next must not replay an old command
+        inputs[localPlayer][(int) frame & mask] = NO_INPUT;
+
+        lastFrameNanos = System.nanoTime() - start;
+        maxFrameNanos = Math.max(maxFrameNanos, lastFrameNanos);
+        if (lastFrameNanos > frameBudgetNanos) framesOverBudget++;
+        return true;
+    }
+
+    /**
+     * Re-simulate from the earliest mispredicted frame, if any, without advancing.
+     */
+    public void applyCorrections() {
+        lastRollbackDepth = 0;
+        if (rollbackFrom >= frame) return;
+        int depth = (int) (frame - rollbackFrom);
+        restore(rollbackFrom);
+        for (long f = rollbackFrom; f < frame; f++) {
+            save(f);
+            simulate(f);
+        }
+        rollbackFrom = Long.MAX_VALUE;
+        rollbacks++;
+        resimulatedFrames += depth;
+        lastRollbackDepth = depth;
+        maxRollbackDepth = Math.max(maxRollbackDepth, depth);
+    }
+
+    private void simulate(long f) {
+        int slot = (int) f & mask;
+        boolean gravity = (f + 1) % gravityFrames == 0;
+        for (int p = 0; p < 2; p++) {
+            int command = p == localPlayer || f <= confirmedRemoteFrame ? inputs[p][slot] : NO_INPUT;
+            if (command != NO_INPUT) games[p].applyCommand(command);
+            if (gravity) games[p].tick();
+        }
+    }
+
+    private void save(long f) {
+        TetrisGame[] slot = saved[(int) f & mask];
+        slot[0].copyFrom(games[0]);
+        slot[1].copyFrom(games[1]);
+    }
+
+    private void restore(long f) {
+        TetrisGame[] slot = saved[(int) f & mask];
+        games[0].copyFrom(slot[0]);
+        games[1].copyFrom(slot[1]);
+    }
+
+    public long getRollbacks() {
+        return rollbacks;
+    }
+
+    public long getResimulatedFrames() {
+        return resimulatedFrames;
+    }
+
+    public long getStalls() {
+        return stalls;
+    }
+
+    public long getFramesOverBudget() {
+        return framesOverBudget;
+    }
+
+    /**
+     * Frames re-simulated by the last advanceFrame() or applyCorrections(), 0 if none.
+     */
+    public int getLastRollbackDepth() {
+        return lastRollbackDepth;
+    }
+
+    public int getMaxRollbackDepth() {
+        return maxRollbackDepth;
+    }
+
+    /**
+     * Wall time of the last advanceFrame(), rollback included.
+     */
+    public long getLastFrameNanos() {
+        return lastFrameNanos;
+    }
+
+    public long getMaxFrameNanos() {
+        return maxFrameNanos;
+    }
+}
@@ -0,0 +1,69 @@
+package com.tetris.game;
+
+/**
+ * What one locked piece scored and why. A game fills in the same event for every lock, so
+ * read it during TetrisGame.ScoreListener.onScored() rather than keep it.
+ */
+public final class ScoreEvent {
+    public enum Spin {
+        NONE,
+        // Three corners filled but not both in front
+        MINI,
+        // Three corners filled, both front ones among them
+        FULL
+    }
+
+    int lines;
+    Spin spin = Spin.NONE;
+    int combo = -1;
+    boolean backToBack;
+    boolean perfectClear;
+    int points;
+    int level;
+
+    public int getLines() {
+        return lines;
+    }
+
+    /**
+     * Whether the piece was a T turned into place, judged by the three-corner rule.
+     */
+    public Spin getSpin() {
+        return spin;
+    }
+
+    /**
+     * Locks in a row that cleared lines, less one: 0 for the first, -1 if this one cleared none.
+     */
+    public int getCombo() {
+        return combo;
+    }
+
+    /**
+     * True for a four-line or spin clear that follows another with no easier clear between.
+     */
+    public boolean isBackToBack() {
+        return backToBack;
+    }
+
+    /**
+     * True if the clear left the board empty.
+     */
+    public boolean isPerfectClear() {
+        return perfectClear;
+    }
+
+    /**
+     * Points added to the score, bonuses included.
+     */
+    public int getPoints() {
+        return points;
+    }
+
+    /**
+     * The level the points were multiplied by, before any level up they caused.
+     */
+    public int getLevel() {
+        return level;
+    }
+}
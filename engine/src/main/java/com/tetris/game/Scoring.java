@@ -0,0 +1,85 @@
+package com.tetris.game;
+
+/**
+ * Points for a lock, from tables indexed by spin and lines cleared. Everything is multiplied
+ * by the level, and totals saturate at Integer.MAX_VALUE rather than wrap.
+ *
+ * A difficult clear is four or more lines, or any spin that clears lines. One that follows
+ * another difficult clear, with no easier clear between, is back-to-back and scores a bonus
+ * on its base points. Each lock that clears lines straight after another adds a combo bonus,
+ * and a clear that empties the board adds a perfect clear bonus on top.
+ */
+public final class Scoring {
+    /**
+     * 100, 300, 500 and 800 for one to four lines and nothing else: what every game scored
+     * before spins were counted.
+     */
+    public static final Scoring CLASSIC = new Scoring(0, new int[][]{
+            {0, 100, 300, 500, 800, 0},
+            {0, 100, 300, 500, 800, 0},
+            {0, 100, 300, 500, 800, 0}},
+            100, 0, new int[]{0});
+
+    /**
+     * Guideline values: T-spins, 50 per combo step, half again for back-to-back, and 800 to
+     * 2000 for a perfect clear.
+     */
+    public static final Scoring GUIDELINE = new Scoring(1, new int[][]{
+            {0, 100, 300, 500, 800},
+            {100, 200, 400},
+            {400, 800, 1200, 1600}},
+            150, 50, new int[]{0, 800, 1200, 1800, 2000});
+
+    private final int id;
+    // Per Spin ordinal, points by lines cleared; clears past the end score the last entry
+    private final int[][] lines;
+    private final int backToBackPercent;
+    private final int comboStep;
+    private final int[] perfectClear;
+
+    private Scoring(int id, int[][] lines, int backToBackPercent, int comboStep, int[] perfectClear) {
+        this.id = id;
+        this.lines = lines;
+        this.backToBackPercent = backToBackPercent;
+        this.comboStep = comboStep;
+        this.perfectClear = perfectClear;
+    }
+
+    /**
+     * The scoring with the given id as stored in replays and snapshots, or null if there is none.
+     */
+    static Scoring forId(int id) {
+        if (id == CLASSIC.id) return CLASSIC;
+        if (id == GUIDELINE.id) return GUIDELINE;
+        return null;
+    }
+
+    int getId() {
+        return id;
+    }
+
+    static boolean isDifficult(int lines, ScoreEvent.Spin spin) {
+        return lines >= 4 || (lines > 0 && spin != ScoreEvent.Spin.NONE);
+    }
+
+    /**
+     * Points for the lock the event describes, at the event's level.
+     */
+    long points(ScoreEvent event) {
+        long base = entry(lines[event.spin.ordinal()], event.lines);
+        if (event.backToBack) {
+            base = base * backToBackPercent / 100;
+        }
+        if (event.combo > 0) {
+            base += (long) comboStep * event.combo;
+        }
+        if (event.perfectClear) {
+            base += entry(perfectClear, event.lines);
+        }
+        return base * event.level;
+    }
+
+    private static int entry(int[] table, int index) {
+        return table[Math.min(index, table.length - 1)];
+    }
+}
@@ -0,0 +1,418 @@
+package com.tetris.game;
+
+import java.util.Arrays;
+
+public class TetrisBoard {
+    public static final int DEFAULT_ROWS = 20;
+    public static final int DEFAULT_COLS = 10;
+    // Cell hashes rotate by the row index, so more rows than bits in a key would collide
+    public static final int MAX_ROWS = 64;
+    public static final int MAX_COLS = Zobrist.MAX_COLS;
+    public static final int MIN_SIZE = 4;
+    // Cell codes; pieces take theirs from their PieceSet. Palette turns codes into colours.
+    // Codes fit in four bits, which BoardCodec relies on.
+    public static final byte EMPTY = 0;
+    public static final byte GARBAGE = 8;
+    public static final int CELL_TYPES = 16;
+
+    private final int rows;
+    private final int cols;
+    // Occupancy words per row, and the bits of a full row's last word
+    private final int words;
+    private final long lastWordFull;
+    // One code per cell, row after row, so moving rows is one arraycopy
+    private final byte[] cells;
+    // Occupancy of each row as words bits wide, bit j of word w = column 64 * w + j. Kept in
+    // step with cells.
+    private final long[] rowBits;
+    // Zobrist hash of each row at its current index, and of the whole board
+    private final long[] rowHashes;
+    private long hash;
+    // Rows filled into since the last clearLines(); only these can be full
+    private int dirtyTop;
+    private int dirtyBottom = -1;
+
+    public TetrisBoard() {
+        this(DEFAULT_ROWS, DEFAULT_COLS);
+    }
+
+    /**
+     * @throws IllegalArgumentException if either side is below MIN_SIZE, or rows is above
+     * MAX_ROWS or cols above MAX_COLS
+     */
+    public TetrisBoard(int rows, int cols) {
+        if (rows < MIN_SIZE || rows > MAX_ROWS || cols < MIN_SIZE || cols > MAX_COLS) {
+            throw new IllegalArgumentException("Unsupported board size " + rows + "x" + cols);
+        }
+        this.rows = rows;
+        this.cols = cols;
+        this.words = (cols + 63) >>> 6;
+        this.lastWordFull = -1L >>> (64 * words - cols);
+        cells = new byte[rows * cols];
+        rowBits = new long[rows * words];
+        rowHashes = new long[rows];
+    }
+
+    public void clear() {
+        Arrays.fill(cells, EMPTY);
+        Arrays.fill(rowBits, 0);
+        Arrays.fill(rowHashes, 0);
+        hash = 0;
+        dirtyBottom = -1;
+    }
+
+    /**
+     * Overwrite this board with another's cells, without allocating.
+     *
+     * @throws IllegalArgumentException if the boards differ in size
+     */
+    public void copyFrom(TetrisBoard other) {
+        if (other.rows != rows || other.cols != cols) {
+            throw new IllegalArgumentException("Board sizes differ");
+        }
+        System.arraycopy(other.cells, 0, cells, 0, cells.length);
+        System.arraycopy(other.rowBits, 0, rowBits, 0, rowBits.length);
+        System.arraycopy(other.rowHashes, 0, rowHashes, 0, rows);
+        hash = other.hash;
+        dirtyTop = other.dirtyTop;
+        dirtyBottom = other.dirtyBottom;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     * The code of one cell: EMPTY, a piece's TetrisPiece.getCell(), or GARBAGE.
+     */
+    public int getCell(int row, int col) {
+        return cells[row * cols + col];
+    }
+
+    /**
+     * A row's occupancy as an int, bit j = column j. The searches and codecs that work on
+     * int masks only take boards up to 32 columns wide; wider boards use getRowWord(). At
+     * exactly 32 columns a full row is -1, so build full-row masks with
+     * PieceMasks.lowColumns() rather than (1 << cols) - 1.
+     *
+     * @throws IllegalStateException if the board is wider than 32 columns
+     */
+    public int getRowMask(int row) {
+        if (cols > 32) {
+            throw new IllegalStateException("Board is " + cols + " columns wide");
+        }
+        return (int) rowBits[row];
+    }
+
+    /**
+     * One 64-column word of a row's occupancy, bit j = column 64 * word + j.
+     */
+    public long getRowWord(int row, int word) {
+        return rowBits[row * words + word];
+    }
+
+    public int getWordsPerRow() {
+        return words;
+    }
+
+    /**
+     * Zobrist hash of the filled cells, kept up to date as pieces lock and lines clear.
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     * Overwrite a single cell, used when restoring a saved board.
+     */
+    void setCell(int row, int col, int cell) {
+        int index = row * words + (col >>> 6);
+        long bit = 1L << col;
+        if (((rowBits[index] & bit) != 0) != (cell != EMPTY)) {
+            toggleHash(row, col);
+        }
+        if (cell == EMPTY) {
+            rowBits[index] &= ~bit;
+        } else {
+            rowBits[index] |= bit;
+            markDirty(row);
+        }
+        cells[row * cols + col] = (byte) cell;
+    }
+
+    /**
+     * Whether a cell is filled or outside the walls and floor; rows above the board are free.
+     */
+    public boolean isBlocked(int row, int col) {
+        if (col < 0 || col >= cols || row >= rows) return true;
+        return row >= 0 && (rowBits[row * words + (col >>> 6)] & (1L << col)) != 0;
+    }
+
+    /**
+     * Whether no cell is filled. The hash rules out almost every filled board at once.
+     */
+    public boolean isEmpty() {
+        if (hash != 0) return false;
+        for (int i = rows - 1; i >= 0; i--) {
+            if (!isRowEmpty(i)) return false;
+        }
+        return true;
+    }
+
+    public boolean isValidPosition(TetrisPiece piece) {
+        return fits(piece.getPieceSet(), piece.getType(), piece.getRotation(), piece.getX(), piece.getY());
+    }
+
+    /**
+     * Whether a piece in the given rotation with its top left at x, y is inside the walls and
+     * floor and overlaps no filled cell; rows above the board are always free. Each piece row
+     * is one mask test against the board row's words.
+     */
+    public boolean fits(PieceSet pieces, int type, int rotation, int x, int y) {
+        if (x < 0 || x + pieces.getWidth(type, rotation) > cols
+                || y + pieces.getHeight(type, rotation) > rows) {
+            return false;
+        }
+        int[] masks = pieces.getRowMasks(type, rotation);
+        int word = x >>> 6;
+        int shift = x & 63;
+        for (int i = y < 0 ? -y : 0; i < masks.length; i++) {
+            long mask = masks[i] & 0xFFFFFFFFL;
+            int index = (y + i) * words + word;
+            if ((rowBits[index] & (mask << shift)) != 0) return false;
+            if (shift != 0 && word + 1 < words && (rowBits[index + 1] & (mask >>> (64 - shift))) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public void placePiece(TetrisPiece piece) {
+        int[] columns = piece.getCellColumns();
+        int[] cellRows = piece.getCellRows();
+        int pieceX = piece.getX();
+        int pieceY = piece.getY();
+        byte pieceCell = piece.getCell();
+
+        for (int k = 0; k < columns.length; k++) {
+            int boardX = pieceX + columns[k];
+            int boardY = pieceY + cellRows[k];
+            if (boardY >= 0 && boardY < rows && boardX >= 0 && boardX < cols) {
+                cells[boardY * cols + boardX] = pieceCell;
+                int index = boardY * words + (boardX >>> 6);
+                if ((rowBits[index] & (1L << boardX)) == 0) {
+                    toggleHash(boardY, boardX);
+                }
+                rowBits[index] |= 1L << boardX;
+                markDirty(boardY);
+            }
+        }
+    }
+
+    public int[] getFullLines() {
+        int count = 0;
+        for (int i = dirtyTop; i <= dirtyBottom; i++) {
+            if (isLineFull(i)) count++;
+        }
+        int[] result = new int[count];
+        count = 0;
+        for (int i = dirtyTop; i <= dirtyBottom; i++) {
+            if (isLineFull(i)) result[count++] = i;
+        }
+        return result;
+    }
+
+    public int clearLines() {
+        // Rows outside the dirty range have not been filled into since the last clear, so
+        // cannot be full; the cost is the rows a piece touched, not the height of the board
+        int top = dirtyTop;
+        int bottom = dirtyBottom;
+        dirtyBottom = -1;
+        int linesCleared = 0;
+        // Walk up the dirty rows moving kept ones down, then everything above them in one copy
+        for (int i = bottom; i >= top; i--) {
+            if (isLineFull(i)) {
+                linesCleared++;
+                continue;
+            }
+            if (linesCleared > 0) {
+                moveRow(i, i + linesCleared);
+            }
+        }
+        if (linesCleared == 0) return 0;
+        if (top > 0) {
+            moveRows(0, linesCleared, top);
+        }
+
+        Arrays.fill(cells, 0, linesCleared * cols, EMPTY);
+        Arrays.fill(rowBits, 0, linesCleared * words, 0);
+        Arrays.fill(rowHashes, 0, linesCleared, 0);
+        hash = 0;
+        for (int i = 0; i < rows; i++) {
+            hash ^= rowHashes[i];
+        }
+        return linesCleared;
+    }
+
+    private void moveRow(int from, int to) {
+        System.arraycopy(cells, from * cols, cells, to * cols, cols);
+        System.arraycopy(rowBits, from * words, rowBits, to * words, words);
+        // Each row lower rotates the row's hash left by one
+        rowHashes[to] = Long.rotateLeft(rowHashes[from], to - from);
+    }
+
+    // Move count rows starting at from down by distance, as one block
+    private void moveRows(int from, int distance, int count) {
+        System.arraycopy(cells, from * cols, cells, (from + distance) * cols, count * cols);
+        System.arraycopy(rowBits, from * words, rowBits, (from + distance) * words, count * words);
+        for (int i = from + count - 1; i >= from; i--) {
+            rowHashes[i + distance] = Long.rotateLeft(rowHashes[i], distance);
+        }
+    }
+
+    public void addStartingLines(int numLines, GameRandom random, PieceSet pieces) {
+        if (numLines <= 0 || numLines >= rows) return;
+
+        // Shift existing content up; every cell of the new bottom rows is written below
+        shiftUp(numLines);
+
+        // Random piece cells, to make it look like accumulated blocks
+        int pieceTypes = pieces.size();
+
+        for (int i = rows - numLines; i < rows; i++) {
+            // Random gap position (1-2 gaps per line)
+            int gapPos1 = random.nextInt(cols);
+            int gapPos2 = random.nextInt(cols);
+            while (gapPos2 == gapPos1) {
+                gapPos2 = random.nextInt(cols);
+            }
+            Arrays.fill(rowBits, i * words, (i + 1) * words, 0);
+
+            for (int j = 0; j < cols; j++) {
+                if (j == gapPos1 || (numLines > 3 && j == gapPos2)) {
+                    cells[i * cols + j] = EMPTY;
+                } else {
+                    rowBits[i * words + (j >>> 6)] |= 1L << j;
+                    cells[i * cols + j] = pieces.getCell(random.nextInt(pieceTypes));
+                }
+            }
+        }
+        rehash();
+    }
+
+    private boolean isLineFull(int row) {
+        int base = row * words;
+        for (int w = 0; w < words - 1; w++) {
+            if (rowBits[base + w] != -1L) return false;
+        }
+        return rowBits[base + words - 1] == lastWordFull;
+    }
+
+    private boolean isRowEmpty(int row) {
+        int base = row * words;
+        for (int w = 0; w < words; w++) {
+            if (rowBits[base + w] != 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Push every row up by count and fill the bottom count rows with garbage: full rows
+     * except for one hole column. Returns true if filled cells were pushed off the top.
+     */
+    public boolean addGarbageLines(int count, int holeColumn) {
+        count = Math.min(count, rows);
+        if (count <= 0) return false;
+        boolean overflow = false;
+        for (int i = 0; i < count; i++) {
+            overflow |= !isRowEmpty(i);
+        }
+
+        shiftUp(count);
+        for (int i = rows - count; i < rows; i++) {
+            int base = i * words;
+            Arrays.fill(rowBits, base, base + words - 1, -1L);
+            rowBits[base + words - 1] = lastWordFull;
+            rowBits[base + (holeColumn >>> 6)] &= ~(1L << holeColumn);
+            Arrays.fill(cells, i * cols, (i + 1) * cols, GARBAGE);
+            cells[i * cols + holeColumn] = EMPTY;
+            rowHashes[i] = Zobrist.row(i, rowBits, base, words);
+        }
+        hash = 0;
+        for (int i = 0; i < rows; i++) {
+            hash ^= rowHashes[i];
+        }
+        return overflow;
+    }
+
+    // Move rows count..rows-1 up to 0..rows-1-count. The bottom count rows are left stale for
+    // the caller to overwrite.
+    private void shiftUp(int count) {
+        System.arraycopy(cells, count * cols, cells, 0, (rows - count) * cols);
+        System.arraycopy(rowBits, count * words, rowBits, 0, (rows - count) * words);
+        for (int i = 0; i < rows - count; i++) {
+            // Each row higher rotates the row's hash right by one
+            rowHashes[i] = Long.rotateRight(rowHashes[i + count], count);
+        }
+        if (dirtyBottom >= 0) {
+            dirtyTop = Math.max(0, dirtyTop - count);
+            dirtyBottom -= count;
+        }
+    }
+
+    private void markDirty(int row) {
+        if (dirtyBottom < 0) {
+            dirtyTop = row;
+            dirtyBottom = row;
+        } else if (row < dirtyTop) {
+            dirtyTop = row;
+        } else if (row > dirtyBottom) {
+            dirtyBottom = row;
+        }
+    }
+
+    private void toggleHash(int row, int col) {
+        long key = Zobrist.cell(row, col);
+        rowHashes[row] ^= key;
+        hash ^= key;
+    }
+
+    private void rehash() {
+        hash = 0;
+        for (int i = 0; i < rows; i++) {
+            rowHashes[i] = Zobrist.row(i, rowBits, i * words, words);
+            hash ^= rowHashes[i];
+        }
+    }
+
+    /**
+     * Get the highest row that contains blocks (0 = top, rows-1 = bottom)
+     * Returns getRows() if board is empty
+     */
+    public int getHighestBlockRow() {
+        for (int i = 0; i < rows; i++) {
+            if (!isRowEmpty(i)) {
+                return i;
+            }
+        }
+        return rows; // Board is empty
+    }
+
+    /**
+     * Get fill percentage (0.0 to 1.0) based on how close blocks are to top
+     * Returns higher values when blocks are near the top
+     */
+    public float getBoardFillLevel() {
+        int highestRow = getHighestBlockRow();
+        if (highestRow == rows) return 0.0f; // Empty board
+
+        // Convert to fill level: higher when blocks are near top
+        // Top 25% of board (rows 0-4) = danger zone
+        float fillLevel = 1.0f - ((float) highestRow / rows);
+        return Math.max(0.0f, Math.min(1.0f, fillLevel));
+    }
+}
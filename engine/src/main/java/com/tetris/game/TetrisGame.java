@@ -0,0 +1,870 @@
+package com.tetris.game;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class TetrisGame {
+    // Player commands, as recorded by input recorders and accepted by applyCommand()
+    public static final int CMD_LEFT = 0;
+    public static final int CMD_RIGHT = 1;
+    public static final int CMD_ROTATE = 2;
+    public static final int CMD_SOFT_DROP = 3;
+    public static final int CMD_HARD_DROP = 4;
+    public static final int CMD_ROTATE_CCW = 5;
+    public static final int CMD_ROTATE_180 = 6;
+    public static final int CMD_HOLD = 7;
+
+    // Pieces dealt ahead of the falling one; views show as many of them as they like
+    public static final int MAX_PREVIEW = 6;
+
+    // Kicks never lift a piece's top further above the board than this
+    static final int MIN_KICK_Y = TetrisPiece.SPAWN_Y - PieceSet.MAX_EXTENT;
+
+    private TetrisBoard board;
+    private PieceSet pieces;
+    private TetrisPiece currentPiece;
+    // Ring buffer of upcoming pieces, the next one at queueHead. Spent pieces are dealt back
+    // in at the tail, so advancing allocates nothing.
+    private final TetrisPiece[] queue = new TetrisPiece[MAX_PREVIEW];
+    private int queueHead;
+    // The hold slot, and whether the falling piece has already been swapped with it
+    private TetrisPiece heldPiece;
+    private boolean hasHeld;
+    private boolean holdUsed;
+    // Taken from the queue into the falling piece when the hold slot starts empty
+    private TetrisPiece spare;
+    private Gravity gravity;
+    // Fraction of a row the falling piece has built up towards its next fall, in 16.16 fixed point
+    private int fall;
+    // Ticks the falling piece has rested on the stack, times its lock delay has started
+    // again, and the lowest row it has reached, which it must pass to earn more resets
+    private int lockTimer;
+    private int lockResets;
+    private int lowestY;
+    private Scoring scoring;
+    // Whether the falling piece's last move was a turn, which a spin needs; falling any
+    // distance after the turn clears it
+    private boolean lastMoveRotated;
+    // Clearing locks in a row less one, -1 after a lock that cleared nothing, and whether
+    // the last clear was a difficult one
+    private int combo = -1;
+    private boolean backToBack;
+    private final ScoreEvent scoreEvent = new ScoreEvent();
+    private int score;
+    private int level;
+    private int lines;
+    private int speed;
+    private int startingLines;
+    private boolean gameOver;
+    private boolean paused;
+    private GameRandom random;
+    private long seed;
+    private long tickCount;
+    private GameSounds soundManager;
+
+    public interface GameListener {
+        void onScoreChanged(int score);
+        void onLevelChanged(int level);
+        void onGameOver();
+        void onBoardChanged();
+        void onLinesClearing(int[] lines);
+        // A piece has locked and the next one has spawned
+        void onPieceLocked();
+    }
+
+    /**
+     * Receives every player command along with the gravity tick it arrived on.
+     * Feeding the same commands back at the same ticks reproduces the game exactly.
+     */
+    public interface InputRecorder {
+        void onInput(long tick, int command);
+    }
+
+    /**
+     * Told what each lock that cleared lines or spun scored. The event is reused.
+     */
+    public interface ScoreListener {
+        void onScored(ScoreEvent event);
+    }
+
+    private GameListener listener;
+    private ScoreListener scoreListener;
+    private final List<InputRecorder> recorders = new ArrayList<>();
+
+    public TetrisGame(int speed, GameSounds soundManager) {
+        this(speed, soundManager, 0);
+    }
+
+    public TetrisGame(int speed, GameSounds soundManager, int startingLines) {
+        this(speed, soundManager, startingLines, System.nanoTime());
+    }
+
+    public TetrisGame(int speed, GameSounds soundManager, int startingLines, long seed) {
+        this(speed, soundManager, startingLines, seed, TetrisBoard.DEFAULT_ROWS, TetrisBoard.DEFAULT_COLS);
+    }
+
+    public TetrisGame(int speed, GameSounds soundManager, int startingLines, long seed, int rows, int cols) {
+        this(speed, soundManager, startingLines, seed, rows, cols, PieceSet.STANDARD);
+    }
+
+    /**
+     * A game on a board of the given size with the given pieces, both fixed for the life of
+     * the game.
+     *
+     * @throws IllegalArgumentException if TetrisBoard does not support the size
+     */
+    public TetrisGame(int speed, GameSounds soundManager, int startingLines, long seed, int rows, int cols,
+                      PieceSet pieces) {
+        this(speed, soundManager, startingLines, seed, rows, cols, pieces, Gravity.CLASSIC);
+    }
+
+    public TetrisGame(int speed, GameSounds soundManager, int startingLines, long seed, int rows, int cols,
+                      PieceSet pieces, Gravity gravity) {
+        this(speed, soundManager, startingLines, seed, rows, cols, pieces, gravity, Scoring.CLASSIC);
+    }
+
+    /**
+     * A game with the given gravity and scoring, which are fixed for the life of the game
+     * like the board and the pieces.
+     */
+    public TetrisGame(int speed, GameSounds soundManager, int startingLines, long seed, int rows, int cols,
+                      PieceSet pieces, Gravity gravity, Scoring scoring) {
+        this.speed = speed;
+        this.gravity = gravity;
+        this.scoring = scoring;
+        this.startingLines = startingLines;
+        this.soundManager = soundManager;
+        this.seed = seed;
+        this.random = new GameRandom(seed);
+        this.board = new TetrisBoard(rows, cols);
+        this.pieces = pieces;
+        this.score = 0;
+        this.level = 1;
+        this.lines = 0;
+        this.gameOver = false;
+        this.paused = false;
+        this.currentPiece = new TetrisPiece(pieces, 0);
+        this.heldPiece = new TetrisPiece(pieces, 0);
+        this.spare = new TetrisPiece(pieces, 0);
+        for (int i = 0; i < MAX_PREVIEW; i++) {
+            queue[i] = new TetrisPiece(pieces, 0);
+        }
+        deal(currentPiece);
+        deal(queue[0]);
+
+        if (startingLines > 0) {
+            board.addStartingLines(startingLines, random, pieces);
+        }
+        // The rest of the queue comes after the starting lines, so each piece is the same
+        // random draw it was when only the next piece was dealt ahead
+        for (int i = 1; i < MAX_PREVIEW; i++) {
+            deal(queue[i]);
+        }
+        resetFall();
+    }
+
+    public void setGameListener(GameListener listener) {
+        this.listener = listener;
+    }
+
+    public void setScoreListener(ScoreListener scoreListener) {
+        this.scoreListener = scoreListener;
+    }
+
+    public void setSoundManager(GameSounds soundManager) {
+        this.soundManager = soundManager;
+    }
+
+    public void addInputRecorder(InputRecorder recorder) {
+        recorders.add(recorder);
+    }
+
+    public void removeInputRecorder(InputRecorder recorder) {
+        recorders.remove(recorder);
+    }
+
+    private void recordInput(int command) {
+        for (int i = 0; i < recorders.size(); i++) {
+            recorders.get(i).onInput(tickCount, command);
+        }
+    }
+
+    /**
+     * One step of gravity. The game clock is counted in these ticks.
+     *
+     * A piece resting on the stack counts towards its lock delay; otherwise it falls by the
+     * rows built up at the current level, stopping early if it lands.
+     */
+    public void tick() {
+        if (gameOver || paused) return;
+        tickCount++;
+        if (!currentFitsAt(0, 1)) {
+            if (++lockTimer >= gravity.getLockDelay()) {
+                lockPiece();
+            }
+            return;
+        }
+        fall += gravity.getRowsPerTick(level, speed);
+        int rows = fall >>> Gravity.FRACTION_BITS;
+        fall &= Gravity.ONE_ROW - 1;
+        if (rows == 0) return;
+        do {
+            fallOneRow();
+        } while (--rows > 0 && currentFitsAt(0, 1));
+        // One redraw however far it fell
+        notifyBoardChanged();
+    }
+
+    /**
+     * Apply a recorded player command.
+     */
+    public void applyCommand(int command) {
+        switch (command) {
+            case CMD_LEFT:
+                moveLeft();
+                break;
+            case CMD_RIGHT:
+                moveRight();
+                break;
+            case CMD_ROTATE:
+                rotate();
+                break;
+            case CMD_ROTATE_CCW:
+                rotateCounterClockwise();
+                break;
+            case CMD_ROTATE_180:
+                rotate180();
+                break;
+            case CMD_HOLD:
+                hold();
+                break;
+            case CMD_SOFT_DROP:
+                moveDown();
+                break;
+            case CMD_HARD_DROP:
+                drop();
+                break;
+        }
+    }
+
+    // Turn the piece into a new random one at the spawn point
+    private void deal(TetrisPiece piece) {
+        spawn(piece, random.nextInt(pieces.size()));
+    }
+
+    private void spawn(TetrisPiece piece, int type) {
+        piece.reset(type, TetrisPiece.spawnX(board.getCols()) + pieces.getSpawnX(type),
+                TetrisPiece.SPAWN_Y + pieces.getSpawnY(type));
+    }
+
+    // Take the piece at the front of the queue, dealing the spent one back in at the tail
+    private TetrisPiece advanceQueue(TetrisPiece spent) {
+        TetrisPiece front = queue[queueHead];
+        deal(spent);
+        queue[queueHead] = spent;
+        queueHead = queueHead + 1 == MAX_PREVIEW ? 0 : queueHead + 1;
+        return front;
+    }
+
+    public void moveLeft() {
+        if (gameOver || paused) return;
+        recordInput(CMD_LEFT);
+        if (currentFitsAt(-1, 0)) {
+            currentPiece.moveLeft();
+            lastMoveRotated = false;
+            restartLockDelay();
+            if (soundManager != null) soundManager.playMove();
+            notifyBoardChanged();
+        }
+    }
+
+    public void moveRight() {
+        if (gameOver || paused) return;
+        recordInput(CMD_RIGHT);
+        if (currentFitsAt(1, 0)) {
+            currentPiece.moveRight();
+            lastMoveRotated = false;
+            restartLockDelay();
+            if (soundManager != null) soundManager.playMove();
+            notifyBoardChanged();
+        }
+    }
+
+    public void rotate() {
+        rotate(1, CMD_ROTATE);
+    }
+
+    public void rotateCounterClockwise() {
+        rotate(3, CMD_ROTATE_CCW);
+    }
+
+    public void rotate180() {
+        rotate(2, CMD_ROTATE_180);
+    }
+
+    private void rotate(int turns, int command) {
+        if (gameOver || paused) return;
+        recordInput(command);
+
+        // Try the set's kicks for this turn in order; each is one board test, with the shift
+        // between rotations already in the table
+        int type = currentPiece.getType();
+        int rotation = currentPiece.getRotation();
+        int target = (rotation + turns) & 3;
+        int[] kickX = pieces.getKickX(type, rotation, turns);
+        int[] kickY = pieces.getKickY(type, rotation, turns);
+        for (int k = 0; k < kickX.length; k++) {
+            int x = currentPiece.getX() + kickX[k];
+            int y = currentPiece.getY() + kickY[k];
+            if (y >= MIN_KICK_Y && board.fits(pieces, type, target, x, y)) {
+                currentPiece.rotate(turns);
+                currentPiece.setX(x);
+                currentPiece.setY(y);
+                lastMoveRotated = true;
+                restartLockDelay();
+                if (soundManager != null) soundManager.playRotate();
+                notifyBoardChanged();
+                return; // Rotation successful
+            }
+        }
+
+        // If no wall kick worked, rotation fails silently
+    }
+
+    /**
+     * Swap the falling piece with the hold slot, or put it there and take the next piece if
+     * the slot is empty. Allowed once per piece; the piece from the slot starts again from
+     * the spawn point.
+     */
+    public void hold() {
+        if (gameOver || paused) return;
+        recordInput(CMD_HOLD);
+        if (holdUsed) return;
+
+        int type = currentPiece.getType();
+        if (hasHeld) {
+            spawn(currentPiece, heldPiece.getType());
+        } else {
+            // The falling piece object stays the same; it only changes type
+            spare = advanceQueue(spare);
+            spawn(currentPiece, spare.getType());
+        }
+        spawn(heldPiece, type);
+        hasHeld = true;
+        holdUsed = true;
+        resetFall();
+        checkSpawn();
+        notifyBoardChanged();
+    }
+
+    public void drop() {
+        if (gameOver || paused) return;
+        recordInput(CMD_HARD_DROP);
+        while (dropStep()) {
+            // Keep moving down until it can't
+        }
+        if (soundManager != null) soundManager.playDrop();
+    }
+
+    // Soft drop by the player. A piece that can't move down rests there and gravity's lock
+    // delay decides when it locks, except under classic gravity, which locks it at once.
+    public boolean moveDown() {
+        if (gameOver || paused) return false;
+        recordInput(CMD_SOFT_DROP);
+        return gravity.softDropLocks() ? dropStep() : stepDown();
+    }
+
+    // Move down a row, or lock the piece where it is if it can't; a hard drop doesn't wait
+    // out the lock delay
+    private boolean dropStep() {
+        if (stepDown()) return true;
+        lockPiece();
+        return false;
+    }
+
+    private boolean stepDown() {
+        if (gameOver || paused || !currentFitsAt(0, 1)) return false;
+        fallOneRow();
+        notifyBoardChanged();
+        return true;
+    }
+
+    // Any fall, hard drops included, means the last move was no longer a turn
+    private void fallOneRow() {
+        currentPiece.moveDown();
+        lastMoveRotated = false;
+        lockTimer = 0;
+        if (currentPiece.getY() > lowestY) {
+            lowestY = currentPiece.getY();
+            lockResets = 0;
+        }
+    }
+
+    // A move or turn while the piece rests on the stack starts its lock delay again, a
+    // limited number of times
+    private void restartLockDelay() {
+        if (lockTimer > 0 && lockResets < gravity.getMaxLockResets()) {
+            lockTimer = 0;
+            lockResets++;
+        }
+    }
+
+    // A new falling piece starts with nothing built up
+    private void resetFall() {
+        fall = 0;
+        lockTimer = 0;
+        lockResets = 0;
+        lowestY = currentPiece.getY();
+        lastMoveRotated = false;
+    }
+
+    private void lockPiece() {
+        // Spins are judged before the piece joins the board
+        ScoreEvent.Spin spin = findSpin();
+        board.placePiece(currentPiece);
+
+        // Check for full lines first, to notify for animation; without a listener to tell,
+        // a lock allocates nothing
+        if (listener != null) {
+            int[] fullLines = board.getFullLines();
+            if (fullLines.length > 0) {
+                notifyLinesClearing(fullLines);
+            }
+        }
+
+        // Clear lines and update score
+        int linesCleared = board.clearLines();
+        if (linesCleared > 0 && soundManager != null) {
+            soundManager.playLineClear();
+        }
+        updateScore(linesCleared, spin);
+
+        // Update music speed based on board fill level
+        updateMusicSpeed();
+
+        // Get next piece
+        currentPiece = advanceQueue(currentPiece);
+        holdUsed = false;
+        resetFall();
+        checkSpawn();
+
+        notifyBoardChanged();
+        if (!gameOver) {
+            notifyPieceLocked();
+        }
+    }
+
+    // Whether the falling piece would fit moved by dx, dy
+    private boolean currentFitsAt(int dx, int dy) {
+        return board.fits(pieces, currentPiece.getType(), currentPiece.getRotation(),
+                currentPiece.getX() + dx, currentPiece.getY() + dy);
+    }
+
+    // Check if game over - only after piece tries to enter the board
+    private void checkSpawn() {
+        // New piece starts above the board (y < 0), so we check if it can move down at all
+        if (!board.isValidPosition(currentPiece)) {
+            // Piece can't even exist at spawn point - immediate game over
+            gameOver = true;
+            if (soundManager != null) soundManager.playGameOver();
+            notifyGameOver();
+        } else if (!currentFitsAt(0, 1)) {
+            // If piece can't move down even once from spawn, it means board is full.
+            // Only trigger game over if we're also unable to place at current position
+            // This ensures the piece visually appears to "stack up" to the top
+            if (currentPiece.getY() >= 0) {
+                gameOver = true;
+                if (soundManager != null) soundManager.playGameOver();
+                notifyGameOver();
+            }
+        }
+    }
+
+    /**
+     * Raise the stack by garbage rows with a hole in the given column, as sent by a versus
+     * opponent. The falling piece is lifted clear if the stack rises into it. The game ends if
+     * blocks are pushed out the top or the piece can't be lifted clear.
+     */
+    public void addGarbage(int count, int holeColumn) {
+        if (gameOver || count <= 0) return;
+        boolean overflow = board.addGarbageLines(count, holeColumn);
+        for (int lifted = 0; lifted < count && !board.isValidPosition(currentPiece); lifted++) {
+            currentPiece.setY(currentPiece.getY() - 1);
+        }
+        if (overflow || !board.isValidPosition(currentPiece)) {
+            gameOver = true;
+            if (soundManager != null) soundManager.playGameOver();
+            notifyGameOver();
+        }
+        notifyBoardChanged();
+    }
+
+    // The three-corner rule: a T whose last move was a turn, with at least three of the four
+    // cells diagonal to its middle filled or outside the walls and floor
+    private ScoreEvent.Spin findSpin() {
+        if (!lastMoveRotated) return ScoreEvent.Spin.NONE;
+        int[] corners = pieces.getSpinCorners(currentPiece.getType(), currentPiece.getRotation());
+        if (corners == null) return ScoreEvent.Spin.NONE;
+        int x = currentPiece.getX();
+        int y = currentPiece.getY();
+        int front = 0;
+        int back = 0;
+        for (int k = 0; k < 4; k++) {
+            if (board.isBlocked(y + corners[2 * k + 1], x + corners[2 * k])) {
+                if (k < 2) {
+                    front++;
+                } else {
+                    back++;
+                }
+            }
+        }
+        if (front + back < 3) return ScoreEvent.Spin.NONE;
+        return front == 2 ? ScoreEvent.Spin.FULL : ScoreEvent.Spin.MINI;
+    }
+
+    // Fill in the score event for this lock from the game's combo and back-to-back state and
+    // add its points. Constant time, and nothing is allocated.
+    private void updateScore(int linesCleared, ScoreEvent.Spin spin) {
+        lines += linesCleared;
+
+        ScoreEvent event = scoreEvent;
+        event.lines = linesCleared;
+        event.spin = spin;
+        event.level = level;
+        if (linesCleared > 0) {
+            combo++;
+            boolean difficult = Scoring.isDifficult(linesCleared, spin);
+            event.backToBack = difficult && backToBack;
+            backToBack = difficult;
+            event.perfectClear = board.isEmpty();
+        } else {
+            combo = -1;
+            event.backToBack = false;
+            event.perfectClear = false;
+        }
+        event.combo = combo;
+        // Saturate rather than wrap, so a long game's score stays valid
+        event.points = (int) Math.min(scoring.points(event), Integer.MAX_VALUE - (long) score);
+        if (linesCleared == 0 && event.points == 0) {
+            if (spin != ScoreEvent.Spin.NONE) notifyScored();
+            return;
+        }
+        score += event.points;
+
+        // Update level based on score
+        int newLevel = (score / 1000) + 1;
+        if (newLevel != level) {
+            level = newLevel;
+            if (soundManager != null) soundManager.playLevelUp();
+            notifyLevelChanged();
+        }
+
+        notifyScoreChanged();
+        notifyScored();
+    }
+
+    public TetrisBoard getBoard() {
+        return board;
+    }
+
+    public TetrisPiece getCurrentPiece() {
+        return currentPiece;
+    }
+
+    public TetrisPiece getNextPiece() {
+        return queue[queueHead];
+    }
+
+    /**
+     * A piece waiting in the queue, 0 being the next one, up to MAX_PREVIEW - 1. The game
+     * reuses these objects as the queue moves on, so read them rather than keep them.
+     */
+    public TetrisPiece getPreviewPiece(int position) {
+        if (position < 0 || position >= MAX_PREVIEW) {
+            throw new IndexOutOfBoundsException("Preview position " + position);
+        }
+        int index = queueHead + position;
+        return queue[index < MAX_PREVIEW ? index : index - MAX_PREVIEW];
+    }
+
+    /**
+     * The piece in the hold slot, or null if nothing has been held yet.
+     */
+    public TetrisPiece getHeldPiece() {
+        return hasHeld ? heldPiece : null;
+    }
+
+    /**
+     * False once the falling piece has been swapped with the hold slot, until it locks.
+     */
+    public boolean canHold() {
+        return !holdUsed;
+    }
+
+    public PieceSet getPieceSet() {
+        return pieces;
+    }
+
+    public Gravity getGravity() {
+        return gravity;
+    }
+
+    public Scoring getScoring() {
+        return scoring;
+    }
+
+    /**
+     * Zobrist hash of everything a search looks at: the board, the falling piece's type,
+     * rotation and position, the next piece and the held one.
+     */
+    public long getPositionHash() {
+        return board.getHash()
+                ^ Zobrist.piece(currentPiece.getType(), currentPiece.getRotation(),
+                        currentPiece.getX(), currentPiece.getY())
+                ^ Zobrist.queue(0, getNextPiece().getType())
+                ^ (hasHeld ? Zobrist.hold(heldPiece.getType()) : 0);
+    }
+
+    // Get ghost piece position (where current piece will land)
+    public TetrisPiece getGhostPiece() {
+        if (currentPiece == null || gameOver) return null;
+
+        TetrisPiece ghost = currentPiece.copy();
+        // Move ghost piece down until it can't move anymore
+        while (true) {
+            TetrisPiece temp = ghost.copy();
+            temp.moveDown();
+            if (board.isValidPosition(temp)) {
+                ghost.moveDown();
+            } else {
+                break;
+            }
+        }
+        return ghost;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public int getLines() {
+        return lines;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public long getTickCount() {
+        return tickCount;
+    }
+
+    public int getSpeed() {
+        return speed;
+    }
+
+    public int getStartingLines() {
+        return startingLines;
+    }
+
+    /**
+     * Wall-clock time between gravity ticks for a speed setting:
+     * speed 1 = slowest (1000ms), speed 9 = fastest (~200ms).
+     */
+    public static int getTickIntervalMs(int speed) {
+        return Math.max(200, 1100 - (speed * 100));
+    }
+
+    /**
+     * Wall-clock time between this game's ticks, from its gravity and speed.
+     */
+    public long getTickIntervalNanos() {
+        return gravity.getTickIntervalNanos(speed);
+    }
+
+    public boolean isGameOver() {
+        return gameOver;
+    }
+
+    public boolean isPaused() {
+        return paused;
+    }
+
+    public void setPaused(boolean paused) {
+        this.paused = paused;
+    }
+
+    public void togglePause() {
+        this.paused = !this.paused;
+    }
+
+    private void notifyScoreChanged() {
+        if (listener != null) {
+            listener.onScoreChanged(score);
+        }
+    }
+
+    private void notifyLevelChanged() {
+        if (listener != null) {
+            listener.onLevelChanged(level);
+        }
+    }
+
+    private void notifyScored() {
+        if (scoreListener != null) {
+            scoreListener.onScored(scoreEvent);
+        }
+    }
+
+    private void notifyGameOver() {
+        if (listener != null) {
+            listener.onGameOver();
+        }
+    }
+
+    private void notifyBoardChanged() {
+        if (listener != null) {
+            listener.onBoardChanged();
+        }
+    }
+
+    private void notifyPieceLocked() {
+        if (listener != null) {
+            listener.onPieceLocked();
+        }
+    }
+
+    private void notifyLinesClearing(int[] lines) {
+        if (listener != null) {
+            listener.onLinesClearing(lines);
+        }
+    }
+
+    /**
+     * Overwrite this game's state with another's, without allocating, so a game can be saved
+     * and restored in place many times a second. Listeners, recorders and sounds stay as they are.
+     */
+    public void copyFrom(TetrisGame source) {
+        board.copyFrom(source.board);
+        pieces = source.pieces;
+        currentPiece.copyFrom(source.currentPiece);
+        for (int i = 0; i < MAX_PREVIEW; i++) {
+            queue[i].copyFrom(source.queue[i]);
+        }
+        queueHead = source.queueHead;
+        heldPiece.copyFrom(source.heldPiece);
+        hasHeld = source.hasHeld;
+        holdUsed = source.holdUsed;
+        gravity = source.gravity;
+        fall = source.fall;
+        lockTimer = source.lockTimer;
+        lockResets = source.lockResets;
+        lowestY = source.lowestY;
+        scoring = source.scoring;
+        lastMoveRotated = source.lastMoveRotated;
+        combo = source.combo;
+        backToBack = source.backToBack;
+        random.setState(source.random.getState());
+        score = source.score;
+        level = source.level;
+        lines = source.lines;
+        speed = source.speed;
+        startingLines = source.startingLines;
+        gameOver = source.gameOver;
+        paused = source.paused;
+        seed = source.seed;
+        tickCount = source.tickCount;
+    }
+
+    GameRandom getRandom() {
+        return random;
+    }
+
+    // The falling piece's progress under gravity, for snapshots
+    int getFall() {
+        return fall;
+    }
+
+    int getLockTimer() {
+        return lockTimer;
+    }
+
+    int getLockResets() {
+        return lockResets;
+    }
+
+    int getLowestY() {
+        return lowestY;
+    }
+
+    boolean wasLastMoveRotation() {
+        return lastMoveRotated;
+    }
+
+    int getCombo() {
+        return combo;
+    }
+
+    boolean isBackToBack() {
+        return backToBack;
+    }
+
+    /**
+     * Overwrite the running state with values read back from a snapshot. The queue starts
+     * with the given types and the rest is dealt from the random state, which must already
+     * be restored; heldType is -1 for an empty hold slot. fall, lockTimer, lockResets and
+     * lowestY are the falling piece's progress under gravity; lastMoveRotated, combo and
+     * backToBack are what the next lock's score depends on.
+     */
+    void restoreState(long tickCount, int score, int level, int lines, TetrisPiece currentPiece,
+                      int[] queued, int queuedCount, int heldType, boolean holdUsed,
+                      int fall, int lockTimer, int lockResets, int lowestY,
+                      boolean lastMoveRotated, int combo, boolean backToBack) {
+        this.tickCount = tickCount;
+        this.score = score;
+        this.level = level;
+        this.lines = lines;
+        this.currentPiece = currentPiece;
+        queueHead = 0;
+        for (int i = 0; i < MAX_PREVIEW; i++) {
+            if (i < queuedCount) {
+                spawn(queue[i], queued[i]);
+            } else {
+                deal(queue[i]);
+            }
+        }
+        hasHeld = heldType >= 0;
+        if (hasHeld) spawn(heldPiece, heldType);
+        this.holdUsed = holdUsed;
+        this.fall = fall;
+        this.lockTimer = lockTimer;
+        this.lockResets = lockResets;
+        this.lowestY = lowestY;
+        this.lastMoveRotated = lastMoveRotated;
+        this.combo = combo;
+        this.backToBack = backToBack;
+        this.gameOver = false;
+        this.paused = false;
+    }
+
+    private void updateMusicSpeed() {
+        if (soundManager == null) return;
+
+        float fillLevel = board.getBoardFillLevel();
+
+        // Speed up music when board is 40% or more full
+        // Normal speed (1.0) when empty, up to 1.5x when 80%+ full
+        float musicSpeed = 1.0f;
+        if (fillLevel > 0.4f) {
+            // Gradually increase speed from 1.0 to 1.5 as fillLevel goes from 0.4 to 0.8+
+            musicSpeed = 1.0f + ((fillLevel - 0.4f) / 0.4f) * 0.5f;
+            musicSpeed = Math.min(1.5f, musicSpeed); // Cap at 1.5x
+        }
+
+        soundManager.setMusicSpeed(musicSpeed);
+    }
+}
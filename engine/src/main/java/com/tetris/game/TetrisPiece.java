@@ -0,0 +1,143 @@
+package com.tetris.game;
+
+/**
+ * A falling piece: a type from a PieceSet, its rotation and its position. Shapes come from
+ * the set's precompiled tables, so moving and rotating a piece never allocates.
+ */
+public class TetrisPiece {
+    // New pieces appear one row above the board
+    public static final int SPAWN_Y = -1;
+
+    private PieceSet pieces;
+    private int type;
+    private int rotation; // Quarter turns clockwise from the spawn orientation, 0-3
+    private int x, y;
+
+    public TetrisPiece(PieceSet pieces, int type) {
+        if (type < 0 || type >= pieces.size()) {
+            throw new IllegalArgumentException("No piece type " + type);
+        }
+        this.pieces = pieces;
+        this.type = type;
+        this.x = spawnX(TetrisBoard.DEFAULT_COLS) + pieces.getSpawnX(type);
+        this.y = SPAWN_Y + pieces.getSpawnY(type);  // Start above the board for proper game over detection
+    }
+
+    /**
+     * The column new pieces appear at on a board cols wide: centred, and 3 on a standard board.
+     */
+    public static int spawnX(int cols) {
+        return (cols - 4) / 2;
+    }
+
+    public void rotate() {
+        rotation = (rotation + 1) & 3;
+    }
+
+    /**
+     * Turn by quarter turns clockwise: 1 clockwise, 2 half a turn, 3 counter-clockwise.
+     * Does not move the piece; kicks are the game's business.
+     */
+    public void rotate(int turns) {
+        rotation = (rotation + turns) & 3;
+    }
+
+    public PieceSet getPieceSet() {
+        return pieces;
+    }
+
+    /**
+     * Index of this piece's type in its PieceSet.
+     */
+    public int getType() {
+        return type;
+    }
+
+    public int getRotation() {
+        return rotation;
+    }
+
+    /**
+     * Cells as rows of 0 and 1 over the bounding box; shared with the piece set, do not modify.
+     */
+    public int[][] getShape() {
+        return pieces.getShape(type, rotation);
+    }
+
+    /**
+     * Column and row of each cell within the bounding box, in matching order.
+     */
+    public int[] getCellColumns() {
+        return pieces.getCellColumns(type, rotation);
+    }
+
+    public int[] getCellRows() {
+        return pieces.getCellRows(type, rotation);
+    }
+
+    /**
+     * The code this piece leaves in the board's cells; see Palette for its color.
+     */
+    public byte getCell() {
+        return pieces.getCell(type);
+    }
+
+    public int getX() {
+        return x;
+    }
+
+    public int getY() {
+        return y;
+    }
+
+    public void setX(int x) {
+        this.x = x;
+    }
+
+    public void setY(int y) {
+        this.y = y;
+    }
+
+    public void moveLeft() {
+        x--;
+    }
+
+    public void moveRight() {
+        x++;
+    }
+
+    public void moveDown() {
+        y++;
+    }
+
+    /**
+     * Make this a fresh piece of the given type at the given position, unrotated, without
+     * allocating; the game reuses its queued pieces this way.
+     */
+    void reset(int type, int x, int y) {
+        if (type < 0 || type >= pieces.size()) {
+            throw new IllegalArgumentException("No piece type " + type);
+        }
+        this.type = type;
+        this.rotation = 0;
+        this.x = x;
+        this.y = y;
+    }
+
+    /**
+     * Overwrite this piece with another's state, without allocating.
+     */
+    public void copyFrom(TetrisPiece other) {
+        pieces = other.pieces;
+        type = other.type;
+        rotation = other.rotation;
+        x = other.x;
+        y = other.y;
+    }
+
+    public TetrisPiece copy() {
+        TetrisPiece copy = new TetrisPiece(pieces, type);
+        copy.copyFrom(this);
+        return copy;
+    }
+}
@@ -0,0 +1,153 @@
+package com.tetris.game;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size cache of search results keyed by a 64-bit position hash.
+ *
+ * Open addressing over plain arrays, with each key confined to a bucket of four adjacent
+ * slots. When a bucket is full the entry replaced is one left over from an earlier search
+ * if there is one, otherwise the one searched to the shallowest depth. Counters track
+ * probes, hits and overwrites so the table can be sized from real numbers.
+ *
+ * Not thread-safe; give each searching thread its own table.
+ */
+public class TranspositionTable {
+    private static final int BUCKET = 4;
+    // Keys are never 0 so an empty slot needs no separate flag
+    private static final long EMPTY = 0;
+
+    private final int mask;
+    private final long[] keys;
+    private final double[] values;
+    private final int[] moves;
+    private final byte[] depths;
+    private final byte[] ages;
+    private byte age;
+
+    private long probes;
+    private long hits;
+    private long stores;
+    private long overwrites;
+
+    /**
+     * @param bits log2 of the entry count, from 2 (one bucket) to 30
+     */
+    public TranspositionTable(int bits) {
+        if (bits < 2 || bits > 30) {
+            throw new IllegalArgumentException("Table bits must be 2 to 30: " + bits);
+        }
+        int size = 1 << bits;
+        mask = size - 1;
+        keys = new long[size];
+        values = new double[size];
+        moves = new int[size];
+        depths = new byte[size];
+        ages = new byte[size];
+    }
+
+    /**
+     * Mark the start of a new search. Entries from earlier searches stay usable but are the
+     * first to be replaced.
+     */
+    public void newSearch() {
+        age++;
+    }
+
+    /**
+     * @return the slot holding this key, or -1
+     */
+    public int find(long key) {
+        key = nonZero(key);
+        probes++;
+        int start = (int) key & mask & ~(BUCKET - 1);
+        for (int i = start; i < start + BUCKET; i++) {
+            if (keys[i] == key) {
+                hits++;
+                ages[i] = age;
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public double getValue(int slot) {
+        return values[slot];
+    }
+
+    public int getMove(int slot) {
+        return moves[slot];
+    }
+
+    public int getDepth(int slot) {
+        return depths[slot];
+    }
+
+    public void store(long key, double value, int move, int depth) {
+        key = nonZero(key);
+        stores++;
+        int start = (int) key & mask & ~(BUCKET - 1);
+        int victim = start;
+        for (int i = start; i < start + BUCKET; i++) {
+            if (keys[i] == key || keys[i] == EMPTY) {
+                victim = i;
+                break;
+            }
+            if (isBetterVictim(i, victim)) {
+                victim = i;
+            }
+        }
+        if (keys[victim] != EMPTY && keys[victim] != key) {
+            overwrites++;
+        }
+        keys[victim] = key;
+        values[victim] = value;
+        moves[victim] = move;
+        depths[victim] = (byte) depth;
+        ages[victim] = age;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, EMPTY);
+        probes = 0;
+        hits = 0;
+        stores = 0;
+        overwrites = 0;
+    }
+
+    public int getCapacity() {
+        return keys.length;
+    }
+
+    public long getProbes() {
+        return probes;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getStores() {
+        return stores;
+    }
+
+    public long getOverwrites() {
+        return overwrites;
+    }
+
+    public double getHitRate() {
+        return probes == 0 ? 0 : (double) hits / probes;
+    }
+
+    // Stale entries go first, then shallow ones
+    private boolean isBetterVictim(int candidate, int current) {
+        boolean candidateStale = ages[candidate] != age;
+        boolean currentStale = ages[current] != age;
+        if (candidateStale != currentStale) return candidateStale;
+        return depths[candidate] < depths[current];
+    }
+
+    private static long nonZero(long key) {
+        return key == EMPTY ? 1 : key;
+    }
+}
@@ -0,0 +1,144 @@
+package com.tetris.game;
+
+/**
+ * Two games side by side on one logic thread. Both get the same pieces and tick in
+ * lockstep. Clearing two or more lines at once sends garbage rows to the opponent: it first
+ * cancels garbage waiting for the sender, and the rest rises under the opponent's stack the
+ * next time they lock a piece without clearing anything. The first player to top out loses.
+ */
+public final class VersusMatch {
+    // Garbage rows sent for clearing 0-4 lines at once
+    private static final int[] ATTACK = {0, 0, 1, 2, 4};
+
+    public interface Listener {
+        void onBoardChanged(int player);
+        void onScoreChanged(int player, int score);
+        void onLinesClearing(int player, int[] lines);
+        // Garbage waiting to rise under this player's stack
+        void onGarbagePending(int player, int rows);
+        void onMatchOver(int winner);
+    }
+
+    private final TetrisGame[] games = new TetrisGame[2];
+    private final int[] pending = new int[2];
+    private final int[] clearing = new int[2];
+    // Chooses the hole column of each garbage batch
+    private final GameRandom holes;
+    private Listener listener;
+    private int winner = -1;
+
+    public VersusMatch(int speed, GameSounds sounds, long seed) {
+        this(speed, sounds, seed, Gravity.CLASSIC, Scoring.CLASSIC);
+    }
+
+    public VersusMatch(int speed, GameSounds sounds, long seed, Gravity gravity, Scoring scoring) {
+        holes = new GameRandom(seed ^ 0x5DEECE66DL);
+        for (int p = 0; p < 2; p++) {
+            games[p] = new TetrisGame(speed, sounds, 0, seed, TetrisBoard.DEFAULT_ROWS, TetrisBoard.DEFAULT_COLS,
+                    PieceSet.STANDARD, gravity, scoring);
+            games[p].setGameListener(new PlayerListener(p));
+        }
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    public TetrisGame getGame(int player) {
+        return games[player];
+    }
+
+    public int getPendingGarbage(int player) {
+        return pending[player];
+    }
+
+    public boolean isOver() {
+        return winner >= 0;
+    }
+
+    /**
+     * The player who didn't top out, or -1 while the match is on.
+     */
+    public int getWinner() {
+        return winner;
+    }
+
+    /**
+     * One gravity step for both games.
+     */
+    public void tick() {
+        for (int p = 0; p < 2 && winner < 0; p++) {
+            games[p].tick();
+        }
+    }
+
+    public boolean isPaused() {
+        return games[0].isPaused();
+    }
+
+    public void setPaused(boolean paused) {
+        games[0].setPaused(paused);
+        games[1].setPaused(paused);
+    }
+
+    private void onPieceLocked(int player) {
+        int cleared = clearing[player];
+        clearing[player] = 0;
+        int attack = ATTACK[Math.min(cleared, ATTACK.length - 1)];
+        if (attack > 0) {
+            // Outgoing garbage cancels incoming first
+            int cancelled = Math.min(attack, pending[player]);
+            pending[player] -= cancelled;
+            attack -= cancelled;
+            if (attack > 0) {
+                pending[1 - player] += attack;
+                if (listener != null) listener.onGarbagePending(1 - player, pending[1 - player]);
+            }
+        } else if (cleared == 0 && pending[player] > 0) {
+            int rows = pending[player];
+            pending[player] = 0;
+            games[player].addGarbage(rows, holes.nextInt(games[player].getBoard().getCols()));
+        }
+        if (listener != null) listener.onGarbagePending(player, pending[player]);
+    }
+
+    private final class PlayerListener implements TetrisGame.GameListener {
+        private final int player;
+
+        PlayerListener(int player) {
+            this.player = player;
+        }
+
+        @Override
+        public void onScoreChanged(int score) {
+            if (listener != null) listener.onScoreChanged(player, score);
+        }
+
+        @Override
+        public void onLevelChanged(int level) {
+        }
+
+        @Override
+        public void onGameOver() {
+            if (winner >= 0) return;
+            winner = 1 - player;
+            if (listener != null) listener.onMatchOver(winner);
+        }
+
+        @Override
+        public void onBoardChanged() {
+            if (listener != null) listener.onBoardChanged(player);
+        }
+
+        @Override
+        public void onLinesClearing(int[] lines) {
+            clearing[player] = lines.length;
+            if (listener != null) listener.onLinesClearing(player, lines);
+        }
+
+        @Override
+        public void onPieceLocked() {
+            VersusMatch.this.onPieceLocked(player);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.tetris.game;
+
+/**
+ * Fixed random keys for hashing positions: the hash of a board is the xor of the keys of
+ * its filled cells, so placing or removing a cell updates it with one xor.
+ *
+ * A cell's key is its column's key rotated left by its row. Rotation distributes over xor,
+ * so when a line clear moves a whole row down by one its hash is just rotated by one, and
+ * clears stay as cheap as shifting the row masks. Piece and queue keys let searches tell
+ * apart the same board with different pieces to play.
+ */
+public final class Zobrist {
+    public static final int MAX_COLS = 256;
+    // Piece positions hashed are x in [-X_OFFSET, ...), y in [-Y_OFFSET, ...)
+    private static final int X_OFFSET = 2 * PieceSet.MAX_EXTENT;
+    private static final int Y_OFFSET = 2 * PieceSet.MAX_EXTENT;
+    private static final int MAX_QUEUE = 16;
+
+    private static final long[] COLUMN = new long[MAX_COLS];
+    private static final long[][] PIECE = new long[PieceSet.MAX_PIECES][PieceSet.ROTATIONS];
+    private static final long[] PIECE_X = new long[MAX_COLS + X_OFFSET];
+    private static final long[] PIECE_Y = new long[MAX_COLS + Y_OFFSET];
+    private static final long[][] QUEUE = new long[MAX_QUEUE][PieceSet.MAX_PIECES];
+    private static final long[] HOLD = new long[PieceSet.MAX_PIECES];
+
+    static {
+        // Fixed seed so hashes are the same on every run and device
+        GameRandom random = new GameRandom(0x5A0B7157C0FFEEL);
+        fill(COLUMN, random);
+        fill(PIECE_X, random);
+        fill(PIECE_Y, random);
+        for (long[] keys : PIECE) {
+            fill(keys, random);
+        }
+        for (long[] keys : QUEUE) {
+            fill(keys, random);
+        }
+        fill(HOLD, random);
+    }
+
+    private Zobrist() {
+    }
+
+    public static long cell(int row, int col) {
+        return Long.rotateLeft(COLUMN[col], row);
+    }
+
+    /**
+     * Hash of one row's cells at the given row index.
+     */
+    public static long row(int row, int mask) {
+        long hash = 0;
+        for (int bits = mask; bits != 0; bits &= bits - 1) {
+            hash ^= COLUMN[Integer.numberOfTrailingZeros(bits)];
+        }
+        return Long.rotateLeft(hash, row);
+    }
+
+    /**
+     * Hash of one row given as words of 64 columns, starting at bits[offset].
+     */
+    public static long row(int row, long[] bits, int offset, int words) {
+        long hash = 0;
+        for (int w = 0; w < words; w++) {
+            for (long word = bits[offset + w]; word != 0; word &= word - 1) {
+                hash ^= COLUMN[64 * w + Long.numberOfTrailingZeros(word)];
+            }
+        }
+        return Long.rotateLeft(hash, row);
+    }
+
+    /**
+     * Hash of a board given as one bitmask per row; matches TetrisBoard.getHash().
+     */
+    public static long board(int[] rows) {
+        long hash = 0;
+        for (int i = 0; i < rows.length; i++) {
+            if (rows[i] != 0) {
+                hash ^= row(i, rows[i]);
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Key of a falling piece's type, rotation and position.
+     */
+    public static long piece(int type, int rotation, int x, int y) {
+        return PIECE[type][rotation] ^ PIECE_X[x + X_OFFSET] ^ PIECE_Y[y + Y_OFFSET];
+    }
+
+    /**
+     * Key of the piece type waiting at a position in the queue (0 = next).
+     */
+    public static long queue(int position, int type) {
+        return QUEUE[position][type];
+    }
+
+    /**
+     * Key of the piece type in the hold slot.
+     */
+    public static long hold(int type) {
+        return HOLD[type];
+    }
+
+    private static void fill(long[] keys, GameRandom random) {
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = random.nextLong();
+        }
+    }
+}
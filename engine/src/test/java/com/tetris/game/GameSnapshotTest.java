@@ -0,0 +1,83 @@
+package com.tetris.game;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+public class GameSnapshotTest {
+    @Test
+    public void restoredGamePlaysOnLikeTheOriginal() {
+        roundTrip(new TetrisGame(5, null, 0, 11, 20, 10, PieceSet.STANDARD, Gravity.LEVEL_CURVE,
+                Scoring.GUIDELINE));
+        roundTrip(new TetrisGame(3, null, 4, 12, 20, 10));
+        roundTrip(new TetrisGame(5, null, 0, 13, 20, 10, PieceSet.STANDARD_SRS));
+        roundTrip(new TetrisGame(5, null, 2, 14, 40, 64, PieceSet.PENTOMINOES, Gravity.LEVEL_CURVE,
+                Scoring.GUIDELINE));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsOtherVersions() {
+        ByteBuffer data = snapshot(new TetrisGame(5, null, 0, 1));
+        data.put(4, (byte) 6);
+        GameSnapshot.read(data);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsOtherData() {
+        ByteBuffer data = snapshot(new TetrisGame(5, null, 0, 1));
+        data.put(0, (byte) 0);
+        GameSnapshot.read(data);
+    }
+
+    private static void roundTrip(TetrisGame game) {
+        Random random = new Random(game.getSeed());
+        play(game, random, 100);
+        // Snapshots are of running games
+        assertFalse(game.isGameOver());
+        TetrisGame restored = GameSnapshot.read(snapshot(game));
+
+        assertSame(game.getPieceSet(), restored.getPieceSet());
+        assertSame(game.getGravity(), restored.getGravity());
+        assertSame(game.getScoring(), restored.getScoring());
+        assertSameState(game, restored);
+
+        // Same commands from here on must keep the two in step, which needs the random state
+        long seed = random.nextLong();
+        play(game, new Random(seed), 2000);
+        play(restored, new Random(seed), 2000);
+        assertSameState(game, restored);
+    }
+
+    private static ByteBuffer snapshot(TetrisGame game) {
+        TetrisBoard board = game.getBoard();
+        ByteBuffer data = ByteBuffer.allocate(GameSnapshot.maxSize(board.getRows(), board.getCols()));
+        GameSnapshot.write(game, data);
+        data.flip();
+        return data;
+    }
+
+    static void play(TetrisGame game, Random random, int steps) {
+        for (int i = 0; i < steps && !game.isGameOver(); i++) {
+            if (random.nextBoolean()) {
+                game.applyCommand(random.nextInt(TetrisGame.CMD_HOLD + 1));
+            } else {
+                game.tick();
+            }
+        }
+    }
+
+    static void assertSameState(TetrisGame expected, TetrisGame actual) {
+        assertEquals("score", expected.getScore(), actual.getScore());
+        assertEquals("lines", expected.getLines(), actual.getLines());
+        assertEquals("level", expected.getLevel(), actual.getLevel());
+        assertEquals("tick", expected.getTickCount(), actual.getTickCount());
+        assertEquals("game over", expected.isGameOver(), actual.isGameOver());
+        assertEquals("board", expected.getBoard().getHash(), actual.getBoard().getHash());
+        assertEquals("position", expected.getPositionHash(), actual.getPositionHash());
+    }
+}
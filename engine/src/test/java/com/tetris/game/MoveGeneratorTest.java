@@ -0,0 +1,146 @@
+package com.tetris.game;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MoveGeneratorTest {
+    private static final int[] MOVES = {
+            TetrisGame.CMD_LEFT, TetrisGame.CMD_RIGHT, TetrisGame.CMD_ROTATE, TetrisGame.CMD_ROTATE_CCW,
+            TetrisGame.CMD_ROTATE_180, TetrisGame.CMD_SOFT_DROP,
+    };
+
+    @Test
+    public void pathsReachTheirPlacements() {
+        checkPaths(PieceSet.STANDARD);
+        checkPaths(PieceSet.STANDARD_SRS);
+        checkPaths(PieceSet.PENTOMINOES);
+    }
+
+    @Test
+    public void everyRestingPositionIsGenerated() {
+        checkWalks(PieceSet.STANDARD);
+        checkWalks(PieceSet.STANDARD_SRS);
+        checkWalks(PieceSet.PENTOMINOES);
+    }
+
+    // Every generated path, played in the game short of its hard drop, rests the piece on the
+    // placement it was generated for
+    private static void checkPaths(PieceSet pieces) {
+        Random random = new Random(1);
+        MoveGenerator generator = new MoveGenerator(20, 10, pieces);
+        int[] path = new int[generator.getMaxPathLength()];
+        int positions = 0;
+        for (long seed = 0; seed < 20; seed++) {
+            TetrisGame game = stacked(pieces, seed, random);
+            if (game.isGameOver()) continue;
+            positions++;
+            TetrisPiece piece = game.getCurrentPiece();
+            int count = generator.generate(game.getBoard(), piece);
+            assertTrue(count > 0);
+            for (int i = 0; i < count; i++) {
+                TetrisGame copy = copy(game);
+                int length = generator.getPath(i, path);
+                assertEquals(TetrisGame.CMD_HARD_DROP, path[length - 1]);
+                for (int k = 0; k < length - 1; k++) {
+                    copy.applyCommand(path[k]);
+                }
+                TetrisPiece moved = copy.getCurrentPiece();
+                assertEquals(key(pieces, piece.getType(), generator.getRotation(i), generator.getX(i),
+                        generator.getY(i)), key(pieces, moved.getType(), moved.getRotation(), moved.getX(),
+                        restingY(copy, moved)));
+            }
+        }
+        assertTrue(positions >= 10);
+    }
+
+    // Random walks of the game's own moves that leave the piece resting must end on a
+    // generated placement, kicks included
+    private static void checkWalks(PieceSet pieces) {
+        Random random = new Random(2);
+        MoveGenerator generator = new MoveGenerator(20, 10, pieces);
+        int walks = 0;
+        for (long seed = 0; seed < 20; seed++) {
+            TetrisGame game = stacked(pieces, seed, random);
+            if (game.isGameOver()) continue;
+            TetrisPiece piece = game.getCurrentPiece();
+            int count = generator.generate(game.getBoard(), piece);
+            Set<Long> generated = new HashSet<>();
+            for (int i = 0; i < count; i++) {
+                generated.add(key(pieces, piece.getType(), generator.getRotation(i), generator.getX(i),
+                        generator.getY(i)));
+            }
+            for (int walk = 0; walk < 200; walk++) {
+                TetrisGame copy = copy(game);
+                TetrisPiece moved = copy.getCurrentPiece();
+                randomMoves(copy, moved, random, random.nextInt(20));
+                while (restingY(copy, moved) != moved.getY()) {
+                    copy.applyCommand(TetrisGame.CMD_SOFT_DROP);
+                }
+                // A few more moves on the stack, for tucks and kicked turns
+                randomMoves(copy, moved, random, random.nextInt(6));
+                if (restingY(copy, moved) != moved.getY()) continue;
+                walks++;
+                assertTrue(generated.contains(key(pieces, moved.getType(), moved.getRotation(), moved.getX(),
+                        moved.getY())));
+            }
+        }
+        assertTrue(walks >= 500);
+    }
+
+    // A game played at random until a few pieces have locked; random play tops out fast, so
+    // stop at a cell count rather than a number of moves
+    private static TetrisGame stacked(PieceSet pieces, long seed, Random random) {
+        TetrisGame game = new TetrisGame(5, null, 0, seed, 20, 10, pieces);
+        int target = 20 + random.nextInt(40);
+        while (!game.isGameOver() && filledCells(game.getBoard()) < target) {
+            game.applyCommand(random.nextInt(TetrisGame.CMD_HOLD));
+            game.tick();
+        }
+        return game;
+    }
+
+    private static int filledCells(TetrisBoard board) {
+        int count = 0;
+        for (int row = 0; row < board.getRows(); row++) {
+            count += Integer.bitCount(board.getRowMask(row));
+        }
+        return count;
+    }
+
+    private static void randomMoves(TetrisGame game, TetrisPiece piece, Random random, int count) {
+        for (int i = 0; i < count; i++) {
+            int command = MOVES[random.nextInt(MOVES.length)];
+            // A soft drop onto the stack would lock the piece
+            if (command == TetrisGame.CMD_SOFT_DROP && restingY(game, piece) == piece.getY()) {
+                continue;
+            }
+            game.applyCommand(command);
+        }
+    }
+
+    private static TetrisGame copy(TetrisGame game) {
+        TetrisGame copy = new TetrisGame(5, null, 0, 0, 20, 10, game.getPieceSet());
+        copy.copyFrom(game);
+        return copy;
+    }
+
+    private static int restingY(TetrisGame game, TetrisPiece piece) {
+        TetrisBoard board = game.getBoard();
+        int y = piece.getY();
+        while (board.fits(game.getPieceSet(), piece.getType(), piece.getRotation(), piece.getX(), y + 1)) {
+            y++;
+        }
+        return y;
+    }
+
+    // Rotations with the same cells count as one placement
+    private static long key(PieceSet pieces, int type, int rotation, int x, int y) {
+        return (long) pieces.getCanonicalRotation(type, rotation) << 32 | (x & 0xFFFF) << 16 | (y & 0xFFFF);
+    }
+}
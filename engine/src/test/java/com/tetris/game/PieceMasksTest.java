@@ -0,0 +1,70 @@
+package com.tetris.game;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PieceMasksTest {
+    private static final int I = 0;
+    private static final int O = 1;
+
+    @Test
+    public void lowColumnsCoversTheWholeRange() {
+        assertEquals(0, PieceMasks.lowColumns(0));
+        assertEquals(1, PieceMasks.lowColumns(1));
+        assertEquals(0x3FF, PieceMasks.lowColumns(10));
+        assertEquals(0x7FFFFFFF, PieceMasks.lowColumns(31));
+        assertEquals(-1, PieceMasks.lowColumns(32));
+    }
+
+    @Test
+    public void clearsAFullRowAtThirtyTwoColumns() {
+        int[] board = new int[20];
+        board[19] = ~0xF;
+        int[] out = new int[20];
+
+        assertEquals(1, PieceMasks.place(board, 32, I, 0, 0, 19, out));
+        assertArrayEquals(new int[20], out);
+    }
+
+    @Test
+    public void keepsAnUnfinishedRowAtThirtyTwoColumns() {
+        int[] board = new int[20];
+        board[19] = ~0x1F;
+        int[] out = new int[20];
+
+        assertEquals(0, PieceMasks.place(board, 32, I, 0, 1, 19, out));
+        assertEquals(~0x1, out[19]);
+    }
+
+    @Test
+    public void placeShiftsTheRowsAboveAClear() {
+        int cols = 10;
+        int[] board = new int[20];
+        board[17] = 0x001;
+        board[18] = 0x3FC;
+        board[19] = 0x3FC;
+        int[] out = new int[20];
+
+        // An O in the two open columns completes both bottom rows
+        assertEquals(2, PieceMasks.place(board, cols, O, 0, 0, 18, out));
+        int[] expected = new int[20];
+        expected[19] = 0x001;
+        assertArrayEquals(expected, out);
+    }
+
+    @Test
+    public void fitsStopsAtTheWallsAndFloor() {
+        int[] board = new int[20];
+        assertTrue(PieceMasks.fits(board, 10, I, 0, 6, 19));
+        assertFalse(PieceMasks.fits(board, 10, I, 0, 7, 19));
+        assertFalse(PieceMasks.fits(board, 10, I, 0, -1, 19));
+        assertFalse(PieceMasks.fits(board, 10, O, 0, 0, 19));
+        assertTrue(PieceMasks.fits(board, 32, I, 0, 28, 19));
+        board[19] = 0x10;
+        assertFalse(PieceMasks.fits(board, 10, I, 0, 1, 19));
+    }
+}
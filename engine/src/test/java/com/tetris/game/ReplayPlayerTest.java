@@ -0,0 +1,68 @@
+package com.tetris.game;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ReplayPlayerTest {
+    @Test
+    public void playbackEndsWhereTheGameDid() {
+        playBack(new TetrisGame(5, null, 0, 21, 20, 10, PieceSet.STANDARD, Gravity.LEVEL_CURVE,
+                Scoring.GUIDELINE));
+        playBack(new TetrisGame(1, null, 3, 22));
+        playBack(new TetrisGame(5, null, 2, 23, 20, 10, PieceSet.STANDARD_SRS));
+        playBack(new TetrisGame(9, null, 0, 24, 30, 48, PieceSet.PENTOMINOES, Gravity.LEVEL_CURVE,
+                Scoring.GUIDELINE));
+    }
+
+    @Test
+    public void playbackStopsPartWay() {
+        TetrisGame game = new TetrisGame(5, null, 0, 25);
+        ReplayRecorder recorder = new ReplayRecorder(game);
+        Random random = new Random(25);
+        GameSnapshotTest.play(game, random, 1000);
+        // Stop just after a tick, so no later command shares the tick played up to
+        game.tick();
+        TetrisGame partWay = GameSnapshot.read(snapshot(game));
+        GameSnapshotTest.play(game, random, 1000);
+        recorder.finish(game);
+
+        ReplayPlayer player = new ReplayPlayer(recorder.getData());
+        player.advanceTo(partWay.getTickCount());
+        assertEquals(partWay.getScore(), player.getGame().getScore());
+        assertEquals(partWay.getBoard().getHash(), player.getGame().getBoard().getHash());
+    }
+
+    static ByteBuffer record(TetrisGame game, long commandSeed, int steps) {
+        ReplayRecorder recorder = new ReplayRecorder(game);
+        GameSnapshotTest.play(game, new Random(commandSeed), steps);
+        recorder.finish(game);
+        return recorder.getData();
+    }
+
+    private static void playBack(TetrisGame game) {
+        ByteBuffer data = record(game, game.getSeed(), 4000);
+        ReplayPlayer player = new ReplayPlayer(data);
+        TetrisGame played = player.runToEnd();
+
+        assertTrue(player.isFinished());
+        assertTrue(player.matchesRecordedResult());
+        assertEquals(game.getScore(), player.getRecordedScore());
+        assertSame(game.getPieceSet(), played.getPieceSet());
+        assertSame(game.getGravity(), played.getGravity());
+        assertSame(game.getScoring(), played.getScoring());
+        GameSnapshotTest.assertSameState(game, played);
+    }
+
+    private static ByteBuffer snapshot(TetrisGame game) {
+        ByteBuffer data = ByteBuffer.allocate(GameSnapshot.MAX_SIZE);
+        GameSnapshot.write(game, data);
+        data.flip();
+        return data;
+    }
+}
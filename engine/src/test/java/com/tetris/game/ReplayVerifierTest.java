@@ -0,0 +1,106 @@
+package com.tetris.game;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+
+public class ReplayVerifierTest {
+    private static final long MAX_TICKS = 1_000_000;
+
+    private final ReplayVerifier verifier = new ReplayVerifier(MAX_TICKS);
+
+    @Test
+    public void acceptsAGameUnderTheAppsRules() {
+        ReplayVerifier.Result result = verifier.verify(record(appGame(31)));
+        assertEquals(ReplayVerifier.Verdict.VALID, result.verdict);
+        assertEquals(result.recordedScore, result.simulatedScore);
+        assertEquals(result.recordedTicks, result.simulatedTicks);
+    }
+
+    @Test
+    public void acceptsOtherRulesWhenConfiguredForThem() {
+        ReplayVerifier srs = new ReplayVerifier(MAX_TICKS, 20, 10, PieceSet.STANDARD_SRS, Gravity.CLASSIC,
+                Scoring.CLASSIC);
+        assertEquals(ReplayVerifier.Verdict.VALID,
+                srs.verify(record(new TetrisGame(5, null, 0, 32, 20, 10, PieceSet.STANDARD_SRS))).verdict);
+    }
+
+    @Test
+    public void rejectsOtherRules() {
+        assertRules(new TetrisGame(5, null, 0, 33));
+        assertRules(new TetrisGame(5, null, 0, 34, 20, 4, PieceSet.STANDARD, Gravity.LEVEL_CURVE,
+                Scoring.GUIDELINE));
+        assertRules(new TetrisGame(5, null, 0, 35, 20, 10, PieceSet.STANDARD_SRS, Gravity.LEVEL_CURVE,
+                Scoring.GUIDELINE));
+        assertRules(new TetrisGame(5, null, 0, 36, 20, 10, PieceSet.STANDARD, Gravity.CLASSIC,
+                Scoring.GUIDELINE));
+        assertRules(new TetrisGame(5, null, 0, 37, 20, 10, PieceSet.STANDARD, Gravity.LEVEL_CURVE,
+                Scoring.CLASSIC));
+    }
+
+    @Test
+    public void rejectsAnAlteredSeed() {
+        ByteBuffer data = copy(record(appGame(38)));
+        // The seed follows the magic and version
+        data.put(5, (byte) (data.get(5) ^ 1));
+        ReplayVerifier.Result result = verifier.verify(data);
+        assertEquals(ReplayVerifier.Verdict.MISMATCH, result.verdict);
+    }
+
+    @Test
+    public void rejectsATruncatedStream() {
+        ByteBuffer data = record(appGame(39));
+        data.limit(data.limit() - 1);
+        assertEquals(ReplayVerifier.Verdict.MALFORMED, verifier.verify(data).verdict);
+        data.limit(ReplayRecorder.HEADER_SIZE - 1);
+        assertEquals(ReplayVerifier.Verdict.MALFORMED, verifier.verify(data).verdict);
+    }
+
+    @Test
+    public void rejectsTrailingBytes() {
+        ByteBuffer recorded = record(appGame(40));
+        ByteBuffer data = ByteBuffer.allocate(recorded.remaining() + 1);
+        data.put(recorded).put((byte) 0).flip();
+        assertEquals(ReplayVerifier.Verdict.MALFORMED, verifier.verify(data).verdict);
+    }
+
+    @Test
+    public void rejectsALongGameWithoutPlayingIt() {
+        ReplayVerifier.Result result = new ReplayVerifier(10).verify(record(appGame(41)));
+        assertEquals(ReplayVerifier.Verdict.TOO_LONG, result.verdict);
+        assertEquals(-1, result.simulatedTicks);
+    }
+
+    @Test
+    public void leavesTheBufferUntouched() {
+        ByteBuffer data = record(appGame(42));
+        int position = data.position();
+        int limit = data.limit();
+        verifier.verify(data);
+        assertEquals(position, data.position());
+        assertEquals(limit, data.limit());
+    }
+
+    private void assertRules(TetrisGame game) {
+        ReplayVerifier.Result result = verifier.verify(record(game));
+        assertEquals(ReplayVerifier.Verdict.RULES, result.verdict);
+        assertEquals(-1, result.simulatedTicks);
+    }
+
+    private static TetrisGame appGame(long seed) {
+        return new TetrisGame(5, null, 0, seed, TetrisBoard.DEFAULT_ROWS, TetrisBoard.DEFAULT_COLS,
+                PieceSet.STANDARD, Gravity.LEVEL_CURVE, Scoring.GUIDELINE);
+    }
+
+    private static ByteBuffer record(TetrisGame game) {
+        return ReplayPlayerTest.record(game, game.getSeed(), 3000);
+    }
+
+    private static ByteBuffer copy(ByteBuffer data) {
+        ByteBuffer copy = ByteBuffer.allocate(data.remaining());
+        copy.put(data.duplicate()).flip();
+        return copy;
+    }
+}
@@ -0,0 +1,137 @@
+package com.tetris.game;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SrsKickTest {
+    private static final int I = 0;
+    private static final int T = 2;
+
+    // The published SRS offsets for a clockwise turn out of 0, R, 2 and L, as x,y pairs with y up
+    private static final int[][] JLSTZ_KICKS = {
+            {0, 0, -1, 0, -1, 1, 0, -2, -1, -2},
+            {0, 0, 1, 0, 1, -1, 0, 2, 1, 2},
+            {0, 0, 1, 0, 1, 1, 0, -2, 1, -2},
+            {0, 0, -1, 0, -1, -1, 0, 2, -1, 2},
+    };
+    private static final int[][] I_KICKS = {
+            {0, 0, -2, 0, 1, 0, -2, -1, 1, 2},
+            {0, 0, -1, 0, 2, 0, -1, 2, 2, -1},
+            {0, 0, 2, 0, -1, 0, 2, 1, -1, -2},
+            {0, 0, 1, 0, -2, 0, 1, -2, -2, 1},
+    };
+
+    private final PieceSet pieces = PieceSet.STANDARD_SRS;
+
+    @Test
+    public void kicksMatchThePublishedTables() {
+        for (int type = 0; type < pieces.size(); type++) {
+            for (int rotation = 0; rotation < PieceSet.ROTATIONS; rotation++) {
+                for (int turns = 1; turns < PieceSet.ROTATIONS; turns++) {
+                    int[] expected = publishedKicks(type, rotation, turns);
+                    int[] kickX = pieces.getKickX(type, rotation, turns);
+                    int[] kickY = pieces.getKickY(type, rotation, turns);
+                    String turn = pieces.getName(type) + " " + rotation + "+" + turns;
+                    assertEquals(turn, expected.length / 2, kickX.length);
+                    // The engine's offsets also carry the shift between trimmed rotations,
+                    // which is the first entry; the rest differ from it as published, y down
+                    for (int k = 0; k < kickX.length; k++) {
+                        assertEquals(turn + " x" + k, expected[2 * k], kickX[k] - kickX[0]);
+                        assertEquals(turn + " y" + k, -expected[2 * k + 1], kickY[k] - kickY[0]);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void turnsInOpenSpaceReturnToTheStart() {
+        for (long seed = 0; seed < 50; seed++) {
+            TetrisGame game = new TetrisGame(5, null, 0, seed, 20, 10, pieces);
+            TetrisPiece piece = game.getCurrentPiece();
+            piece.setY(8);
+            int x = piece.getX();
+            int y = piece.getY();
+
+            game.rotate();
+            game.rotateCounterClockwise();
+            assertPiece(piece, 0, x, y);
+            for (int i = 0; i < 4; i++) {
+                game.rotate();
+            }
+            assertPiece(piece, 0, x, y);
+            game.rotate180();
+            game.rotate180();
+            assertPiece(piece, 0, x, y);
+        }
+    }
+
+    @Test
+    public void turnAgainstTheWallKicksOut() {
+        // T pointing right, flat against the left wall: turning to 2 puts the box's left
+        // column outside, so the published R>2 kick moves it one to the right
+        TetrisGame game = gameWithCurrent(T);
+        TetrisPiece piece = game.getCurrentPiece();
+        game.rotate();
+        piece.setX(0);
+        piece.setY(8);
+
+        game.rotate();
+        assertPiece(piece, 2, 0, 9);
+        assertTrue(game.getBoard().isValidPosition(piece));
+    }
+
+    @Test
+    public void blockedTurnLeavesThePieceAlone() {
+        TetrisGame game = gameWithCurrent(I);
+        TetrisBoard board = game.getBoard();
+        TetrisPiece piece = game.getCurrentPiece();
+        piece.setY(10);
+        int x = piece.getX();
+        // Fill everything but the piece's own row, so no vertical I fits anywhere
+        for (int row = 0; row < board.getRows(); row++) {
+            if (row == 10) continue;
+            for (int col = 0; col < board.getCols(); col++) {
+                board.setCell(row, col, TetrisBoard.GARBAGE);
+            }
+        }
+
+        game.rotate();
+        assertPiece(piece, 0, x, 10);
+        game.rotateCounterClockwise();
+        assertPiece(piece, 0, x, 10);
+    }
+
+    private int[] publishedKicks(int type, int rotation, int turns) {
+        if (turns == 2) {
+            return new int[] {0, 0};
+        }
+        // O shares the JLSTZ table; its turns never move its cells, so only the first is used
+        int[][] table = type == I ? I_KICKS : JLSTZ_KICKS;
+        if (turns == 1) {
+            return table[rotation];
+        }
+        // A counter-clockwise turn undoes the clockwise turn into this rotation
+        int[] clockwise = table[(rotation + 3) & 3];
+        int[] kicks = new int[clockwise.length];
+        for (int i = 0; i < kicks.length; i++) {
+            kicks[i] = -clockwise[i];
+        }
+        return kicks;
+    }
+
+    private TetrisGame gameWithCurrent(int type) {
+        for (long seed = 0; ; seed++) {
+            TetrisGame game = new TetrisGame(5, null, 0, seed, 20, 10, pieces);
+            if (game.getCurrentPiece().getType() == type) return game;
+        }
+    }
+
+    private static void assertPiece(TetrisPiece piece, int rotation, int x, int y) {
+        assertEquals("rotation", rotation, piece.getRotation());
+        assertEquals("x", x, piece.getX());
+        assertEquals("y", y, piece.getY());
+    }
+}
@@ -0,0 +1,78 @@
+package com.tetris.server;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+
+/**
+ * A client socket. The network thread reads and parses frames; sessions on worker threads
+ * write their updates straight to the socket and leave any remainder for the network
+ * thread to flush when it becomes writable.
+ */
+final class Connection {
+    // A client that falls this far behind is disconnected rather than buffered for
+    private static final int OUTBOUND_CAPACITY = 16 * 1024;
+
+    final SocketChannel channel;
+    final SelectionKey key;
+    final ByteBuffer inbound = ByteBuffer.allocate(1024).order(ByteOrder.LITTLE_ENDIAN);
+    private final ByteBuffer outbound = ByteBuffer.allocate(OUTBOUND_CAPACITY);
+    // Set and read by the network thread only
+    Session session;
+    private boolean closed;
+
+    Connection(SocketChannel channel, SelectionKey key) {
+        this.channel = channel;
+        this.key = key;
+    }
+
+    /**
+     * Write a complete frame, or queue it if the socket is busy.
+     */
+    synchronized void send(ByteBuffer frame) {
+        if (closed) return;
+        if (frame.remaining() > outbound.remaining()) {
+            close();
+            return;
+        }
+        outbound.put(frame);
+        flush();
+    }
+
+    // Called by the network thread when the socket becomes writable
+    synchronized void flush() {
+        if (closed) return;
+        try {
+            outbound.flip();
+            channel.write(outbound);
+            outbound.compact();
+        } catch (IOException e) {
+            close();
+            return;
+        }
+        int ops = outbound.position() > 0
+                ? SelectionKey.OP_READ | SelectionKey.OP_WRITE
+                : SelectionKey.OP_READ;
+        if (key.interestOps() != ops) {
+            key.interestOps(ops);
+            key.selector().wakeup();
+        }
+    }
+
+    synchronized boolean isClosed() {
+        return closed;
+    }
+
+    synchronized void close() {
+        if (closed) return;
+        closed = true;
+        key.cancel();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // Already gone
+        }
+    }
+}
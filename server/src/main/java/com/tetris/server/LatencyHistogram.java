@@ -0,0 +1,99 @@
+package com.tetris.server;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Concurrent latency distribution in microseconds, in log-linear buckets: exact below 32,
+ * then 16 buckets per power of two (about 6% resolution). Recording is an atomic increment,
+ * so many threads share one instance, and drain() hands the interval's counts to a reporter.
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int LINEAR = 2 * SUB_BUCKETS;
+    private static final int BUCKETS = LINEAR + (63 - 5) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long micros) {
+        long value = Math.max(0, micros);
+        counts.incrementAndGet(index(value));
+        if (value > max.get()) {
+            max.accumulateAndGet(value, Math::max);
+        }
+    }
+
+    /**
+     * Take the counts recorded so far and start a new interval.
+     */
+    public Snapshot drain() {
+        long[] taken = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            taken[i] = counts.getAndSet(i, 0);
+            total += taken[i];
+        }
+        return new Snapshot(taken, total, max.getAndSet(0));
+    }
+
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long max;
+
+        private Snapshot(long[] counts, long count, long max) {
+            this.counts = counts;
+            this.count = count;
+            this.max = max;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        /**
+         * Smallest bucket value with at least the given fraction of samples at or below it.
+         */
+        public long getPercentile(double fraction) {
+            if (count == 0) return 0;
+            long rank = Math.max(1, (long) Math.ceil(fraction * count));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(max, lowerBound(i));
+                }
+            }
+            return max;
+        }
+
+        /**
+         * "p50 0.12 p99 1.30 p99.9 2.01 max 4.10 ms"
+         */
+        public String describe() {
+            return String.format("p50 %.2f p99 %.2f p99.9 %.2f max %.2f ms",
+                    getPercentile(0.5) / 1000.0, getPercentile(0.99) / 1000.0,
+                    getPercentile(0.999) / 1000.0, max / 1000.0);
+        }
+    }
+
+    private static int index(long value) {
+        if (value < LINEAR) return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return LINEAR + (exponent - 5) * SUB_BUCKETS + sub;
+    }
+
+    private static long lowerBound(int index) {
+        if (index < LINEAR) return index;
+        int exponent = (index - LINEAR) / SUB_BUCKETS + 5;
+        int sub = (index - LINEAR) % SUB_BUCKETS;
+        return (long) (SUB_BUCKETS + sub) << (exponent - SUB_BITS);
+    }
+}
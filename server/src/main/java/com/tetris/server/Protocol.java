@@ -0,0 +1,35 @@
+package com.tetris.server;
+
+/**
+ * Wire format between game clients and the session server.
+ *
+ * Every message is a frame of [int length][byte type][payload], little endian, where the
+ * length counts the type byte and the payload. A connection plays one game at a time.
+ */
+public final class Protocol {
+    public static final int DEFAULT_PORT = 7420;
+    // Largest frame length either side accepts; anything longer closes the connection
+    public static final int MAX_FRAME = 64;
+
+    // Client to server
+    public static final byte JOIN = 1;       // int speed, int starting lines, long seed
+    public static final byte INPUT = 2;      // byte command, one of TetrisGame.CMD_*
+    public static final byte LEAVE = 3;      // no payload
+
+    // Server to client
+    public static final byte JOINED = 17;    // int session id
+    public static final byte STATE = 18;     // long tick, int score, int lines, int level
+    public static final byte GAME_OVER = 19; // int score, int lines, int level
+    public static final byte REJECTED = 20;  // no payload; the server is full or the join was invalid
+
+    public static final int JOIN_SIZE = 4 + 1 + 4 + 4 + 8;
+    public static final int INPUT_SIZE = 4 + 1 + 1;
+    public static final int LEAVE_SIZE = 4 + 1;
+    public static final int JOINED_SIZE = 4 + 1 + 4;
+    public static final int STATE_SIZE = 4 + 1 + 8 + 4 + 4 + 4;
+    public static final int GAME_OVER_SIZE = 4 + 1 + 4 + 4 + 4;
+    public static final int REJECTED_SIZE = 4 + 1;
+
+    private Protocol() {
+    }
+}
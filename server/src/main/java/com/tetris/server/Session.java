@@ -0,0 +1,163 @@
+package com.tetris.server;
+
+import com.tetris.game.TetrisGame;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * One live game. The timer wheel wakes it when gravity is due and the network thread wakes
+ * it when input arrives; either way it runs as a task on the worker pool, never on two
+ * workers at once, so the game itself needs no locking.
+ */
+final class Session extends TimerWheel.Timer implements Runnable {
+    private static final int INPUT_CAPACITY = 32;
+    // Ticks to catch up in one run before giving up on the backlog and resynchronising
+    private static final int MAX_CATCH_UP = 4;
+
+    final int id;
+    private final SessionServer server;
+    private final Connection connection;
+    private final TetrisGame game;
+    private final long intervalNanos;
+    private long nextTickNanos;
+
+    private final int[] inputs = new int[INPUT_CAPACITY];
+    private int inputHead;
+    private int inputCount;
+
+    private final ByteBuffer frame = ByteBuffer.allocate(Protocol.STATE_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicBoolean ended = new AtomicBoolean();
+    private volatile boolean dirty;
+    private volatile boolean armed;
+    private volatile boolean closed;
+
+    Session(int id, SessionServer server, Connection connection, int speed, int startingLines, long seed) {
+        this.id = id;
+        this.server = server;
+        this.connection = connection;
+        this.game = new TetrisGame(speed, null, startingLines, seed);
+        this.intervalNanos = game.getTickIntervalNanos();
+        this.nextTickNanos = System.nanoTime() + intervalNanos;
+    }
+
+    /**
+     * Queue a player command for the next run. Returns false if the queue is full.
+     */
+    boolean offer(int command) {
+        synchronized (inputs) {
+            if (inputCount == INPUT_CAPACITY) return false;
+            inputs[(inputHead + inputCount) % INPUT_CAPACITY] = command;
+            inputCount++;
+        }
+        wake();
+        return true;
+    }
+
+    private int pollInput() {
+        synchronized (inputs) {
+            if (inputCount == 0) return -1;
+            int command = inputs[inputHead];
+            inputHead = (inputHead + 1) % INPUT_CAPACITY;
+            inputCount--;
+            return command;
+        }
+    }
+
+    /**
+     * Stop the game. Its slot is freed at once, so the same connection can join again at
+     * the session limit; the next run only notices the game has ended.
+     */
+    void close() {
+        closed = true;
+        end();
+        wake();
+    }
+
+    @Override
+    void onExpired() {
+        armed = false;
+        wake();
+    }
+
+    void wake() {
+        dirty = true;
+        if (running.compareAndSet(false, true)) {
+            server.execute(this);
+        }
+    }
+
+    @Override
+    public void run() {
+        while (true) {
+            dirty = false;
+            step();
+            running.set(false);
+            // A wake that lost the race with the line above still gets its run
+            if (!dirty || !running.compareAndSet(false, true)) return;
+        }
+    }
+
+    private void step() {
+        if (ended.get()) return;
+        if (closed || connection.isClosed()) {
+            end();
+            return;
+        }
+
+        boolean changed = false;
+        int command;
+        while ((command = pollInput()) >= 0) {
+            game.applyCommand(command);
+            changed = true;
+        }
+
+        long now = System.nanoTime();
+        if (!armed) {
+            int caughtUp = 0;
+            while (now >= nextTickNanos && !game.isGameOver()) {
+                server.recordTick(now - nextTickNanos);
+                game.tick();
+                changed = true;
+                nextTickNanos += intervalNanos;
+                if (++caughtUp == MAX_CATCH_UP) {
+                    nextTickNanos = now + intervalNanos;
+                    break;
+                }
+            }
+        }
+
+        if (game.isGameOver()) {
+            // Free the slot first, so a client that rejoins on this message finds room
+            end();
+            frame.clear();
+            frame.putInt(Protocol.GAME_OVER_SIZE - 4).put(Protocol.GAME_OVER)
+                    .putInt(game.getScore()).putInt(game.getLines()).putInt(game.getLevel());
+            frame.flip();
+            connection.send(frame);
+            return;
+        }
+        if (changed) {
+            frame.clear();
+            frame.putInt(Protocol.STATE_SIZE - 4).put(Protocol.STATE)
+                    .putLong(game.getTickCount()).putInt(game.getScore())
+                    .putInt(game.getLines()).putInt(game.getLevel());
+            frame.flip();
+            connection.send(frame);
+        }
+        if (!armed) {
+            armed = true;
+            server.schedule(this, nextTickNanos);
+        }
+    }
+
+    // Once only, whichever of close(), a dropped connection or game over comes first. An
+    // armed timer left on the wheel finds the session ended and does nothing.
+    private void end() {
+        if (ended.compareAndSet(false, true)) {
+            server.onSessionEnded(this);
+        }
+    }
+}
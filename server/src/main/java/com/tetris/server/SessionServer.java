@@ -0,0 +1,274 @@
+package com.tetris.server;
+
+import com.tetris.game.TetrisGame;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hosts many concurrent games with a fixed number of threads, whatever the session count:
+ * one network thread multiplexes every socket on a selector, one thread sweeps a timer
+ * wheel that wakes sessions when their gravity is due, and a worker pool runs the woken
+ * sessions. See {@link Protocol} for the wire format.
+ */
+public final class SessionServer implements Closeable {
+    private static final long WHEEL_TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    // 1024 one-millisecond slots cover the slowest gravity interval in one revolution
+    private static final int WHEEL_SLOTS = 1024;
+
+    private final InetSocketAddress address;
+    private final int maxSessions;
+    private final ExecutorService workers;
+    private final TimerWheel wheel = new TimerWheel(WHEEL_TICK_NANOS, WHEEL_SLOTS);
+    private final AtomicInteger nextSessionId = new AtomicInteger(1);
+    private final AtomicInteger activeSessions = new AtomicInteger();
+    private final ByteBuffer frame = ByteBuffer.allocate(Protocol.JOINED_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+    private final LatencyHistogram tickLateness = new LatencyHistogram();
+    private final LongAdder ticks = new LongAdder();
+    private final LongAdder inputs = new LongAdder();
+    private final LongAdder droppedInputs = new LongAdder();
+    private final LongAdder gamesEnded = new LongAdder();
+    private long lastReportNanos = System.nanoTime();
+
+    private Selector selector;
+    private ServerSocketChannel server;
+    private Thread networkThread;
+    private Thread wheelThread;
+    private volatile boolean running;
+
+    public SessionServer(InetSocketAddress address, int workerThreads, int maxSessions) {
+        this.address = address;
+        this.maxSessions = maxSessions;
+        this.workers = Executors.newFixedThreadPool(workerThreads, r -> {
+            Thread thread = new Thread(r, "SessionWorker");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Bind and start serving. Returns the bound address, which tells the port when 0 was asked for.
+     */
+    public InetSocketAddress start() throws IOException {
+        selector = Selector.open();
+        server = ServerSocketChannel.open();
+        server.bind(address, 1024);
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+        running = true;
+
+        networkThread = new Thread(this::runNetwork, "SessionNetwork");
+        networkThread.setDaemon(true);
+        networkThread.start();
+        wheelThread = new Thread(this::runWheel, "SessionTimer");
+        wheelThread.setDaemon(true);
+        wheelThread.setPriority(Thread.MAX_PRIORITY);
+        wheelThread.start();
+        return (InetSocketAddress) server.getLocalAddress();
+    }
+
+    /**
+     * One line of load statistics since the previous report, then starts a new interval.
+     */
+    public String report() {
+        long now = System.nanoTime();
+        double seconds = Math.max(1e-9, (now - lastReportNanos) / 1e9);
+        lastReportNanos = now;
+        LatencyHistogram.Snapshot lateness = tickLateness.drain();
+        return String.format("%d sessions, %.0f ticks/s, %.0f inputs/s (%d dropped), %d games ended; tick lateness %s",
+                activeSessions.get(), ticks.sumThenReset() / seconds, inputs.sumThenReset() / seconds,
+                droppedInputs.sumThenReset(), gamesEnded.sumThenReset(), lateness.describe());
+    }
+
+    public int getActiveSessions() {
+        return activeSessions.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        if (selector != null) selector.close();
+        if (server != null) server.close();
+        workers.shutdownNow();
+    }
+
+    void execute(Session session) {
+        workers.execute(session);
+    }
+
+    void schedule(Session session, long deadlineNanos) {
+        wheel.schedule(session, deadlineNanos);
+    }
+
+    void recordTick(long latenessNanos) {
+        ticks.increment();
+        tickLateness.record(latenessNanos / 1000);
+    }
+
+    void onSessionEnded(Session session) {
+        activeSessions.decrementAndGet();
+        gamesEnded.increment();
+    }
+
+    private void runWheel() {
+        while (running) {
+            wheel.advance(System.nanoTime());
+            LockSupport.parkNanos(WHEEL_TICK_NANOS / 2);
+        }
+    }
+
+    private void runNetwork() {
+        try {
+            while (running) {
+                selector.select();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) continue;
+                    if (key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+                    Connection connection = (Connection) key.attachment();
+                    if (key.isReadable()) {
+                        read(connection);
+                    }
+                    if (key.isValid() && key.isWritable()) {
+                        connection.flush();
+                    }
+                }
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            if (running) throw new IllegalStateException("Network thread failed", e);
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = server.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+            key.attach(new Connection(channel, key));
+        }
+    }
+
+    private void read(Connection connection) {
+        ByteBuffer in = connection.inbound;
+        try {
+            if (connection.channel.read(in) < 0) {
+                disconnect(connection);
+                return;
+            }
+        } catch (IOException e) {
+            disconnect(connection);
+            return;
+        }
+
+        in.flip();
+        while (in.remaining() >= 4) {
+            int start = in.position();
+            int length = in.getInt(start);
+            if (length < 1 || length > Protocol.MAX_FRAME) {
+                disconnect(connection);
+                return;
+            }
+            if (in.remaining() < 4 + length) break;
+            in.position(start + 4);
+            if (!handle(connection, in.get(), in, length - 1)) {
+                disconnect(connection);
+                return;
+            }
+            in.position(start + 4 + length);
+        }
+        in.compact();
+    }
+
+    // False for a malformed frame
+    private boolean handle(Connection connection, byte type, ByteBuffer in, int payload) {
+        switch (type) {
+            case Protocol.JOIN: {
+                if (payload < 16) return false;
+                int speed = in.getInt();
+                int startingLines = in.getInt();
+                long seed = in.getLong();
+                if (connection.session != null) {
+                    connection.session.close();
+                    connection.session = null;
+                }
+                if (speed < 1 || speed > 9 || startingLines < 0 || startingLines > 9
+                        || !reserveSession()) {
+                    frame.clear();
+                    frame.putInt(Protocol.REJECTED_SIZE - 4).put(Protocol.REJECTED);
+                    frame.flip();
+                    connection.send(frame);
+                    return true;
+                }
+                Session session = new Session(nextSessionId.getAndIncrement(), this, connection,
+                        speed, startingLines, seed);
+                connection.session = session;
+                frame.clear();
+                frame.putInt(Protocol.JOINED_SIZE - 4).put(Protocol.JOINED).putInt(session.id);
+                frame.flip();
+                connection.send(frame);
+                // The first run arms the gravity timer
+                session.wake();
+                return true;
+            }
+            case Protocol.INPUT: {
+                if (payload < 1) return false;
+                int command = in.get();
+                if (command < TetrisGame.CMD_LEFT || command > TetrisGame.CMD_HOLD) return false;
+                if (connection.session != null) {
+                    if (connection.session.offer(command)) {
+                        inputs.increment();
+                    } else {
+                        droppedInputs.increment();
+                    }
+                }
+                return true;
+            }
+            case Protocol.LEAVE:
+                if (connection.session != null) {
+                    connection.session.close();
+                    connection.session = null;
+                }
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private boolean reserveSession() {
+        while (true) {
+            int active = activeSessions.get();
+            if (active >= maxSessions) return false;
+            if (activeSessions.compareAndSet(active, active + 1)) return true;
+        }
+    }
+
+    private void disconnect(Connection connection) {
+        if (connection.session != null) {
+            connection.session.close();
+            connection.session = null;
+        }
+        connection.close();
+    }
+}
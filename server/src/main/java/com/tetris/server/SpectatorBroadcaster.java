@@ -0,0 +1,359 @@
+package com.tetris.server;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Streams one game's {@link SpectatorFeed} events to any number of viewers without ever
+ * holding up the game.
+ *
+ * The game thread only appends events to a small inbox; one broadcast thread moves them
+ * into a ring log and writes each viewer its own slice of the log straight from the ring,
+ * so an event is stored once however many viewers there are. A viewer joins at the latest
+ * keyframe. A viewer that falls more than half the log behind skips ahead to the latest
+ * keyframe between writes, and one that is overtaken by the log in the middle of a write
+ * is disconnected. If the broadcast thread itself falls behind, the inbox drops events and
+ * the feed publishes a keyframe once there is room.
+ *
+ * Viewers receive the raw event stream with no further framing and send nothing.
+ */
+public final class SpectatorBroadcaster implements Closeable {
+    public static final int APPENDED = 0;
+    public static final int COALESCED = 1;
+    public static final int DROPPED = 2;
+
+    private static final int INBOX_CAPACITY = 16 * 1024;
+    // Keeps a slow viewer's backlog in the log, where it can be skipped, not in the kernel
+    private static final int SEND_BUFFER = 32 * 1024;
+
+    private final InetSocketAddress address;
+    private final int maxViewers;
+    private final ByteBuffer ring;
+    private final long mask;
+    // Gathering write views of the ring, for slices that wrap around
+    private final ByteBuffer[] slices = new ByteBuffer[2];
+    private final ByteBuffer discard = ByteBuffer.allocate(256);
+    private final List<Viewer> viewers = new ArrayList<>();
+
+    // Guarded by this; the game thread fills one buffer while the broadcast thread drains the other
+    private ByteBuffer inbox = ByteBuffer.allocate(INBOX_CAPACITY).order(ByteOrder.LITTLE_ENDIAN);
+    private ByteBuffer draining = ByteBuffer.allocate(INBOX_CAPACITY).order(ByteOrder.LITTLE_ENDIAN);
+    private int lastMove = -1;
+    private volatile boolean keyframeRequested;
+
+    // Owned by the broadcast thread; absolute byte positions in the log
+    private long head;
+    private long lastKeyframe = -1;
+    private volatile int viewerCount;
+
+    private final LongAdder events = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder inboxDrops = new LongAdder();
+    private final LongAdder bytesSent = new LongAdder();
+    private final LongAdder resyncs = new LongAdder();
+    private final LongAdder disconnects = new LongAdder();
+    private long lastReportNanos = System.nanoTime();
+
+    private Selector selector;
+    private ServerSocketChannel server;
+    private Thread thread;
+    private volatile boolean running;
+
+    /**
+     * @param logCapacity bytes of recent events kept for viewers; a power of two, at least
+     *                    twice the inbox
+     */
+    public SpectatorBroadcaster(InetSocketAddress address, int logCapacity, int maxViewers) {
+        if (Integer.bitCount(logCapacity) != 1 || logCapacity < 2 * INBOX_CAPACITY) {
+            throw new IllegalArgumentException("Log capacity must be a power of two of at least "
+                    + 2 * INBOX_CAPACITY);
+        }
+        this.address = address;
+        this.maxViewers = maxViewers;
+        this.ring = ByteBuffer.allocateDirect(logCapacity);
+        this.mask = logCapacity - 1;
+        slices[0] = ring.duplicate();
+        slices[1] = ring.duplicate();
+    }
+
+    /**
+     * Bind and start broadcasting. Returns the bound address, which tells the port when 0 was asked for.
+     */
+    public InetSocketAddress start() throws IOException {
+        selector = Selector.open();
+        server = ServerSocketChannel.open();
+        server.bind(address, 1024);
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+        running = true;
+
+        thread = new Thread(this::run, "SpectatorBroadcast");
+        thread.setDaemon(true);
+        thread.start();
+        return (InetSocketAddress) server.getLocalAddress();
+    }
+
+    /**
+     * Queue one event for viewers. Called by the feed on the game thread; never blocks on
+     * the network. A coalescable event replaces an identical-length coalescable event still
+     * waiting in the inbox, so a piece sliding faster than the broadcast keeps up with costs
+     * nothing extra.
+     *
+     * @return APPENDED, COALESCED, or DROPPED if the inbox is full
+     */
+    public int publish(ByteBuffer event, boolean coalesce) {
+        boolean wake;
+        synchronized (this) {
+            int length = event.remaining();
+            if (coalesce && lastMove >= 0 && inbox.position() - lastMove == length) {
+                inbox.put(lastMove, event, event.position(), length);
+                coalesced.increment();
+                return COALESCED;
+            }
+            if (length > inbox.remaining()) {
+                lastMove = -1;
+                inboxDrops.increment();
+                return DROPPED;
+            }
+            wake = inbox.position() == 0;
+            lastMove = coalesce ? inbox.position() : -1;
+            inbox.put(event);
+        }
+        events.increment();
+        // A non-empty inbox already has a wakeup pending
+        if (wake && selector != null) selector.wakeup();
+        return APPENDED;
+    }
+
+    /**
+     * True when a viewer is too far behind and there's no newer keyframe to skip it to. The
+     * feed answers with a keyframe at its next lock.
+     */
+    public boolean isKeyframeRequested() {
+        return keyframeRequested;
+    }
+
+    public int getViewerCount() {
+        return viewerCount;
+    }
+
+    /**
+     * One line of broadcast statistics since the previous report, then starts a new interval.
+     */
+    public String report() {
+        long now = System.nanoTime();
+        double seconds = Math.max(1e-9, (now - lastReportNanos) / 1e9);
+        lastReportNanos = now;
+        return String.format("%d viewers, %.0f events/s (%d coalesced, %d dropped), %.1f MB/s out, %d resyncs, %d disconnected",
+                viewerCount, events.sumThenReset() / seconds, coalesced.sumThenReset(), inboxDrops.sumThenReset(),
+                bytesSent.sumThenReset() / seconds / 1e6, resyncs.sumThenReset(), disconnects.sumThenReset());
+    }
+
+    public long getThreadId() {
+        return thread.getId();
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        if (selector != null) selector.close();
+        if (server != null) server.close();
+    }
+
+    private void run() {
+        try {
+            while (running) {
+                selector.select();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) continue;
+                    if (key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+                    Viewer viewer = (Viewer) key.attachment();
+                    if (key.isReadable()) {
+                        read(viewer);
+                    }
+                    if (key.isValid() && key.isWritable()) {
+                        write(viewer);
+                    }
+                }
+                if (drainInbox()) {
+                    for (int i = viewers.size() - 1; i >= 0; i--) {
+                        write(viewers.get(i));
+                    }
+                }
+            }
+        } catch (IOException | ClosedSelectorException | CancelledKeyException e) {
+            // Closing the selector cancels every key under us
+            if (running) throw new IllegalStateException("Broadcast thread failed", e);
+        } finally {
+            for (Viewer viewer : viewers) {
+                closeQuietly(viewer.channel);
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = server.accept()) != null) {
+            if (viewers.size() >= maxViewers) {
+                closeQuietly(channel);
+                continue;
+            }
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            channel.setOption(StandardSocketOptions.SO_SNDBUF, SEND_BUFFER);
+            Viewer viewer = new Viewer(channel);
+            viewer.key = channel.register(selector, SelectionKey.OP_READ, viewer);
+            if (lastKeyframe >= 0 && head - lastKeyframe <= mask) {
+                viewer.cursor = lastKeyframe;
+            } else {
+                viewer.cursor = head;
+                keyframeRequested = true;
+            }
+            viewer.batchEnd = viewer.cursor;
+            viewers.add(viewer);
+            viewerCount = viewers.size();
+            write(viewer);
+        }
+    }
+
+    // Viewers send nothing; reading only notices when they hang up
+    private void read(Viewer viewer) {
+        try {
+            int n;
+            do {
+                discard.clear();
+                n = viewer.channel.read(discard);
+            } while (n > 0);
+            if (n < 0) disconnect(viewer);
+        } catch (IOException e) {
+            disconnect(viewer);
+        }
+    }
+
+    // Move the inbox into the log; false if it was empty
+    private boolean drainInbox() {
+        ByteBuffer batch;
+        synchronized (this) {
+            if (inbox.position() == 0) return false;
+            batch = inbox;
+            inbox = draining;
+            draining = batch;
+            lastMove = -1;
+        }
+        batch.flip();
+        for (int i = 0; i < batch.limit(); ) {
+            int length = SpectatorFeed.eventLength(batch, i);
+            if (batch.get(i) == SpectatorFeed.KEYFRAME) {
+                lastKeyframe = head + i;
+                keyframeRequested = false;
+            }
+            i += length;
+        }
+        int capacity = ring.capacity();
+        int index = (int) (head & mask);
+        int first = Math.min(batch.limit(), capacity - index);
+        ring.put(index, batch, 0, first);
+        ring.put(0, batch, first, batch.limit() - first);
+        head += batch.limit();
+        batch.clear();
+        return true;
+    }
+
+    private void write(Viewer viewer) {
+        if (!viewer.key.isValid()) return;
+        long capacity = mask + 1;
+        if (head - viewer.cursor > capacity) {
+            // The log has overwritten what this viewer was about to read
+            if (viewer.cursor != viewer.batchEnd || head - lastKeyframe > capacity) {
+                disconnects.increment();
+                disconnect(viewer);
+                return;
+            }
+            skipToKeyframe(viewer);
+        }
+        if (viewer.cursor == viewer.batchEnd) {
+            if (head - viewer.cursor > capacity / 2) {
+                if (lastKeyframe > viewer.cursor) {
+                    skipToKeyframe(viewer);
+                } else {
+                    keyframeRequested = true;
+                }
+            }
+            viewer.batchEnd = head;
+        }
+        if (viewer.cursor < viewer.batchEnd) {
+            int length = (int) (viewer.batchEnd - viewer.cursor);
+            int index = (int) (viewer.cursor & mask);
+            int first = Math.min(length, (int) capacity - index);
+            slices[0].limit(index + first).position(index);
+            slices[1].limit(length - first).position(0);
+            try {
+                long written = viewer.channel.write(slices);
+                viewer.cursor += written;
+                bytesSent.add(written);
+            } catch (IOException e) {
+                disconnect(viewer);
+                return;
+            }
+        }
+        int ops = viewer.cursor < viewer.batchEnd
+                ? SelectionKey.OP_READ | SelectionKey.OP_WRITE
+                : SelectionKey.OP_READ;
+        if (viewer.key.interestOps() != ops) {
+            viewer.key.interestOps(ops);
+        }
+    }
+
+    private void skipToKeyframe(Viewer viewer) {
+        viewer.cursor = lastKeyframe;
+        viewer.batchEnd = lastKeyframe;
+        resyncs.increment();
+    }
+
+    private void disconnect(Viewer viewer) {
+        viewer.key.cancel();
+        closeQuietly(viewer.channel);
+        viewers.remove(viewer);
+        viewerCount = viewers.size();
+    }
+
+    private static void closeQuietly(SocketChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // Already gone
+        }
+    }
+
+    private static final class Viewer {
+        final SocketChannel channel;
+        SelectionKey key;
+        // Next byte to send, and the end of the batch being sent; absolute log positions
+        long cursor;
+        long batchEnd;
+
+        Viewer(SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+}
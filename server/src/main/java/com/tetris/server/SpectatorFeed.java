@@ -0,0 +1,210 @@
+package com.tetris.server;
+
+import com.tetris.game.GameSnapshot;
+import com.tetris.game.TetrisBoard;
+import com.tetris.game.TetrisGame;
+import com.tetris.game.TetrisPiece;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Turns a game's listener callbacks into a compact event stream for a
+ * {@link SpectatorBroadcaster}. Install it as the game's listener; it passes every callback
+ * on to the listener it wraps, and must be called on the game's thread like any listener.
+ *
+ * Events (little endian):
+ *   MOVE      [1][rot][x][y]               the falling piece moved or rotated
+ *   LOCK      [2][rot][x][y][next type]    the falling piece locked there and the next one spawned
+ *   SCORE     [3][int score]
+ *   LEVEL     [4][int level]
+ *   GAME_OVER [5]
+ *   KEYFRAME  [6][int sequence][short length][GameSnapshot]
+ *   HOLD      [7][type][next type]         the falling piece was swapped with the hold slot
+ *                                          and is now this type at the spawn point
+ *
+ * Viewers lock pieces and clear rows themselves, so a lock is five bytes. Garbage from a
+ * versus opponent isn't an event; viewers pick it up at the next keyframe. A keyframe's
+ * sequence is its index among all events published, so a viewer that counts what it
+ * receives can tell whether it missed any since the last keyframe.
+ */
+public final class SpectatorFeed implements TetrisGame.GameListener {
+    public static final byte MOVE = 1;
+    public static final byte LOCK = 2;
+    public static final byte SCORE = 3;
+    public static final byte LEVEL = 4;
+    public static final byte GAME_OVER = 5;
+    public static final byte KEYFRAME = 6;
+    public static final byte HOLD = 7;
+    public static final int KEYFRAME_HEADER = 1 + 4 + 2;
+    // Locks between keyframes, bounding how long a new or resynced viewer waits
+    static final int KEYFRAME_INTERVAL = 32;
+
+    private final TetrisGame game;
+    private final TetrisGame.GameListener next;
+    private final SpectatorBroadcaster broadcaster;
+    private final ByteBuffer event = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+    private final ByteBuffer keyframe;
+    private long sequence;
+    private int locksSinceKeyframe;
+    private boolean keyframeDue = true;
+
+    // The falling piece as last seen, and where the previous one was when it locked
+    private TetrisPiece piece;
+    private boolean canHold;
+    private int rotation;
+    private int x;
+    private int y;
+    private int lockedRotation;
+    private int lockedX;
+    private int lockedY;
+
+    /**
+     * @param next the listener to pass callbacks on to, or null
+     */
+    public SpectatorFeed(TetrisGame game, TetrisGame.GameListener next, SpectatorBroadcaster broadcaster) {
+        this.game = game;
+        this.next = next;
+        this.broadcaster = broadcaster;
+        TetrisBoard board = game.getBoard();
+        keyframe = ByteBuffer.allocate(KEYFRAME_HEADER + GameSnapshot.maxSize(board.getRows(), board.getCols()))
+                .order(ByteOrder.LITTLE_ENDIAN);
+        trackPiece();
+        publishKeyframe();
+    }
+
+    @Override
+    public void onScoreChanged(int score) {
+        event.clear();
+        event.put(SCORE).putInt(score);
+        publish(false);
+        if (next != null) next.onScoreChanged(score);
+    }
+
+    @Override
+    public void onLevelChanged(int level) {
+        event.clear();
+        event.put(LEVEL).putInt(level);
+        publish(false);
+        if (next != null) next.onLevelChanged(level);
+    }
+
+    @Override
+    public void onGameOver() {
+        if (game.getCurrentPiece() != piece) {
+            // Topped out on spawn; the game skips onPieceLocked() for the last lock
+            lockPiece();
+            publishLock();
+        }
+        event.clear();
+        event.put(GAME_OVER);
+        publish(false);
+        publishKeyframe();
+        if (next != null) next.onGameOver();
+    }
+
+    @Override
+    public void onBoardChanged() {
+        TetrisPiece current = game.getCurrentPiece();
+        if (current != piece) {
+            // A new piece spawned; the lock is published from onPieceLocked()
+            lockPiece();
+        } else if (game.canHold() != canHold) {
+            // Swapped with the hold slot, which is the only way a piece changes type
+            trackPiece();
+            event.clear();
+            event.put(HOLD).put((byte) current.getType()).put((byte) game.getNextPiece().getType());
+            publish(false);
+        } else if (current.getRotation() != rotation || current.getX() != x || current.getY() != y) {
+            trackPiece();
+            event.clear();
+            event.put(MOVE).put((byte) rotation).put((byte) x).put((byte) y);
+            publish(true);
+        }
+        if (next != null) next.onBoardChanged();
+    }
+
+    @Override
+    public void onLinesClearing(int[] lines) {
+        if (next != null) next.onLinesClearing(lines);
+    }
+
+    @Override
+    public void onPieceLocked() {
+        publishLock();
+        if (++locksSinceKeyframe >= KEYFRAME_INTERVAL || keyframeDue || broadcaster.isKeyframeRequested()) {
+            publishKeyframe();
+        }
+        if (next != null) next.onPieceLocked();
+    }
+
+    /**
+     * Length of the event starting at the given index, or 0 if the buffer doesn't yet hold
+     * enough of it to tell.
+     *
+     * @throws IllegalArgumentException for an unknown event type
+     */
+    public static int eventLength(ByteBuffer buf, int index) {
+        int available = buf.limit() - index;
+        if (available < 1) return 0;
+        switch (buf.get(index)) {
+            case MOVE:
+                return 4;
+            case LOCK:
+            case SCORE:
+            case LEVEL:
+                return 5;
+            case GAME_OVER:
+                return 1;
+            case HOLD:
+                return 3;
+            case KEYFRAME:
+                if (available < KEYFRAME_HEADER) return 0;
+                return KEYFRAME_HEADER + (buf.order(ByteOrder.LITTLE_ENDIAN).getShort(index + 5) & 0xFFFF);
+            default:
+                throw new IllegalArgumentException("Unknown spectator event " + buf.get(index));
+        }
+    }
+
+    private void lockPiece() {
+        lockedRotation = rotation;
+        lockedX = x;
+        lockedY = y;
+        trackPiece();
+    }
+
+    private void publishLock() {
+        event.clear();
+        event.put(LOCK).put((byte) lockedRotation).put((byte) lockedX).put((byte) lockedY)
+                .put((byte) game.getNextPiece().getType());
+        publish(false);
+    }
+
+    private void trackPiece() {
+        piece = game.getCurrentPiece();
+        canHold = game.canHold();
+        rotation = piece.getRotation();
+        x = piece.getX();
+        y = piece.getY();
+    }
+
+    private void publish(boolean coalesce) {
+        event.flip();
+        int result = broadcaster.publish(event, coalesce);
+        if (result != SpectatorBroadcaster.COALESCED) sequence++;
+        // Viewers have lost track; get them back as soon as there's room
+        if (result == SpectatorBroadcaster.DROPPED) keyframeDue = true;
+    }
+
+    private void publishKeyframe() {
+        keyframe.clear();
+        keyframe.put(KEYFRAME).putInt((int) sequence).putShort((short) 0);
+        GameSnapshot.write(game, keyframe);
+        keyframe.putShort(5, (short) (keyframe.position() - KEYFRAME_HEADER));
+        keyframe.flip();
+        int result = broadcaster.publish(keyframe, false);
+        sequence++;
+        keyframeDue = result == SpectatorBroadcaster.DROPPED;
+        locksSinceKeyframe = 0;
+    }
+}
@@ -0,0 +1,193 @@
+package com.tetris.server;
+
+import com.tetris.game.GameSnapshot;
+import com.tetris.game.PieceMasks;
+import com.tetris.game.TetrisBoard;
+import com.tetris.game.TetrisGame;
+import com.tetris.game.TetrisPiece;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * A viewer's copy of a broadcast game, rebuilt from {@link SpectatorFeed} events.
+ *
+ * The replica ignores everything until its first keyframe, then plays events forward.
+ * When a later keyframe arrives with no events missed since the previous one, the replica
+ * checks its own state against it before taking the keyframe's; otherwise the keyframe
+ * just brings it back in sync after a skip or a drop.
+ */
+public final class SpectatorReplica {
+    private int[] rows = new int[0];
+    private int[] scratch = new int[0];
+    private int cols;
+    private int type;
+    private int rotation;
+    private int x;
+    private int y;
+    private int nextType;
+    private int score;
+    private int level;
+    private boolean gameOver;
+
+    private boolean synced;
+    // Sequence number the next event should have
+    private long expected;
+    private long events;
+    private long keyframes;
+    private long verified;
+    private long mismatches;
+
+    /**
+     * Apply every complete event in the buffer, leaving any partial one at its position.
+     *
+     * @return the number of events applied
+     * @throws IllegalArgumentException if the stream is corrupt
+     */
+    public int consume(ByteBuffer in) {
+        in.order(ByteOrder.LITTLE_ENDIAN);
+        int count = 0;
+        while (true) {
+            int start = in.position();
+            int length = SpectatorFeed.eventLength(in, start);
+            if (length == 0 || in.remaining() < length) return count;
+            apply(in, start, length);
+            in.position(start + length);
+            count++;
+        }
+    }
+
+    private void apply(ByteBuffer in, int start, int length) {
+        byte event = in.get(start);
+        events++;
+        if (event == SpectatorFeed.KEYFRAME) {
+            applyKeyframe(in.getInt(start + 1), in.duplicate().order(ByteOrder.LITTLE_ENDIAN)
+                    .position(start + SpectatorFeed.KEYFRAME_HEADER).limit(start + length));
+            return;
+        }
+        if (!synced) return;
+        expected++;
+        switch (event) {
+            case SpectatorFeed.MOVE:
+                rotation = in.get(start + 1);
+                x = in.get(start + 2);
+                y = in.get(start + 3);
+                break;
+            case SpectatorFeed.LOCK:
+                PieceMasks.place(rows, cols, type, in.get(start + 1), in.get(start + 2), in.get(start + 3), scratch);
+                int[] swap = rows;
+                rows = scratch;
+                scratch = swap;
+                type = nextType;
+                rotation = 0;
+                x = TetrisPiece.spawnX(cols);
+                y = TetrisPiece.SPAWN_Y;
+                nextType = in.get(start + 4);
+                break;
+            case SpectatorFeed.HOLD:
+                type = in.get(start + 1);
+                rotation = 0;
+                x = TetrisPiece.spawnX(cols);
+                y = TetrisPiece.SPAWN_Y;
+                nextType = in.get(start + 2);
+                break;
+            case SpectatorFeed.SCORE:
+                score = in.getInt(start + 1);
+                break;
+            case SpectatorFeed.LEVEL:
+                level = in.getInt(start + 1);
+                break;
+            case SpectatorFeed.GAME_OVER:
+                gameOver = true;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown spectator event " + event);
+        }
+    }
+
+    private void applyKeyframe(int sequence, ByteBuffer snapshot) {
+        TetrisGame game = GameSnapshot.read(snapshot);
+        keyframes++;
+        if (synced && sequence == (int) expected) {
+            if (matches(game)) {
+                verified++;
+            } else {
+                mismatches++;
+            }
+        }
+        TetrisBoard board = game.getBoard();
+        if (rows.length != board.getRows()) {
+            rows = new int[board.getRows()];
+            scratch = new int[board.getRows()];
+        }
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = board.getRowMask(i);
+        }
+        cols = board.getCols();
+        TetrisPiece current = game.getCurrentPiece();
+        type = current.getType();
+        rotation = current.getRotation();
+        x = current.getX();
+        y = current.getY();
+        nextType = game.getNextPiece().getType();
+        score = game.getScore();
+        level = game.getLevel();
+        synced = true;
+        expected = (sequence & 0xFFFFFFFFL) + 1;
+    }
+
+    private boolean matches(TetrisGame game) {
+        TetrisBoard board = game.getBoard();
+        if (rows.length != board.getRows()) return false;
+        for (int i = 0; i < rows.length; i++) {
+            if (rows[i] != board.getRowMask(i)) return false;
+        }
+        TetrisPiece current = game.getCurrentPiece();
+        return type == current.getType() && rotation == current.getRotation()
+                && x == current.getX() && y == current.getY()
+                && nextType == game.getNextPiece().getType()
+                && score == game.getScore() && level == game.getLevel();
+    }
+
+    public boolean isSynced() {
+        return synced;
+    }
+
+    public int getRowMask(int row) {
+        return rows[row];
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public boolean isGameOver() {
+        return gameOver;
+    }
+
+    public long getEventCount() {
+        return events;
+    }
+
+    public long getKeyframeCount() {
+        return keyframes;
+    }
+
+    /**
+     * Keyframes that matched the state replayed since the previous keyframe.
+     */
+    public long getVerifiedCount() {
+        return verified;
+    }
+
+    /**
+     * Keyframes that disagreed with the state replayed since the previous keyframe.
+     */
+    public long getMismatchCount() {
+        return mismatches;
+    }
+}
@@ -0,0 +1,94 @@
+package com.tetris.server;
+
+/**
+ * Hashed timing wheel. Timers hash into a slot by their deadline tick and one thread sweeps
+ * a slot per tick, so scheduling and expiring cost the same however many timers are live.
+ * Timers are intrusive list nodes, so scheduling allocates nothing. A deadline more than
+ * one revolution away stays in its slot until the sweep comes round to it.
+ */
+final class TimerWheel {
+    abstract static class Timer {
+        private Timer next;
+        private long deadlineTick;
+
+        // Runs on the thread calling advance(); must not block. The timer may be rescheduled.
+        abstract void onExpired();
+    }
+
+    private final long origin;
+    private final long tickNanos;
+    private final Timer[] slots;
+    private final int mask;
+    private long currentTick;
+
+    TimerWheel(long tickNanos, int slotCount) {
+        if (Integer.bitCount(slotCount) != 1) {
+            throw new IllegalArgumentException("slotCount must be a power of two");
+        }
+        this.origin = System.nanoTime();
+        this.tickNanos = tickNanos;
+        this.slots = new Timer[slotCount];
+        this.mask = slotCount - 1;
+    }
+
+    long getTickNanos() {
+        return tickNanos;
+    }
+
+    /**
+     * Expire the timer on the first sweep at or after the deadline. The timer must not
+     * already be scheduled.
+     */
+    synchronized void schedule(Timer timer, long deadlineNanos) {
+        long tick = -Math.floorDiv(origin - deadlineNanos, tickNanos);
+        if (tick <= currentTick) tick = currentTick + 1;
+        timer.deadlineTick = tick;
+        int slot = (int) tick & mask;
+        timer.next = slots[slot];
+        slots[slot] = timer;
+    }
+
+    /**
+     * Sweep every slot up to the given time and expire the timers that are due.
+     * Returns how many expired.
+     */
+    int advance(long nowNanos) {
+        Timer due = null;
+        synchronized (this) {
+            long target = Math.floorDiv(nowNanos - origin, tickNanos);
+            // After a stall, one revolution visits every slot
+            currentTick = Math.max(currentTick, target - slots.length);
+            while (currentTick < target) {
+                currentTick++;
+                int slot = (int) currentTick & mask;
+                Timer prev = null;
+                Timer timer = slots[slot];
+                while (timer != null) {
+                    Timer next = timer.next;
+                    if (timer.deadlineTick <= currentTick) {
+                        if (prev == null) {
+                            slots[slot] = next;
+                        } else {
+                            prev.next = next;
+                        }
+                        timer.next = due;
+                        due = timer;
+                    } else {
+                        prev = timer;
+                    }
+                    timer = next;
+                }
+            }
+        }
+
+        int count = 0;
+        while (due != null) {
+            Timer next = due.next;
+            due.next = null;
+            due.onExpired();
+            due = next;
+            count++;
+        }
+        return count;
+    }
+}
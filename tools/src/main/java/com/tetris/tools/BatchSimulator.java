@@ -0,0 +1,139 @@
+package com.tetris.tools;
+
+import com.tetris.game.TetrisGame;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Supplier;
+
+/**
+ * Plays many seeded games headlessly across all cores and reports score, lines, pieces and
+ * game-length distributions.
+ *
+ * Game i uses seed (base seed + i), so a run is reproducible and two runs with the same
+ * options play exactly the same games; change a rule, rerun and compare. Each piece is
+ * placed by the policy and followed by one gravity tick. A game ends when it tops out or
+ * reaches the piece limit, since a good policy can otherwise play forever.
+ *
+ * The seed range is split in half recursively on a fork-join pool until a task holds a
+ * handful of games. Each worker thread keeps one policy instance, and per-task statistics
+ * are fixed-size histograms merged on the way back up.
+ */
+public final class BatchSimulator {
+    // Games per leaf task; small enough to balance long games across workers
+    private static final int LEAF_GAMES = 8;
+
+    private final long baseSeed;
+    private final int speed;
+    private final int startingLines;
+    private final int maxPieces;
+    private final ThreadLocal<Policy> policies;
+
+    public BatchSimulator(long baseSeed, int speed, int startingLines, int maxPieces,
+                          Supplier<Policy> policyFactory) {
+        this.baseSeed = baseSeed;
+        this.speed = speed;
+        this.startingLines = startingLines;
+        this.maxPieces = maxPieces;
+        this.policies = ThreadLocal.withInitial(policyFactory);
+    }
+
+    public static void main(String[] args) {
+        Options options = new Options(args);
+        long games = options.getLong("games", 10_000);
+        long seed = options.getLong("seed", 1);
+        int threads = options.getInt("threads", Runtime.getRuntime().availableProcessors());
+        int speed = options.getInt("speed", 5);
+        int startingLines = options.getInt("starting-lines", 0);
+        int maxPieces = options.getInt("max-pieces", 10_000);
+        String policyName = options.get("policy", "search");
+        double[] weights = options.getDoubles("weights", Policy.defaultWeights());
+        if (games <= 0 || threads <= 0 || maxPieces <= 0) {
+            throw new IllegalArgumentException("--games, --threads and --max-pieces must be positive");
+        }
+        if (startingLines < 0 || startingLines > 9) {
+            throw new IllegalArgumentException("--starting-lines must be between 0 and 9");
+        }
+        // Fail on a bad name or weights before starting any threads
+        Policy.create(policyName, weights);
+
+        BatchSimulator simulator = new BatchSimulator(seed, speed, startingLines, maxPieces,
+                () -> Policy.create(policyName, weights));
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        long start = System.nanoTime();
+        SimulationStats stats;
+        try {
+            stats = simulator.run(pool, 0, games);
+        } finally {
+            pool.shutdown();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("policy   %s, speed %d, starting lines %d, seeds %d..%d%n",
+                policyName, speed, startingLines, seed, seed + games - 1);
+        System.out.printf("games    %d (%d topped out, %d reached %d pieces)%n",
+                stats.games, stats.toppedOut, stats.games - stats.toppedOut, maxPieces);
+        System.out.printf("elapsed  %.2f s on %d threads, %.0f games/s, %.0f pieces/s%n",
+                seconds, threads, stats.games / seconds, stats.pieces.getMean() * stats.games / seconds);
+        System.out.println();
+        stats.print(System.out);
+    }
+
+    /**
+     * Play games [from, to) on the given pool and return their merged statistics.
+     */
+    public SimulationStats run(ForkJoinPool pool, long from, long to) {
+        return pool.invoke(task(from, to));
+    }
+
+    /**
+     * A task for games [from, to), for callers that submit several batches to one pool at once.
+     */
+    public ForkJoinTask<SimulationStats> task(long from, long to) {
+        return new GameRange(from, to);
+    }
+
+    private SimulationStats playRange(long from, long to) {
+        SimulationStats stats = new SimulationStats();
+        Policy policy = policies.get();
+        for (long i = from; i < to; i++) {
+            playGame(baseSeed + i, policy, stats);
+        }
+        return stats;
+    }
+
+    private void playGame(long seed, Policy policy, SimulationStats stats) {
+        TetrisGame game = new TetrisGame(speed, null, startingLines, seed);
+        policy.reset(seed);
+        int pieces = 0;
+        while (!game.isGameOver() && pieces < maxPieces) {
+            if (!policy.playPiece(game)) break;
+            pieces++;
+            game.tick();
+        }
+        stats.record(game.getScore(), game.getLines(), pieces, game.getTickCount(), game.isGameOver());
+    }
+
+    private final class GameRange extends RecursiveTask<SimulationStats> {
+        private final long from;
+        private final long to;
+
+        GameRange(long from, long to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected SimulationStats compute() {
+            if (to - from <= LEAF_GAMES) {
+                return playRange(from, to);
+            }
+            long mid = (from + to) >>> 1;
+            GameRange left = new GameRange(from, mid);
+            left.fork();
+            SimulationStats right = new GameRange(mid, to).compute();
+            return right.merge(left.join());
+        }
+    }
+}
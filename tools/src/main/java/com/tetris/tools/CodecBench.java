@@ -0,0 +1,173 @@
+package com.tetris.tools;
+
+import com.tetris.game.BoardCodec;
+import com.tetris.game.TetrisBoard;
+import com.tetris.game.TetrisGame;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures BoardCodec on boards from real play: the size of every locked board as a
+ * keyframe and as a delta against the board before it, and the time to encode and decode
+ * each. Games are recorded first, so the timed loops run over boards already in memory.
+ * Every decoded board is checked against the original.
+ */
+public final class CodecBench {
+    private CodecBench() {
+    }
+
+    public static void main(String[] args) {
+        Options options = new Options(args);
+        int games = options.getInt("games", 200);
+        long seed = options.getLong("seed", 1);
+        int startingLines = options.getInt("starting-lines", 0);
+        int maxPieces = options.getInt("max-pieces", 500);
+        int rounds = options.getInt("rounds", 20);
+        String policyName = options.get("policy", "search");
+        Policy policy = Policy.create(policyName, options.getDoubles("weights", Policy.defaultWeights()));
+        if (games <= 0 || maxPieces <= 0 || rounds <= 0) {
+            throw new IllegalArgumentException("--games, --max-pieces and --rounds must be positive");
+        }
+
+        List<TetrisBoard[]> recorded = new ArrayList<>();
+        int frames = 0;
+        for (int g = 0; g < games; g++) {
+            TetrisBoard[] boards = record(policy, seed + g, startingLines, maxPieces);
+            recorded.add(boards);
+            frames += boards.length;
+        }
+        TetrisBoard sample = recorded.get(0)[0];
+        int rows = sample.getRows();
+        int cols = sample.getCols();
+        BoardCodec encoder = new BoardCodec(rows, cols);
+        BoardCodec decoder = new BoardCodec(rows, cols);
+        ByteBuffer buffer = ByteBuffer.allocate(encoder.getMaxFrameSize());
+
+        // Sizes, and the encoded stream each game decodes from
+        Histogram keyframeBytes = new Histogram();
+        Histogram deltaBytes = new Histogram();
+        List<byte[][]> encoded = new ArrayList<>();
+        for (TetrisBoard[] boards : recorded) {
+            byte[][] stream = new byte[boards.length][];
+            encoder.reset();
+            for (int i = 0; i < boards.length; i++) {
+                buffer.clear();
+                encoder.encode(boards[i], buffer);
+                stream[i] = copy(buffer);
+                if (i > 0) deltaBytes.record(stream[i].length);
+            }
+            BoardCodec keyframes = new BoardCodec(rows, cols);
+            for (TetrisBoard board : boards) {
+                buffer.clear();
+                keyframes.encodeKeyframe(board, buffer);
+                keyframeBytes.record(buffer.position());
+            }
+            encoded.add(stream);
+        }
+
+        long mismatches = 0;
+        TetrisBoard target = new TetrisBoard(rows, cols);
+        for (int g = 0; g < recorded.size(); g++) {
+            TetrisBoard[] boards = recorded.get(g);
+            byte[][] stream = encoded.get(g);
+            for (int i = 0; i < boards.length; i++) {
+                decoder.decode(ByteBuffer.wrap(stream[i]), target);
+                if (!sameBoard(boards[i], target)) mismatches++;
+            }
+        }
+
+        long encodeNanos = Long.MAX_VALUE;
+        long keyframeNanos = Long.MAX_VALUE;
+        long decodeNanos = Long.MAX_VALUE;
+        // Untimed rounds first, so small runs are measured compiled too
+        int warmup = Math.max(1, 200_000 / frames);
+        for (int r = -warmup; r < rounds; r++) {
+            if (r == 0) {
+                encodeNanos = Long.MAX_VALUE;
+                keyframeNanos = Long.MAX_VALUE;
+                decodeNanos = Long.MAX_VALUE;
+            }
+            long start = System.nanoTime();
+            for (TetrisBoard[] boards : recorded) {
+                encoder.reset();
+                for (TetrisBoard board : boards) {
+                    buffer.clear();
+                    encoder.encode(board, buffer);
+                }
+            }
+            encodeNanos = Math.min(encodeNanos, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            for (TetrisBoard[] boards : recorded) {
+                for (TetrisBoard board : boards) {
+                    buffer.clear();
+                    encoder.encodeKeyframe(board, buffer);
+                }
+            }
+            keyframeNanos = Math.min(keyframeNanos, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            for (byte[][] stream : encoded) {
+                for (byte[] frame : stream) {
+                    decoder.decode(ByteBuffer.wrap(frame), target);
+                }
+            }
+            decodeNanos = Math.min(decodeNanos, System.nanoTime() - start);
+        }
+
+        System.out.printf("policy   %s, starting lines %d, %d games, %d boards of %dx%d%n",
+                policyName, startingLines, games, frames, rows, cols);
+        System.out.printf("raw      %d bytes per board as cell codes, %d as row masks alone%n",
+                rows * cols, rows * ((cols + 7) / 8));
+        System.out.printf("%-8s %12s %10s %10s %10s %10s %10s%n", "bytes", "mean", "min", "p50", "p90", "p99", "max");
+        printRow("keyframe", keyframeBytes);
+        printRow("delta", deltaBytes);
+        System.out.printf("time     encode %.0f ns, keyframe %.0f ns, decode %.0f ns per board (best of %d rounds)%n",
+                (double) encodeNanos / frames, (double) keyframeNanos / frames, (double) decodeNanos / frames, rounds);
+        System.out.printf("checked  %d boards decoded, %d mismatched%n", frames, mismatches);
+    }
+
+    // The board after every piece, from the empty or garbage-filled start
+    private static TetrisBoard[] record(Policy policy, long seed, int startingLines, int maxPieces) {
+        TetrisGame game = new TetrisGame(5, null, startingLines, seed);
+        policy.reset(seed);
+        List<TetrisBoard> boards = new ArrayList<>();
+        boards.add(snapshot(game.getBoard()));
+        while (!game.isGameOver() && boards.size() <= maxPieces) {
+            if (!policy.playPiece(game)) break;
+            boards.add(snapshot(game.getBoard()));
+        }
+        return boards.toArray(new TetrisBoard[0]);
+    }
+
+    private static TetrisBoard snapshot(TetrisBoard board) {
+        TetrisBoard copy = new TetrisBoard(board.getRows(), board.getCols());
+        copy.copyFrom(board);
+        return copy;
+    }
+
+    private static byte[] copy(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.position()];
+        System.arraycopy(buffer.array(), 0, bytes, 0, bytes.length);
+        return bytes;
+    }
+
+    private static boolean sameBoard(TetrisBoard a, TetrisBoard b) {
+        for (int i = 0; i < a.getRows(); i++) {
+            if (a.getRowMask(i) != b.getRowMask(i)) return false;
+            for (int j = 0; j < a.getCols(); j++) {
+                if (a.getCell(i, j) != b.getCell(i, j)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static void printRow(String name, Histogram h) {
+        System.out.printf("%-8s %12.1f %10d %10d %10d %10d %10d%n", name, h.getMean(), h.getMin(),
+                h.getPercentile(0.5), h.getPercentile(0.9), h.getPercentile(0.99), h.getMax());
+    }
+}
@@ -0,0 +1,83 @@
+package com.tetris.tools;
+
+/**
+ * Distribution of non-negative values in log-linear buckets: exact below 64, then 32
+ * buckets per power of two (about 3% resolution). Fixed size, so recording never
+ * allocates and histograms from different threads merge by adding counts.
+ */
+final class Histogram {
+    private static final int LINEAR = 64;
+    private static final int SUB_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int BUCKETS = LINEAR + (63 - 6) * SUB_BUCKETS;
+
+    private final long[] counts = new long[BUCKETS];
+    private long count;
+    private long sum;
+    private long min = Long.MAX_VALUE;
+    private long max = Long.MIN_VALUE;
+
+    void record(long value) {
+        counts[index(Math.max(0, value))]++;
+        count++;
+        sum += value;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    void merge(Histogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    long getCount() {
+        return count;
+    }
+
+    double getMean() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    long getMin() {
+        return count == 0 ? 0 : min;
+    }
+
+    long getMax() {
+        return count == 0 ? 0 : max;
+    }
+
+    /**
+     * Smallest bucket value with at least the given fraction of samples at or below it.
+     */
+    long getPercentile(double fraction) {
+        if (count == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(fraction * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(max, Math.max(min, lowerBound(i)));
+            }
+        }
+        return max;
+    }
+
+    private static int index(long value) {
+        if (value < LINEAR) return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return LINEAR + (exponent - 6) * SUB_BUCKETS + sub;
+    }
+
+    private static long lowerBound(int index) {
+        if (index < LINEAR) return index;
+        int exponent = (index - LINEAR) / SUB_BUCKETS + 6;
+        int sub = (index - LINEAR) % SUB_BUCKETS;
+        return (long) (SUB_BUCKETS + sub) << (exponent - SUB_BITS);
+    }
+}
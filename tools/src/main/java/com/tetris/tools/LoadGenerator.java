@@ -0,0 +1,284 @@
+package com.tetris.tools;
+
+import com.tetris.game.TetrisGame;
+import com.tetris.server.LatencyHistogram;
+import com.tetris.server.Protocol;
+import com.tetris.server.SessionServer;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Simulated players for sizing the session server. One thread drives every client over a
+ * selector: each joins a game, sends random inputs at exponentially distributed intervals
+ * and joins again when its game ends. Reports the round trip from an input to the next
+ * state update, and with --embedded also runs the server in-process and prints its report.
+ */
+public final class LoadGenerator {
+    // Connections opened per loop iteration, so a large run doesn't overflow the accept backlog
+    private static final int CONNECTS_PER_ROUND = 100;
+
+    private final InetSocketAddress address;
+    private final int speed;
+    private final int startingLines;
+    private final long inputNanos;
+    private final SplittableRandom random;
+    private final Selector selector;
+    private final List<Client> clients = new ArrayList<>();
+    private final LatencyHistogram roundTrips = new LatencyHistogram();
+    private long nextSeed;
+    private long states;
+    private long gamesEnded;
+    private long rejected;
+    private long disconnected;
+
+    private LoadGenerator(InetSocketAddress address, int speed, int startingLines, long inputMillis,
+                          long seed) throws IOException {
+        this.address = address;
+        this.speed = speed;
+        this.startingLines = startingLines;
+        this.inputNanos = inputMillis * 1_000_000L;
+        this.random = new SplittableRandom(seed);
+        this.nextSeed = seed;
+        this.selector = Selector.open();
+    }
+
+    public static void main(String[] args) throws IOException {
+        Options options = new Options(args);
+        int clientCount = options.getInt("clients", 1000);
+        long seconds = options.getLong("seconds", 30);
+        long reportNanos = options.getLong("report-seconds", 5) * 1_000_000_000L;
+        int speed = options.getInt("speed", 5);
+        int startingLines = options.getInt("starting-lines", 0);
+        long inputMillis = options.getLong("input-ms", 200);
+        long seed = options.getLong("seed", 1);
+
+        SessionServer embedded = null;
+        InetSocketAddress address;
+        if (options.has("embedded")) {
+            int workers = options.getInt("workers", Runtime.getRuntime().availableProcessors());
+            embedded = new SessionServer(new InetSocketAddress("127.0.0.1", 0), workers, clientCount);
+            address = embedded.start();
+        } else {
+            address = new InetSocketAddress(options.get("host", "127.0.0.1"),
+                    options.getInt("port", Protocol.DEFAULT_PORT));
+        }
+
+        LoadGenerator generator = new LoadGenerator(address, speed, startingLines, inputMillis, seed);
+        try {
+            generator.run(clientCount, seconds * 1_000_000_000L, reportNanos, embedded);
+        } finally {
+            generator.selector.close();
+            if (embedded != null) embedded.close();
+        }
+    }
+
+    private void run(int clientCount, long durationNanos, long reportNanos, SessionServer embedded)
+            throws IOException {
+        long start = System.nanoTime();
+        long end = start + durationNanos;
+        long lastReport = start;
+        long nextReport = start + reportNanos;
+        long now = start;
+        while (now < end) {
+            for (int i = 0; i < CONNECTS_PER_ROUND && clients.size() < clientCount; i++) {
+                connect();
+            }
+            selector.select(1);
+            now = System.nanoTime();
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                Client client = (Client) key.attachment();
+                if (!key.isValid()) continue;
+                if (key.isConnectable()) {
+                    finishConnect(client);
+                } else {
+                    if (key.isReadable()) read(client, now);
+                    if (key.isValid() && key.isWritable()) flush(client);
+                }
+            }
+
+            for (int i = 0; i < clients.size(); i++) {
+                Client client = clients.get(i);
+                if (client.playing && now >= client.nextInputNanos) {
+                    sendInput(client, now);
+                }
+            }
+
+            if (now >= nextReport) {
+                report((now - lastReport) / 1e9, embedded);
+                lastReport = now;
+                nextReport += reportNanos;
+            }
+        }
+        // The remainder of a run that isn't a whole number of intervals
+        if (now - lastReport > reportNanos / 10) {
+            report((now - lastReport) / 1e9, embedded);
+        }
+    }
+
+    private void report(double seconds, SessionServer embedded) {
+        int playing = 0;
+        for (Client client : clients) {
+            if (client.playing) playing++;
+        }
+        System.out.printf("clients %d, playing %d, %.0f states/s, %d games ended, %d rejected, %d disconnected;"
+                        + " input round trip %s%n", clients.size(), playing, states / seconds, gamesEnded,
+                rejected, disconnected, roundTrips.drain().describe());
+        states = 0;
+        gamesEnded = 0;
+        if (embedded != null) {
+            System.out.println("  server: " + embedded.report());
+        }
+    }
+
+    private void connect() throws IOException {
+        SocketChannel channel = SocketChannel.open();
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        Client client = new Client(channel);
+        clients.add(client);
+        if (channel.connect(address)) {
+            client.key = channel.register(selector, SelectionKey.OP_READ, client);
+            sendJoin(client);
+        } else {
+            client.key = channel.register(selector, SelectionKey.OP_CONNECT, client);
+        }
+    }
+
+    private void finishConnect(Client client) {
+        try {
+            client.channel.finishConnect();
+        } catch (IOException e) {
+            drop(client);
+            return;
+        }
+        client.key.interestOps(SelectionKey.OP_READ);
+        sendJoin(client);
+    }
+
+    private void read(Client client, long now) {
+        ByteBuffer in = client.in;
+        try {
+            if (client.channel.read(in) < 0) {
+                drop(client);
+                return;
+            }
+        } catch (IOException e) {
+            drop(client);
+            return;
+        }
+        in.flip();
+        while (in.remaining() >= 4) {
+            int start = in.position();
+            int length = in.getInt(start);
+            if (in.remaining() < 4 + length) break;
+            byte type = in.get(start + 4);
+            switch (type) {
+                case Protocol.JOINED:
+                    client.playing = true;
+                    client.nextInputNanos = now + nextInterval();
+                    break;
+                case Protocol.STATE:
+                    states++;
+                    if (client.inputSentNanos != 0) {
+                        roundTrips.record((now - client.inputSentNanos) / 1000);
+                        client.inputSentNanos = 0;
+                    }
+                    break;
+                case Protocol.GAME_OVER:
+                    gamesEnded++;
+                    client.playing = false;
+                    client.inputSentNanos = 0;
+                    sendJoin(client);
+                    break;
+                case Protocol.REJECTED:
+                    rejected++;
+                    client.playing = false;
+                    break;
+            }
+            in.position(start + 4 + length);
+        }
+        in.compact();
+    }
+
+    private void sendJoin(Client client) {
+        ByteBuffer out = client.out;
+        out.putInt(Protocol.JOIN_SIZE - 4).put(Protocol.JOIN)
+                .putInt(speed).putInt(startingLines).putLong(nextSeed++);
+        flush(client);
+    }
+
+    private void sendInput(Client client, long now) {
+        // Mostly movement, with a hard drop often enough to keep pieces coming
+        int roll = random.nextInt(8);
+        int command = roll < 2 ? TetrisGame.CMD_LEFT
+                : roll < 4 ? TetrisGame.CMD_RIGHT
+                : roll < 6 ? TetrisGame.CMD_ROTATE
+                : roll < 7 ? TetrisGame.CMD_SOFT_DROP
+                : TetrisGame.CMD_HARD_DROP;
+        client.out.putInt(Protocol.INPUT_SIZE - 4).put(Protocol.INPUT).put((byte) command);
+        if (client.inputSentNanos == 0) client.inputSentNanos = now;
+        client.nextInputNanos = now + nextInterval();
+        flush(client);
+    }
+
+    private long nextInterval() {
+        return (long) (-Math.log(1 - random.nextDouble()) * inputNanos);
+    }
+
+    private void flush(Client client) {
+        ByteBuffer out = client.out;
+        try {
+            out.flip();
+            client.channel.write(out);
+            out.compact();
+        } catch (IOException e) {
+            drop(client);
+            return;
+        }
+        if (client.key.isValid()) {
+            client.key.interestOps(out.position() > 0
+                    ? SelectionKey.OP_READ | SelectionKey.OP_WRITE
+                    : SelectionKey.OP_READ);
+        }
+    }
+
+    private void drop(Client client) {
+        if (!client.key.isValid()) return;
+        disconnected++;
+        client.playing = false;
+        client.key.cancel();
+        try {
+            client.channel.close();
+        } catch (IOException e) {
+            // Already gone
+        }
+    }
+
+    private static final class Client {
+        final SocketChannel channel;
+        final ByteBuffer in = ByteBuffer.allocate(4096).order(ByteOrder.LITTLE_ENDIAN);
+        final ByteBuffer out = ByteBuffer.allocate(1024).order(ByteOrder.LITTLE_ENDIAN);
+        SelectionKey key;
+        boolean playing;
+        long nextInputNanos;
+        // When the oldest input not yet answered by a state update was sent, or 0
+        long inputSentNanos;
+
+        Client(SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+}
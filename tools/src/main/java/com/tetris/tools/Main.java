@@ -0,0 +1,74 @@
+package com.tetris.tools;
+
+import java.util.Arrays;
+
+/**
+ * Entry point for the command-line tools: the first argument picks the tool.
+ */
+public final class Main {
+    private Main() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            usage();
+            System.exit(2);
+        }
+        String[] rest = Arrays.copyOfRange(args, 1, args.length);
+        try {
+            switch (args[0]) {
+                case "simulate":
+                    BatchSimulator.main(rest);
+                    break;
+                case "tune":
+                    WeightTuner.main(rest);
+                    break;
+                case "record":
+                    ReplayGenerator.main(rest);
+                    break;
+                case "verify":
+                    ReplayVerifyService.main(rest);
+                    break;
+                case "serve":
+                    ServerLauncher.main(rest);
+                    break;
+                case "load":
+                    LoadGenerator.main(rest);
+                    break;
+                case "netplay":
+                    NetplayBench.main(rest);
+                    break;
+                case "codec":
+                    CodecBench.main(rest);
+                    break;
+                case "spectate":
+                    SpectatorBench.main(rest);
+                    break;
+                case "perfect":
+                    PerfectClearBench.main(rest);
+                    break;
+                default:
+                    usage();
+                    System.exit(2);
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(2);
+        }
+    }
+
+    private static void usage() {
+        System.err.println("usage: tools <command> [options]");
+        System.err.println("commands:");
+        System.err.println("  simulate   play seeded games with an automated policy and report statistics");
+        System.err.println("  tune       optimise the search policy's evaluation weights");
+        System.err.println("  record     play seeded games and write them as replay files");
+        System.err.println("  verify     re-simulate replays from files or a local socket and check their results");
+        System.err.println("  serve      host live games for online play");
+        System.err.println("  load       drive a session server with simulated players and report latency");
+        System.err.println("  netplay    play a rollback versus match over loopback UDP with simulated lag and loss");
+        System.err.println("  codec      measure delta board encoding size and speed on recorded games");
+        System.err.println("  spectate   broadcast a game to many viewers and check what they rebuild");
+        System.err.println("  perfect    time the perfect clear solver on four-line positions");
+    }
+}
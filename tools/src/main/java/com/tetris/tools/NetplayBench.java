@@ -0,0 +1,232 @@
+package com.tetris.tools;
+
+import com.tetris.game.RollbackSession;
+import com.tetris.game.TetrisGame;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.DatagramChannel;
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Plays a rollback versus match between two peers over loopback UDP, with simulated
+ * latency, jitter and packet loss, then checks that both peers ended in the same state.
+ *
+ * Each peer runs at RollbackSession.FRAME_RATE on its own thread and sends a datagram per
+ * frame carrying every local input the other side hasn't acknowledged, so a lost packet
+ * costs latency rather than a resend protocol. Reports rollback depth, per-frame cost
+ * against the frame budget, and stalls.
+ */
+public final class NetplayBench {
+    private static final long FRAME_NANOS = 1_000_000_000L / RollbackSession.FRAME_RATE;
+    // How long a finished peer keeps resending, so the other side still gets its last inputs
+    private static final long LINGER_NANOS = 500_000_000L;
+
+    private NetplayBench() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new Options(args);
+        Settings settings = new Settings();
+        settings.frames = options.getInt("frames", 1200);
+        settings.speed = options.getInt("speed", 5);
+        settings.seed = options.getLong("seed", 1);
+        settings.maxRollback = options.getInt("max-rollback", 8);
+        settings.budgetNanos = options.getLong("budget-us", FRAME_NANOS / 1000) * 1000;
+        settings.latencyNanos = options.getLong("latency-ms", 40) * 1_000_000L;
+        settings.jitterNanos = options.getLong("jitter-ms", 10) * 1_000_000L;
+        settings.loss = options.getInt("loss-percent", 5) / 100.0;
+        settings.inputPercent = options.getInt("input-percent", 15);
+
+        DatagramChannel channel0 = DatagramChannel.open().bind(new InetSocketAddress("127.0.0.1", 0));
+        DatagramChannel channel1 = DatagramChannel.open().bind(new InetSocketAddress("127.0.0.1", 0));
+        channel0.connect(channel1.getLocalAddress());
+        channel1.connect(channel0.getLocalAddress());
+        Peer peer0 = new Peer(0, channel0, settings);
+        Peer peer1 = new Peer(1, channel1, settings);
+
+        System.out.printf("%d frames at %d fps, %d ms +/- %d ms latency, %.0f%% loss, rollback window %d%n",
+                settings.frames, RollbackSession.FRAME_RATE, settings.latencyNanos / 1_000_000,
+                settings.jitterNanos / 1_000_000, settings.loss * 100, settings.maxRollback);
+        Thread thread0 = new Thread(peer0, "Peer0");
+        Thread thread1 = new Thread(peer1, "Peer1");
+        thread0.start();
+        thread1.start();
+        thread0.join();
+        thread1.join();
+        channel0.close();
+        channel1.close();
+
+        peer0.report();
+        peer1.report();
+        if (peer0.error != null || peer1.error != null) {
+            throw new IllegalStateException("A peer failed", peer0.error != null ? peer0.error : peer1.error);
+        }
+        boolean inSync = true;
+        for (int p = 0; p < 2; p++) {
+            TetrisGame a = peer0.session.getGame(p);
+            TetrisGame b = peer1.session.getGame(p);
+            inSync &= a.getPositionHash() == b.getPositionHash() && a.getScore() == b.getScore()
+                    && a.getLines() == b.getLines() && a.getTickCount() == b.getTickCount();
+            System.out.printf("player %d: score %d, lines %d%s%n", p, a.getScore(), a.getLines(),
+                    a.isGameOver() ? ", topped out" : "");
+        }
+        System.out.println(inSync ? "peers in sync" : "DESYNC");
+        if (!inSync) System.exit(1);
+    }
+
+    private static final class Settings {
+        int frames;
+        int speed;
+        long seed;
+        int maxRollback;
+        long budgetNanos;
+        long latencyNanos;
+        long jitterNanos;
+        double loss;
+        int inputPercent;
+    }
+
+    // A datagram held back until its simulated arrival time
+    private static final class Delayed implements Comparable<Delayed> {
+        final long releaseNanos;
+        final ByteBuffer data;
+
+        Delayed(long releaseNanos, ByteBuffer data) {
+            this.releaseNanos = releaseNanos;
+            this.data = data;
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(releaseNanos, other.releaseNanos);
+        }
+    }
+
+    private static final class Peer implements Runnable {
+        final int player;
+        final DatagramChannel channel;
+        final Settings settings;
+        final RollbackSession session;
+        final SplittableRandom random;
+        final PriorityQueue<Delayed> outbox = new PriorityQueue<>();
+        final ByteBuffer receive = ByteBuffer.allocate(512).order(ByteOrder.LITTLE_ENDIAN);
+        final Histogram rollbackDepths = new Histogram();
+        final Histogram frameMicros = new Histogram();
+        // Last of our frames the other peer has confirmed
+        long peerAck = -1;
+        long packetsSent;
+        long packetsLost;
+        Exception error;
+
+        Peer(int player, DatagramChannel channel, Settings settings) throws IOException {
+            this.player = player;
+            this.channel = channel;
+            this.settings = settings;
+            this.session = new RollbackSession(settings.speed, settings.seed, player,
+                    settings.maxRollback, settings.budgetNanos);
+            this.random = new SplittableRandom(settings.seed * 31 + player);
+            channel.configureBlocking(false);
+        }
+
+        @Override
+        public void run() {
+            try {
+                play();
+            } catch (Exception e) {
+                error = e;
+            }
+        }
+
+        private void play() throws IOException {
+            long nextFrame = System.nanoTime();
+            long doneAt = 0;
+            while (true) {
+                long now = System.nanoTime();
+                receive();
+                if (now >= nextFrame) {
+                    if (session.getFrame() < settings.frames) {
+                        if (random.nextInt(100) < settings.inputPercent) {
+                            session.setLocalInput(random.nextInt(TetrisGame.CMD_HARD_DROP + 1));
+                        }
+                        if (session.advanceFrame()) {
+                            frameMicros.record(session.getLastFrameNanos() / 1000);
+                            if (session.getLastRollbackDepth() > 0) {
+                                rollbackDepths.record(session.getLastRollbackDepth());
+                            }
+                        }
+                    }
+                    send(now);
+                    nextFrame += FRAME_NANOS;
+                }
+                flush(now);
+
+                if (session.getFrame() == settings.frames
+                        && session.getConfirmedRemoteFrame() == settings.frames - 1) {
+                    if (doneAt == 0) {
+                        session.applyCorrections();
+                        doneAt = now;
+                    } else if (now - doneAt > LINGER_NANOS) {
+                        return;
+                    }
+                }
+                LockSupport.parkNanos(200_000);
+            }
+        }
+
+        // [long ack][long first frame][byte count][count commands]
+        private void send(long now) {
+            long first = peerAck + 1;
+            int count = (int) Math.min(session.getFrame() - first, 255);
+            ByteBuffer packet = ByteBuffer.allocate(8 + 8 + 1 + count).order(ByteOrder.LITTLE_ENDIAN);
+            packet.putLong(session.getConfirmedRemoteFrame()).putLong(first).put((byte) count);
+            for (int i = 0; i < count; i++) {
+                packet.put((byte) session.getLocalInput(first + i));
+            }
+            packet.flip();
+            packetsSent++;
+            if (random.nextDouble() < settings.loss) {
+                packetsLost++;
+                return;
+            }
+            long jitter = settings.jitterNanos > 0 ? random.nextLong(-settings.jitterNanos, settings.jitterNanos + 1) : 0;
+            outbox.add(new Delayed(now + Math.max(0, settings.latencyNanos + jitter), packet));
+        }
+
+        private void flush(long now) throws IOException {
+            while (!outbox.isEmpty() && outbox.peek().releaseNanos <= now) {
+                channel.write(outbox.poll().data);
+            }
+        }
+
+        private void receive() throws IOException {
+            while (true) {
+                receive.clear();
+                if (channel.receive(receive) == null) return;
+                receive.flip();
+                peerAck = Math.max(peerAck, receive.getLong());
+                long first = receive.getLong();
+                int count = receive.get() & 0xFF;
+                for (int i = 0; i < count; i++) {
+                    session.addRemoteInput(first + i, receive.get());
+                }
+            }
+        }
+
+        void report() {
+            System.out.printf("peer %d: %d frames, %d rollbacks (%d frames re-simulated, depth p50 %d p99 %d max %d),"
+                            + " %d stalls, %d/%d packets lost%n",
+                    player, session.getFrame(), session.getRollbacks(), session.getResimulatedFrames(),
+                    rollbackDepths.getPercentile(0.5), rollbackDepths.getPercentile(0.99),
+                    session.getMaxRollbackDepth(), session.getStalls(), packetsLost, packetsSent);
+            System.out.printf("  frame cost p50 %d us, p99 %d us, max %d us; %d frames over the %d us budget%n",
+                    frameMicros.getPercentile(0.5), frameMicros.getPercentile(0.99),
+                    session.getMaxFrameNanos() / 1000, session.getFramesOverBudget(),
+                    settings.budgetNanos / 1000);
+        }
+    }
+}
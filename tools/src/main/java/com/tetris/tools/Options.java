@@ -0,0 +1,68 @@
+package com.tetris.tools;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Parses "--name value" pairs and bare "--flag" switches.
+ */
+final class Options {
+    private final Map<String, String> values = new HashMap<>();
+
+    Options(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument: " + arg);
+            }
+            String name = arg.substring(2);
+            if (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                values.put(name, args[++i]);
+            } else {
+                values.put(name, "");
+            }
+        }
+    }
+
+    boolean has(String name) {
+        return values.containsKey(name);
+    }
+
+    String get(String name, String fallback) {
+        String value = values.get(name);
+        return value != null ? value : fallback;
+    }
+
+    int getInt(String name, int fallback) {
+        String value = values.get(name);
+        return value != null ? parse(name, value).intValue() : fallback;
+    }
+
+    long getLong(String name, long fallback) {
+        String value = values.get(name);
+        return value != null ? parse(name, value) : fallback;
+    }
+
+    double[] getDoubles(String name, double[] fallback) {
+        String value = values.get(name);
+        if (value == null) return fallback;
+        String[] parts = value.split(",");
+        double[] result = new double[parts.length];
+        try {
+            for (int i = 0; i < parts.length; i++) {
+                result[i] = Double.parseDouble(parts[i].trim());
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("--" + name + " expects comma-separated numbers");
+        }
+        return result;
+    }
+
+    private static Long parse(String name, String value) {
+        try {
+            return Long.parseLong(value.replace("_", ""));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("--" + name + " expects a number, got " + value);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.tetris.tools;
+
+import com.tetris.game.GameRandom;
+import com.tetris.game.MoveGenerator;
+import com.tetris.game.PerfectClearSolver;
+import com.tetris.game.PieceMasks;
+import com.tetris.game.TetrisBoard;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Times PerfectClearSolver on seeded four-line positions: a few random pieces stacked in the
+ * bottom four rows of an empty board with no covered holes, and a random queue long enough to
+ * clear all four.
+ * Every solution found is played out and must leave the board empty. The cases are solved
+ * once untimed first, so the timed pass is measured compiled.
+ */
+public final class PerfectClearBench {
+    private static final int HEIGHT = 4;
+    private static final int PIECE_TYPES = 7;
+
+    private PerfectClearBench() {
+    }
+
+    public static void main(String[] args) {
+        Options options = new Options(args);
+        int cases = options.getInt("cases", 200);
+        long seed = options.getLong("seed", 1);
+        int setup = options.getInt("setup", 2);
+        int threads = options.getInt("threads", Runtime.getRuntime().availableProcessors());
+        if (cases <= 0 || threads <= 0 || setup < 1 || setup >= HEIGHT * TetrisBoard.DEFAULT_COLS / 4) {
+            throw new IllegalArgumentException("--cases and --threads must be positive, --setup 1 to 9");
+        }
+        int rows = TetrisBoard.DEFAULT_ROWS;
+        int cols = TetrisBoard.DEFAULT_COLS;
+        int queueLength = HEIGHT * cols / 4 - setup;
+
+        int[][] boards = new int[cases][];
+        int[][] queues = new int[cases][];
+        MoveGenerator generator = new MoveGenerator(rows, cols);
+        for (int i = 0; i < cases; i++) {
+            GameRandom random = new GameRandom(seed + i);
+            boards[i] = setUp(generator, random, rows, cols, setup);
+            queues[i] = new int[queueLength];
+            for (int k = 0; k < queueLength; k++) {
+                queues[i][k] = random.nextInt(PIECE_TYPES);
+            }
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            PerfectClearSolver solver = new PerfectClearSolver(rows, cols);
+            for (int i = 0; i < cases; i++) {
+                solver.solve(boards[i], queues[i], queueLength, pool, () -> false);
+            }
+
+            Histogram micros = new Histogram();
+            int found = 0;
+            int wrong = 0;
+            for (int i = 0; i < cases; i++) {
+                long start = System.nanoTime();
+                PerfectClearSolver.Solution solution = solver.solve(boards[i], queues[i], queueLength, pool,
+                        () -> false);
+                micros.record((System.nanoTime() - start) / 1000);
+                if (solution != null) {
+                    found++;
+                    if (!clears(boards[i], cols, solution)) wrong++;
+                }
+            }
+
+            System.out.printf("cases    %d four-line positions, %d pieces set up, queue of %d, %d threads%n",
+                    cases, setup, queueLength, threads);
+            System.out.printf("%-8s %12s %10s %10s %10s %10s %10s%n", "us", "mean", "min", "p50", "p90", "p99", "max");
+            System.out.printf("%-8s %12.1f %10d %10d %10d %10d %10d%n", "solve", micros.getMean(), micros.getMin(),
+                    micros.getPercentile(0.5), micros.getPercentile(0.9), micros.getPercentile(0.99),
+                    micros.getMax());
+            System.out.printf("checked  %d solved, %d without a perfect clear, %d solutions wrong%n",
+                    found, cases - found, wrong);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    // Random pieces resting inside the bottom rows, none of them clearing a line or covering
+    // an empty cell. A board that leaves no room for the next piece is started again.
+    private static int[] setUp(MoveGenerator generator, GameRandom random, int rows, int cols, int pieces) {
+        int[] board = new int[rows];
+        int[] next = new int[rows];
+        int placed = 0;
+        int misses = 0;
+        while (placed < pieces) {
+            if (misses == 100) {
+                board = new int[rows];
+                placed = 0;
+                misses = 0;
+            }
+            int type = random.nextInt(PIECE_TYPES);
+            int count = generator.generate(board, type);
+            int i = random.nextInt(count);
+            int y = generator.getY(i);
+            if (y < rows - HEIGHT
+                    || PieceMasks.place(board, cols, type, generator.getRotation(i), generator.getX(i), y, next) > 0
+                    || hasHole(next)) {
+                misses++;
+                continue;
+            }
+            System.arraycopy(next, 0, board, 0, rows);
+            placed++;
+        }
+        return board;
+    }
+
+    private static boolean hasHole(int[] board) {
+        for (int i = 0; i + 1 < board.length; i++) {
+            if ((board[i] & ~board[i + 1]) != 0) return true;
+        }
+        return false;
+    }
+
+    private static boolean clears(int[] start, int cols, PerfectClearSolver.Solution solution) {
+        int[] board = start.clone();
+        int[] next = new int[board.length];
+        for (int step = 0; step < solution.getLength(); step++) {
+            int type = solution.getType(step);
+            int rotation = solution.getRotation(step);
+            int x = solution.getX(step);
+            int y = solution.getY(step);
+            if (!PieceMasks.fits(board, cols, type, rotation, x, y)) return false;
+            PieceMasks.place(board, cols, type, rotation, x, y, next);
+            int[] swap = board;
+            board = next;
+            next = swap;
+        }
+        for (int row : board) {
+            if (row != 0) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,44 @@
+package com.tetris.tools;
+
+import com.tetris.game.BoardEvaluator;
+import com.tetris.game.TetrisGame;
+
+/**
+ * An automated player. Each simulator thread gets its own instance, so implementations
+ * can keep scratch state without locking.
+ */
+public interface Policy {
+    /**
+     * Called before each game with that game's seed.
+     */
+    default void reset(long seed) {
+    }
+
+    /**
+     * Issue the commands for the current piece, ending with it locked.
+     *
+     * @return false if the policy has no move to make
+     */
+    boolean playPiece(TetrisGame game);
+
+    /**
+     * Look up a policy by name: "search" (one piece), "lookahead" (current plus next piece)
+     * or "random" (any reachable placement).
+     */
+    static Policy create(String name, double[] weights) {
+        switch (name) {
+            case "search":
+                return new SearchPolicy(false, weights);
+            case "lookahead":
+                return new SearchPolicy(true, weights);
+            case "random":
+                return new RandomPolicy();
+            default:
+                throw new IllegalArgumentException("Unknown policy: " + name);
+        }
+    }
+
+    static double[] defaultWeights() {
+        return BoardEvaluator.DEFAULT_WEIGHTS.clone();
+    }
+}
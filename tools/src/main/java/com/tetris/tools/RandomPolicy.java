@@ -0,0 +1,41 @@
+package com.tetris.tools;
+
+import com.tetris.game.GameRandom;
+import com.tetris.game.MoveGenerator;
+import com.tetris.game.PieceSet;
+import com.tetris.game.TetrisBoard;
+import com.tetris.game.TetrisGame;
+
+/**
+ * Drops each piece at a uniformly random reachable placement. A baseline for comparing
+ * rule changes that shouldn't depend on playing well.
+ */
+final class RandomPolicy implements Policy {
+    private final GameRandom random = new GameRandom(0);
+    private MoveGenerator generator;
+    private PieceSet pieces;
+    private int[] path;
+
+    @Override
+    public void reset(long seed) {
+        // Decorrelate from the game's own piece sequence, which uses the same seed
+        random.setState(~seed);
+    }
+
+    @Override
+    public boolean playPiece(TetrisGame game) {
+        TetrisBoard board = game.getBoard();
+        if (generator == null || pieces != game.getPieceSet()) {
+            pieces = game.getPieceSet();
+            generator = new MoveGenerator(board.getRows(), board.getCols(), pieces);
+            path = new int[generator.getMaxPathLength()];
+        }
+        int count = generator.generate(board, game.getCurrentPiece());
+        if (count == 0) return false;
+        int length = generator.getPath(random.nextInt(count), path);
+        for (int i = 0; i < length; i++) {
+            game.applyCommand(path[i]);
+        }
+        return true;
+    }
+}
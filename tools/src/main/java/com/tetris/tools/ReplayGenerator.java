@@ -0,0 +1,70 @@
+package com.tetris.tools;
+
+import com.tetris.game.Gravity;
+import com.tetris.game.PieceSet;
+import com.tetris.game.ReplayRecorder;
+import com.tetris.game.Scoring;
+import com.tetris.game.TetrisBoard;
+import com.tetris.game.TetrisGame;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+/**
+ * Plays seeded games with a policy and writes each one as a replay file, to feed the
+ * verifier from local files. Games use the app's rules, the only ones the verifier accepts.
+ * With --tamper-every N, every Nth file gets its seed altered after recording, so the
+ * verifier has known-bad replays to reject.
+ */
+public final class ReplayGenerator {
+    // Offset of the seed in the replay header, after magic and version
+    private static final int SEED_OFFSET = 5;
+
+    private ReplayGenerator() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        Options options = new Options(args);
+        int games = options.getInt("games", 1000);
+        long seed = options.getLong("seed", 1);
+        int speed = options.getInt("speed", 5);
+        int startingLines = options.getInt("starting-lines", 0);
+        int maxPieces = options.getInt("max-pieces", 500);
+        int tamperEvery = options.getInt("tamper-every", 0);
+        String policyName = options.get("policy", "search");
+        File out = new File(options.get("out", "replays"));
+        if (!out.isDirectory() && !out.mkdirs()) {
+            throw new IOException("Could not create " + out);
+        }
+        Policy policy = Policy.create(policyName, options.getDoubles("weights", Policy.defaultWeights()));
+
+        int tampered = 0;
+        for (int i = 0; i < games; i++) {
+            long gameSeed = seed + i;
+            TetrisGame game = new TetrisGame(speed, null, startingLines, gameSeed, TetrisBoard.DEFAULT_ROWS,
+                    TetrisBoard.DEFAULT_COLS, PieceSet.STANDARD, Gravity.LEVEL_CURVE, Scoring.GUIDELINE);
+            ReplayRecorder recorder = new ReplayRecorder(game);
+            policy.reset(gameSeed);
+            int pieces = 0;
+            while (!game.isGameOver() && pieces < maxPieces && policy.playPiece(game)) {
+                pieces++;
+                game.tick();
+            }
+            recorder.finish(game);
+
+            File file = new File(out, "game-" + gameSeed + ".trp");
+            recorder.writeTo(file);
+            if (tamperEvery > 0 && (i + 1) % tamperEvery == 0) {
+                try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                    raf.seek(SEED_OFFSET);
+                    int b = raf.read();
+                    raf.seek(SEED_OFFSET);
+                    raf.write(b ^ 1);
+                }
+                tampered++;
+            }
+        }
+        System.out.printf("wrote %d replays to %s (%d tampered)%n", games, out, tampered);
+    }
+}
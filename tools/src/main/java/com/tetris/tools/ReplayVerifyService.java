@@ -0,0 +1,232 @@
+package com.tetris.tools;
+
+import com.tetris.game.ReplayVerifier;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Verifies replays by re-simulating them, either from files or from a local socket.
+ *
+ * Files: --path names a replay file or a directory searched recursively. Each replay is one
+ * task on a fixed pool with one thread per core. A semaphore caps the replays in flight, and
+ * each thread reads into its own buffer of MAX_REPLAY_BYTES, so memory stays bounded however
+ * many files there are.
+ *
+ * Socket: --listen binds 127.0.0.1 on the given port. Each connection sends frames of
+ * [int length][replay bytes] and gets back, per frame, [byte verdict][int score][int lines]
+ * [int level][long ticks] with the re-simulated result (all little endian). Connections are
+ * served by a fixed pool, so concurrency is bounded the same way.
+ */
+public final class ReplayVerifyService {
+    static final int MAX_REPLAY_BYTES = 1 << 20;
+    private static final int RESPONSE_SIZE = 1 + 4 + 4 + 4 + 8;
+    // Verdict byte for a frame too large to read
+    private static final byte TOO_LARGE = (byte) 0xFF;
+
+    private final ReplayVerifier verifier;
+    private final boolean verbose;
+    private final ThreadLocal<ByteBuffer> buffers = ThreadLocal.withInitial(
+            () -> ByteBuffer.allocate(MAX_REPLAY_BYTES).order(ByteOrder.LITTLE_ENDIAN));
+
+    private final LongAdder[] verdictCounts = new LongAdder[ReplayVerifier.Verdict.values().length];
+    private final LongAdder tooLarge = new LongAdder();
+    private final LongAdder ioErrors = new LongAdder();
+    private final LongAdder ticks = new LongAdder();
+
+    ReplayVerifyService(long maxTicks, boolean verbose) {
+        this.verifier = new ReplayVerifier(maxTicks);
+        this.verbose = verbose;
+        for (int i = 0; i < verdictCounts.length; i++) {
+            verdictCounts[i] = new LongAdder();
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Options options = new Options(args);
+        int threads = options.getInt("threads", Runtime.getRuntime().availableProcessors());
+        long maxTicks = options.getLong("max-ticks", 10_000_000L);
+        boolean verbose = options.has("verbose");
+        if (threads <= 0 || maxTicks <= 0) {
+            throw new IllegalArgumentException("--threads and --max-ticks must be positive");
+        }
+        ReplayVerifyService service = new ReplayVerifyService(maxTicks, verbose);
+
+        if (options.has("listen")) {
+            service.serve(options.getInt("listen", 0), options.getInt("max-connections", threads * 4));
+        } else if (options.has("path")) {
+            service.verifyFiles(new File(options.get("path", ".")), threads);
+        } else {
+            throw new IllegalArgumentException("verify needs --path <file|dir> or --listen <port>");
+        }
+    }
+
+    void verifyFiles(File root, int threads) throws InterruptedException {
+        List<File> files = new ArrayList<>();
+        collect(root, files);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        Semaphore inFlight = new Semaphore(threads * 2);
+        long start = System.nanoTime();
+        for (File file : files) {
+            inFlight.acquire();
+            pool.execute(() -> {
+                try {
+                    verifyFile(file);
+                } finally {
+                    inFlight.release();
+                }
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        long total = files.size();
+        System.out.printf("verified %d replays in %.2f s on %d threads: %.0f games/s, %.0f ticks/s%n",
+                total, seconds, threads, total / seconds, ticks.sum() / seconds);
+        for (ReplayVerifier.Verdict verdict : ReplayVerifier.Verdict.values()) {
+            System.out.printf("  %-10s %d%n", verdict, verdictCounts[verdict.ordinal()].sum());
+        }
+        System.out.printf("  %-10s %d%n", "TOO_LARGE", tooLarge.sum());
+        System.out.printf("  %-10s %d%n", "IO_ERROR", ioErrors.sum());
+    }
+
+    private void verifyFile(File file) {
+        ByteBuffer buffer = buffers.get();
+        buffer.clear();
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            FileChannel channel = in.getChannel();
+            if (channel.size() > MAX_REPLAY_BYTES) {
+                tooLarge.increment();
+                report(file.getPath(), "TOO_LARGE");
+                return;
+            }
+            while (buffer.hasRemaining() && channel.read(buffer) > 0) {
+                // Keep reading
+            }
+        } catch (IOException e) {
+            ioErrors.increment();
+            report(file.getPath(), "IO_ERROR " + e.getMessage());
+            return;
+        }
+        buffer.flip();
+        ReplayVerifier.Result result = verify(buffer);
+        if (verbose || result.verdict != ReplayVerifier.Verdict.VALID) {
+            report(file.getPath(), describe(result));
+        }
+    }
+
+    void serve(int port, int maxConnections) throws IOException {
+        ExecutorService connections = Executors.newFixedThreadPool(maxConnections);
+        try (ServerSocketChannel server = ServerSocketChannel.open()) {
+            server.bind(new InetSocketAddress("127.0.0.1", port));
+            System.out.println("verifying replays on " + server.getLocalAddress());
+            while (true) {
+                SocketChannel client = server.accept();
+                connections.execute(() -> handle(client));
+            }
+        } finally {
+            connections.shutdownNow();
+        }
+    }
+
+    private void handle(SocketChannel client) {
+        ByteBuffer header = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer response = ByteBuffer.allocate(RESPONSE_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer buffer = buffers.get();
+        try (SocketChannel channel = client) {
+            while (true) {
+                header.clear();
+                if (!readFully(channel, header)) return;
+                header.flip();
+                int length = header.getInt();
+                response.clear();
+                if (length < 0 || length > MAX_REPLAY_BYTES) {
+                    // The stream can't be resynchronised after a bad length, so answer and hang up
+                    tooLarge.increment();
+                    response.put(TOO_LARGE).putInt(-1).putInt(-1).putInt(-1).putLong(-1);
+                    response.flip();
+                    writeFully(channel, response);
+                    return;
+                }
+                buffer.clear();
+                buffer.limit(length);
+                if (!readFully(channel, buffer)) return;
+                buffer.flip();
+
+                ReplayVerifier.Result result = verify(buffer);
+                if (verbose) {
+                    report(String.valueOf(channel.getRemoteAddress()), describe(result));
+                }
+                response.put((byte) result.verdict.ordinal())
+                        .putInt(result.simulatedScore)
+                        .putInt(result.simulatedLines)
+                        .putInt(result.simulatedLevel)
+                        .putLong(result.simulatedTicks);
+                response.flip();
+                writeFully(channel, response);
+            }
+        } catch (IOException e) {
+            ioErrors.increment();
+        }
+    }
+
+    private ReplayVerifier.Result verify(ByteBuffer replay) {
+        ReplayVerifier.Result result = verifier.verify(replay);
+        verdictCounts[result.verdict.ordinal()].increment();
+        if (result.simulatedTicks > 0) {
+            ticks.add(result.simulatedTicks);
+        }
+        return result;
+    }
+
+    private static String describe(ReplayVerifier.Result r) {
+        return String.format("%s recorded %d/%d/%d@%d simulated %d/%d/%d@%d", r.verdict,
+                r.recordedScore, r.recordedLines, r.recordedLevel, r.recordedTicks,
+                r.simulatedScore, r.simulatedLines, r.simulatedLevel, r.simulatedTicks);
+    }
+
+    private static synchronized void report(String source, String message) {
+        System.out.println(source + ": " + message);
+    }
+
+    private static void collect(File file, List<File> out) {
+        if (file.isDirectory()) {
+            File[] children = file.listFiles();
+            if (children == null) return;
+            for (File child : children) {
+                collect(child, out);
+            }
+        } else if (file.isFile()) {
+            out.add(file);
+        }
+    }
+
+    // False on a clean end of stream before the buffer was filled
+    private static boolean readFully(SocketChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) return false;
+        }
+        return true;
+    }
+
+    private static void writeFully(SocketChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.tetris.tools;
+
+import com.tetris.game.BoardEvaluator;
+import com.tetris.game.PieceSet;
+import com.tetris.game.PlacementSearch;
+import com.tetris.game.TetrisBoard;
+import com.tetris.game.TetrisGame;
+import com.tetris.game.TetrisPiece;
+
+/**
+ * Plays the placement PlacementSearch rates best, searched to completion with no deadline.
+ */
+final class SearchPolicy implements Policy {
+    private final boolean lookahead;
+    private final double[] weights;
+    private PlacementSearch search;
+    private PieceSet pieces;
+    private int[] board = new int[0];
+    private int[] path;
+
+    SearchPolicy(boolean lookahead, double[] weights) {
+        this.lookahead = lookahead;
+        this.weights = weights.clone();
+    }
+
+    @Override
+    public boolean playPiece(TetrisGame game) {
+        TetrisBoard gameBoard = game.getBoard();
+        if (board.length != gameBoard.getRows() || pieces != game.getPieceSet()) {
+            board = new int[gameBoard.getRows()];
+            pieces = game.getPieceSet();
+            search = new PlacementSearch(gameBoard.getRows(), gameBoard.getCols(), pieces,
+                    new BoardEvaluator(gameBoard.getCols(), weights));
+            path = new int[search.getMaxPathLength()];
+        }
+        for (int i = 0; i < board.length; i++) {
+            board[i] = gameBoard.getRowMask(i);
+        }
+
+        TetrisPiece piece = game.getCurrentPiece();
+        int nextType = lookahead ? game.getNextPiece().getType() : -1;
+        if (!search.search(board, piece.getType(), piece.getRotation(), piece.getX(),
+                piece.getY(), nextType, PlacementSearch.NO_DEADLINE, () -> false)) {
+            return false;
+        }
+        int length = search.getPath(path);
+        for (int i = 0; i < length; i++) {
+            game.applyCommand(path[i]);
+        }
+        return true;
+    }
+}
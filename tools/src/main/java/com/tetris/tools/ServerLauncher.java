@@ -0,0 +1,33 @@
+package com.tetris.tools;
+
+import com.tetris.server.Protocol;
+import com.tetris.server.SessionServer;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+
+/**
+ * Runs the session server until killed, printing load statistics at a fixed interval.
+ * Binds 127.0.0.1 unless --host says otherwise.
+ */
+public final class ServerLauncher {
+    private ServerLauncher() {
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Options options = new Options(args);
+        String host = options.get("host", "127.0.0.1");
+        int port = options.getInt("port", Protocol.DEFAULT_PORT);
+        int workers = options.getInt("workers", Runtime.getRuntime().availableProcessors());
+        int maxSessions = options.getInt("max-sessions", 100_000);
+        long reportMillis = options.getLong("report-seconds", 5) * 1000;
+
+        try (SessionServer server = new SessionServer(new InetSocketAddress(host, port), workers, maxSessions)) {
+            System.out.println("serving games on " + server.start() + " with " + workers + " workers");
+            while (true) {
+                Thread.sleep(reportMillis);
+                System.out.println(server.report());
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.tetris.tools;
+
+import java.io.PrintStream;
+
+/**
+ * Per-game results gathered by one simulator task, merged up the fork-join tree.
+ */
+final class SimulationStats {
+    final Histogram score = new Histogram();
+    final Histogram lines = new Histogram();
+    final Histogram pieces = new Histogram();
+    final Histogram ticks = new Histogram();
+    long games;
+    long toppedOut;
+
+    void record(int gameScore, int gameLines, int gamePieces, long gameTicks, boolean gameOver) {
+        score.record(gameScore);
+        lines.record(gameLines);
+        pieces.record(gamePieces);
+        ticks.record(gameTicks);
+        games++;
+        if (gameOver) {
+            toppedOut++;
+        }
+    }
+
+    SimulationStats merge(SimulationStats other) {
+        score.merge(other.score);
+        lines.merge(other.lines);
+        pieces.merge(other.pieces);
+        ticks.merge(other.ticks);
+        games += other.games;
+        toppedOut += other.toppedOut;
+        return this;
+    }
+
+    void print(PrintStream out) {
+        out.printf("%-8s %12s %10s %10s %10s %10s %10s%n", "metric", "mean", "min", "p50", "p90", "p99", "max");
+        printRow(out, "score", score);
+        printRow(out, "lines", lines);
+        printRow(out, "pieces", pieces);
+        printRow(out, "ticks", ticks);
+    }
+
+    private static void printRow(PrintStream out, String name, Histogram h) {
+        out.printf("%-8s %12.1f %10d %10d %10d %10d %10d%n", name, h.getMean(), h.getMin(),
+                h.getPercentile(0.5), h.getPercentile(0.9), h.getPercentile(0.99), h.getMax());
+    }
+}
@@ -0,0 +1,220 @@
+package com.tetris.tools;
+
+import com.tetris.game.TetrisGame;
+import com.tetris.server.SpectatorBroadcaster;
+import com.tetris.server.SpectatorFeed;
+import com.tetris.server.SpectatorReplica;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Broadcasts a game played by the search policy to many loopback viewers. Each viewer
+ * rebuilds the game from the stream and checks it against every keyframe; a share of them
+ * read slowly so the broadcaster has to skip them ahead or cut them off. Reports the
+ * broadcaster's throughput and CPU and what the viewers saw.
+ */
+public final class SpectatorBench {
+    private final Selector selector;
+    private final List<Viewer> viewers = new ArrayList<>();
+    private final int slowBytesPerRead;
+    private final long slowIntervalNanos;
+    private long bytesReceived;
+    private long corrupt;
+    private long disconnected;
+
+    private SpectatorBench(int slowBytesPerRead, long slowIntervalNanos) throws IOException {
+        this.selector = Selector.open();
+        this.slowBytesPerRead = slowBytesPerRead;
+        this.slowIntervalNanos = slowIntervalNanos;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new Options(args);
+        int viewerCount = options.getInt("viewers", 200);
+        double slowShare = options.getDoubles("slow", new double[]{0.1})[0];
+        long seconds = options.getLong("seconds", 20);
+        long reportNanos = options.getLong("report-seconds", 5) * 1_000_000_000L;
+        int piecesPerSecond = options.getInt("pieces-per-second", 400);
+        int logCapacity = options.getInt("log-kb", 64) * 1024;
+        int slowBytesPerSecond = options.getInt("slow-bytes-per-second", 500);
+        long seed = options.getLong("seed", 1);
+        Policy policy = Policy.create(options.get("policy", "search"),
+                options.getDoubles("weights", Policy.defaultWeights()));
+
+        SpectatorBroadcaster broadcaster = new SpectatorBroadcaster(new InetSocketAddress("127.0.0.1", 0),
+                logCapacity, viewerCount);
+        InetSocketAddress address = broadcaster.start();
+        SpectatorBench bench = new SpectatorBench(Math.max(1, slowBytesPerSecond / 50), 20_000_000L);
+        Thread player = new Thread(() -> play(broadcaster, policy, piecesPerSecond, seed), "SpectatorGame");
+        player.setDaemon(true);
+        player.start();
+        try {
+            int slow = (int) Math.round(viewerCount * slowShare);
+            for (int i = 0; i < viewerCount; i++) {
+                bench.connect(address, i < slow);
+            }
+            bench.run(seconds * 1_000_000_000L, reportNanos, broadcaster);
+        } finally {
+            player.interrupt();
+            bench.selector.close();
+            broadcaster.close();
+        }
+    }
+
+    // Plays back-to-back games on the game thread, a fresh feed for each
+    private static void play(SpectatorBroadcaster broadcaster, Policy policy, int piecesPerSecond, long seed) {
+        long pieceNanos = 1_000_000_000L / Math.max(1, piecesPerSecond);
+        long next = System.nanoTime();
+        while (!Thread.currentThread().isInterrupted()) {
+            policy.reset(seed);
+            TetrisGame game = new TetrisGame(5, null, 0, seed++);
+            game.setGameListener(new SpectatorFeed(game, null, broadcaster));
+            while (!game.isGameOver() && policy.playPiece(game)) {
+                next += pieceNanos;
+                long wait = next - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                } else if (wait < -pieceNanos * 100) {
+                    // Don't sprint to catch up after a stall
+                    next = System.nanoTime();
+                }
+            }
+        }
+    }
+
+    private void run(long durationNanos, long reportNanos, SpectatorBroadcaster broadcaster) throws IOException {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        long start = System.nanoTime();
+        long end = start + durationNanos;
+        long lastReport = start;
+        long lastCpu = threads.getThreadCpuTime(broadcaster.getThreadId());
+        long nextReport = start + reportNanos;
+        long now = start;
+        while (now < end) {
+            selector.select(1);
+            now = System.nanoTime();
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                if (key.isValid() && key.isReadable()) {
+                    read((Viewer) key.attachment(), Integer.MAX_VALUE);
+                }
+            }
+            for (int i = 0; i < viewers.size(); i++) {
+                Viewer viewer = viewers.get(i);
+                if (viewer.slow && now >= viewer.nextReadNanos) {
+                    read(viewer, slowBytesPerRead);
+                    viewer.nextReadNanos = now + slowIntervalNanos;
+                }
+            }
+            if (now >= nextReport || now >= end) {
+                long cpu = threads.getThreadCpuTime(broadcaster.getThreadId());
+                report((now - lastReport) / 1e9, (cpu - lastCpu) / (double) (now - lastReport), broadcaster);
+                lastCpu = cpu;
+                lastReport = now;
+                nextReport += reportNanos;
+            }
+        }
+    }
+
+    private void report(double seconds, double cpuShare, SpectatorBroadcaster broadcaster) {
+        long synced = 0;
+        long events = 0;
+        long verified = 0;
+        long mismatches = 0;
+        for (Viewer viewer : viewers) {
+            if (!viewer.channel.isOpen()) continue;
+            if (viewer.replica.isSynced()) synced++;
+            events += viewer.replica.getEventCount() - viewer.reportedEvents;
+            verified += viewer.replica.getVerifiedCount() - viewer.reportedVerified;
+            mismatches += viewer.replica.getMismatchCount() - viewer.reportedMismatches;
+            viewer.reportedEvents = viewer.replica.getEventCount();
+            viewer.reportedVerified = viewer.replica.getVerifiedCount();
+            viewer.reportedMismatches = viewer.replica.getMismatchCount();
+        }
+        System.out.printf("viewers %d synced, %d disconnected, %d corrupt; received %.0f events/s, %.1f MB/s;"
+                        + " keyframes %d verified, %d mismatched%n", synced, disconnected, corrupt,
+                events / seconds, bytesReceived / seconds / 1e6, verified, mismatches);
+        System.out.printf("  broadcast: %s; thread cpu %.0f%%%n", broadcaster.report(), cpuShare * 100);
+        bytesReceived = 0;
+    }
+
+    private void connect(InetSocketAddress address, boolean slow) throws IOException {
+        SocketChannel channel = SocketChannel.open();
+        if (slow) {
+            // Small buffers so a slow reader backs up into the broadcaster quickly
+            channel.setOption(StandardSocketOptions.SO_RCVBUF, 8 * 1024);
+        }
+        channel.connect(address);
+        channel.configureBlocking(false);
+        Viewer viewer = new Viewer(channel, slow);
+        viewers.add(viewer);
+        if (!slow) {
+            channel.register(selector, SelectionKey.OP_READ, viewer);
+        }
+    }
+
+    private void read(Viewer viewer, int limit) {
+        ByteBuffer in = viewer.in;
+        if (!viewer.channel.isOpen()) return;
+        try {
+            in.limit(Math.min(in.capacity(), in.position() + limit));
+            int n = viewer.channel.read(in);
+            if (n < 0) {
+                drop(viewer);
+                return;
+            }
+            bytesReceived += n;
+        } catch (IOException e) {
+            drop(viewer);
+            return;
+        }
+        in.flip();
+        try {
+            viewer.replica.consume(in);
+        } catch (IllegalArgumentException e) {
+            corrupt++;
+            drop(viewer);
+            return;
+        }
+        in.compact();
+    }
+
+    private void drop(Viewer viewer) {
+        disconnected++;
+        try {
+            viewer.channel.close();
+        } catch (IOException e) {
+            // Already gone
+        }
+    }
+
+    private static final class Viewer {
+        final SocketChannel channel;
+        final boolean slow;
+        final ByteBuffer in = ByteBuffer.allocate(64 * 1024);
+        final SpectatorReplica replica = new SpectatorReplica();
+        long nextReadNanos;
+        long reportedEvents;
+        long reportedVerified;
+        long reportedMismatches;
+
+        Viewer(SocketChannel channel, boolean slow) {
+            this.channel = channel;
+            this.slow = slow;
+        }
+    }
+}
@@ -0,0 +1,319 @@
+package com.tetris.tools;
+
+import com.tetris.game.BoardEvaluator;
+import com.tetris.game.GameRandom;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Tunes BoardEvaluator's weights with the cross-entropy method.
+ *
+ * Each generation samples a population of weight vectors from a Gaussian and plays every
+ * candidate on the same seeded games, all candidates in parallel on one fork-join pool.
+ * The best (elite) candidates set the next generation's mean and spread, plus a little
+ * decaying noise so the spread doesn't collapse too early. Fitness is mean lines cleared
+ * per game, capped by the piece limit. Since the evaluator only ranks boards, weights are
+ * kept at unit length.
+ *
+ * After every generation the whole search state, including the sampler's RNG, goes to a
+ * checkpoint file. Rerunning with the same options picks up where it stopped and gives
+ * the same result as an uninterrupted run.
+ */
+public final class WeightTuner {
+    private static final int MAGIC = 0x5454554E; // "TTUN"
+    private static final byte VERSION = 1;
+    private static final int SPEED = 5;
+    private static final double INITIAL_DEVIATION = 0.3;
+    // Extra variance added to each weight, fading to zero over the first generations
+    private static final double INITIAL_NOISE = 0.01;
+    private static final int NOISE_GENERATIONS = 25;
+
+    // Run settings; a checkpoint only resumes a run with the same ones
+    private final int population;
+    private final int elite;
+    private final int gamesPerCandidate;
+    private final int maxPieces;
+    private final int startingLines;
+    private final boolean lookahead;
+    private final long baseSeed;
+
+    // Search state, all of it checkpointed
+    private int generation;
+    private final double[] mean = new double[BoardEvaluator.FEATURE_COUNT];
+    private final double[] deviation = new double[BoardEvaluator.FEATURE_COUNT];
+    private final GameRandom random;
+    private double bestFitness = Double.NEGATIVE_INFINITY;
+    private final double[] bestWeights = new double[BoardEvaluator.FEATURE_COUNT];
+
+    WeightTuner(int population, int elite, int gamesPerCandidate, int maxPieces,
+                int startingLines, boolean lookahead, long baseSeed, double[] initialWeights) {
+        this.population = population;
+        this.elite = elite;
+        this.gamesPerCandidate = gamesPerCandidate;
+        this.maxPieces = maxPieces;
+        this.startingLines = startingLines;
+        this.lookahead = lookahead;
+        this.baseSeed = baseSeed;
+        this.random = new GameRandom(baseSeed);
+        System.arraycopy(initialWeights, 0, mean, 0, mean.length);
+        normalize(mean);
+        Arrays.fill(deviation, INITIAL_DEVIATION);
+    }
+
+    public static void main(String[] args) throws IOException {
+        Options options = new Options(args);
+        int generations = options.getInt("generations", 50);
+        int population = options.getInt("population", 100);
+        int elite = options.getInt("elite", 10);
+        int games = options.getInt("games", 20);
+        int maxPieces = options.getInt("max-pieces", 1000);
+        int startingLines = options.getInt("starting-lines", 0);
+        boolean lookahead = options.has("lookahead");
+        long seed = options.getLong("seed", 1);
+        int threads = options.getInt("threads", Runtime.getRuntime().availableProcessors());
+        double[] weights = options.getDoubles("weights", Policy.defaultWeights());
+        File checkpoint = new File(options.get("checkpoint", "tuner.ckpt"));
+        if (population <= 0 || elite <= 0 || elite > population || games <= 0 || maxPieces <= 0
+                || threads <= 0) {
+            throw new IllegalArgumentException("--population, --games, --max-pieces and --threads must be "
+                    + "positive, and --elite between 1 and --population");
+        }
+        if (weights.length != BoardEvaluator.FEATURE_COUNT) {
+            throw new IllegalArgumentException("--weights expects " + BoardEvaluator.FEATURE_COUNT + " values");
+        }
+
+        WeightTuner tuner = new WeightTuner(population, elite, games, maxPieces, startingLines,
+                lookahead, seed, weights);
+        if (checkpoint.exists() && !options.has("fresh")) {
+            tuner.load(checkpoint);
+            System.out.printf("resumed from %s after generation %d%n", checkpoint, tuner.generation);
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            while (tuner.generation < generations) {
+                tuner.runGeneration(pool);
+                tuner.save(checkpoint);
+            }
+        } finally {
+            pool.shutdown();
+        }
+        System.out.printf("best fitness %.1f lines/game%n", tuner.bestFitness);
+        System.out.println("--weights " + format(tuner.bestWeights));
+    }
+
+    void runGeneration(ForkJoinPool pool) {
+        long start = System.nanoTime();
+        double[][] candidates = new double[population][];
+        for (int i = 0; i < population; i++) {
+            candidates[i] = sample();
+        }
+
+        // Every candidate plays the same games this generation, so they're compared fairly
+        long firstSeed = baseSeed + (long) generation * gamesPerCandidate;
+        String policyName = lookahead ? "lookahead" : "search";
+        List<ForkJoinTask<SimulationStats>> tasks = new ArrayList<>(population);
+        for (int i = 0; i < population; i++) {
+            double[] weights = candidates[i];
+            BatchSimulator simulator = new BatchSimulator(firstSeed, SPEED, startingLines, maxPieces,
+                    () -> Policy.create(policyName, weights));
+            tasks.add(pool.submit(simulator.task(0, gamesPerCandidate)));
+        }
+        double[] fitness = new double[population];
+        long pieces = 0;
+        for (int i = 0; i < population; i++) {
+            SimulationStats stats = tasks.get(i).join();
+            fitness[i] = stats.lines.getMean();
+            pieces += Math.round(stats.pieces.getMean() * stats.games);
+        }
+
+        int[] order = rankByFitness(fitness);
+        updateDistribution(candidates, order);
+        double[] generationBest = candidates[order[0]];
+        if (fitness[order[0]] > bestFitness) {
+            bestFitness = fitness[order[0]];
+            System.arraycopy(generationBest, 0, bestWeights, 0, bestWeights.length);
+        }
+        double eliteFitness = 0;
+        for (int k = 0; k < elite; k++) {
+            eliteFitness += fitness[order[k]];
+        }
+        eliteFitness /= elite;
+
+        generation++;
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long games = (long) population * gamesPerCandidate;
+        System.out.printf(Locale.ROOT,
+                "gen %3d  best %8.1f  elite %8.1f  spread %.3f  %6.0f games/s  %8.0f pieces/s  %s%n",
+                generation, fitness[order[0]], eliteFitness, meanDeviation(),
+                games / seconds, pieces / seconds, format(generationBest));
+    }
+
+    private double[] sample() {
+        double[] weights = new double[mean.length];
+        for (int j = 0; j < weights.length; j++) {
+            weights[j] = mean[j] + deviation[j] * nextGaussian();
+        }
+        normalize(weights);
+        return weights;
+    }
+
+    private void updateDistribution(double[][] candidates, int[] order) {
+        double noise = Math.max(0, INITIAL_NOISE * (1 - (double) generation / NOISE_GENERATIONS));
+        for (int j = 0; j < mean.length; j++) {
+            double sum = 0;
+            for (int k = 0; k < elite; k++) {
+                sum += candidates[order[k]][j];
+            }
+            double m = sum / elite;
+            double variance = 0;
+            for (int k = 0; k < elite; k++) {
+                double d = candidates[order[k]][j] - m;
+                variance += d * d;
+            }
+            mean[j] = m;
+            deviation[j] = Math.sqrt(variance / elite + noise);
+        }
+    }
+
+    // Candidate indexes, best first
+    private static int[] rankByFitness(double[] fitness) {
+        int[] order = new int[fitness.length];
+        for (int i = 0; i < order.length; i++) {
+            int k = i;
+            while (k > 0 && fitness[order[k - 1]] < fitness[i]) {
+                order[k] = order[k - 1];
+                k--;
+            }
+            order[k] = i;
+        }
+        return order;
+    }
+
+    private double nextGaussian() {
+        // Box-Muller; 1 - u keeps the log argument in (0, 1]
+        double u = 1 - random.nextDouble();
+        double v = random.nextDouble();
+        return Math.sqrt(-2 * Math.log(u)) * Math.cos(2 * Math.PI * v);
+    }
+
+    private double meanDeviation() {
+        double sum = 0;
+        for (double d : deviation) {
+            sum += d;
+        }
+        return sum / deviation.length;
+    }
+
+    private static void normalize(double[] weights) {
+        double length = 0;
+        for (double w : weights) {
+            length += w * w;
+        }
+        length = Math.sqrt(length);
+        if (length == 0) return;
+        for (int j = 0; j < weights.length; j++) {
+            weights[j] /= length;
+        }
+    }
+
+    private static String format(double[] weights) {
+        StringBuilder sb = new StringBuilder();
+        for (int j = 0; j < weights.length; j++) {
+            if (j > 0) sb.append(',');
+            sb.append(String.format(Locale.ROOT, "%.6f", weights[j]));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Layout (little endian): int magic, byte version, the run settings, int generations
+     * completed, long RNG state, then mean, deviation and best weights as doubles along with
+     * the best fitness. Written to a temporary file and renamed over the old one.
+     */
+    void save(File file) throws IOException {
+        int n = BoardEvaluator.FEATURE_COUNT;
+        ByteBuffer buffer = ByteBuffer.allocate(64 + 8 * (3 * n + 1)).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC);
+        buffer.put(VERSION);
+        buffer.putInt(n);
+        putSettings(buffer);
+        buffer.putInt(generation);
+        buffer.putLong(random.getState());
+        for (int j = 0; j < n; j++) {
+            buffer.putDouble(mean[j]);
+            buffer.putDouble(deviation[j]);
+            buffer.putDouble(bestWeights[j]);
+        }
+        buffer.putDouble(bestFitness);
+        buffer.flip();
+
+        File tmp = new File(file.getPath() + ".tmp");
+        try (RandomAccessFile out = new RandomAccessFile(tmp, "rw")) {
+            out.setLength(0);
+            FileChannel channel = out.getChannel();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+        if (!tmp.renameTo(file)) {
+            throw new IOException("Could not replace " + file);
+        }
+    }
+
+    void load(File file) throws IOException {
+        ByteBuffer buffer;
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            FileChannel channel = in.getChannel();
+            buffer = ByteBuffer.allocate((int) channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+            while (buffer.hasRemaining() && channel.read(buffer) > 0) {
+                // Keep reading
+            }
+            buffer.flip();
+        }
+        int n = BoardEvaluator.FEATURE_COUNT;
+        if (buffer.remaining() < 9 || buffer.getInt() != MAGIC || buffer.get() != VERSION
+                || buffer.getInt() != n) {
+            throw new IOException(file + " is not a checkpoint for this version");
+        }
+        ByteBuffer expected = ByteBuffer.allocate(64).order(ByteOrder.LITTLE_ENDIAN);
+        putSettings(expected);
+        expected.flip();
+        for (int i = expected.remaining(); i > 0; i--) {
+            if (buffer.get() != expected.get()) {
+                throw new IllegalArgumentException(file + " was written with different settings;"
+                        + " pass the same options, --fresh, or another --checkpoint");
+            }
+        }
+        generation = buffer.getInt();
+        random.setState(buffer.getLong());
+        for (int j = 0; j < n; j++) {
+            mean[j] = buffer.getDouble();
+            deviation[j] = buffer.getDouble();
+            bestWeights[j] = buffer.getDouble();
+        }
+        bestFitness = buffer.getDouble();
+    }
+
+    private void putSettings(ByteBuffer buffer) {
+        buffer.putInt(population);
+        buffer.putInt(elite);
+        buffer.putInt(gamesPerCandidate);
+        buffer.putInt(maxPieces);
+        buffer.putInt(startingLines);
+        buffer.put((byte) (lookahead ? 1 : 0));
+        buffer.putLong(baseSeed);
+    }
+}